@@ -34,9 +34,18 @@ repositories {
     }
 }
 
+// JMH micro-benchmarks for the PSI-free analysis core (com.zhangchengk.panda.study.core), run with ./gradlew jmh.
+// The core has no IntelliJ Platform dependencies, so the benchmarks only need the main output on the classpath.
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
 // Dependencies are managed with Gradle version catalog - read more: https://docs.gradle.org/current/userguide/platforms.html#sub:version-catalog
 dependencies {
     testImplementation(libs.junit)
+    "jmhImplementation"(libs.jmh.core)
+    "jmhAnnotationProcessor"(libs.jmh.generator)
 
     // IntelliJ Platform Gradle Plugin Dependencies Extension - read more: https://plugins.jetbrains.com/docs/intellij/tools-intellij-platform-gradle-plugin-dependencies-extension.html
     intellijPlatform {
@@ -52,6 +61,7 @@ dependencies {
         pluginVerifier()
         zipSigner()
         testFramework(TestFrameworkType.Platform)
+        testFramework(TestFrameworkType.Plugin.Java)
     }
 }
 
@@ -144,6 +154,20 @@ tasks {
     publishPlugin {
         dependsOn(patchChangelog)
     }
+
+    register<JavaExec>("jmh") {
+        description = "Runs the JMH benchmarks of the PSI-free analysis core."
+        group = "verification"
+        classpath = jmh.runtimeClasspath
+        mainClass = "org.openjdk.jmh.Main"
+        // The gc profiler reports the allocation rate next to the throughput
+        args("-prof", "gc", "-rf", "json", "-rff", layout.buildDirectory.file("reports/jmh.json").get().asFile.absolutePath)
+    }
+
+    test {
+        // Timing samples of the *PerformanceTest suite, written as JSON for charting across releases
+        systemProperty("panda.performance.report", layout.buildDirectory.file("reports/panda-performance.json").get().asFile.absolutePath)
+    }
 }
 
 intellijPlatformTesting {
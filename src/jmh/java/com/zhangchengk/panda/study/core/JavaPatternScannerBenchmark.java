@@ -0,0 +1,99 @@
+package com.zhangchengk.panda.study.core;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JavaPatternScanner} 的吞吐量基准测试。
+ * <p>
+ * {@code bytes} 辅助计数器以每秒字节数报告源码吞吐量（除以 10^6 即 MB/s），
+ * {@code -prof gc} 报告的 {@code gc.alloc.rate.norm} 是每次扫描的分配字节数，扫描器本身应为 0。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JavaPatternScannerBenchmark {
+
+    /**
+     * 生成源码的大致大小（KB）。
+     */
+    @Param({"64", "4096"})
+    public int sizeKb;
+
+    /**
+     * 包含模式的方法所占的百分比。
+     */
+    @Param({"5", "50"})
+    public int matchPercent;
+
+    private String mySource;
+    private final CountingSink mySink = new CountingSink();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public long bytes;
+    }
+
+    private static final class CountingSink implements JavaPatternScanner.Sink {
+        int comparisons;
+        int ternaries;
+
+        @Override
+        public void stringComparison(int offset) {
+            comparisons++;
+        }
+
+        @Override
+        public void ternary(int offset) {
+            ternaries++;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void generate() {
+        StringBuilder text = new StringBuilder(sizeKb * 1024 + 256);
+        text.append("package bench;\n\nimport java.util.*;\n\npublic class Generated {\n");
+        for (int i = 0; text.length() < sizeKb * 1024; i++) {
+            if (i % 100 < matchPercent) {
+                text.append("    String m").append(i).append("(String a, String b, List<? extends CharSequence> l) {\n")
+                        .append("        // compare references: a == b\n")
+                        .append("        return a == b ? \"same\" : l.isEmpty() ? b : a;\n")
+                        .append("    }\n\n");
+            } else {
+                text.append("    long m").append(i).append("(int a, long b, Map<String, ?> m) {\n")
+                        .append("        /* arithmetic only */\n")
+                        .append("        return a * ").append(i).append("L + b - m.size() + \"text \\\" == \".length();\n")
+                        .append("    }\n\n");
+            }
+        }
+        mySource = text.append("}\n").toString();
+    }
+
+    @Benchmark
+    public void scan(Bytes bytes, Blackhole blackhole) {
+        mySink.comparisons = 0;
+        mySink.ternaries = 0;
+        JavaPatternScanner.scan(mySource, mySink);
+        blackhole.consume(mySink.comparisons);
+        blackhole.consume(mySink.ternaries);
+        bytes.bytes += mySource.length();
+    }
+}
@@ -7,6 +7,8 @@ import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
 import com.intellij.openapi.actionSystem.DefaultActionGroup;
 import com.intellij.openapi.editor.Editor;
+import com.zhangchengk.panda.study.metrics.PandaMetric;
+import com.zhangchengk.panda.study.metrics.PandaMetrics;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -22,17 +24,21 @@ public class CustomDefaultActionGroup extends DefaultActionGroup {
     /**
      * 当需要更新 CustomDefaultActionGroup 动作组的状态时，
      * 该方法会检查是否有编辑器激活，并根据检查结果设置动作组的可用性。
-     * 同时，还会为动作组设置一个图标。
+     * 图标在 plugin.xml 中声明，不在每次更新时设置。
      *
      * @param event Event received when the associated group-id menu is chosen.
      */
     @Override
     public void update(AnActionEvent event) {
-        // 根据用户是否在编辑来启用或禁用动作组
-        Editor editor = event.getData(CommonDataKeys.EDITOR);
-        event.getPresentation().setEnabled(editor != null);
-        // 利用这个机会为动作组设置图标
-        event.getPresentation().setIcon(SdkIcons.Sdk_default_icon);
+        long start = PandaMetrics.start();
+        try {
+            // 根据用户是否在编辑来启用或禁用动作组
+            Editor editor = event.getData(CommonDataKeys.EDITOR);
+            event.getPresentation().setEnabled(editor != null);
+        }
+        finally {
+            PandaMetrics.stop(PandaMetric.GROUP_UPDATE, start);
+        }
     }
 
 }
@@ -3,8 +3,11 @@
 package com.zhangchengk.panda.study.action;
 
 import com.intellij.openapi.actionSystem.ActionGroup;
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.zhangchengk.panda.study.metrics.PandaMetric;
+import com.zhangchengk.panda.study.metrics.PandaMetrics;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -14,11 +17,21 @@ import org.jetbrains.annotations.NotNull;
  * 示例：在 plugin.xml 文件中，你可以找到 DynamicActionGroup 的声明，该声明定义了一个动作组，但该组内没有具体的动作。
  * 虽然在 plugin.xml 中声明了动作组，但具体的菜单项是在运行时动态创建的。
  * 灵活性：这种方式提供了更大的灵活性，可以根据运行时的条件动态地添加或移除菜单项。
+ * 菜单项在第一次打开菜单时创建并缓存，运行时条件变化后调用 {@link #invalidate()} 重新创建。
  */
 public class DynamicActionGroup extends ActionGroup {
 
+  private volatile AnAction[] myChildren;
+
+  @Override
+  public @NotNull ActionUpdateThread getActionUpdateThread() {
+    return ActionUpdateThread.BGT;
+  }
+
   /**
    * Returns an array of menu actions for the group.
+   * <p>
+   * 菜单每次打开和每次工具栏更新都会调用这个方法，因此返回缓存的菜单项，而不是每次创建新的动作。
    *
    * @param e Event received when the associated group-id menu is chosen.
    * @return AnAction[] An instance of {@link AnAction}, in this case containing a single instance of the
@@ -26,9 +39,32 @@ public class DynamicActionGroup extends ActionGroup {
    */
   @Override
   public AnAction @NotNull [] getChildren(AnActionEvent e) {
-    return new AnAction[]{
-            new PopupDialogAction("Action Added at Runtime", "Dynamic Action Demo", SdkIcons.Sdk_default_icon)
-    };
+    long start = PandaMetrics.start();
+    try {
+      AnAction[] children = myChildren;
+      if (children == null) {
+        // Concurrent updates may both create the children, either array is fine to keep
+        children = new AnAction[]{
+                new PopupDialogAction("Action Added at Runtime", "Dynamic Action Demo", SdkIcons.Sdk_default_icon)
+        };
+        myChildren = children;
+      }
+      return children;
+    }
+    finally {
+      PandaMetrics.stop(PandaMetric.DYNAMIC_GROUP_CHILDREN, start);
+    }
+  }
+
+  /**
+   * 丢弃缓存的菜单项，下次打开菜单时重新创建。可以在任意线程中调用。
+   * <p>
+   * 这个示例的菜单项不依赖任何运行时条件，所以插件中没有调用方。让菜单项依赖某个条件的代码负责在条件变化时调用它：
+   * 用 plugin.xml 中的 id 从 {@code ActionManager.getInstance().getAction(...)} 取得这个组。
+   * 不要自己创建新的实例，菜单使用的是注册的那一个。
+   */
+  public void invalidate() {
+    myChildren = null;
   }
 
 }
@@ -0,0 +1,182 @@
+package com.zhangchengk.panda.study.action;
+
+import com.intellij.codeInspection.InspectionManager;
+import com.intellij.openapi.actionSystem.DataContext;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.popup.JBPopup;
+import com.intellij.openapi.ui.popup.JBPopupFactory;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.psi.presentation.java.SymbolPresentationUtil;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.searches.ReferencesSearch;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.ui.JBUI;
+import com.zhangchengk.panda.study.inspection.ComparingStringReferencesInspection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 显示所选元素信息的非模态弹出窗口：PSI 节点数、用法数量以及其中的 Panda 问题数量。
+ * <p>
+ * 这些信息在可取消的非阻塞读操作中于后台计算，计算结果逐步填入弹出窗口；
+ * 关闭弹出窗口会取消尚未完成的计算，因此 EDT 不会因为用法搜索而阻塞。
+ */
+final class ElementAnalysisPopup {
+
+    private static final int PROGRESS_INTERVAL_MS = 200;
+
+    /**
+     * 元素不在文件中（目录、包）时节点数和问题数不适用。
+     */
+    private static final int NOT_APPLICABLE = -1;
+
+    private final Project myProject;
+    private final String myHeader;
+    private final String myTitle;
+    private final @Nullable SmartPsiElementPointer<PsiElement> myElement;
+    private final JBLabel myLabel = new JBLabel();
+
+    private String myDescription = "…";
+    private String myNodes = "computing…";
+    private String myProblems = "computing…";
+    private String myUsages = "searching…";
+    private JBPopup myPopup;
+
+    /**
+     * 所选元素的结构信息，在一次读操作中计算。不适用的数量为 {@link #NOT_APPLICABLE}。
+     */
+    private record Structure(@NotNull String description, int nodes, int problems) {
+    }
+
+    ElementAnalysisPopup(@NotNull Project project,
+                         @NotNull String header,
+                         @Nullable String title,
+                         @Nullable SmartPsiElementPointer<PsiElement> element) {
+        myProject = project;
+        myHeader = header;
+        myTitle = title;
+        myElement = element;
+        myLabel.setBorder(JBUI.Borders.empty(8));
+    }
+
+    void show(@NotNull DataContext dataContext) {
+        render();
+        myPopup = JBPopupFactory.getInstance()
+                .createComponentPopupBuilder(myLabel, null)
+                .setTitle(myTitle)
+                .setMovable(true)
+                .setResizable(true)
+                .setRequestFocus(false)
+                .createPopup();
+        myPopup.showInBestPositionFor(dataContext);
+        if (myElement != null) {
+            computeStructure(myElement);
+            countUsages(myElement);
+        }
+    }
+
+    private void computeStructure(@NotNull SmartPsiElementPointer<PsiElement> pointer) {
+        ReadAction.nonBlocking(() -> {
+                    PsiElement element = pointer.getElement();
+                    if (element == null) {
+                        return null;
+                    }
+                    String description = SymbolPresentationUtil.getSymbolPresentableText(element);
+                    // A directory or package has no containing file, and walking it would parse a whole source tree
+                    if (element.getContainingFile() == null) {
+                        return new Structure(description, NOT_APPLICABLE, NOT_APPLICABLE);
+                    }
+                    int[] nodes = new int[1];
+                    PsiTreeUtil.processElements(element, e -> {
+                        nodes[0]++;
+                        return true;
+                    });
+                    PsiElement source = element.getNavigationElement();
+                    int problems = source.getContainingFile() == null
+                            ? NOT_APPLICABLE
+                            : new ComparingStringReferencesInspection()
+                            .checkElement(source, InspectionManager.getInstance(myProject))
+                            .size();
+                    return new Structure(description, nodes[0], problems);
+                })
+                .inSmartMode(myProject)
+                .expireWith(myPopup)
+                .finishOnUiThread(ModalityState.any(), structure -> {
+                    if (structure == null) {
+                        myDescription = myNodes = myProblems = "element is no longer valid";
+                    } else {
+                        myDescription = structure.description();
+                        myNodes = toText(structure.nodes());
+                        myProblems = toText(structure.problems());
+                    }
+                    render();
+                })
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    @NotNull
+    private static String toText(int count) {
+        return count == NOT_APPLICABLE ? "n/a (not inside a file)" : String.valueOf(count);
+    }
+
+    /**
+     * 在项目范围内搜索引用。搜索期间定时显示目前已找到的数量。
+     */
+    private void countUsages(@NotNull SmartPsiElementPointer<PsiElement> pointer) {
+        AtomicInteger found = new AtomicInteger();
+        Timer progress = new Timer(PROGRESS_INTERVAL_MS, e -> {
+            myUsages = found.get() + " so far…";
+            render();
+        });
+        progress.start();
+        Disposer.register(myPopup, progress::stop);
+
+        ReadAction.nonBlocking(() -> {
+                    // A restarted read action counts from scratch
+                    found.set(0);
+                    PsiElement element = pointer.getElement();
+                    if (element == null) {
+                        return -1;
+                    }
+                    ReferencesSearch.search(element, GlobalSearchScope.projectScope(myProject)).forEach(reference -> {
+                        found.incrementAndGet();
+                        return true;
+                    });
+                    return found.get();
+                })
+                .inSmartMode(myProject)
+                .expireWith(myPopup)
+                .finishOnUiThread(ModalityState.any(), count -> {
+                    progress.stop();
+                    myUsages = count < 0 ? "element is no longer valid" : String.valueOf(count);
+                    render();
+                })
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    private void render() {
+        StringBuilder text = new StringBuilder("<html>").append(StringUtil.escapeXmlEntities(myHeader));
+        if (myElement == null) {
+            text.append("<br>No element selected");
+        } else {
+            text.append("<br>Selected Element: <b>").append(StringUtil.escapeXmlEntities(myDescription)).append("</b>")
+                    .append("<br>PSI nodes: ").append(myNodes)
+                    .append("<br>Usages: ").append(myUsages)
+                    .append("<br>Panda problems: ").append(myProblems);
+        }
+        myLabel.setText(text.append("</html>").toString());
+        if (myPopup != null && !myPopup.isDisposed()) {
+            myPopup.pack(true, true);
+        }
+    }
+}
@@ -6,8 +6,11 @@ import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.ui.Messages;
-import com.intellij.pom.Navigatable;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.zhangchengk.panda.study.metrics.PandaMetric;
+import com.zhangchengk.panda.study.metrics.PandaMetrics;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -17,7 +20,7 @@ import javax.swing.*;
  * 该类的主要功能是在与 IntelliJ 平台交互时为用户提供一个弹出对话框作为反馈。
  * <p>
  * - 功能：这个类展示了如何与 IntelliJ 平台进行交互。
- * - 行为：类的主要行为是向用户显示一个弹出对话框。
+ * - 行为：类的主要行为是向用户显示一个非模态弹出窗口，其中的所选元素信息在后台逐步计算。
  * - 实例化方式：
  * -- 通常情况下，这个类是由 IntelliJ 平台框架根据 `plugin.xml` 文件中的声明来实例化的。
  * -- 如果是在运行时动态添加的，这个类则由一个动作组（action group）来实例化。
@@ -54,26 +57,27 @@ public class PopupDialogAction extends AnAction {
 
     /**
      * 这是 AnAction 接口中的abstract方法，当用户触发该动作时，该方法会被调用。
+     * 所选元素的信息在后台计算，并显示在一个非模态弹出窗口中，见 {@link ElementAnalysisPopup}。
      *
      * @param event 包含了触发动作时的各种信息。
      * */
     @Override
     public void actionPerformed(@NotNull AnActionEvent event) {
-        // 使用事件创建并显示一个对话框
         Project currentProject = event.getProject(); // 获取当前打开的项目
-        StringBuilder message =
-                new StringBuilder(event.getPresentation().getText() + " Selected!");// 获取动作的显示文本，并将其添加到 StringBuilder 中，形成初始消息。
-        // 如果编辑器中选择了元素，添加关于它的信息
-        Navigatable selectedElement = event.getData(CommonDataKeys.NAVIGATABLE); // 获取当前选中的可导航元素（如文件、类、方法等）。
-        if (selectedElement != null) {
-            message.append("\nSelected Element: ").append(selectedElement);
+        if (currentProject == null) {
+            return;
         }
+        String header = event.getPresentation().getText() + " Selected!"; // 获取动作的显示文本，形成初始消息。
+        // 如果选择了元素（如类、方法或文件），在后台分析它
+        PsiElement selectedElement = event.getData(CommonDataKeys.PSI_ELEMENT);
+        if (selectedElement == null) {
+            selectedElement = event.getData(CommonDataKeys.PSI_FILE);
+        }
+        SmartPsiElementPointer<PsiElement> pointer = selectedElement == null
+                ? null
+                : SmartPointerManager.createPointer(selectedElement);
         String title = event.getPresentation().getDescription();
-        Messages.showMessageDialog( // 显示一个消息对话框
-                currentProject,
-                message.toString(),
-                title,
-                Messages.getInformationIcon());
+        new ElementAnalysisPopup(currentProject, header, title, pointer).show(event.getDataContext());
     }
 
     /**
@@ -82,9 +86,15 @@ public class PopupDialogAction extends AnAction {
      * */
     @Override
     public void update(AnActionEvent e) {
-        // 根据是否有项目打开来设置动作的可用性和可见性
-        Project project = e.getProject();
-        e.getPresentation().setEnabledAndVisible(project != null);
+        long start = PandaMetrics.start();
+        try {
+            // 根据是否有项目打开来设置动作的可用性和可见性
+            Project project = e.getProject();
+            e.getPresentation().setEnabledAndVisible(project != null);
+        }
+        finally {
+            PandaMetrics.stop(PandaMetric.POPUP_ACTION_UPDATE, start);
+        }
     }
 
 }
@@ -6,8 +6,15 @@ import com.intellij.openapi.util.IconLoader;
 
 import javax.swing.*;
 
-public class SdkIcons {
+/**
+ * 在代码中使用的图标。plugin.xml 用资源路径引用同一个图标，因此这个类只在运行时创建的动作第一次需要图标时才被加载；
+ * {@link IconLoader#getIcon} 返回的图标在第一次绘制时才解码 SVG。
+ */
+public final class SdkIcons {
 
   public static final Icon Sdk_default_icon = IconLoader.getIcon("/icons/sdk_16.svg", SdkIcons.class);
 
+  private SdkIcons() {
+  }
+
 }
@@ -0,0 +1,13 @@
+package com.zhangchengk.panda.study.cache;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 缓存中的一个问题：被报告元素的文本范围和问题描述，不持有 PSI。
+ *
+ * @param startOffset 元素在文件中的起始偏移量
+ * @param endOffset   元素在文件中的结束偏移量
+ * @param description 问题描述
+ */
+public record CachedProblem(int startOffset, int endOffset, @NotNull String description) {
+}
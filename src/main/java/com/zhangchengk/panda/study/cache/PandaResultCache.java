@@ -0,0 +1,356 @@
+package com.zhangchengk.panda.study.cache;
+
+import com.intellij.codeInspection.InspectionProfileEntry;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.ide.plugins.IdeaPluginDescriptor;
+import com.intellij.ide.plugins.PluginManagerCore;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.extensions.PluginId;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.JDOMUtil;
+import com.intellij.openapi.util.WriteExternalException;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.psi.JavaRecursiveElementWalkingVisitor;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaCodeReferenceElement;
+import com.intellij.psi.javadoc.PsiDocComment;
+import com.zhangchengk.panda.study.metrics.PandaMetrics;
+import org.jdom.Element;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按文件缓存 Panda 检查在批处理模式下的结果，使重复的 "Inspect Code" 跳过未修改的文件。
+ * <p>
+ * 缓存条目以检查的短名称和文件路径为键，只有同时满足以下条件时才命中：
+ * <ul>
+ *     <li>检查设置（连同插件版本）的哈希值相同；</li>
+ *     <li>本次 IDE 会话中写入的条目：PSI 修改戳相同；</li>
+ *     <li>从磁盘加载的条目：文件的时间戳和长度相同，并且文档没有未保存的修改；</li>
+ *     <li>文件中的引用解析到的其他文件（依赖）都没有变化：时间戳和长度相同，并且文档没有未保存的修改。
+ *     结果依赖于被引用的类，例如被比较的表达式是否为 String，因此依赖的修改同样使条目失效，
+ *     无论修改发生在本次会话中还是 IDE 关闭期间；与文件无关的修改不影响命中。</li>
+ * </ul>
+ * 依赖在写入条目时解析文件中的所有引用得到，只在未命中时付出这个开销；含有无法解析的引用的文件不缓存，
+ * 因为之后新增的类可能改变结果。
+ * <p>
+ * 条目按最近访问顺序保存在一个有界的 LRU 中，超过上限时淘汰最久未使用的条目。
+ * 缓存在项目关闭时写入 IDE 系统目录，下次打开项目时按需加载。
+ */
+@Service(Service.Level.PROJECT)
+public final class PandaResultCache implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(PandaResultCache.class);
+
+    private static final int FORMAT_VERSION = 2;
+    private static final int MAX_ENTRIES = Integer.getInteger("panda.cache.maxEntries", 50_000);
+    private static final long NO_PSI_STAMP = -1;
+
+    private final Project myProject;
+    private final LongAdder myHits = new LongAdder();
+    private final LongAdder myMisses = new LongAdder();
+
+    private Map<String, Entry> myEntries;
+    private boolean myDirty;
+
+    /**
+     * @param psiStamp     PSI 修改戳；从磁盘加载的条目为 {@link #NO_PSI_STAMP}
+     * @param dependencies 文件中的引用解析到的其他文件
+     */
+    private record Entry(int settingsHash, long psiStamp, long timeStamp, long length,
+                         @NotNull List<Dependency> dependencies, @NotNull List<CachedProblem> problems) {
+    }
+
+    /**
+     * 写入条目时依赖文件的状态。
+     *
+     * @param url 文件的 URL，也可以是 jar 中的类文件
+     */
+    private record Dependency(@NotNull String url, long timeStamp, long length) {
+    }
+
+    public PandaResultCache(@NotNull Project project) {
+        myProject = project;
+    }
+
+    public static PandaResultCache getInstance(@NotNull Project project) {
+        return PandaMetrics.getService(project, PandaResultCache.class);
+    }
+
+    /**
+     * 计算检查设置的哈希值。设置或插件版本变化后，旧条目不再命中。
+     */
+    public static int settingsHash(@NotNull InspectionProfileEntry tool) {
+        Element settings = new Element("settings");
+        try {
+            tool.writeSettings(settings);
+        }
+        catch (WriteExternalException e) {
+            LOG.warn(e);
+        }
+        IdeaPluginDescriptor plugin = PluginManagerCore.getPlugin(PluginId.getId("com.zhangchengk.panda"));
+        String version = plugin == null ? "" : plugin.getVersion();
+        return (tool.getShortName() + '\n' + version + '\n' + JDOMUtil.write(settings)).hashCode();
+    }
+
+    /**
+     * 查找文件的缓存结果。调用方必须持有读操作。
+     *
+     * @param toolId       检查的短名称
+     * @param settingsHash {@link #settingsHash} 的结果
+     * @param file         要检查的文件
+     * @return 缓存的问题；未命中时返回 {@code null}
+     */
+    @Nullable
+    public synchronized List<CachedProblem> get(@NotNull String toolId, int settingsHash, @NotNull PsiFile file) {
+        VirtualFile virtualFile = file.getVirtualFile();
+        Entry entry = virtualFile == null ? null : getEntries().get(key(toolId, virtualFile));
+        if (entry == null || entry.settingsHash() != settingsHash || !isUpToDate(entry, file, virtualFile)) {
+            myMisses.increment();
+            return null;
+        }
+        if (entry.psiStamp() == NO_PSI_STAMP) {
+            // Remember the stamp so later lookups in this session skip the disk checks
+            getEntries().put(key(toolId, virtualFile), new Entry(entry.settingsHash(), file.getModificationStamp(),
+                    entry.timeStamp(), entry.length(), entry.dependencies(), entry.problems()));
+        }
+        myHits.increment();
+        return entry.problems();
+    }
+
+    /**
+     * 保存文件的检查结果。调用方必须持有读操作。
+     */
+    public void put(@NotNull String toolId, int settingsHash, @NotNull PsiFile file,
+                    @NotNull List<? extends ProblemDescriptor> problems) {
+        VirtualFile virtualFile = file.getVirtualFile();
+        // Results for unsaved content could be restored against different content after a restart
+        if (virtualFile == null || FileDocumentManager.getInstance().isFileModified(virtualFile)) {
+            return;
+        }
+        List<CachedProblem> cached = new ArrayList<>(problems.size());
+        for (ProblemDescriptor problem : problems) {
+            PsiElement element = problem.getPsiElement();
+            if (element == null) {
+                // A problem that cannot be restored makes the whole entry useless
+                return;
+            }
+            cached.add(new CachedProblem(element.getTextRange().getStartOffset(), element.getTextRange().getEndOffset(),
+                    problem.getDescriptionTemplate()));
+        }
+        List<Dependency> dependencies = collectDependencies(file, virtualFile);
+        if (dependencies == null) {
+            return;
+        }
+        Entry entry = new Entry(settingsHash, file.getModificationStamp(), virtualFile.getTimeStamp(), virtualFile.getLength(),
+                dependencies, List.copyOf(cached));
+        synchronized (this) {
+            getEntries().put(key(toolId, virtualFile), entry);
+            myDirty = true;
+        }
+    }
+
+    public long getHits() {
+        return myHits.sum();
+    }
+
+    public long getMisses() {
+        return myMisses.sum();
+    }
+
+    /**
+     * @return 自上次 {@link #resetStatistics()} 以来的命中率，范围 0 到 1；没有查找时为 0。
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public void resetStatistics() {
+        myHits.reset();
+        myMisses.reset();
+    }
+
+    /**
+     * @return 文件中的引用解析到的其他文件的当前状态；有无法解析的引用时返回 {@code null}
+     */
+    @Nullable
+    private static List<Dependency> collectDependencies(@NotNull PsiFile file, @NotNull VirtualFile virtualFile) {
+        Set<VirtualFile> files = new LinkedHashSet<>();
+        boolean[] unresolved = {false};
+        file.accept(new JavaRecursiveElementWalkingVisitor() {
+            @Override
+            public void visitDocComment(@NotNull PsiDocComment comment) {
+                // Javadoc links do not affect the results
+            }
+
+            @Override
+            public void visitReferenceElement(@NotNull PsiJavaCodeReferenceElement reference) {
+                super.visitReferenceElement(reference);
+                PsiElement target = reference.resolve();
+                if (target == null) {
+                    unresolved[0] = true;
+                    stopWalking();
+                    return;
+                }
+                PsiFile targetFile = target.getContainingFile();
+                VirtualFile targetVirtualFile = targetFile == null ? null : targetFile.getVirtualFile();
+                if (targetVirtualFile != null && !targetVirtualFile.equals(virtualFile)) {
+                    files.add(targetVirtualFile);
+                }
+            }
+        });
+        if (unresolved[0]) {
+            return null;
+        }
+        List<Dependency> dependencies = new ArrayList<>(files.size());
+        for (VirtualFile dependency : files) {
+            dependencies.add(new Dependency(dependency.getUrl(), dependency.getTimeStamp(), dependency.getLength()));
+        }
+        return List.copyOf(dependencies);
+    }
+
+    private static boolean isUpToDate(@NotNull Entry entry, @NotNull PsiFile file, @NotNull VirtualFile virtualFile) {
+        if (entry.timeStamp() != virtualFile.getTimeStamp() || entry.length() != virtualFile.getLength()) {
+            return false;
+        }
+        if (entry.psiStamp() != NO_PSI_STAMP ? entry.psiStamp() != file.getModificationStamp()
+                : FileDocumentManager.getInstance().isFileModified(virtualFile)) {
+            return false;
+        }
+        for (Dependency dependency : entry.dependencies()) {
+            VirtualFile current = VirtualFileManager.getInstance().findFileByUrl(dependency.url());
+            if (current == null || current.getTimeStamp() != dependency.timeStamp() || current.getLength() != dependency.length() ||
+                    FileDocumentManager.getInstance().isFileModified(current)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @NotNull
+    private static String key(@NotNull String toolId, @NotNull VirtualFile file) {
+        return toolId + '\n' + file.getPath();
+    }
+
+    @NotNull
+    private Map<String, Entry> getEntries() {
+        if (myEntries == null) {
+            myEntries = new LinkedHashMap<>(1024, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+            load(myEntries);
+        }
+        return myEntries;
+    }
+
+    @NotNull
+    private Path getCachePath() {
+        return PathManager.getSystemDir().resolve("panda-cache").resolve(myProject.getLocationHash() + ".bin");
+    }
+
+    private void load(@NotNull Map<String, Entry> entries) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(getCachePath())))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                return;
+            }
+            for (int count = in.readInt(); count > 0; count--) {
+                String key = in.readUTF();
+                int settingsHash = in.readInt();
+                long timeStamp = in.readLong();
+                long length = in.readLong();
+                List<Dependency> dependencies = new ArrayList<>();
+                for (int i = in.readInt(); i > 0; i--) {
+                    dependencies.add(new Dependency(in.readUTF(), in.readLong(), in.readLong()));
+                }
+                int size = in.readInt();
+                List<CachedProblem> problems = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    problems.add(new CachedProblem(in.readInt(), in.readInt(), in.readUTF()));
+                }
+                entries.put(key, new Entry(settingsHash, NO_PSI_STAMP, timeStamp, length, List.copyOf(dependencies),
+                        List.copyOf(problems)));
+            }
+        }
+        catch (NoSuchFileException ignored) {
+        }
+        catch (IOException e) {
+            LOG.info("Discarding unreadable Panda result cache", e);
+            entries.clear();
+        }
+    }
+
+    /**
+     * 把缓存写入磁盘。条目按访问顺序写出，加载后保持相同的 LRU 顺序。
+     */
+    public synchronized void save() {
+        if (!myDirty || myEntries == null) {
+            return;
+        }
+        Path path = getCachePath();
+        try {
+            Files.createDirectories(path.getParent());
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(myEntries.size());
+                for (Map.Entry<String, Entry> mapEntry : myEntries.entrySet()) {
+                    Entry entry = mapEntry.getValue();
+                    out.writeUTF(mapEntry.getKey());
+                    out.writeInt(entry.settingsHash());
+                    out.writeLong(entry.timeStamp());
+                    out.writeLong(entry.length());
+                    out.writeInt(entry.dependencies().size());
+                    for (Dependency dependency : entry.dependencies()) {
+                        out.writeUTF(dependency.url());
+                        out.writeLong(dependency.timeStamp());
+                        out.writeLong(dependency.length());
+                    }
+                    out.writeInt(entry.problems().size());
+                    for (CachedProblem problem : entry.problems()) {
+                        out.writeInt(problem.startOffset());
+                        out.writeInt(problem.endOffset());
+                        out.writeUTF(problem.description());
+                    }
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            myDirty = false;
+        }
+        catch (IOException e) {
+            LOG.warn("Cannot save Panda result cache to " + path, e);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        save();
+    }
+}
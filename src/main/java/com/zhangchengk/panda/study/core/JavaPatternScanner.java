@@ -0,0 +1,342 @@
+package com.zhangchengk.panda.study.core;
+
+/**
+ * 不依赖 PSI 和 IntelliJ 平台的 Java 源码扫描器，用于查找可能比较 String 引用的 '==' 或 '!=' 以及三元表达式。
+ * <p>
+ * 扫描器只做词法分析：跳过空白、注释、字符串字面量（包括文本块）和字符字面量，
+ * 并根据紧邻运算符的记号做判断，因此结果是 PSI 检查结果的保守近似：
+ * <ul>
+ *     <li>一侧的整个操作数是 null、数值、字符或布尔字面量的比较不可能比较 String，被排除。
+ *     字面量两侧的记号必须说明它是整个操作数，例如 {@code (1 == s} 或 {@code s == 1)}；
+ *     {@code "a" + 1 == s} 和 {@code s == 1 + ""} 中的字面量只是操作数的一部分，不被排除；</li>
+ *     <li>紧跟在 '&lt;' 或 ',' 之后的 '?' 是泛型通配符，被排除。三元表达式的 '?' 前面总是条件表达式，
+ *     因此 {@code c ? super.x() : y} 仍被报告。</li>
+ * </ul>
+ * 扫描过程不分配对象，结果通过 {@link Sink} 回调报告，偏移量按升序给出。
+ * 它被 {@code PandaPatternIndex} 和批处理检查用作预过滤，也可以在 IDE 之外单独做基准测试。
+ */
+public final class JavaPatternScanner {
+
+    /**
+     * 接收扫描结果的回调。
+     */
+    public interface Sink {
+
+        /**
+         * @param offset '==' 或 '!=' 运算符的偏移量
+         */
+        void stringComparison(int offset);
+
+        /**
+         * @param offset 三元表达式中 '?' 的偏移量
+         */
+        void ternary(int offset);
+    }
+
+    private static final int OTHER = 0;
+    private static final int IDENTIFIER = 1;
+    private static final int NON_STRING_LITERAL = 2;
+    private static final int STRING_LITERAL = 3;
+    private static final int EQUALITY = 4;
+    private static final int QUEST = 5;
+    private static final int LT = 6;
+    private static final int COMMA = 7;
+    private static final int GT = 8;
+    /** '(' 或 '['：后面的字面量是一个操作数的开始 */
+    private static final int OPEN = 9;
+    /** ')' 或 ']'：前面的字面量是一个操作数的结束 */
+    private static final int CLOSE = 10;
+    /** 优先级低于 '==' 的运算符和语句分隔符：'='、'&amp;'、'|'、'^'、':'、';'、'{'、'}' */
+    private static final int SEPARATOR = 11;
+
+    private JavaPatternScanner() {
+    }
+
+    /**
+     * 扫描 Java 源码文本。
+     *
+     * @param text Java 源码
+     * @param sink 接收结果的回调
+     */
+    public static void scan(CharSequence text, Sink sink) {
+        if (!mayContainPattern(text)) {
+            return;
+        }
+        int length = text.length();
+        int previous = SEPARATOR;
+        int beforePrevious = SEPARATOR;
+        // The operator waiting for its right-hand token, and the token before it
+        int pending = OTHER;
+        int beforePending = OTHER;
+        int pendingOffset = -1;
+        // '==' or '!=' whose right-hand side starts with a literal, waiting for the token after the literal
+        int literalComparison = -1;
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c <= ' ') {
+                i++;
+                continue;
+            }
+            if (c == '/' && i + 1 < length) {
+                char next = text.charAt(i + 1);
+                if (next == '/') {
+                    i = skipLineComment(text, i + 2);
+                    continue;
+                }
+                if (next == '*') {
+                    i = skipBlockComment(text, i + 2);
+                    continue;
+                }
+            }
+            int start = i;
+            int kind;
+            if (c == '"') {
+                i = skipString(text, i);
+                kind = STRING_LITERAL;
+            } else if (c == '\'') {
+                i = skipCharLiteral(text, i);
+                kind = NON_STRING_LITERAL;
+            } else if (isDigit(c) || c == '.' && i + 1 < length && isDigit(text.charAt(i + 1))) {
+                i = skipNumber(text, i);
+                kind = NON_STRING_LITERAL;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                i = skipIdentifier(text, i);
+                kind = classifyIdentifier(text, start, i);
+            } else {
+                char next = i + 1 < length ? text.charAt(i + 1) : 0;
+                switch (c) {
+                    case '=', '!' -> {
+                        kind = next == '=' ? EQUALITY : c == '=' ? SEPARATOR : OTHER;
+                        i += next == '=' ? 2 : 1;
+                    }
+                    case '?' -> {
+                        kind = QUEST;
+                        i++;
+                    }
+                    case ',' -> {
+                        kind = COMMA;
+                        i++;
+                    }
+                    case '(', '[' -> {
+                        kind = OPEN;
+                        i++;
+                    }
+                    case ')', ']' -> {
+                        kind = CLOSE;
+                        i++;
+                    }
+                    case '&', '|', '^', ':', ';', '{', '}' -> {
+                        kind = SEPARATOR;
+                        i++;
+                    }
+                    case '<' -> {
+                        // '<<', '<=' and '<<=' are operators, not the start of type arguments
+                        i++;
+                        if (next == '<' || next == '=') {
+                            i += i + 1 < length && next == '<' && text.charAt(i + 1) == '=' ? 2 : 1;
+                            kind = OTHER;
+                        } else {
+                            kind = LT;
+                        }
+                    }
+                    case '>' -> {
+                        while (i < length && text.charAt(i) == '>') {
+                            i++;
+                        }
+                        if (i < length && text.charAt(i) == '=') {
+                            i++;
+                            kind = OTHER;
+                        } else {
+                            kind = GT;
+                        }
+                    }
+                    default -> {
+                        kind = OTHER;
+                        i++;
+                    }
+                }
+            }
+
+            if (literalComparison >= 0) {
+                if (!endsOperand(kind)) {
+                    sink.stringComparison(literalComparison);
+                }
+                literalComparison = -1;
+            }
+            if (pending == EQUALITY) {
+                if (kind == NON_STRING_LITERAL) {
+                    literalComparison = pendingOffset;
+                } else if (beforePending != NON_STRING_LITERAL) {
+                    sink.stringComparison(pendingOffset);
+                }
+            } else if (pending == QUEST) {
+                if (beforePending != LT && beforePending != COMMA) {
+                    sink.ternary(pendingOffset);
+                }
+            }
+            pending = OTHER;
+            if (kind == EQUALITY || kind == QUEST) {
+                pending = kind;
+                // A literal on the left is only the whole operand if nothing binding tighter precedes it
+                beforePending = kind == EQUALITY && previous == NON_STRING_LITERAL && !startsOperand(beforePrevious)
+                        ? OTHER : previous;
+                pendingOffset = start;
+            }
+            beforePrevious = previous;
+            previous = kind;
+        }
+        // A comparison still waiting in literalComparison ends with the text, so its literal is the whole operand
+    }
+
+    /**
+     * @return 一个操作数能否紧跟在这种记号之后开始，而不与它前面的内容组成优先级更高的表达式
+     */
+    private static boolean startsOperand(int kind) {
+        return kind == OPEN || kind == SEPARATOR || kind == COMMA || kind == QUEST;
+    }
+
+    /**
+     * @return 这种记号能否结束 '==' 或 '!=' 右侧的操作数
+     */
+    private static boolean endsOperand(int kind) {
+        return kind == CLOSE || kind == SEPARATOR || kind == COMMA || kind == QUEST || kind == EQUALITY;
+    }
+
+    /**
+     * 用一次字符扫描排除既没有 '=='、'!=' 也没有 '?' 的文本，不必运行完整的扫描。
+     */
+    public static boolean mayContainPattern(CharSequence text) {
+        int length = text.length();
+        if (length > 0 && text.charAt(0) == '?') {
+            return true;
+        }
+        for (int i = 1; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '?' || c == '=' && (text.charAt(i - 1) == '=' || text.charAt(i - 1) == '!')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int skipLineComment(CharSequence text, int i) {
+        int length = text.length();
+        while (i < length && text.charAt(i) != '\n' && text.charAt(i) != '\r') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipBlockComment(CharSequence text, int i) {
+        int length = text.length();
+        while (i + 1 < length && !(text.charAt(i) == '*' && text.charAt(i + 1) == '/')) {
+            i++;
+        }
+        return Math.min(i + 2, length);
+    }
+
+    private static int skipString(CharSequence text, int i) {
+        int length = text.length();
+        if (i + 2 < length && text.charAt(i + 1) == '"' && text.charAt(i + 2) == '"') {
+            // Text block: runs to the next unescaped '"""'
+            i += 3;
+            while (i < length) {
+                char c = text.charAt(i);
+                if (c == '\\') {
+                    i += 2;
+                } else if (c == '"' && i + 2 < length && text.charAt(i + 1) == '"' && text.charAt(i + 2) == '"') {
+                    return i + 3;
+                } else {
+                    i++;
+                }
+            }
+            return length;
+        }
+        return skipQuoted(text, i, '"');
+    }
+
+    private static int skipCharLiteral(CharSequence text, int i) {
+        return skipQuoted(text, i, '\'');
+    }
+
+    /**
+     * 跳过以给定引号结束的字面量。未闭合的字面量在行尾结束，与编译器的错误恢复一致。
+     */
+    private static int skipQuoted(CharSequence text, int i, char quote) {
+        int length = text.length();
+        i++;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else if (c == '\n' || c == '\r') {
+                return i;
+            } else {
+                i++;
+            }
+        }
+        return length;
+    }
+
+    private static int skipNumber(CharSequence text, int i) {
+        int length = text.length();
+        boolean hex = text.charAt(i) == '0' && i + 1 < length && (text.charAt(i + 1) == 'x' || text.charAt(i + 1) == 'X');
+        while (i < length) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c) || c == '_' || c == '.') {
+                i++;
+                // The exponent may carry a sign: 1e-5, 0x1p+3
+                boolean exponent = hex ? c == 'p' || c == 'P' : c == 'e' || c == 'E';
+                if (exponent && i < length && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+                    i++;
+                }
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static int skipIdentifier(CharSequence text, int i) {
+        int length = text.length();
+        i++;
+        while (i < length && Character.isJavaIdentifierPart(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int classifyIdentifier(CharSequence text, int start, int end) {
+        switch (end - start) {
+            case 4:
+                if (matches(text, start, "null") || matches(text, start, "true")) {
+                    return NON_STRING_LITERAL;
+                }
+                break;
+            case 5:
+                if (matches(text, start, "false")) {
+                    return NON_STRING_LITERAL;
+                }
+                break;
+            default:
+                break;
+        }
+        return IDENTIFIER;
+    }
+
+    private static boolean matches(CharSequence text, int start, String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (text.charAt(start + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,49 @@
+package com.zhangchengk.panda.study.core;
+
+import java.util.Arrays;
+
+/**
+ * 把 {@link JavaPatternScanner} 的结果收集为升序的偏移量数组。
+ */
+public final class PatternOffsets implements JavaPatternScanner.Sink {
+
+    private static final int[] EMPTY = new int[0];
+
+    private int[] myComparisons = EMPTY;
+    private int myComparisonCount;
+    private int[] myTernaries = EMPTY;
+    private int myTernaryCount;
+
+    /**
+     * 扫描文本并返回收集到的偏移量。
+     */
+    public static PatternOffsets scan(CharSequence text) {
+        PatternOffsets offsets = new PatternOffsets();
+        JavaPatternScanner.scan(text, offsets);
+        return offsets;
+    }
+
+    @Override
+    public void stringComparison(int offset) {
+        if (myComparisonCount == myComparisons.length) {
+            myComparisons = Arrays.copyOf(myComparisons, Math.max(8, myComparisonCount * 2));
+        }
+        myComparisons[myComparisonCount++] = offset;
+    }
+
+    @Override
+    public void ternary(int offset) {
+        if (myTernaryCount == myTernaries.length) {
+            myTernaries = Arrays.copyOf(myTernaries, Math.max(8, myTernaryCount * 2));
+        }
+        myTernaries[myTernaryCount++] = offset;
+    }
+
+    public int[] getStringComparisons() {
+        return myComparisonCount == 0 ? EMPTY : Arrays.copyOf(myComparisons, myComparisonCount);
+    }
+
+    public int[] getTernaries() {
+        return myTernaryCount == 0 ? EMPTY : Arrays.copyOf(myTernaries, myTernaryCount);
+    }
+}
@@ -0,0 +1,117 @@
+package com.zhangchengk.panda.study.headless;
+
+import com.intellij.ide.impl.OpenProjectTask;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ApplicationStarter;
+import com.intellij.openapi.application.ex.ApplicationEx;
+import com.intellij.openapi.application.ex.ApplicationManagerEx;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectUtil;
+import com.intellij.openapi.project.ex.ProjectManagerEx;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 无界面的命令行入口，用于在 CI 中运行 Panda 的检查：
+ * <pre>
+ * idea.sh pandaAnalyze &lt;project-dir&gt; &lt;report.sarif&gt; [--since &lt;git-revision&gt;]
+ * </pre>
+ * 指定 {@code --since} 时只分析自该修订版本以来变更的文件。发现任何 warning 级别的问题时以退出码 1 结束；
+ * 分析被取消或失败时以退出码 2 结束，此时报告中的 {@code executionSuccessful} 为 {@code false}，结果不完整。
+ */
+public final class PandaAnalyzerStarter implements ApplicationStarter {
+
+    @Override
+    public boolean isHeadless() {
+        return true;
+    }
+
+    /**
+     * 分析会等待索引完成并阻塞当前线程，因此不能在 EDT 中运行。
+     */
+    @Override
+    public int getRequiredModality() {
+        return NOT_IN_EDT;
+    }
+
+    @Override
+    public void main(@NotNull List<String> args) {
+        int exitCode;
+        try {
+            exitCode = run(args);
+        }
+        catch (Throwable e) {
+            e.printStackTrace(System.err);
+            exitCode = 2;
+        }
+        ApplicationManagerEx.getApplicationEx().exit(ApplicationEx.FORCE_EXIT | ApplicationEx.EXIT_CONFIRMED, exitCode);
+    }
+
+    private static int run(@NotNull List<String> args) throws Exception {
+        // args[0] is the command name
+        if (args.size() != 3 && !(args.size() == 5 && "--since".equals(args.get(3)))) {
+            System.err.println("Usage: pandaAnalyze <project-dir> <report.sarif> [--since <git-revision>]");
+            return 2;
+        }
+        Path projectDir = Path.of(args.get(1)).toAbsolutePath();
+        Path output = Path.of(args.get(2)).toAbsolutePath();
+        String since = args.size() == 5 ? args.get(4) : null;
+
+        Project project = ProjectManagerEx.getInstanceEx().openProject(projectDir, OpenProjectTask.build());
+        if (project == null) {
+            System.err.println("Cannot open project " + projectDir);
+            return 2;
+        }
+        try {
+            DumbService.getInstance(project).waitForSmartMode();
+            VirtualFile baseDir = ProjectUtil.guessProjectDir(project);
+            if (baseDir == null) {
+                System.err.println("Cannot find the base directory of " + projectDir);
+                return 2;
+            }
+            PandaBatchAnalyzer analyzer = new PandaBatchAnalyzer(project, baseDir);
+            List<VirtualFile> files = since == null ? analyzer.collectSourceFiles() : analyzer.collectChangedSourceFiles(since);
+
+            long start = System.nanoTime();
+            String failure = null;
+            long warnings;
+            try (SarifWriter sarif = new SarifWriter(output, baseDir.toNioPath())) {
+                try {
+                    if (!analyzer.analyze(files, sarif, new EmptyProgressIndicator())) {
+                        failure = "Analysis stopped before all files were analyzed";
+                    }
+                }
+                catch (ProcessCanceledException e) {
+                    failure = "Analysis was cancelled";
+                }
+                catch (RuntimeException e) {
+                    e.printStackTrace(System.err);
+                    failure = "Analysis failed: " + e;
+                }
+                // Whatever was written before a failure is still reported, marked as incomplete
+                int analyzed = analyzer.getAnalyzedCount();
+                long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+                double filesPerSecond = analyzed * 1000.0 / elapsedMs;
+                sarif.finish(analyzed, elapsedMs, filesPerSecond, failure);
+                warnings = analyzer.getWarningCount();
+                System.out.printf("Panda analyzed %d of %d files in %d ms (%.1f files/s), %d warning(s); report: %s%n",
+                        analyzed, files.size(), elapsedMs, filesPerSecond, warnings, output);
+            }
+            if (failure != null) {
+                System.err.println(failure);
+                return 2;
+            }
+            return warnings > 0 ? 1 : 0;
+        }
+        finally {
+            ApplicationManager.getApplication().invokeAndWait(
+                    () -> ProjectManagerEx.getInstanceEx().forceCloseProject(project));
+        }
+    }
+}
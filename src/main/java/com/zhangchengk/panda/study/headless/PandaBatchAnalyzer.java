@@ -0,0 +1,235 @@
+package com.zhangchengk.panda.study.headless;
+
+import com.intellij.codeInspection.InspectionManager;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.concurrency.JobLauncher;
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.process.ProcessOutput;
+import com.intellij.execution.util.ExecUtil;
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileTypes.FileTypeRegistry;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiConditionalExpression;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiManager;
+import com.zhangchengk.panda.study.inspection.AllocationInLoopInspection;
+import com.zhangchengk.panda.study.inspection.ComparingStringReferencesInspection;
+import com.zhangchengk.panda.study.inspection.SharedJavaWalk;
+import com.zhangchengk.panda.study.intention.ConditionalOperatorConverter;
+import com.zhangchengk.panda.study.metrics.PandaMetric;
+import com.zhangchengk.panda.study.metrics.PandaMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 在项目的源代码根目录上并行运行 Panda 的检查，并把结果以流的方式写入 {@link SarifWriter}。
+ * <p>
+ * 每个文件在独立的非阻塞读操作中分析，结果在文件分析完成后立即写出，因此内存占用不随项目规模增长。
+ */
+final class PandaBatchAnalyzer {
+
+    private static final Logger LOG = Logger.getInstance(PandaBatchAnalyzer.class);
+
+    private final Project myProject;
+    private final VirtualFile myBaseDir;
+    private final ComparingStringReferencesInspection myStringInspection = new ComparingStringReferencesInspection();
+    private final AllocationInLoopInspection myLoopInspection = new AllocationInLoopInspection();
+    private final AtomicLong myWarningCount = new AtomicLong();
+    private final AtomicInteger myAnalyzedCount = new AtomicInteger();
+
+    PandaBatchAnalyzer(@NotNull Project project, @NotNull VirtualFile baseDir) {
+        myProject = project;
+        myBaseDir = baseDir;
+    }
+
+    /**
+     * 一个待写出的结果。只保存位置和消息，不持有 PSI。
+     */
+    private record Finding(@NotNull PandaRule rule, int line, int column, @NotNull String message) {
+    }
+
+    /**
+     * 分析给定的文件。取消时抛出 {@link com.intellij.openapi.progress.ProcessCanceledException}，
+     * 写出结果失败时抛出 {@link UncheckedIOException}；已经写出的结果和 {@link #getAnalyzedCount()} 仍然有效。
+     *
+     * @param files     要分析的文件
+     * @param sarif     结果的输出
+     * @param indicator 进度指示器
+     * @return 是否分析了所有文件
+     */
+    boolean analyze(@NotNull List<VirtualFile> files, @NotNull SarifWriter sarif, @NotNull ProgressIndicator indicator) {
+        PsiManager psiManager = PsiManager.getInstance(myProject);
+        InspectionManager inspectionManager = InspectionManager.getInstance(myProject);
+        return JobLauncher.getInstance().invokeConcurrentlyUnderProgress(files, indicator, file -> {
+            List<Finding> findings = ReadAction.nonBlocking(() -> analyzeFile(file, psiManager, inspectionManager))
+                    .wrapProgress(indicator)
+                    .executeSynchronously();
+            if (findings == null) {
+                return true;
+            }
+            String path = VfsUtilCore.getRelativePath(file, myBaseDir);
+            try {
+                for (Finding finding : findings) {
+                    if (finding.rule().isWarning()) {
+                        myWarningCount.incrementAndGet();
+                    }
+                    sarif.writeResult(finding.rule(), path == null ? file.getPath() : path,
+                            finding.line(), finding.column(), finding.message());
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            myAnalyzedCount.incrementAndGet();
+            return true;
+        });
+    }
+
+    /**
+     * @return 到目前为止实际分析的文件数。
+     */
+    int getAnalyzedCount() {
+        return myAnalyzedCount.get();
+    }
+
+    /**
+     * @return 到目前为止写出的 warning 级别结果的数量。
+     */
+    long getWarningCount() {
+        return myWarningCount.get();
+    }
+
+    @Nullable
+    private List<Finding> analyzeFile(@NotNull VirtualFile file,
+                                      @NotNull PsiManager psiManager,
+                                      @NotNull InspectionManager inspectionManager) {
+        PsiFile psiFile = file.isValid() ? psiManager.findFile(file) : null;
+        if (!(psiFile instanceof PsiJavaFile)) {
+            return null;
+        }
+        Document document = PsiDocumentManager.getInstance(myProject).getDocument(psiFile);
+        if (document == null) {
+            return null;
+        }
+        // One walk over the file feeds every inspection and the ternary check
+        long start = PandaMetrics.start();
+        SharedJavaWalk walk = new SharedJavaWalk(psiFile, inspectionManager);
+        ProblemsHolder strings = walk.add(myStringInspection);
+        ProblemsHolder loops = walk.add(myLoopInspection);
+        List<Finding> findings = new ArrayList<>();
+        walk.getHandlers().register(PsiConditionalExpression.class, ternary -> {
+            if (ConditionalOperatorConverter.isConvertible(ternary)) {
+                findings.add(createFinding(document, PandaRule.CONDITIONAL_OPERATOR,
+                        ternary.getTextOffset(), PandaRule.CONDITIONAL_OPERATOR.getDescription()));
+            }
+        });
+        walk.run(psiFile);
+        addFindings(findings, document, PandaRule.COMPARING_STRING_REFERENCES, strings.getResults());
+        addFindings(findings, document, PandaRule.ALLOCATION_IN_LOOP, loops.getResults());
+        if (start != 0) {
+            // The walk serves every rule, so its time is not the string inspection's visitor time
+            PandaMetrics.stop(PandaMetric.BATCH_FILE_VISIT, start);
+            PandaMetrics.addProblems(strings.getResultCount());
+        }
+        return findings;
+    }
+
+    private static void addFindings(@NotNull List<Finding> findings, @NotNull Document document,
+                                    @NotNull PandaRule rule, @NotNull List<ProblemDescriptor> problems) {
+        for (ProblemDescriptor problem : problems) {
+            PsiElement element = problem.getPsiElement();
+            if (element != null) {
+                findings.add(createFinding(document, rule, element.getTextOffset(), problem.getDescriptionTemplate()));
+            }
+        }
+    }
+
+    @NotNull
+    private static Finding createFinding(@NotNull Document document, @NotNull PandaRule rule, int offset,
+                                         @NotNull String message) {
+        int line = document.getLineNumber(offset);
+        return new Finding(rule, line + 1, offset - document.getLineStartOffset(line) + 1, message);
+    }
+
+    /**
+     * @return 项目源代码根目录下的所有 Java 文件。
+     */
+    @NotNull
+    List<VirtualFile> collectSourceFiles() {
+        return ReadAction.compute(() -> {
+            ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(myProject);
+            List<VirtualFile> files = new ArrayList<>();
+            fileIndex.iterateContent(file -> {
+                if (isJavaSource(fileIndex, file)) {
+                    files.add(file);
+                }
+                return true;
+            });
+            return files;
+        });
+    }
+
+    /**
+     * 从本地 git 仓库读取自给定修订版本以来新增、复制、修改或重命名的文件，并只保留源代码根目录下的 Java 文件。
+     * 项目目录可以是 git 仓库的子目录，因此路径相对于项目目录输出（{@code --relative}），目录之外的变更被忽略。
+     *
+     * @param revision git 修订版本，例如 {@code origin/main}
+     * @return 变更的 Java 源文件
+     */
+    @NotNull
+    List<VirtualFile> collectChangedSourceFiles(@NotNull String revision) throws ExecutionException {
+        // core.quotePath=false prints non-ASCII paths as they are instead of quoted octal escapes
+        GeneralCommandLine commandLine = new GeneralCommandLine("git", "-c", "core.quotePath=false",
+                "diff", "--relative", "--name-only", "--diff-filter=ACMR", revision)
+                .withWorkDirectory(myBaseDir.getPath());
+        ProcessOutput output = ExecUtil.execAndGetOutput(commandLine);
+        if (output.getExitCode() != 0) {
+            throw new ExecutionException("git diff failed: " + output.getStderr());
+        }
+        LocalFileSystem fileSystem = LocalFileSystem.getInstance();
+        List<VirtualFile> changed = new ArrayList<>();
+        for (String path : output.getStdoutLines()) {
+            VirtualFile file = fileSystem.refreshAndFindFileByPath(myBaseDir.getPath() + "/" + path);
+            if (file != null) {
+                changed.add(file);
+            }
+        }
+        return ReadAction.compute(() -> {
+            ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(myProject);
+            List<VirtualFile> files = new ArrayList<>(changed.size());
+            for (VirtualFile file : changed) {
+                if (isJavaSource(fileIndex, file)) {
+                    files.add(file);
+                }
+            }
+            LOG.info(files.size() + " of " + changed.size() + " changed files are Java sources");
+            return files;
+        });
+    }
+
+    private static boolean isJavaSource(@NotNull ProjectFileIndex fileIndex, @NotNull VirtualFile file) {
+        return !file.isDirectory() &&
+                fileIndex.isInSourceContent(file) &&
+                FileTypeRegistry.getInstance().isFileOfType(file, JavaFileType.INSTANCE);
+    }
+}
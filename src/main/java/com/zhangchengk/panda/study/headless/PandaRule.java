@@ -0,0 +1,50 @@
+package com.zhangchengk.panda.study.headless;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 无界面分析器报告的规则，即 SARIF 报告中的 {@code ruleId}。
+ */
+enum PandaRule {
+
+    COMPARING_STRING_REFERENCES("ComparingStringReferences",
+            "String objects compared with '==' or '!=' instead of equals()", "warning"),
+
+    ALLOCATION_IN_LOOP("AllocationInLoop",
+            "String concatenation or unsized collection allocated in a loop", "warning"),
+
+    CONDITIONAL_OPERATOR("ConditionalOperator",
+            "Ternary operator that can be converted to an if statement", "note");
+
+    private final String myId;
+    private final String myDescription;
+    private final String myLevel;
+
+    PandaRule(@NotNull String id, @NotNull String description, @NotNull String level) {
+        myId = id;
+        myDescription = description;
+        myLevel = level;
+    }
+
+    @NotNull
+    String getId() {
+        return myId;
+    }
+
+    @NotNull
+    String getDescription() {
+        return myDescription;
+    }
+
+    /**
+     * @return SARIF 级别：{@code error}、{@code warning} 或 {@code note}。
+     */
+    @NotNull
+    String getLevel() {
+        return myLevel;
+    }
+
+    boolean isWarning() {
+        return "warning".equals(myLevel) || "error".equals(myLevel);
+    }
+}
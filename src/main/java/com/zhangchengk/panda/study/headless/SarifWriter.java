@@ -0,0 +1,129 @@
+package com.zhangchengk.panda.study.headless;
+
+import com.google.gson.stream.JsonWriter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 以流的方式写出 SARIF 2.1.0 报告：每个结果在产生时立即写入文件，内存中不保留已写出的结果。
+ * 所有方法都是线程安全的。
+ */
+final class SarifWriter implements Closeable {
+
+    private final JsonWriter myJson;
+
+    /**
+     * @param output     报告文件
+     * @param sourceRoot 结果路径所相对的项目根目录，在报告中定义为 {@code SRCROOT}
+     */
+    SarifWriter(@NotNull Path output, @NotNull Path sourceRoot) throws IOException {
+        Path parent = output.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8);
+        myJson = new JsonWriter(writer);
+        myJson.setIndent("  ");
+        myJson.beginObject()
+                .name("version").value("2.1.0")
+                .name("$schema").value("https://json.schemastore.org/sarif-2.1.0.json")
+                .name("runs").beginArray()
+                .beginObject();
+        writeTool();
+        writeOriginalUriBaseIds(sourceRoot);
+        myJson.name("results").beginArray();
+    }
+
+    private void writeTool() throws IOException {
+        myJson.name("tool").beginObject()
+                .name("driver").beginObject()
+                .name("name").value("Panda")
+                .name("rules").beginArray();
+        for (PandaRule rule : PandaRule.values()) {
+            myJson.beginObject()
+                    .name("id").value(rule.getId())
+                    .name("shortDescription").beginObject().name("text").value(rule.getDescription()).endObject()
+                    .name("defaultConfiguration").beginObject().name("level").value(rule.getLevel()).endObject()
+                    .endObject();
+        }
+        myJson.endArray().endObject().endObject();
+    }
+
+    /**
+     * 定义结果中使用的 {@code SRCROOT}，否则 SARIF 查看器无法把相对路径解析为文件。
+     * 按规范，基准 URI 必须以 {@code /} 结尾。
+     */
+    private void writeOriginalUriBaseIds(@NotNull Path sourceRoot) throws IOException {
+        String uri = sourceRoot.toAbsolutePath().toUri().toString();
+        myJson.name("originalUriBaseIds").beginObject()
+                .name("SRCROOT").beginObject().name("uri").value(uri.endsWith("/") ? uri : uri + "/").endObject()
+                .endObject();
+    }
+
+    /**
+     * 写出一个结果。
+     *
+     * @param rule    产生该结果的规则
+     * @param path    相对于项目根目录的文件路径
+     * @param line    从 1 开始的行号
+     * @param column  从 1 开始的列号
+     * @param message 结果消息
+     */
+    synchronized void writeResult(@NotNull PandaRule rule, @NotNull String path, int line, int column,
+                                  @NotNull String message) throws IOException {
+        myJson.beginObject()
+                .name("ruleId").value(rule.getId())
+                .name("level").value(rule.getLevel())
+                .name("message").beginObject().name("text").value(message).endObject()
+                .name("locations").beginArray().beginObject()
+                .name("physicalLocation").beginObject()
+                .name("artifactLocation").beginObject()
+                .name("uri").value(path)
+                .name("uriBaseId").value("SRCROOT")
+                .endObject()
+                .name("region").beginObject()
+                .name("startLine").value(line)
+                .name("startColumn").value(column)
+                .endObject()
+                .endObject()
+                .endObject().endArray()
+                .endObject();
+    }
+
+    /**
+     * 结束结果列表，并写出本次运行的统计信息。之后只能调用 {@link #close()}。
+     *
+     * @param failure 运行被取消或失败的原因，成功完成时为 {@code null}。非空时报告中的结果是不完整的。
+     */
+    synchronized void finish(int filesAnalyzed, long elapsedMs, double filesPerSecond,
+                             @Nullable String failure) throws IOException {
+        myJson.endArray();
+        myJson.name("invocations").beginArray().beginObject()
+                .name("executionSuccessful").value(failure == null);
+        if (failure != null) {
+            myJson.name("toolExecutionNotifications").beginArray().beginObject()
+                    .name("level").value("error")
+                    .name("message").beginObject().name("text").value(failure).endObject()
+                    .endObject().endArray();
+        }
+        myJson.name("properties").beginObject()
+                .name("filesAnalyzed").value(filesAnalyzed)
+                .name("elapsedMs").value(elapsedMs)
+                .name("filesPerSecond").value(filesPerSecond)
+                .endObject()
+                .endObject().endArray();
+        myJson.endObject().endArray().endObject();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        myJson.close();
+    }
+}
@@ -0,0 +1,82 @@
+package com.zhangchengk.panda.study.hprof;
+
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.fileChooser.FileChooser;
+import com.intellij.openapi.fileChooser.FileChooserDescriptor;
+import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 分析一个 HPROF 堆转储（{@code .hprof}），在 "Panda Heap" 工具窗口中列出重复的字符串、
+ * 去重后可以释放的字节数以及引用它们的字段。
+ * <p>
+ * 堆转储在可取消的后台任务中内存映射并顺序扫描一次，详见 {@link DuplicateStringScanner}。
+ */
+public final class AnalyzeHeapDumpAction extends DumbAwareAction {
+
+    private static final String TITLE = "Analyze Heap Dump";
+
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabledAndVisible(e.getProject() != null);
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
+        FileChooserDescriptor descriptor = FileChooserDescriptorFactory.createSingleFileDescriptor("hprof")
+                .withTitle(TITLE)
+                .withDescription("Select a heap dump written by jmap, jcmd GC.heap_dump or -XX:+HeapDumpOnOutOfMemoryError");
+        VirtualFile file = FileChooser.chooseFile(descriptor, project, null);
+        if (file == null) {
+            return;
+        }
+        ToolWindow toolWindow = ToolWindowManager.getInstance(project).getToolWindow(HeapDumpService.TOOL_WINDOW_ID);
+        if (toolWindow != null) {
+            toolWindow.activate(null);
+        }
+        Path path = file.toNioPath();
+        new Task.Backgroundable(project, "Analyzing " + file.getName(), true) {
+
+            private String myError;
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                indicator.setIndeterminate(false);
+                try {
+                    HeapDumpService.getInstance(project).publish(new DuplicateStringScanner().scan(path, indicator));
+                }
+                catch (IOException ex) {
+                    myError = ex.getMessage();
+                }
+            }
+
+            @Override
+            public void onSuccess() {
+                if (myError != null) {
+                    Messages.showErrorDialog(project, myError, TITLE);
+                }
+            }
+        }.queue();
+    }
+}
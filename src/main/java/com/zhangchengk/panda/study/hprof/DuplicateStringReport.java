@@ -0,0 +1,117 @@
+package com.zhangchengk.panda.study.hprof;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * 从一个堆转储中找出的重复字符串：内容相同的 {@code java.lang.String} 实例按内容分组，
+ * 按去重后可以释放的字节数从大到小排列。
+ * <p>
+ * 实例是不可变的，可以在任意线程中读取。
+ */
+public final class DuplicateStringReport {
+
+    public static final DuplicateStringReport EMPTY = new DuplicateStringReport("", 0, 0, 0, 0, List.of());
+
+    /**
+     * 引用了某组字符串的字段。
+     *
+     * @param className 声明字段的类的二进制名，例如 {@code a.b.Outer$Inner}
+     * @param fieldName 字段名
+     * @param count     该组中由这个字段引用的字符串数
+     */
+    public record FieldReference(@NotNull String className, @NotNull String fieldName, long count) {
+
+        @NotNull
+        @Override
+        public String toString() {
+            return className + "." + fieldName + " (" + count + ")";
+        }
+    }
+
+    /**
+     * 一组内容相同的字符串。
+     *
+     * @param preview       字符串内容，过长时被截断
+     * @param length        字符串的字符数
+     * @param count         实例数
+     * @param retainedBytes 只保留一个实例时可以释放的字节数，已共用的 value 数组只计算一次
+     * @param referrers     引用这些字符串的字段，按引用数从多到少排列
+     */
+    public record DuplicateString(@NotNull String preview, int length, long count, long retainedBytes,
+                                  @NotNull List<FieldReference> referrers) {
+    }
+
+    private final String mySource;
+    private final long myStringCount;
+    private final long myDuplicateCount;
+    private final long myRetainedBytes;
+    private final long myUnresolvedCount;
+    private final List<DuplicateString> myDuplicates;
+
+    DuplicateStringReport(@NotNull String source,
+                          long stringCount,
+                          long duplicateCount,
+                          long retainedBytes,
+                          long unresolvedCount,
+                          @NotNull List<DuplicateString> duplicates) {
+        mySource = source;
+        myStringCount = stringCount;
+        myDuplicateCount = duplicateCount;
+        myRetainedBytes = retainedBytes;
+        myUnresolvedCount = unresolvedCount;
+        myDuplicates = duplicates;
+    }
+
+    @NotNull
+    public String getSource() {
+        return mySource;
+    }
+
+    public boolean isEmpty() {
+        return myStringCount == 0;
+    }
+
+    /**
+     * @return 堆转储中字符串实例的总数
+     */
+    public long getStringCount() {
+        return myStringCount;
+    }
+
+    /**
+     * @return 所有分组中多余的实例数，即每组的实例数减一之和
+     */
+    public long getDuplicateCount() {
+        return myDuplicateCount;
+    }
+
+    /**
+     * @return 所有分组去重后可以释放的字节数，包括没有列入 {@link #getDuplicates()} 的分组
+     */
+    public long getRetainedBytes() {
+        return myRetainedBytes;
+    }
+
+    /**
+     * @return value 数组不在堆转储中的字符串数，这些字符串不参与分组
+     */
+    public long getUnresolvedCount() {
+        return myUnresolvedCount;
+    }
+
+    /**
+     * @return 可以释放的字节数最多的分组
+     */
+    @NotNull
+    public List<DuplicateString> getDuplicates() {
+        return myDuplicates;
+    }
+
+    @Override
+    public String toString() {
+        return mySource + ": " + myStringCount + " strings, " + myDuplicateCount + " duplicates, " +
+                myRetainedBytes + " bytes retained by duplicates";
+    }
+}
@@ -0,0 +1,624 @@
+package com.zhangchengk.panda.study.hprof;
+
+import com.intellij.openapi.progress.ProgressIndicator;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 在一次顺序扫描中从 HPROF 堆转储里找出内容相同的 {@code java.lang.String} 实例，以及引用它们的字段。
+ * <p>
+ * 文件通过 {@link HprofFile} 内存映射读取，按对象数增长的表都是堆外的 {@link OffHeapLongTable}，
+ * Java 堆中只保留类的字段布局和最终报告，因此可以处理比 IDE 堆大得多的堆转储：
+ * <ul>
+ *     <li>byte[] 和 char[]：数组 id 到内容哈希、长度和数据位置。不超过 {@link #EAGER_HASH_LIMIT} 字节的数组在扫描时计算哈希，
+ *     更大的数组只在被字符串引用时才读取；</li>
+ *     <li>String：字符串 id 到 value 数组 id、coder 和第一个引用它的字段；</li>
+ *     <li>尚未读到的对象：对象 id 到第一个引用它的字段。对象在堆转储中的顺序是任意的，
+ *     字段可能引用后面才出现的字符串，读到字符串时再从这里取出引用它的字段。</li>
+ * </ul>
+ * 扫描结束后在堆外表中按内容哈希分组，只为去重后可以释放字节最多的 {@link #REPORT_LIMIT} 组统计引用字段和读取内容。
+ * <p>
+ * 假设：类的记录出现在它们的实例之前（HotSpot 的堆转储总是先写出所有类）；
+ * 内容用 64 位哈希比较；对象大小按开启压缩指针的 64 位 JVM 估算；UTF-16 字符串的字节序是小端。
+ * 每个字符串只记录堆转储中第一个引用它的实例字段或静态字段，数组元素不算作字段。
+ * <p>
+ * 实例不是线程安全的，每次扫描创建一个新实例。
+ */
+final class DuplicateStringScanner {
+
+    // Top-level record tags
+    private static final int TAG_STRING = 0x01;
+    private static final int TAG_LOAD_CLASS = 0x02;
+    private static final int TAG_HEAP_DUMP = 0x0C;
+    private static final int TAG_HEAP_DUMP_SEGMENT = 0x1C;
+
+    // Heap dump sub-record tags
+    private static final int ROOT_UNKNOWN = 0xFF;
+    private static final int ROOT_JNI_GLOBAL = 0x01;
+    private static final int ROOT_JNI_LOCAL = 0x02;
+    private static final int ROOT_JAVA_FRAME = 0x03;
+    private static final int ROOT_NATIVE_STACK = 0x04;
+    private static final int ROOT_STICKY_CLASS = 0x05;
+    private static final int ROOT_THREAD_BLOCK = 0x06;
+    private static final int ROOT_MONITOR_USED = 0x07;
+    private static final int ROOT_THREAD_OBJECT = 0x08;
+    private static final int CLASS_DUMP = 0x20;
+    private static final int INSTANCE_DUMP = 0x21;
+    private static final int OBJECT_ARRAY_DUMP = 0x22;
+    private static final int PRIMITIVE_ARRAY_DUMP = 0x23;
+
+    // Basic types
+    private static final int TYPE_OBJECT = 2;
+    private static final int TYPE_BOOLEAN = 4;
+    private static final int TYPE_CHAR = 5;
+    private static final int TYPE_FLOAT = 6;
+    private static final int TYPE_DOUBLE = 7;
+    private static final int TYPE_BYTE = 8;
+    private static final int TYPE_SHORT = 9;
+    private static final int TYPE_INT = 10;
+    private static final int TYPE_LONG = 11;
+
+    // String.coder, and CHARS for the char[] values of Java 8
+    private static final int LATIN1 = 0;
+    private static final int UTF16 = 1;
+    private static final int CHARS = 2;
+
+    private static final String STRING_CLASS = "java/lang/String";
+    private static final int STRING_SIZE = 24;
+    private static final int ARRAY_HEADER_SIZE = 16;
+
+    private static final int EAGER_HASH_LIMIT = 1 << 16;
+    private static final int REPORT_LIMIT = 500;
+    private static final int REFERRER_LIMIT = 10;
+    private static final int PREVIEW_LIMIT = 200;
+    private static final int PROGRESS_MASK = 0xFFFF;
+
+    // Flags of an array entry
+    private static final long HASHED = 1L << 40;
+    private static final long COUNTED = 1L << 41;
+
+    /**
+     * 类的字段。实例的完整布局（包括父类的字段）在读到第一个实例时计算，此时所有的类都已读到。
+     */
+    private static final class ClassInfo {
+        private final long mySuperId;
+        private final byte[] myTypes;
+        private final long[] myNames;
+        private final int[] myFieldIds;
+        private int[] myReferenceOffsets;
+        private int[] myReferenceFields;
+
+        ClassInfo(long superId, byte @NotNull [] types, long @NotNull [] names, int @NotNull [] fieldIds) {
+            mySuperId = superId;
+            myTypes = types;
+            myNames = names;
+            myFieldIds = fieldIds;
+        }
+    }
+
+    // UTF-8 name records: id -> position, length
+    private final OffHeapLongTable myNames = new OffHeapLongTable(2);
+    // byte[] and char[]: id -> content hash, packed length/type/flags, position of the data
+    private final OffHeapLongTable myArrays = new OffHeapLongTable(3);
+    // String: id -> value array id, packed coder/referrer
+    private final OffHeapLongTable myStrings = new OffHeapLongTable(2);
+    // Objects not read yet: id -> first referring field + 1
+    private final OffHeapLongTable myPending = new OffHeapLongTable(1);
+
+    private final Long2LongOpenHashMap myClassNames = new Long2LongOpenHashMap();
+    private final Long2ObjectOpenHashMap<ClassInfo> myClasses = new Long2ObjectOpenHashMap<>();
+    private final LongArrayList myFieldClasses = new LongArrayList();
+    private final LongArrayList myFieldNames = new LongArrayList();
+
+    private HprofFile myFile;
+    private int myIdSize;
+    private ProgressIndicator myIndicator;
+    private long myObjects;
+    private long myStringClassId;
+    private int myValueOffset = -1;
+    private int myCoderOffset = -1;
+    private boolean myCharValues;
+
+    /**
+     * 扫描整个堆转储。必须在后台线程中调用。
+     *
+     * @param path      HPROF 文件
+     * @param indicator 用于报告进度和检查取消的进度指示器
+     * @return 重复字符串的报告
+     * @throws IOException 文件不是 HPROF 格式、被截断，或者堆外内存不足
+     */
+    @NotNull
+    DuplicateStringReport scan(@NotNull Path path, @NotNull ProgressIndicator indicator) throws IOException {
+        myFile = HprofFile.open(path);
+        myIndicator = indicator;
+        try {
+            long size = myFile.size();
+            for (long position = readHeader(path); position < size; ) {
+                if (position + 9 > size) {
+                    throw new IOException("Truncated heap dump at offset " + position);
+                }
+                int tag = myFile.u1(position);
+                long length = myFile.u4(position + 5);
+                long body = position + 9;
+                if (body + length > size) {
+                    throw new IOException("Truncated heap dump at offset " + position);
+                }
+                switch (tag) {
+                    case TAG_STRING -> {
+                        long slot = myNames.insert(myFile.id(body, myIdSize));
+                        myNames.setValue(slot, 0, body + myIdSize);
+                        myNames.setValue(slot, 1, length - myIdSize);
+                    }
+                    case TAG_LOAD_CLASS -> loadClass(body);
+                    case TAG_HEAP_DUMP, TAG_HEAP_DUMP_SEGMENT -> readHeapDump(body, body + length);
+                    default -> {
+                    }
+                }
+                position = body + length;
+            }
+            return buildReport(path.getFileName().toString());
+        }
+        catch (OutOfMemoryError e) {
+            throw new IOException("Not enough direct memory for the tables of " + myObjects +
+                    " objects, increase -XX:MaxDirectMemorySize of the IDE", e);
+        }
+        finally {
+            myNames.clear();
+            myArrays.clear();
+            myStrings.clear();
+            myPending.clear();
+            myFile.close();
+            myFile = null;
+        }
+    }
+
+    /**
+     * 文件头：以 0 结尾的格式名（例如 {@code JAVA PROFILE 1.0.2}）、u4 标识符长度和 u8 时间戳。
+     *
+     * @return 第一个记录的位置
+     */
+    private long readHeader(@NotNull Path path) throws IOException {
+        long end = 0;
+        while (end < Math.min(myFile.size(), 64) && myFile.u1(end) != 0) {
+            end++;
+        }
+        if (end + 13 > myFile.size() || !myFile.utf8(0, (int) end).startsWith("JAVA PROFILE")) {
+            throw new IOException(path.getFileName() + " is not a HPROF heap dump");
+        }
+        myIdSize = (int) myFile.u4(end + 1);
+        if (myIdSize != 4 && myIdSize != 8) {
+            throw new IOException("Unsupported identifier size " + myIdSize);
+        }
+        return end + 1 + 4 + 8;
+    }
+
+    private void loadClass(long position) {
+        long classId = myFile.id(position + 4, myIdSize);
+        long nameId = myFile.id(position + 8 + myIdSize, myIdSize);
+        myClassNames.put(classId, nameId);
+        if (myStringClassId == 0 && STRING_CLASS.equals(getName(nameId))) {
+            myStringClassId = classId;
+        }
+    }
+
+    private void readHeapDump(long position, long end) throws IOException {
+        while (position < end) {
+            int tag = myFile.u1(position++);
+            switch (tag) {
+                case ROOT_UNKNOWN, ROOT_STICKY_CLASS, ROOT_MONITOR_USED -> position += myIdSize;
+                case ROOT_JNI_GLOBAL -> position += 2L * myIdSize;
+                case ROOT_JNI_LOCAL, ROOT_JAVA_FRAME, ROOT_THREAD_OBJECT -> position += myIdSize + 8;
+                case ROOT_NATIVE_STACK, ROOT_THREAD_BLOCK -> position += myIdSize + 4;
+                case CLASS_DUMP -> position = readClass(position);
+                case INSTANCE_DUMP -> position = readInstance(position);
+                case OBJECT_ARRAY_DUMP -> {
+                    takePending(myFile.id(position, myIdSize));
+                    long count = myFile.u4(position + myIdSize + 4);
+                    position += myIdSize + 8 + myIdSize + count * myIdSize;
+                }
+                case PRIMITIVE_ARRAY_DUMP -> position = readPrimitiveArray(position);
+                default -> throw new IOException(String.format("Unsupported heap dump record 0x%02X at offset %d", tag, position - 1));
+            }
+            if ((++myObjects & PROGRESS_MASK) == 0) {
+                myIndicator.checkCanceled();
+                myIndicator.setFraction((double) position / myFile.size());
+                myIndicator.setText2(myObjects + " objects, " + myStrings.size() + " strings");
+            }
+        }
+    }
+
+    /**
+     * CLASS DUMP：类 id、栈序号、父类、类加载器、签名者、保护域、两个保留 id、实例大小、常量池、静态字段和实例字段。
+     * 静态字段中的对象引用在这里记录；实例字段只保存类型和名字，为对象字段分配编号。
+     */
+    private long readClass(long position) throws IOException {
+        long classId = myFile.id(position, myIdSize);
+        long superId = myFile.id(position + myIdSize + 4, myIdSize);
+        position += 7L * myIdSize + 4 + 4;
+        int constants = myFile.u2(position);
+        position += 2;
+        for (int i = 0; i < constants; i++) {
+            position += 2;
+            position += 1 + sizeOf(myFile.u1(position));
+        }
+        int statics = myFile.u2(position);
+        position += 2;
+        for (int i = 0; i < statics; i++) {
+            long nameId = myFile.id(position, myIdSize);
+            int type = myFile.u1(position + myIdSize);
+            position += myIdSize + 1;
+            if (type == TYPE_OBJECT) {
+                long target = myFile.id(position, myIdSize);
+                if (target != 0) {
+                    addReference(target, addField(classId, nameId));
+                }
+            }
+            position += sizeOf(type);
+        }
+        int fields = myFile.u2(position);
+        position += 2;
+        byte[] types = new byte[fields];
+        long[] names = new long[fields];
+        int[] fieldIds = new int[fields];
+        for (int i = 0; i < fields; i++) {
+            names[i] = myFile.id(position, myIdSize);
+            types[i] = (byte) myFile.u1(position + myIdSize);
+            fieldIds[i] = types[i] == TYPE_OBJECT ? addField(classId, names[i]) : -1;
+            position += myIdSize + 1;
+        }
+        myClasses.put(classId, new ClassInfo(superId, types, names, fieldIds));
+        return position;
+    }
+
+    private int addField(long classId, long nameId) {
+        myFieldClasses.add(classId);
+        myFieldNames.add(nameId);
+        return myFieldNames.size() - 1;
+    }
+
+    /**
+     * INSTANCE DUMP：对象 id、栈序号、类 id、数据长度和字段数据。数据中先是类自己的字段，然后是父类的字段。
+     */
+    private long readInstance(long position) throws IOException {
+        long objectId = myFile.id(position, myIdSize);
+        long classId = myFile.id(position + myIdSize + 4, myIdSize);
+        long length = myFile.u4(position + 2L * myIdSize + 4);
+        long data = position + 2L * myIdSize + 8;
+        if (classId == myStringClassId && myStringClassId != 0) {
+            readString(objectId, data);
+        } else {
+            takePending(objectId);
+            ClassInfo info = getLayout(classId);
+            if (info != null) {
+                for (int i = 0; i < info.myReferenceOffsets.length; i++) {
+                    long target = myFile.id(data + info.myReferenceOffsets[i], myIdSize);
+                    if (target != 0) {
+                        addReference(target, info.myReferenceFields[i]);
+                    }
+                }
+            }
+        }
+        return data + length;
+    }
+
+    /**
+     * @return 带有完整实例布局的类；类或它的某个父类不在堆转储中时返回 {@code null}
+     */
+    @Nullable
+    private ClassInfo getLayout(long classId) throws IOException {
+        ClassInfo info = myClasses.get(classId);
+        if (info == null || info.myReferenceOffsets != null) {
+            return info;
+        }
+        IntArrayList offsets = new IntArrayList();
+        IntArrayList fields = new IntArrayList();
+        int offset = 0;
+        for (ClassInfo current = info; current != null; ) {
+            for (int i = 0; i < current.myTypes.length; i++) {
+                if (current.myTypes[i] == TYPE_OBJECT) {
+                    offsets.add(offset);
+                    fields.add(current.myFieldIds[i]);
+                }
+                offset += sizeOf(current.myTypes[i]);
+            }
+            if (current.mySuperId == 0) {
+                break;
+            }
+            current = myClasses.get(current.mySuperId);
+            if (current == null) {
+                return null;
+            }
+        }
+        info.myReferenceOffsets = offsets.toIntArray();
+        info.myReferenceFields = fields.toIntArray();
+        return info;
+    }
+
+    private void readString(long objectId, long data) throws IOException {
+        if (myValueOffset < 0) {
+            resolveStringLayout();
+        }
+        long slot = myStrings.insert(objectId);
+        myStrings.setValue(slot, 0, myFile.id(data + myValueOffset, myIdSize));
+        int coder = myCharValues ? CHARS : myCoderOffset < 0 ? LATIN1 : myFile.u1(data + myCoderOffset);
+        myStrings.setValue(slot, 1, (long) coder << 32 | takePending(objectId));
+    }
+
+    /**
+     * 找出 String 的 {@code value} 和 {@code coder} 字段在实例数据中的位置。Java 8 的 value 是 char[]，没有 coder。
+     */
+    private void resolveStringLayout() throws IOException {
+        ClassInfo info = myClasses.get(myStringClassId);
+        if (info == null) {
+            throw new IOException("The heap dump has no class record for java.lang.String");
+        }
+        int offset = 0;
+        for (int i = 0; i < info.myTypes.length; i++) {
+            String name = getName(info.myNames[i]);
+            if ("value".equals(name) && info.myTypes[i] == TYPE_OBJECT) {
+                myValueOffset = offset;
+            } else if ("coder".equals(name) && info.myTypes[i] == TYPE_BYTE) {
+                myCoderOffset = offset;
+            }
+            offset += sizeOf(info.myTypes[i]);
+        }
+        if (myValueOffset < 0) {
+            throw new IOException("Unsupported java.lang.String layout: no 'value' field");
+        }
+        myCharValues = myCoderOffset < 0;
+    }
+
+    /**
+     * 记录字段对一个对象的引用：目标是已读到的字符串时直接记在字符串上，否则暂存，目标被读到时由
+     * {@link #takePending} 取出并删除。每个对象只保留第一个引用它的字段。
+     * <p>
+     * 目标是已读到的其他对象时，这里无法把它和还没读到的对象区分开，条目会留到扫描结束。
+     */
+    private void addReference(long target, int field) {
+        long slot = myStrings.find(target);
+        if (slot >= 0) {
+            long packed = myStrings.getValue(slot, 1);
+            if ((packed & 0xFFFFFFFFL) == 0) {
+                myStrings.setValue(slot, 1, packed | (field + 1L));
+            }
+            return;
+        }
+        slot = myPending.insert(target);
+        if (myPending.getValue(slot, 0) == 0) {
+            myPending.setValue(slot, 0, field + 1L);
+        }
+    }
+
+    /**
+     * PRIMITIVE ARRAY DUMP：数组 id、栈序号、元素数、元素类型和数据。只记录可能是字符串 value 的 byte[] 和 char[]。
+     */
+    private long readPrimitiveArray(long position) throws IOException {
+        long arrayId = myFile.id(position, myIdSize);
+        takePending(arrayId);
+        long count = myFile.u4(position + myIdSize + 4);
+        int type = myFile.u1(position + myIdSize + 8);
+        long data = position + myIdSize + 9;
+        long bytes = count * sizeOf(type);
+        if (type == TYPE_BYTE || type == TYPE_CHAR) {
+            long slot = myArrays.insert(arrayId);
+            long packed = count | (long) type << 32;
+            if (bytes <= EAGER_HASH_LIMIT) {
+                myArrays.setValue(slot, 0, myFile.hash(data, bytes));
+                packed |= HASHED;
+            }
+            myArrays.setValue(slot, 1, packed);
+            myArrays.setValue(slot, 2, data);
+        }
+        return data + bytes;
+    }
+
+    /**
+     * 取出并删除暂存的引用。每个实例和数组被读到时调用一次，引用它的字段已经出现过时释放对应的条目。
+     *
+     * @return 第一个引用对象的字段加 1；没有暂存的引用时返回 0
+     */
+    private long takePending(long objectId) {
+        long slot = myPending.find(objectId);
+        if (slot < 0) {
+            return 0;
+        }
+        long field = myPending.getValue(slot, 0);
+        myPending.remove(slot);
+        return field;
+    }
+
+        private int sizeOf(int type) throws IOException {
+        return switch (type) {
+            case TYPE_OBJECT -> myIdSize;
+            case TYPE_BOOLEAN, TYPE_BYTE -> 1;
+            case TYPE_CHAR, TYPE_SHORT -> 2;
+            case TYPE_FLOAT, TYPE_INT -> 4;
+            case TYPE_DOUBLE, TYPE_LONG -> 8;
+            default -> throw new IOException("Unsupported basic type " + type);
+        };
+    }
+
+    @NotNull
+    private String getName(long nameId) {
+        long slot = myNames.find(nameId);
+        return slot < 0 ? "<unknown>" : myFile.utf8(myNames.getValue(slot, 0), (int) myNames.getValue(slot, 1));
+    }
+
+    // ---------------------------------------------------------------- report
+
+    /**
+     * @return 字符串内容的分组键；同时计算延迟的数组哈希。value 数组不在堆转储中时返回 0。
+     */
+    private long getContentKey(long stringSlot) {
+        long arrayId = myStrings.getValue(stringSlot, 0);
+        long arraySlot = arrayId == 0 ? -1 : myArrays.find(arrayId);
+        if (arraySlot < 0) {
+            return 0;
+        }
+        long packed = myArrays.getValue(arraySlot, 1);
+        long hash = myArrays.getValue(arraySlot, 0);
+        if ((packed & HASHED) == 0) {
+            int type = (int) (packed >>> 32) & 0xFF;
+            hash = myFile.hash(myArrays.getValue(arraySlot, 2), (packed & 0xFFFFFFFFL) * (type == TYPE_CHAR ? 2 : 1));
+            myArrays.setValue(arraySlot, 0, hash);
+            myArrays.setValue(arraySlot, 1, packed | HASHED);
+        }
+        long key = (hash ^ getCoder(stringSlot)) * 0x9E3779B97F4A7C15L;
+        return key == 0 ? 1 : key;
+    }
+
+    private int getCoder(long stringSlot) {
+        return (int) (myStrings.getValue(stringSlot, 1) >>> 32);
+    }
+
+    /**
+     * 按内容分组，选出去重后可以释放字节最多的组，再为这些组统计引用字段。两次遍历的都是堆外表，不再读取整个文件。
+     */
+    @NotNull
+    private DuplicateStringReport buildReport(@NotNull String source) {
+        myIndicator.setText2("Grouping " + myStrings.size() + " strings");
+        myIndicator.setIndeterminate(true);
+        // Group values: strings, distinct value arrays, array slot of the first string, coder
+        OffHeapLongTable groups = new OffHeapLongTable(4);
+        try {
+            long unresolved = 0;
+            for (long slot = 0; slot < myStrings.capacity(); slot++) {
+                if (myStrings.key(slot) == 0) {
+                    continue;
+                }
+                if ((slot & PROGRESS_MASK) == 0) {
+                    myIndicator.checkCanceled();
+                }
+                long key = getContentKey(slot);
+                if (key == 0) {
+                    unresolved++;
+                    continue;
+                }
+                long arraySlot = myArrays.find(myStrings.getValue(slot, 0));
+                long group = groups.insert(key);
+                long strings = groups.getValue(group, 0) + 1;
+                groups.setValue(group, 0, strings);
+                if (strings == 1) {
+                    groups.setValue(group, 2, arraySlot);
+                    groups.setValue(group, 3, getCoder(slot));
+                }
+                long packed = myArrays.getValue(arraySlot, 1);
+                if ((packed & COUNTED) == 0) {
+                    myArrays.setValue(arraySlot, 1, packed | COUNTED);
+                    groups.setValue(group, 1, groups.getValue(group, 1) + 1);
+                }
+            }
+
+            // The groups that retain the most bytes, smallest first in the queue
+            PriorityQueue<long[]> top = new PriorityQueue<>(Comparator.comparingLong(entry -> entry[1]));
+            long duplicates = 0;
+            long retainedBytes = 0;
+            for (long group = 0; group < groups.capacity(); group++) {
+                long strings = groups.key(group) == 0 ? 0 : groups.getValue(group, 0);
+                if (strings < 2) {
+                    continue;
+                }
+                long retained = (strings - 1) * STRING_SIZE +
+                        (groups.getValue(group, 1) - 1) * getArraySize(groups.getValue(group, 2));
+                duplicates += strings - 1;
+                retainedBytes += retained;
+                top.offer(new long[]{group, retained});
+                if (top.size() > REPORT_LIMIT) {
+                    top.poll();
+                }
+            }
+            List<long[]> entries = new ArrayList<>(top);
+            entries.sort(Comparator.comparingLong((long[] entry) -> entry[1]).reversed());
+
+            Long2IntOpenHashMap index = new Long2IntOpenHashMap(entries.size());
+            index.defaultReturnValue(-1);
+            Int2LongOpenHashMap[] referrers = new Int2LongOpenHashMap[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                index.put(groups.key(entries.get(i)[0]), i);
+                referrers[i] = new Int2LongOpenHashMap();
+            }
+            for (long slot = 0; slot < myStrings.capacity(); slot++) {
+                if (myStrings.key(slot) == 0) {
+                    continue;
+                }
+                int referrer = (int) (myStrings.getValue(slot, 1) & 0xFFFFFFFFL) - 1;
+                int i = referrer < 0 ? -1 : index.get(getContentKey(slot));
+                if (i >= 0) {
+                    referrers[i].addTo(referrer, 1);
+                }
+            }
+
+            List<DuplicateStringReport.DuplicateString> result = new ArrayList<>(entries.size());
+            for (int i = 0; i < entries.size(); i++) {
+                long group = entries.get(i)[0];
+                long arraySlot = groups.getValue(group, 2);
+                int coder = (int) groups.getValue(group, 3);
+                result.add(new DuplicateStringReport.DuplicateString(getPreview(arraySlot, coder), getLength(arraySlot, coder),
+                        groups.getValue(group, 0), entries.get(i)[1], getReferrers(referrers[i])));
+            }
+            return new DuplicateStringReport(source, myStrings.size(), duplicates, retainedBytes, unresolved, result);
+        }
+        finally {
+            groups.clear();
+        }
+    }
+
+    @NotNull
+    private List<DuplicateStringReport.FieldReference> getReferrers(@NotNull Int2LongOpenHashMap counts) {
+        List<DuplicateStringReport.FieldReference> referrers = new ArrayList<>(counts.size());
+        for (Int2LongOpenHashMap.Entry entry : counts.int2LongEntrySet()) {
+            int field = entry.getIntKey();
+            String className = getName(myClassNames.get(myFieldClasses.getLong(field))).replace('/', '.');
+            referrers.add(new DuplicateStringReport.FieldReference(className, getName(myFieldNames.getLong(field)),
+                    entry.getLongValue()));
+        }
+        referrers.sort(Comparator.comparingLong(DuplicateStringReport.FieldReference::count).reversed());
+        return referrers.size() > REFERRER_LIMIT ? List.copyOf(referrers.subList(0, REFERRER_LIMIT)) : List.copyOf(referrers);
+    }
+
+    /**
+     * @return 数组对象的大小：16 字节的对象头加上元素，按 8 字节对齐
+     */
+    private long getArraySize(long arraySlot) {
+        long packed = myArrays.getValue(arraySlot, 1);
+        long bytes = (packed & 0xFFFFFFFFL) * ((packed >>> 32 & 0xFF) == TYPE_CHAR ? 2 : 1);
+        return (ARRAY_HEADER_SIZE + bytes + 7) & ~7L;
+    }
+
+    private int getLength(long arraySlot, int coder) {
+        int count = (int) (myArrays.getValue(arraySlot, 1) & 0xFFFFFFFFL);
+        return coder == UTF16 ? count / 2 : count;
+    }
+
+    @NotNull
+    private String getPreview(long arraySlot, int coder) {
+        long data = myArrays.getValue(arraySlot, 2);
+        int length = getLength(arraySlot, coder);
+        int shown = Math.min(length, PREVIEW_LIMIT);
+        StringBuilder preview = new StringBuilder(shown + 1);
+        for (int i = 0; i < shown; i++) {
+            preview.append(switch (coder) {
+                case CHARS -> (char) myFile.u2(data + 2L * i);
+                case UTF16 -> (char) (myFile.u1(data + 2L * i) | myFile.u1(data + 2L * i + 1) << 8);
+                default -> (char) myFile.u1(data + i);
+            });
+        }
+        if (shown < length) {
+            preview.append('…');
+        }
+        return preview.toString();
+    }
+}
@@ -0,0 +1,205 @@
+package com.zhangchengk.panda.study.hprof;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.actionSystem.ActionManager;
+import com.intellij.openapi.actionSystem.ActionToolbar;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.DefaultActionGroup;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.ui.DoubleClickListener;
+import com.intellij.ui.JBSplitter;
+import com.intellij.ui.ScrollPaneFactory;
+import com.intellij.ui.table.JBTable;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.util.List;
+
+/**
+ * "Panda Heap" 工具窗口的内容：左侧是重复字符串的分组，可以按任意列排序；右侧是选中分组的引用字段。
+ * <p>
+ * 表格模型直接读取不可变的 {@link DuplicateStringReport}。双击一个引用字段跳转到字段的声明。
+ */
+final class DuplicateStringsPanel extends SimpleToolWindowPanel implements Disposable {
+
+    private static final String[] COLUMNS = {"Value", "Length", "Count", "Retained (KB)"};
+    private static final Class<?>[] COLUMN_CLASSES = {String.class, Integer.class, Long.class, Long.class};
+    private static final String[] REFERRER_COLUMNS = {"Field", "Class", "Strings"};
+    private static final Class<?>[] REFERRER_COLUMN_CLASSES = {String.class, String.class, Long.class};
+
+    private final Project myProject;
+    private final DuplicatesTableModel myModel = new DuplicatesTableModel();
+    private final JBTable myTable = new JBTable(myModel);
+    private final ReferrersTableModel myReferrersModel = new ReferrersTableModel();
+    private final JBTable myReferrersTable = new JBTable(myReferrersModel);
+    private final JLabel mySummary = new JLabel();
+
+    DuplicateStringsPanel(@NotNull Project project) {
+        super(true, true);
+        myProject = project;
+
+        myTable.setAutoCreateRowSorter(true);
+        myTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        myTable.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                showReferrers();
+            }
+        });
+        new DoubleClickListener() {
+            @Override
+            protected boolean onDoubleClick(@NotNull MouseEvent event) {
+                navigateToSelection();
+                return true;
+            }
+        }.installOn(myReferrersTable);
+        JBSplitter splitter = new JBSplitter(false, 0.7f);
+        splitter.setFirstComponent(ScrollPaneFactory.createScrollPane(myTable));
+        splitter.setSecondComponent(ScrollPaneFactory.createScrollPane(myReferrersTable));
+        JPanel content = new JPanel(new BorderLayout());
+        content.add(splitter, BorderLayout.CENTER);
+        content.add(mySummary, BorderLayout.SOUTH);
+        setContent(content);
+        setToolbar(createToolbar().getComponent());
+
+        project.getMessageBus().connect(this).subscribe(HeapDumpService.TOPIC, this::setReport);
+        setReport(HeapDumpService.getInstance(project).getReport());
+    }
+
+    @NotNull
+    private ActionToolbar createToolbar() {
+        DefaultActionGroup group = new DefaultActionGroup();
+        group.add(ActionManager.getInstance().getAction("com.zhangchengk.panda.study.hprof.AnalyzeHeapDumpAction"));
+        group.add(new DumbAwareAction("Clear", "Discard the heap dump report", AllIcons.Actions.GC) {
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                HeapDumpService.getInstance(myProject).publish(DuplicateStringReport.EMPTY);
+            }
+        });
+        ActionToolbar toolbar = ActionManager.getInstance().createActionToolbar("PandaHeap", group, true);
+        toolbar.setTargetComponent(this);
+        return toolbar;
+    }
+
+    private void setReport(@NotNull DuplicateStringReport report) {
+        myModel.myDuplicates = report.getDuplicates();
+        myModel.fireTableDataChanged();
+        showReferrers();
+        mySummary.setText(report.isEmpty()
+                ? "No heap dump analyzed"
+                : String.format("%s: %d strings, %d duplicates retaining %s%s",
+                report.getSource(),
+                report.getStringCount(),
+                report.getDuplicateCount(),
+                StringUtil.formatFileSize(report.getRetainedBytes()),
+                report.getUnresolvedCount() == 0 ? "" : ", " + report.getUnresolvedCount() + " strings without value"));
+    }
+
+    private void showReferrers() {
+        int row = myTable.getSelectedRow();
+        myReferrersModel.myReferrers = row < 0
+                ? List.of()
+                : myModel.myDuplicates.get(myTable.convertRowIndexToModel(row)).referrers();
+        myReferrersModel.fireTableDataChanged();
+    }
+
+    private void navigateToSelection() {
+        int row = myReferrersTable.getSelectedRow();
+        if (row < 0) {
+            return;
+        }
+        DuplicateStringReport.FieldReference reference = myReferrersModel.myReferrers.get(myReferrersTable.convertRowIndexToModel(row));
+        ReadAction.nonBlocking(() -> HeapDumpService.findField(myProject, reference))
+                .finishOnUiThread(ModalityState.defaultModalityState(), field -> {
+                    if (field != null) {
+                        field.navigate(true);
+                    }
+                })
+                .expireWith(this)
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    private static final class DuplicatesTableModel extends AbstractTableModel {
+
+        private List<DuplicateStringReport.DuplicateString> myDuplicates = List.of();
+
+        @Override
+        public int getRowCount() {
+            return myDuplicates.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return COLUMN_CLASSES[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            DuplicateStringReport.DuplicateString duplicate = myDuplicates.get(row);
+            return switch (column) {
+                case 0 -> StringUtil.escapeStringCharacters(duplicate.preview());
+                case 1 -> duplicate.length();
+                case 2 -> duplicate.count();
+                default -> duplicate.retainedBytes() / 1_024;
+            };
+        }
+    }
+
+    private static final class ReferrersTableModel extends AbstractTableModel {
+
+        private List<DuplicateStringReport.FieldReference> myReferrers = List.of();
+
+        @Override
+        public int getRowCount() {
+            return myReferrers.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return REFERRER_COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return REFERRER_COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return REFERRER_COLUMN_CLASSES[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            DuplicateStringReport.FieldReference reference = myReferrers.get(row);
+            return switch (column) {
+                case 0 -> reference.fieldName();
+                case 1 -> reference.className();
+                default -> reference.count();
+            };
+        }
+    }
+}
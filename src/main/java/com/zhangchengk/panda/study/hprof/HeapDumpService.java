@@ -0,0 +1,71 @@
+package com.zhangchengk.panda.study.hprof;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.messages.Topic;
+import com.zhangchengk.panda.study.metrics.PandaMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 保存当前项目最近一次分析堆转储得到的重复字符串报告，供 "Panda Heap" 工具窗口使用。
+ * <p>
+ * 新报告在 EDT 上通过 {@link #TOPIC} 发布。
+ */
+@Service(Service.Level.PROJECT)
+public final class HeapDumpService {
+
+    public static final String TOOL_WINDOW_ID = "Panda Heap";
+
+    @Topic.ProjectLevel
+    public static final Topic<Listener> TOPIC = new Topic<>(Listener.class, Topic.BroadcastDirection.NONE);
+
+    private final Project myProject;
+    private volatile DuplicateStringReport myReport = DuplicateStringReport.EMPTY;
+
+    public interface Listener {
+        void reportChanged(@NotNull DuplicateStringReport report);
+    }
+
+    public HeapDumpService(@NotNull Project project) {
+        myProject = project;
+    }
+
+    public static HeapDumpService getInstance(@NotNull Project project) {
+        return PandaMetrics.getService(project, HeapDumpService.class);
+    }
+
+    /**
+     * @return 当前的报告，可以在任意线程中调用。
+     */
+    @NotNull
+    public DuplicateStringReport getReport() {
+        return myReport;
+    }
+
+    /**
+     * 在 EDT 上替换当前的报告并通知监听者。可以在任意线程中调用。
+     */
+    void publish(@NotNull DuplicateStringReport report) {
+        ApplicationManager.getApplication().invokeLater(() -> {
+            myReport = report;
+            myProject.getMessageBus().syncPublisher(TOPIC).reportChanged(report);
+        }, myProject.getDisposed());
+    }
+
+    /**
+     * 在项目及其依赖中查找引用了重复字符串的字段。调用方必须持有读操作。
+     */
+    @Nullable
+    static PsiField findField(@NotNull Project project, @NotNull DuplicateStringReport.FieldReference reference) {
+        // JavaPsiFacade expects the canonical name of nested classes
+        String className = reference.className().replace('$', '.');
+        PsiClass psiClass = JavaPsiFacade.getInstance(project).findClass(className, GlobalSearchScope.allScope(project));
+        return psiClass == null ? null : psiClass.findFieldByName(reference.fieldName(), false);
+    }
+}
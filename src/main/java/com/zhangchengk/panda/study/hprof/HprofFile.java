@@ -0,0 +1,126 @@
+package com.zhangchengk.panda.study.hprof;
+
+import com.intellij.util.io.ByteBufferUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 以内存映射的方式按绝对位置读取一个 HPROF 文件。数据由操作系统按页读入，不占用 Java 堆。
+ * <p>
+ * 文件按 1 GB 分块映射，每块多映射 {@link #OVERLAP} 个字节，因此不超过 8 字节的读取总是落在一个块中。
+ * HPROF 中的多字节值都是大端序。
+ * <p>
+ * 用完后必须调用 {@link #close()}，否则映射要等缓冲区对象被回收才释放，期间文件在 Windows 上不能删除或覆盖。
+ */
+final class HprofFile implements Closeable {
+
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+    private static final int OVERLAP = Long.BYTES;
+
+    private MappedByteBuffer[] myChunks;
+    private final long mySize;
+
+    private HprofFile(@NotNull MappedByteBuffer[] chunks, long size) {
+        myChunks = chunks;
+        mySize = size;
+    }
+
+    @NotNull
+    static HprofFile open(@NotNull Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_BITS)];
+            for (int i = 0; i < chunks.length; i++) {
+                long start = (long) i << CHUNK_BITS;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, CHUNK_MASK + 1 + OVERLAP));
+            }
+            // The mappings stay valid after the channel is closed
+            return new HprofFile(chunks, size);
+        }
+    }
+
+    long size() {
+        return mySize;
+    }
+
+    int u1(long position) {
+        return chunk(position).get(offset(position)) & 0xFF;
+    }
+
+    int u2(long position) {
+        return chunk(position).getShort(offset(position)) & 0xFFFF;
+    }
+
+    long u4(long position) {
+        return chunk(position).getInt(offset(position)) & 0xFFFFFFFFL;
+    }
+
+    long u8(long position) {
+        return chunk(position).getLong(offset(position));
+    }
+
+    /**
+     * @param idSize 文件头中的标识符长度，4 或 8
+     */
+    long id(long position, int idSize) {
+        return idSize == 4 ? u4(position) : u8(position);
+    }
+
+    @NotNull
+    String utf8(long position, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) u1(position + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return 从给定位置开始的一段字节的 64 位哈希值，每次读取 8 个字节
+     */
+    long hash(long position, long length) {
+        long hash = length * 0x9E3779B97F4A7C15L;
+        long end = position + length;
+        for (; position + Long.BYTES <= end; position += Long.BYTES) {
+            hash = mix(hash ^ u8(position));
+        }
+        for (; position < end; position++) {
+            hash = mix(hash ^ u1(position));
+        }
+        return hash;
+    }
+
+    private static long mix(long hash) {
+        hash *= 0xBF58476D1CE4E5B9L;
+        return hash ^ (hash >>> 31);
+    }
+
+    /**
+     * 立即解除所有映射。之后不能再读取。
+     */
+    @Override
+    public void close() {
+        MappedByteBuffer[] chunks = myChunks;
+        // Drop the references first: touching an unmapped buffer crashes the JVM instead of throwing
+        myChunks = new MappedByteBuffer[0];
+        for (MappedByteBuffer chunk : chunks) {
+            ByteBufferUtil.cleanBuffer(chunk);
+        }
+    }
+
+    private MappedByteBuffer chunk(long position) {
+        return myChunks[(int) (position >>> CHUNK_BITS)];
+    }
+
+    private static int offset(long position) {
+        return (int) (position & CHUNK_MASK);
+    }
+}
@@ -0,0 +1,173 @@
+package com.zhangchengk.panda.study.hprof;
+
+import it.unimi.dsi.fastutil.HashCommon;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * 一个开放寻址、线性探测的哈希表，键和值都是 long，数据保存在堆外的直接缓冲区中。
+ * <p>
+ * 每个槽位依次保存键和固定数量的值。键 0 表示空槽位，因此调用方不能使用 0 作为键；新槽位的值都是 0。
+ * 删除时把同一探测序列中后面的键前移，不留墓碑，因此遍历槽位时不能删除。装载因子超过 3/4 时容量翻倍并重新插入所有键。
+ * 缓冲区按块分配，单个表的大小不受 {@link ByteBuffer} 的 int 下标限制。
+ * <p>
+ * 实例不是线程安全的。
+ */
+final class OffHeapLongTable {
+
+    private static final int CHUNK_BITS = 20;
+    private static final int MIN_CAPACITY = 1 << 10;
+
+    private final int myStride;
+    private LongBuffer[] myChunks;
+    private int myChunkBits;
+    private long myMask;
+    private long mySize;
+
+    /**
+     * @param values 每个键保存的值的数量
+     */
+    OffHeapLongTable(int values) {
+        myStride = values + 1;
+        allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(long capacity) {
+        myChunkBits = (int) Math.min(CHUNK_BITS, Long.numberOfTrailingZeros(capacity));
+        int chunkSlots = 1 << myChunkBits;
+        myChunks = new LongBuffer[(int) (capacity >>> myChunkBits)];
+        for (int i = 0; i < myChunks.length; i++) {
+            myChunks[i] = ByteBuffer.allocateDirect(chunkSlots * myStride * Long.BYTES).asLongBuffer();
+        }
+        myMask = capacity - 1;
+    }
+
+    long size() {
+        return mySize;
+    }
+
+    /**
+     * @return 槽位的数量，用于按 {@code 0 .. capacity() - 1} 遍历槽位
+     */
+    long capacity() {
+        return myMask + 1;
+    }
+
+    /**
+     * @return 键所在的槽位；键不存在时返回 -1
+     */
+    long find(long key) {
+        for (long slot = HashCommon.mix(key) & myMask; ; slot = (slot + 1) & myMask) {
+            long current = key(slot);
+            if (current == key) {
+                return slot;
+            }
+            if (current == 0) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * @return 键所在的槽位；键不存在时插入它，新槽位的值都是 0
+     */
+    long insert(long key) {
+        for (long slot = HashCommon.mix(key) & myMask; ; slot = (slot + 1) & myMask) {
+            long current = key(slot);
+            if (current == key) {
+                return slot;
+            }
+            if (current == 0) {
+                if (mySize + 1 > capacity() / 4 * 3) {
+                    grow();
+                    return insert(key);
+                }
+                mySize++;
+                put(slot, 0, key);
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * @return 槽位中的键；空槽位返回 0
+     */
+    long key(long slot) {
+        return get(slot, 0);
+    }
+
+    long getValue(long slot, int index) {
+        return get(slot, index + 1);
+    }
+
+    void setValue(long slot, int index, long value) {
+        put(slot, index + 1, value);
+    }
+
+    /**
+     * 删除槽位中的键和它的值。删除后其他键可能移动到别的槽位，之前取得的槽位都不再有效。
+     */
+    void remove(long slot) {
+        long hole = slot;
+        for (long next = (hole + 1) & myMask; ; next = (next + 1) & myMask) {
+            long key = key(next);
+            if (key == 0) {
+                break;
+            }
+            long home = HashCommon.mix(key) & myMask;
+            // A key whose home slot lies cyclically in (hole, next] must stay where it is
+            if (hole <= next ? hole < home && home <= next : hole < home || home <= next) {
+                continue;
+            }
+            for (int i = 0; i < myStride; i++) {
+                put(hole, i, get(next, i));
+            }
+            hole = next;
+        }
+        for (int i = 0; i < myStride; i++) {
+            put(hole, i, 0);
+        }
+        mySize--;
+    }
+
+    /**
+     * 释放对缓冲区的引用，直接内存随缓冲区对象被回收。
+     */
+    void clear() {
+        myChunks = new LongBuffer[0];
+        myMask = -1;
+        mySize = 0;
+    }
+
+    private long get(long slot, int offset) {
+        return myChunks[(int) (slot >>> myChunkBits)].get((int) (slot & ((1 << myChunkBits) - 1)) * myStride + offset);
+    }
+
+    private void put(long slot, int offset, long value) {
+        myChunks[(int) (slot >>> myChunkBits)].put((int) (slot & ((1 << myChunkBits) - 1)) * myStride + offset, value);
+    }
+
+    private void grow() {
+        LongBuffer[] oldChunks = myChunks;
+        int oldChunkBits = myChunkBits;
+        long oldCapacity = capacity();
+        allocate(oldCapacity * 2);
+        int chunkMask = (1 << oldChunkBits) - 1;
+        for (long oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+            LongBuffer chunk = oldChunks[(int) (oldSlot >>> oldChunkBits)];
+            int base = (int) (oldSlot & chunkMask) * myStride;
+            long key = chunk.get(base);
+            if (key == 0) {
+                continue;
+            }
+            long slot = HashCommon.mix(key) & myMask;
+            while (key(slot) != 0) {
+                slot = (slot + 1) & myMask;
+            }
+            for (int i = 0; i < myStride; i++) {
+                put(slot, i, chunk.get(base + i));
+            }
+        }
+    }
+}
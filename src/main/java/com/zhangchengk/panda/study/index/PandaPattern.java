@@ -0,0 +1,18 @@
+package com.zhangchengk.panda.study.index;
+
+/**
+ * {@link PandaPatternIndex} 中记录的代码模式。枚举的序号就是索引的键，因此只能在末尾追加新值，
+ * 并且追加时必须提升索引版本。
+ */
+public enum PandaPattern {
+
+    /**
+     * 任一操作数可能是 String 的 '==' 或 '!=' 比较，记录运算符的偏移量。
+     */
+    STRING_COMPARISON,
+
+    /**
+     * 三元表达式，记录 '?' 的偏移量。
+     */
+    TERNARY
+}
@@ -0,0 +1,178 @@
+package com.zhangchengk.panda.study.index;
+
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.indexing.DataIndexer;
+import com.intellij.util.indexing.DefaultFileTypeSpecificInputFilter;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.FileBasedIndexExtension;
+import com.intellij.util.indexing.FileContent;
+import com.intellij.util.indexing.ID;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.EnumeratorIntegerDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import com.zhangchengk.panda.study.core.JavaPatternScanner;
+import com.zhangchengk.panda.study.core.PatternOffsets;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 为每个 Java 文件记录 {@link PandaPattern} 出现的偏移量。
+ * <p>
+ * 索引由 {@link JavaPatternScanner} 计算，不构建 PSI，
+ * 因此随文件变更增量更新的开销很小。记录的位置是对 PSI 检查结果的保守近似。
+ * 批处理检查和转换先通过 {@link #filterCandidates} 排除不含模式的文件，
+ * 再只在 {@link #getOffsets} 返回的位置上做 PSI 分析。
+ */
+public final class PandaPatternIndex extends FileBasedIndexExtension<Integer, int[]> {
+
+    public static final ID<Integer, int[]> NAME = ID.create("com.zhangchengk.panda.study.PandaPatternIndex");
+
+    private static final int[] NO_OFFSETS = new int[0];
+
+    @NotNull
+    @Override
+    public ID<Integer, int[]> getName() {
+        return NAME;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<Integer, int[], FileContent> getIndexer() {
+        return inputData -> index(inputData.getContentAsText());
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<Integer> getKeyDescriptor() {
+        return EnumeratorIntegerDescriptor.INSTANCE;
+    }
+
+    @NotNull
+    @Override
+    public DataExternalizer<int[]> getValueExternalizer() {
+        return OffsetsExternalizer.INSTANCE;
+    }
+
+    /**
+     * 扫描规则改变时递增，使已有的索引数据重新计算。
+     */
+    @Override
+    public int getVersion() {
+        return 3;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return new DefaultFileTypeSpecificInputFilter(JavaFileType.INSTANCE);
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    /**
+     * 扫描文件文本，返回每种模式出现的偏移量（升序）。不含任何模式的文件返回空映射，不会出现在倒排表中。
+     */
+    @NotNull
+    static Map<Integer, int[]> index(@NotNull CharSequence text) {
+        PatternOffsets offsets = PatternOffsets.scan(text);
+        int[] comparisons = offsets.getStringComparisons();
+        int[] ternaries = offsets.getTernaries();
+        if (comparisons.length == 0 && ternaries.length == 0) {
+            return Map.of();
+        }
+        Map<Integer, int[]> result = new HashMap<>(4);
+        if (comparisons.length > 0) {
+            result.put(PandaPattern.STRING_COMPARISON.ordinal(), comparisons);
+        }
+        if (ternaries.length > 0) {
+            result.put(PandaPattern.TERNARY.ordinal(), ternaries);
+        }
+        return result;
+    }
+
+    /**
+     * 从给定文件中只保留包含模式的文件。索引不可用（dumb 模式）时原样返回，调用方退化为全量分析。
+     * 调用方必须持有读操作。
+     *
+     * @param project 当前项目
+     * @param files   候选文件
+     * @param pattern 要查找的模式
+     * @return 包含模式的文件，保持原有顺序
+     */
+    @NotNull
+    public static List<VirtualFile> filterCandidates(@NotNull Project project,
+                                                     @NotNull List<VirtualFile> files,
+                                                     @NotNull PandaPattern pattern) {
+        if (files.isEmpty() || DumbService.isDumb(project)) {
+            return files;
+        }
+        Collection<VirtualFile> containing = FileBasedIndex.getInstance()
+                .getContainingFiles(NAME, pattern.ordinal(), GlobalSearchScope.filesScope(project, files));
+        if (containing.size() == files.size()) {
+            return files;
+        }
+        List<VirtualFile> candidates = new ArrayList<>(containing.size());
+        for (VirtualFile file : files) {
+            if (containing.contains(file)) {
+                candidates.add(file);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * 返回模式在文件中出现的偏移量。调用方必须持有读操作，并且项目不能处于 dumb 模式。
+     *
+     * @return 升序的偏移量；文件不含该模式时为空数组
+     */
+    @NotNull
+    public static int[] getOffsets(@NotNull Project project, @NotNull VirtualFile file, @NotNull PandaPattern pattern) {
+        int[] offsets = FileBasedIndex.getInstance().getFileData(NAME, file, project).get(pattern.ordinal());
+        return offsets == null ? NO_OFFSETS : offsets;
+    }
+
+    /**
+     * 以差分编码写出升序的偏移量，大多数差值只占一到两个字节。
+     */
+    private static final class OffsetsExternalizer implements DataExternalizer<int[]> {
+
+        static final OffsetsExternalizer INSTANCE = new OffsetsExternalizer();
+
+        @Override
+        public void save(@NotNull DataOutput out, int[] value) throws IOException {
+            DataInputOutputUtil.writeINT(out, value.length);
+            int previous = 0;
+            for (int offset : value) {
+                DataInputOutputUtil.writeINT(out, offset - previous);
+                previous = offset;
+            }
+        }
+
+        @Override
+        public int[] read(@NotNull DataInput in) throws IOException {
+            int[] value = new int[DataInputOutputUtil.readINT(in)];
+            int previous = 0;
+            for (int i = 0; i < value.length; i++) {
+                previous += DataInputOutputUtil.readINT(in);
+                value[i] = previous;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.codeInsight.Nullability;
+import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.codeInspection.dataFlow.NullabilityUtil;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.*;
+import com.intellij.psi.codeStyle.JavaCodeStyleManager;
+import com.intellij.psi.util.InheritanceUtil;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.PsiUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 实现一个检查，用于检测循环中最常见的分配热点：
+ * <ul>
+ *     <li>在 for/while/do 循环体中对字符串变量使用 '+=' 或 'a = a + b' 进行拼接；</li>
+ *     <li>在循环体（包括传给 forEach 的 lambda）中创建没有容量提示的集合，而随后的 for-each 循环可以确定其大小。</li>
+ * </ul>
+ * 快速修复会把拼接改写为循环外预先分配容量的 StringBuilder，或者为集合加上容量参数。
+ */
+public final class AllocationInLoopInspection extends AbstractBaseJavaLocalInspectionTool
+        implements PandaJavaInspection {
+
+    /**
+     * 构造函数不带参数时可以加上容量提示的集合类型，按简单类名预先过滤，避免对其他类型做解析。
+     */
+    private static final Set<String> LIST_TYPES = Set.of("java.util.ArrayList", "java.util.ArrayDeque");
+    private static final Set<String> HASH_TYPES = Set.of("java.util.HashMap", "java.util.HashSet",
+            "java.util.LinkedHashMap", "java.util.LinkedHashSet");
+    private static final Set<String> SIMPLE_NAMES = Set.of("ArrayList", "ArrayDeque",
+            "HashMap", "HashSet", "LinkedHashMap", "LinkedHashSet");
+    private static final Set<String> FILL_METHODS = Set.of("add", "addLast", "offer", "put");
+
+    /**
+     * 提供一个访问者，检查循环中的字符串拼接赋值和不带参数的集合构造。
+     * 访问者必须是非递归的，并且必须是线程安全的。
+     *
+     * @param holder     用于访问者注册发现的问题的对象
+     * @param isOnTheFly 如果检查是在非批处理模式下运行，则为 true
+     * @return 此检查的非空访问者
+     */
+    @NotNull
+    @Override
+    public PsiElementVisitor buildVisitor(@NotNull final ProblemsHolder holder, boolean isOnTheFly) {
+        PandaNodeHandlers handlers = new PandaNodeHandlers();
+        registerHandlers(handlers, holder);
+        return handlers.createVisitor();
+    }
+
+    @Override
+    public void registerHandlers(@NotNull PandaNodeHandlers handlers, @NotNull ProblemsHolder holder) {
+        handlers.register(PsiAssignmentExpression.class, expression -> checkConcatenation(expression, holder));
+        handlers.register(PsiNewExpression.class, expression -> checkCollectionCreation(expression, holder));
+    }
+
+    private static void checkConcatenation(@NotNull PsiAssignmentExpression expression, @NotNull ProblemsHolder holder) {
+        PsiLocalVariable variable = getConcatenatedVariable(expression);
+        if (variable == null) {
+            return;
+        }
+        PsiLoopStatement loop = findLoopOutside(expression, variable);
+        if (loop == null) {
+            return;
+        }
+        String message = InspectionBundle.message("inspection.allocation.in.loop.string.concatenation.descriptor",
+                variable.getName());
+        if (canHoist(variable, loop)) {
+            holder.registerProblem(expression, message, new HoistToStringBuilderQuickFix());
+        } else {
+            holder.registerProblem(expression, message);
+        }
+    }
+
+    private static void checkCollectionCreation(@NotNull PsiNewExpression expression, @NotNull ProblemsHolder holder) {
+        PsiJavaCodeReferenceElement classReference = expression.getClassReference();
+        PsiExpressionList arguments = expression.getArgumentList();
+        // Cheap syntactic checks first: no arguments, no anonymous class, a known simple name
+        if (classReference == null || arguments == null || !arguments.isEmpty() ||
+                expression.getAnonymousClass() != null ||
+                !SIMPLE_NAMES.contains(classReference.getReferenceName()) ||
+                !isInLoopBody(expression)) {
+            return;
+        }
+        String qualifiedName = classReference.getQualifiedName();
+        if (!LIST_TYPES.contains(qualifiedName) && !HASH_TYPES.contains(qualifiedName)) {
+            return;
+        }
+        String size = inferFillSize(expression);
+        if (size != null) {
+            holder.registerProblem(expression,
+                    InspectionBundle.message("inspection.allocation.in.loop.collection.descriptor"),
+                    new PresizeCollectionQuickFix(size, HASH_TYPES.contains(qualifiedName)));
+        }
+    }
+
+    /**
+     * @return 如果赋值是 {@code s += x} 或 {@code s = s + x}，且 s 是 String 类型的局部变量，则返回 s。
+     */
+    @Nullable
+    private static PsiLocalVariable getConcatenatedVariable(@NotNull PsiAssignmentExpression expression) {
+        if (!(PsiUtil.skipParenthesizedExprDown(expression.getLExpression()) instanceof PsiReferenceExpression reference) ||
+                reference.getQualifierExpression() != null) {
+            return null;
+        }
+        if (expression.getOperationTokenType() == JavaTokenType.EQ) {
+            if (!(PsiUtil.skipParenthesizedExprDown(expression.getRExpression()) instanceof PsiPolyadicExpression polyadic) ||
+                    polyadic.getOperationTokenType() != JavaTokenType.PLUS ||
+                    !(PsiUtil.skipParenthesizedExprDown(polyadic.getOperands()[0]) instanceof PsiReferenceExpression first) ||
+                    !reference.getText().equals(first.getText())) {
+                return null;
+            }
+        } else if (expression.getOperationTokenType() != JavaTokenType.PLUSEQ) {
+            return null;
+        }
+        if (!(reference.resolve() instanceof PsiLocalVariable variable) ||
+                !variable.getType().equalsToText(CommonClassNames.JAVA_LANG_STRING)) {
+            return null;
+        }
+        return variable;
+    }
+
+    /**
+     * @return 包含元素但不包含变量声明的最内层循环；元素不在循环体内时返回 {@code null}。
+     */
+    @Nullable
+    private static PsiLoopStatement findLoopOutside(@NotNull PsiElement element, @NotNull PsiLocalVariable variable) {
+        PsiElement current = element;
+        while (true) {
+            PsiElement parent = current.getParent();
+            if (parent == null || parent instanceof PsiMember || parent instanceof PsiLambdaExpression ||
+                    parent instanceof PsiFile) {
+                return null;
+            }
+            if (parent instanceof PsiLoopStatement loop && loop.getBody() == current) {
+                return PsiTreeUtil.isAncestor(loop, variable, true) ? null : loop;
+            }
+            current = parent;
+        }
+    }
+
+    /**
+     * @return 元素是否位于循环体或传给 forEach 的 lambda 中。
+     */
+    private static boolean isInLoopBody(@NotNull PsiElement element) {
+        PsiElement current = element;
+        while (true) {
+            PsiElement parent = current.getParent();
+            if (parent == null || parent instanceof PsiMember || parent instanceof PsiFile) {
+                return false;
+            }
+            if (parent instanceof PsiLoopStatement loop && loop.getBody() == current) {
+                return true;
+            }
+            if (parent instanceof PsiLambdaExpression lambda) {
+                return lambda.getParent() instanceof PsiExpressionList arguments &&
+                        arguments.getParent() instanceof PsiMethodCallExpression call &&
+                        "forEach".equals(call.getMethodExpression().getReferenceName());
+            }
+            current = parent;
+        }
+    }
+
+    /**
+     * 只有当循环中对变量的所有使用都是拼接语句时，才能安全地改用 StringBuilder：
+     * 循环必须位于代码块中，拼接的值不能被读取，并且循环不能通过带标签的 break/continue 跳过循环后的赋值。
+     * 变量还必须一定不为 null：循环一次也不执行时，循环后的 {@code toString()} 会把 null 变成 "null"。
+     */
+    private static boolean canHoist(@NotNull PsiLocalVariable variable, @NotNull PsiLoopStatement loop) {
+        if (!(loop.getParent() instanceof PsiCodeBlock) || !isNeverNull(variable)) {
+            return false;
+        }
+        for (PsiStatement jump : PsiTreeUtil.findChildrenOfAnyType(loop, PsiBreakStatement.class, PsiContinueStatement.class)) {
+            if (jump instanceof PsiBreakStatement breakStatement && breakStatement.getLabelIdentifier() != null ||
+                    jump instanceof PsiContinueStatement continueStatement && continueStatement.getLabelIdentifier() != null) {
+                return false;
+            }
+        }
+        for (PsiReferenceExpression reference : PsiTreeUtil.findChildrenOfType(loop, PsiReferenceExpression.class)) {
+            if (!variable.getName().equals(reference.getReferenceName()) || reference.getQualifierExpression() != null ||
+                    reference.resolve() != variable) {
+                continue;
+            }
+            PsiAssignmentExpression assignment = PsiTreeUtil.getParentOfType(reference, PsiAssignmentExpression.class);
+            if (assignment == null || getConcatenatedVariable(assignment) != variable ||
+                    !(assignment.getParent() instanceof PsiExpressionStatement) ||
+                    appendsCharArray(assignment)) {
+                return false;
+            }
+            // The only allowed reads are the target itself and the leading operand of 's = s + x'
+            if (!PsiTreeUtil.isAncestor(assignment.getLExpression(), reference, false) &&
+                    !isLeadingOperand(assignment, reference)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return 变量是否一定不为 null：初始值不为 null，并且其他赋值要么是拼接，要么赋值为不为 null 的值。
+     */
+    private static boolean isNeverNull(@NotNull PsiLocalVariable variable) {
+        PsiExpression initializer = variable.getInitializer();
+        if (initializer == null || NullabilityUtil.getExpressionNullability(initializer, true) != Nullability.NOT_NULL) {
+            return false;
+        }
+        PsiElement scope = PsiUtil.getVariableCodeBlock(variable, null);
+        if (scope == null) {
+            return false;
+        }
+        for (PsiReferenceExpression reference : PsiTreeUtil.findChildrenOfType(scope, PsiReferenceExpression.class)) {
+            if (!variable.getName().equals(reference.getReferenceName()) || !PsiUtil.isAccessedForWriting(reference) ||
+                    reference.resolve() != variable) {
+                continue;
+            }
+            if (!(PsiUtil.skipParenthesizedExprUp(reference.getParent()) instanceof PsiAssignmentExpression assignment)) {
+                return false;
+            }
+            PsiExpression value = assignment.getRExpression();
+            if (getConcatenatedVariable(assignment) != variable &&
+                    (value == null || NullabilityUtil.getExpressionNullability(value, true) != Nullability.NOT_NULL)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLeadingOperand(@NotNull PsiAssignmentExpression assignment, @NotNull PsiReferenceExpression reference) {
+        return assignment.getOperationTokenType() == JavaTokenType.EQ &&
+                PsiUtil.skipParenthesizedExprDown(assignment.getRExpression()) instanceof PsiPolyadicExpression polyadic &&
+                PsiUtil.skipParenthesizedExprDown(polyadic.getOperands()[0]) == reference;
+    }
+
+    /**
+     * 字符串拼接把 char[] 当作对象处理，而 {@code StringBuilder.append(char[])} 会追加其中的字符，因此不能改写。
+     */
+    private static boolean appendsCharArray(@NotNull PsiAssignmentExpression assignment) {
+        for (PsiExpression operand : getAppendedOperands(assignment)) {
+            if (operand.getType() instanceof PsiArrayType arrayType && PsiTypes.charType().equals(arrayType.getComponentType())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return 拼接到变量上的操作数：{@code s += x} 中的 x，或者 {@code s = s + a + b} 中的 a 和 b。
+     */
+    @NotNull
+    private static List<PsiExpression> getAppendedOperands(@NotNull PsiAssignmentExpression assignment) {
+        PsiExpression rExpression = assignment.getRExpression();
+        if (rExpression == null) {
+            return List.of();
+        }
+        if (assignment.getOperationTokenType() == JavaTokenType.PLUSEQ) {
+            return List.of(rExpression);
+        }
+        PsiExpression[] operands = ((PsiPolyadicExpression) PsiUtil.skipParenthesizedExprDown(rExpression)).getOperands();
+        return List.of(operands).subList(1, operands.length);
+    }
+
+    /**
+     * 推断在循环中创建的集合最终的元素数量：集合作为局部变量的初始值，
+     * 并在同一代码块中随后的 for-each 循环中被逐个填充，而该循环遍历的是一个已声明的数组或 Collection 变量。
+     *
+     * @return 元素数量的表达式文本，例如 {@code items.size()}；无法推断时返回 {@code null}。
+     */
+    @Nullable
+    private static String inferFillSize(@NotNull PsiNewExpression expression) {
+        if (!(PsiUtil.skipParenthesizedExprUp(expression.getParent()) instanceof PsiLocalVariable variable) ||
+                !(variable.getParent() instanceof PsiDeclarationStatement declaration)) {
+            return null;
+        }
+        for (PsiElement next = declaration.getNextSibling(); next != null; next = next.getNextSibling()) {
+            if (!(next instanceof PsiForeachStatement foreach) || !fills(foreach, variable)) {
+                continue;
+            }
+            String size = getSizeExpression(foreach.getIteratedValue(), expression);
+            if (size != null) {
+                return size;
+            }
+        }
+        return null;
+    }
+
+    private static boolean fills(@NotNull PsiForeachStatement foreach, @NotNull PsiLocalVariable variable) {
+        for (PsiMethodCallExpression call : PsiTreeUtil.findChildrenOfType(foreach.getBody(), PsiMethodCallExpression.class)) {
+            PsiReferenceExpression methodExpression = call.getMethodExpression();
+            if (FILL_METHODS.contains(methodExpression.getReferenceName()) &&
+                    methodExpression.getQualifierExpression() instanceof PsiReferenceExpression qualifier &&
+                    qualifier.isReferenceTo(variable)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param iterated 被遍历的值
+     * @param creation 集合的创建位置，大小表达式必须在此处可见
+     * @return {@code x.length} 或 {@code x.size()}；被遍历的值不是在创建之前声明的变量时返回 {@code null}。
+     */
+    @Nullable
+    private static String getSizeExpression(@Nullable PsiExpression iterated, @NotNull PsiElement creation) {
+        if (!(iterated instanceof PsiReferenceExpression reference) || reference.getQualifierExpression() != null ||
+                !(reference.resolve() instanceof PsiVariable source)) {
+            return null;
+        }
+        if (source instanceof PsiLocalVariable local && local.getTextOffset() > creation.getTextOffset()) {
+            return null;
+        }
+        PsiType type = source.getType();
+        if (type instanceof PsiArrayType) {
+            return source.getName() + ".length";
+        }
+        if (InheritanceUtil.isInheritor(type, CommonClassNames.JAVA_UTIL_COLLECTION)) {
+            return source.getName() + ".size()";
+        }
+        return null;
+    }
+
+    /**
+     * 该快速修复在循环前声明一个 StringBuilder，把循环中的拼接改为 append 调用，并在循环后把结果赋回原变量。
+     */
+    private static class HoistToStringBuilderQuickFix implements LocalQuickFix {
+
+        @NotNull
+        @Override
+        public String getFamilyName() {
+            return InspectionBundle.message("inspection.allocation.in.loop.use.string.builder.quickfix");
+        }
+
+        @Override
+        public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+            PsiAssignmentExpression assignment = (PsiAssignmentExpression) descriptor.getPsiElement();
+            PsiLocalVariable variable = getConcatenatedVariable(assignment);
+            if (variable == null) {
+                return;
+            }
+            PsiLoopStatement loop = findLoopOutside(assignment, variable);
+            if (loop == null || !canHoist(variable, loop)) {
+                return;
+            }
+            PsiElementFactory factory = JavaPsiFacade.getInstance(project).getElementFactory();
+            String name = variable.getName();
+            String builder = JavaCodeStyleManager.getInstance(project)
+                    .suggestUniqueVariableName(name + "Builder", loop, true);
+
+            // 步骤 1：把所有拼接语句改写为 append 调用
+            List<PsiAssignmentExpression> concatenations = new ArrayList<>();
+            for (PsiAssignmentExpression candidate : PsiTreeUtil.findChildrenOfType(loop, PsiAssignmentExpression.class)) {
+                if (getConcatenatedVariable(candidate) == variable) {
+                    concatenations.add(candidate);
+                }
+            }
+            for (PsiAssignmentExpression concatenation : concatenations) {
+                StringBuilder call = new StringBuilder(builder);
+                for (PsiExpression operand : getAppendedOperands(concatenation)) {
+                    // append(null) is ambiguous between append(String) and append(char[]); concatenation appends "null"
+                    String text = PsiTypes.nullType().equals(operand.getType()) ? "(String) " + operand.getText() : operand.getText();
+                    call.append(".append(").append(text).append(')');
+                }
+                concatenation.replace(factory.createExpressionFromText(call.toString(), concatenation));
+            }
+
+            // 步骤 2：在循环前声明 StringBuilder；已知迭代次数时按每次约 16 个字符预先分配容量
+            String iterations = loop instanceof PsiForeachStatement foreach
+                    ? getSizeExpression(foreach.getIteratedValue(), loop)
+                    : null;
+            String capacity = iterations == null ? name + ".length() + 16" : name + ".length() + 16 * " + iterations;
+            PsiStatement declaration = factory.createStatementFromText(
+                    "StringBuilder " + builder + " = new StringBuilder(" + capacity + ").append(" + name + ");", loop);
+            loop.getParent().addBefore(declaration, loop);
+
+            // 步骤 3：在循环后把结果赋回原变量
+            PsiStatement result = factory.createStatementFromText(name + " = " + builder + ".toString();", loop);
+            loop.getParent().addAfter(result, loop);
+        }
+    }
+
+    /**
+     * 该快速修复为集合构造函数加上容量参数。基于哈希的集合按默认负载因子 0.75 换算容量，避免填充过程中扩容。
+     */
+    private static class PresizeCollectionQuickFix implements LocalQuickFix {
+
+        private final String mySize;
+        private final boolean myHashBased;
+
+        PresizeCollectionQuickFix(@NotNull String size, boolean hashBased) {
+            mySize = size;
+            myHashBased = hashBased;
+        }
+
+        @NotNull
+        @Override
+        public String getName() {
+            return InspectionBundle.message("inspection.allocation.in.loop.presize.collection.quickfix", mySize);
+        }
+
+        @NotNull
+        @Override
+        public String getFamilyName() {
+            return InspectionBundle.message("inspection.allocation.in.loop.presize.collection.family");
+        }
+
+        @Override
+        public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+            PsiNewExpression expression = (PsiNewExpression) descriptor.getPsiElement();
+            PsiExpressionList arguments = expression.getArgumentList();
+            if (arguments == null || !arguments.isEmpty()) {
+                return;
+            }
+            String capacity = myHashBased ? "(int) Math.ceil(" + mySize + " / 0.75)" : mySize;
+            PsiElementFactory factory = JavaPsiFacade.getInstance(project).getElementFactory();
+            arguments.add(factory.createExpressionFromText(capacity, expression));
+        }
+    }
+}
@@ -0,0 +1,667 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.codeInsight.Nullability;
+import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.codeInspection.dataFlow.NullabilityUtil;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtilRt;
+import com.intellij.psi.*;
+import com.intellij.psi.codeStyle.JavaCodeStyleManager;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.PsiUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 实现一个检查，用于检测装箱带来的内存开销和比较错误：
+ * <ul>
+ *     <li>元素是装箱数值类型（例如 {@code List<Integer>}、{@code Set<Long>}、{@code Map<Long, V>}）、
+ *     并且保存在字段中或在循环中被填充的集合。每个元素都是一个单独的对象，报告中给出与原始类型存储相比每个元素多占用的字节数；</li>
+ *     <li>用 '==' 或 '!=' 比较两个装箱数值，与 {@link ComparingStringReferencesInspection} 报告的字符串引用比较是同一类错误：
+ *     只有 -128 到 127 的缓存值才会相等。</li>
+ * </ul>
+ * 快速修复把局部的 List 改为原始类型数组，或者在模块的类路径上有 fastutil 时改为对应的原始类型集合；
+ * 装箱比较使用与字符串比较相同的 {@link ReplaceWithEqualsQuickFix}。
+ */
+public final class BoxedCollectionInspection extends AbstractBaseJavaLocalInspectionTool
+        implements PandaJavaInspection {
+
+    /**
+     * 估算开销时使用的 64 位 JVM 布局（开启压缩指针）：引用 4 字节，{@code HashMap.Node} 32 字节，默认负载因子 0.75。
+     */
+    private static final int REFERENCE_SIZE = 4;
+    private static final int HASH_NODE_SIZE = 32;
+    private static final double LOAD_FACTOR = 0.75;
+
+    private static final String FASTUTIL = "it.unimi.dsi.fastutil.";
+
+    /**
+     * 装箱类型对应的原始类型。{@code Boolean} 不在其中，因为它只有两个共享实例，不会为每个元素分配对象。
+     *
+     * @param size    原始类型的字节数
+     * @param boxSize 装箱对象的字节数（12 字节对象头加上值，按 8 字节对齐）
+     * @param prefix  fastutil 类名中的类型前缀，例如 {@code Int2ObjectOpenHashMap} 中的 Int
+     * @param pkg     fastutil 的包名，例如 {@code ints}
+     */
+    private record Primitive(@NotNull String name, int size, int boxSize, @NotNull String prefix, @NotNull String pkg) {
+    }
+
+    private static final Map<String, Primitive> PRIMITIVES = Map.of(
+            CommonClassNames.JAVA_LANG_INTEGER, new Primitive("int", 4, 16, "Int", "ints"),
+            CommonClassNames.JAVA_LANG_LONG, new Primitive("long", 8, 24, "Long", "longs"),
+            CommonClassNames.JAVA_LANG_DOUBLE, new Primitive("double", 8, 24, "Double", "doubles"),
+            CommonClassNames.JAVA_LANG_FLOAT, new Primitive("float", 4, 16, "Float", "floats"),
+            CommonClassNames.JAVA_LANG_SHORT, new Primitive("short", 2, 16, "Short", "shorts"),
+            CommonClassNames.JAVA_LANG_BYTE, new Primitive("byte", 1, 16, "Byte", "bytes"),
+            CommonClassNames.JAVA_LANG_CHARACTER, new Primitive("char", 2, 16, "Char", "chars"));
+    private static final Set<String> BOXED_SIMPLE_NAMES = Set.of("Integer", "Long", "Double", "Float", "Short", "Byte", "Character");
+
+    private enum Shape {LIST, SET, MAP}
+
+    private static final Map<String, Shape> COLLECTIONS = Map.of(
+            "java.util.ArrayList", Shape.LIST, "java.util.LinkedList", Shape.LIST,
+            "java.util.HashSet", Shape.SET, "java.util.LinkedHashSet", Shape.SET,
+            "java.util.HashMap", Shape.MAP, "java.util.LinkedHashMap", Shape.MAP);
+    private static final Set<String> SIMPLE_NAMES = Set.of("ArrayList", "LinkedList", "HashSet", "LinkedHashSet",
+            "HashMap", "LinkedHashMap");
+    /**
+     * 可以替换为 fastutil 类型的集合：fastutil 的哈希集合不保持插入顺序，链表也没有对应的类型。
+     */
+    private static final Set<String> REPLACEABLE = Set.of("java.util.ArrayList", "java.util.HashSet", "java.util.HashMap");
+    private static final Set<String> FILL_METHODS = Set.of("add", "addAll", "addLast", "offer", "put", "putAll", "merge");
+    /**
+     * 结果依赖于“缺少的值是 null”的 Map 方法。fastutil 的原始类型值 Map 对原始类型参数返回 0，
+     * 因此这些调用的结果被使用时不能替换。
+     */
+    private static final Set<String> NULL_RESULT_METHODS = Set.of("get", "put", "remove", "replace", "putIfAbsent");
+
+    private final ReplaceWithEqualsQuickFix myEqualsQuickFix = new ReplaceWithEqualsQuickFix();
+
+    /**
+     * 提供一个访问者，检查装箱元素的集合和装箱数值的引用比较。
+     * 访问者必须是非递归的，并且必须是线程安全的。
+     *
+     * @param holder     用于访问者注册发现的问题的对象
+     * @param isOnTheFly 如果检查是在非批处理模式下运行，则为 true
+     * @return 此检查的非空访问者
+     */
+    @NotNull
+    @Override
+    public PsiElementVisitor buildVisitor(@NotNull final ProblemsHolder holder, boolean isOnTheFly) {
+        PandaNodeHandlers handlers = new PandaNodeHandlers();
+        registerHandlers(handlers, holder);
+        return handlers.createVisitor();
+    }
+
+    @Override
+    public void registerHandlers(@NotNull PandaNodeHandlers handlers, @NotNull ProblemsHolder holder) {
+        handlers.register(PsiNewExpression.class, expression -> checkCollectionCreation(expression, holder));
+        handlers.register(PsiBinaryExpression.class, expression -> checkComparison(expression, holder));
+    }
+
+    private static void checkCollectionCreation(@NotNull PsiNewExpression expression, @NotNull ProblemsHolder holder) {
+        PsiJavaCodeReferenceElement classReference = expression.getClassReference();
+        // Cheap syntactic checks first: a known simple name used as the initializer of a variable
+        if (classReference == null || expression.getAnonymousClass() != null ||
+                !SIMPLE_NAMES.contains(classReference.getReferenceName()) ||
+                !(PsiUtil.skipParenthesizedExprUp(expression.getParent()) instanceof PsiVariable variable) ||
+                !(variable instanceof PsiField || variable instanceof PsiLocalVariable)) {
+            return;
+        }
+        String qualifiedName = classReference.getQualifiedName();
+        Shape shape = COLLECTIONS.get(qualifiedName);
+        Primitive[] boxed = shape == null ? null : getBoxedArguments(variable.getType(), shape);
+        if (boxed == null || variable instanceof PsiLocalVariable local && !isFedInLoop(local)) {
+            return;
+        }
+        List<LocalQuickFix> fixes = new ArrayList<>(2);
+        if (variable instanceof PsiLocalVariable local && canConvertToArray(local)) {
+            fixes.add(new ConvertToArrayQuickFix(local.getName(), boxed[0].name()));
+        }
+        String primitiveCollection = REPLACEABLE.contains(qualifiedName) ? getPrimitiveCollection(shape, boxed) : null;
+        if (primitiveCollection != null && isOnClasspath(primitiveCollection, expression) &&
+                canConvertToPrimitiveCollection(variable, shape, boxed)) {
+            fixes.add(new ConvertToPrimitiveCollectionQuickFix(variable.getName(), primitiveCollection));
+        }
+        holder.registerProblem(expression,
+                InspectionBundle.message("inspection.boxed.collection.descriptor",
+                        variable.getType().getPresentableText(), estimateOverhead(shape, boxed)),
+                fixes.toArray(LocalQuickFix.EMPTY_ARRAY));
+    }
+
+    private void checkComparison(@NotNull PsiBinaryExpression expression, @NotNull ProblemsHolder holder) {
+        IElementType operation = expression.getOperationTokenType();
+        if (operation != JavaTokenType.EQEQ && operation != JavaTokenType.NE) {
+            return;
+        }
+        PsiExpression rOperand = expression.getROperand();
+        if (rOperand == null) {
+            return;
+        }
+        // Both operands must be boxed: with one primitive operand the other one is unboxed and compared by value
+        if (expression.getLOperand().getType() instanceof PsiClassType left &&
+                rOperand.getType() instanceof PsiClassType right &&
+                BOXED_SIMPLE_NAMES.contains(left.getClassName()) && left.getClassName().equals(right.getClassName()) &&
+                PRIMITIVES.containsKey(left.getCanonicalText()) && left.getCanonicalText().equals(right.getCanonicalText())) {
+            holder.registerProblem(expression,
+                    InspectionBundle.message("inspection.boxed.comparison.descriptor", left.getClassName()),
+                    myEqualsQuickFix);
+        }
+    }
+
+    /**
+     * @return 集合类型中每个类型参数对应的原始类型（不是装箱类型时为 {@code null}）；没有装箱类型参数时返回 {@code null}。
+     */
+    @Nullable
+    private static Primitive[] getBoxedArguments(@NotNull PsiType type, @NotNull Shape shape) {
+        Primitive[] boxed;
+        if (shape == Shape.MAP) {
+            boxed = new Primitive[]{
+                    getPrimitive(PsiUtil.substituteTypeParameter(type, CommonClassNames.JAVA_UTIL_MAP, 0, false)),
+                    getPrimitive(PsiUtil.substituteTypeParameter(type, CommonClassNames.JAVA_UTIL_MAP, 1, false))};
+        } else {
+            boxed = new Primitive[]{
+                    getPrimitive(PsiUtil.substituteTypeParameter(type, CommonClassNames.JAVA_UTIL_COLLECTION, 0, false))};
+        }
+        for (Primitive primitive : boxed) {
+            if (primitive != null) {
+                return boxed;
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Primitive getPrimitive(@Nullable PsiType type) {
+        return type instanceof PsiClassType classType && BOXED_SIMPLE_NAMES.contains(classType.getClassName())
+                ? PRIMITIVES.get(type.getCanonicalText())
+                : null;
+    }
+
+    /**
+     * 估算与原始类型存储相比每个元素多占用的字节数：
+     * <ul>
+     *     <li>List：装箱对象和数组中的引用，减去原始类型数组中的一个元素；</li>
+     *     <li>Set 和 Map：{@code HashMap.Node}、按负载因子换算的表槽位和装箱对象，
+     *     减去开放寻址的原始类型哈希表中按同一负载因子换算的键和值。</li>
+     * </ul>
+     * -128 到 127 的整数使用缓存的装箱对象，因此这是上限。
+     */
+    private static int estimateOverhead(@NotNull Shape shape, Primitive @NotNull [] boxed) {
+        if (shape == Shape.LIST) {
+            return boxed[0].boxSize() + REFERENCE_SIZE - boxed[0].size();
+        }
+        double boxedCost = HASH_NODE_SIZE + REFERENCE_SIZE / LOAD_FACTOR;
+        double primitiveCost = 0;
+        for (Primitive primitive : boxed) {
+            boxedCost += primitive == null ? 0 : primitive.boxSize();
+            primitiveCost += (primitive == null ? REFERENCE_SIZE : primitive.size()) / LOAD_FACTOR;
+        }
+        return (int) Math.round(boxedCost - primitiveCost);
+    }
+
+    /**
+     * @return 局部集合是否在循环体或传给 forEach 的 lambda 中被填充。
+     */
+    private static boolean isFedInLoop(@NotNull PsiLocalVariable variable) {
+        PsiElement scope = PsiUtil.getVariableCodeBlock(variable, null);
+        if (scope == null) {
+            return false;
+        }
+        for (PsiReferenceExpression reference : findReferences(variable, scope)) {
+            if (reference.getParent() instanceof PsiReferenceExpression methodExpression &&
+                    FILL_METHODS.contains(methodExpression.getReferenceName()) &&
+                    methodExpression.getParent() instanceof PsiMethodCallExpression && isInLoop(reference)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isInLoop(@NotNull PsiElement element) {
+        for (PsiElement parent = element.getParent(); parent != null; parent = parent.getParent()) {
+            if (parent instanceof PsiLoopStatement) {
+                return true;
+            }
+            if (parent instanceof PsiLambdaExpression lambda) {
+                return lambda.getParent() instanceof PsiExpressionList arguments &&
+                        arguments.getParent() instanceof PsiMethodCallExpression call &&
+                        "forEach".equals(call.getMethodExpression().getReferenceName());
+            }
+            if (parent instanceof PsiMember || parent instanceof PsiFile) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    @NotNull
+    private static List<PsiReferenceExpression> findReferences(@NotNull PsiVariable variable, @NotNull PsiElement scope) {
+        List<PsiReferenceExpression> references = new ArrayList<>();
+        String name = variable.getName();
+        for (PsiReferenceExpression reference : PsiTreeUtil.findChildrenOfType(scope, PsiReferenceExpression.class)) {
+            if (name != null && name.equals(reference.getReferenceName()) && reference.isReferenceTo(variable)) {
+                references.add(reference);
+            }
+        }
+        return references;
+    }
+
+    @Nullable
+    private static PsiElement getScope(@NotNull PsiVariable variable) {
+        return variable instanceof PsiField ? variable.getContainingFile() : PsiUtil.getVariableCodeBlock(variable, null);
+    }
+
+    @Nullable
+    private static String getCalledMethod(@NotNull PsiReferenceExpression qualifier) {
+        return qualifier.getParent() instanceof PsiReferenceExpression methodExpression &&
+                methodExpression.getParent() instanceof PsiMethodCallExpression
+                ? methodExpression.getReferenceName()
+                : null;
+    }
+
+    // ---------------------------------------------------------------- primitive collections
+
+    /**
+     * @return 与集合对应的 fastutil 类的全限定名，例如 {@code it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap}。
+     */
+    @Nullable
+    private static String getPrimitiveCollection(@NotNull Shape shape, Primitive @NotNull [] boxed) {
+        Primitive first = boxed[0];
+        return switch (shape) {
+            case LIST -> FASTUTIL + first.pkg() + "." + first.prefix() + "ArrayList";
+            case SET -> FASTUTIL + first.pkg() + "." + first.prefix() + "OpenHashSet";
+            case MAP -> {
+                Primitive value = boxed[1];
+                if (first == null) {
+                    yield FASTUTIL + "objects.Object2" + value.prefix() + "OpenHashMap";
+                }
+                yield FASTUTIL + first.pkg() + "." + first.prefix() + "2" + (value == null ? "Object" : value.prefix()) +
+                        "OpenHashMap";
+            }
+        };
+    }
+
+    private static boolean isOnClasspath(@NotNull String className, @NotNull PsiElement context) {
+        return JavaPsiFacade.getInstance(context.getProject()).findClass(className, context.getResolveScope()) != null;
+    }
+
+    /**
+     * fastutil 的类型实现了对应的 java.util 接口，因此只要变量不再被赋值，替换声明类型和初始值就不会影响其他使用。
+     * 值为原始类型的 Map 是例外：对原始类型参数，{@code get} 等方法在键不存在时返回 0 而不是 {@code null}。
+     * 可能传入 {@code null} 元素的调用也不能保留，见 {@link #mayPassNull}。
+     */
+    private static boolean canConvertToPrimitiveCollection(@NotNull PsiVariable variable, @NotNull Shape shape,
+                                                           Primitive @NotNull [] boxed) {
+        PsiElement scope = getScope(variable);
+        if (scope == null || variable instanceof PsiField && !variable.hasModifierProperty(PsiModifier.PRIVATE) ||
+                !(variable.getTypeElement() != null && variable.getType() instanceof PsiClassType)) {
+            return false;
+        }
+        boolean primitiveValues = shape == Shape.MAP && boxed[1] != null;
+        for (PsiReferenceExpression reference : findReferences(variable, scope)) {
+            if (PsiUtil.isAccessedForWriting(reference)) {
+                return false;
+            }
+            if (primitiveValues && NULL_RESULT_METHODS.contains(getCalledMethod(reference)) &&
+                    !(reference.getParent().getParent().getParent() instanceof PsiExpressionStatement)) {
+                return false;
+            }
+            if (getCalledMethod(reference) != null && mayPassNull((PsiMethodCallExpression) reference.getParent().getParent())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void convertToPrimitiveCollection(@NotNull Project project, @NotNull PsiVariable variable,
+                                                     @NotNull String primitiveCollection) {
+        // List<Integer> a = ..., b = ...;  -> only the converted variable changes its type
+        variable.normalizeDeclaration();
+        PsiElementFactory factory = JavaPsiFacade.getInstance(project).getElementFactory();
+        PsiNewExpression creation = (PsiNewExpression) PsiUtil.skipParenthesizedExprDown(variable.getInitializer());
+        PsiTypeElement typeElement = variable.getTypeElement();
+        PsiElement scope = getScope(variable);
+        if (creation == null || typeElement == null || scope == null) {
+            return;
+        }
+        // Object2XMap keeps the key type argument, X2ObjectMap the value type argument
+        String typeArguments = "";
+        if (primitiveCollection.contains("Object")) {
+            PsiType objectType = PsiUtil.substituteTypeParameter(variable.getType(), CommonClassNames.JAVA_UTIL_MAP,
+                    primitiveCollection.contains("Object2") ? 0 : 1, false);
+            typeArguments = objectType == null ? "<Object>" : "<" + objectType.getCanonicalText() + ">";
+        }
+        // Lists: get(int) still returns a box, the primitive accessor is getInt(int), getLong(int), ...
+        if (primitiveCollection.endsWith("ArrayList")) {
+            String accessor = "get" + StringUtilRt.getShortName(primitiveCollection).replace("ArrayList", "");
+            for (PsiReferenceExpression reference : findReferences(variable, scope)) {
+                // Uses that need an object, such as list.get(i).toString(), keep the boxing get(int)
+                if ("get".equals(getCalledMethod(reference)) && isUnboxedUse((PsiExpression) reference.getParent().getParent())) {
+                    PsiReferenceExpression methodExpression = (PsiReferenceExpression) reference.getParent();
+                    PsiElement name = methodExpression.getReferenceNameElement();
+                    if (name != null) {
+                        name.replace(factory.createIdentifier(accessor));
+                    }
+                }
+            }
+        }
+        PsiExpressionList arguments = creation.getArgumentList();
+        String argumentText = arguments == null ? "()" : arguments.getText();
+        creation.replace(factory.createExpressionFromText(
+                "new " + primitiveCollection + (typeArguments.isEmpty() ? "" : "<>") + argumentText, creation));
+        typeElement.replace(factory.createTypeElementFromText(primitiveCollection + typeArguments, variable));
+        JavaCodeStyleManager.getInstance(project).shortenClassReferences(variable);
+    }
+
+    // ---------------------------------------------------------------- primitive arrays
+
+    /**
+     * 局部 List 可以改为原始类型数组的条件：它只被用作 {@code add(x)} 语句、{@code set(i, x)} 语句、
+     * 结果直接按原始类型使用的 {@code get(i)}、{@code size()}、{@code isEmpty()} 以及 for-each 循环，
+     * 不传入可能为 {@code null} 的元素，并且不在 lambda 或局部类中使用，因为改写后数组变量在扩容时会被重新赋值。
+     */
+    private static boolean canConvertToArray(@NotNull PsiLocalVariable variable) {
+        PsiElement scope = PsiUtil.getVariableCodeBlock(variable, null);
+        PsiNewExpression creation = (PsiNewExpression) PsiUtil.skipParenthesizedExprDown(variable.getInitializer());
+        if (scope == null || creation == null || getCapacity(creation) == null ||
+                !(variable.getParent() instanceof PsiDeclarationStatement declaration) ||
+                declaration.getDeclaredElements().length != 1 ||
+                getPrimitive(PsiUtil.substituteTypeParameter(variable.getType(), CommonClassNames.JAVA_UTIL_LIST, 0, false)) == null) {
+            return false;
+        }
+        for (PsiReferenceExpression reference : findReferences(variable, scope)) {
+            if (PsiTreeUtil.getParentOfType(reference, PsiLambdaExpression.class, PsiClass.class) !=
+                    PsiTreeUtil.getParentOfType(variable, PsiLambdaExpression.class, PsiClass.class)) {
+                return false;
+            }
+            if (reference.getParent() instanceof PsiForeachStatement foreach && foreach.getIteratedValue() == reference) {
+                continue;
+            }
+            String method = getCalledMethod(reference);
+            if (method == null) {
+                return false;
+            }
+            PsiMethodCallExpression call = (PsiMethodCallExpression) reference.getParent().getParent();
+            int argumentCount = call.getArgumentList().getExpressionCount();
+            boolean statement = call.getParent() instanceof PsiExpressionStatement expressionStatement &&
+                    expressionStatement.getParent() instanceof PsiCodeBlock;
+            boolean allowed = switch (method) {
+                case "add" -> argumentCount == 1 && statement;
+                case "set" -> argumentCount == 2 && statement;
+                case "get" -> argumentCount == 1 && isUnboxedUse(call);
+                case "size", "isEmpty" -> argumentCount == 0;
+                default -> false;
+            };
+            if (!allowed || mayPassNull(call)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return {@code get} 的结果是否直接按原始类型使用：赋给原始类型的变量、参与算术、比较或字符串连接、
+     * 转换为原始类型，或者作为原始类型的参数、数组下标或返回值。其他使用需要一个对象，例如 {@code list.get(i).toString()}、
+     * {@code x.equals(list.get(i))} 或与另一个装箱值的 {@code ==} 比较，改为原始类型后不能编译或改变了含义。
+     */
+    private static boolean isUnboxedUse(@NotNull PsiExpression expression) {
+        PsiElement parent = PsiUtil.skipParenthesizedExprUp(expression.getParent());
+        if (parent instanceof PsiVariable variable) {
+            return isPrimitive(variable.getType());
+        }
+        if (parent instanceof PsiAssignmentExpression assignment) {
+            return PsiTreeUtil.isAncestor(assignment.getRExpression(), expression, false) &&
+                    isPrimitive(assignment.getLExpression().getType());
+        }
+        if (parent instanceof PsiPolyadicExpression polyadic) {
+            PsiType type = polyadic.getType();
+            if (type != null && type.equalsToText(CommonClassNames.JAVA_LANG_STRING)) {
+                return true;
+            }
+            for (PsiExpression operand : polyadic.getOperands()) {
+                if (!PsiTreeUtil.isAncestor(operand, expression, false) && !isPrimitive(operand.getType())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (parent instanceof PsiPrefixExpression || parent instanceof PsiArrayAccessExpression access &&
+                PsiTreeUtil.isAncestor(access.getIndexExpression(), expression, false)) {
+            return true;
+        }
+        if (parent instanceof PsiTypeCastExpression cast) {
+            return cast.getCastType() != null && isPrimitive(cast.getCastType().getType());
+        }
+        if (parent instanceof PsiExpressionList arguments && arguments.getParent() instanceof PsiCall call) {
+            PsiMethod method = call.resolveMethod();
+            PsiExpression[] expressions = arguments.getExpressions();
+            PsiParameter[] parameters = method == null ? PsiParameter.EMPTY_ARRAY : method.getParameterList().getParameters();
+            for (int i = 0; i < expressions.length && i < parameters.length; i++) {
+                if (PsiTreeUtil.isAncestor(expressions[i], expression, false)) {
+                    return !parameters[i].isVarArgs() && isPrimitive(parameters[i].getType());
+                }
+            }
+            return false;
+        }
+        if (parent instanceof PsiReturnStatement) {
+            PsiElement owner = PsiTreeUtil.getParentOfType(parent, PsiMethod.class, PsiLambdaExpression.class);
+            return owner instanceof PsiMethod method && isPrimitive(method.getReturnType());
+        }
+        return false;
+    }
+
+    private static boolean isPrimitive(@Nullable PsiType type) {
+        return type instanceof PsiPrimitiveType && !PsiTypes.nullType().equals(type);
+    }
+
+    /**
+     * @return 调用是否可能把 {@code null} 传给装箱类型的参数，例如 {@code list.add(null)}；
+     * 改为原始类型的集合或数组后，拆箱会抛出 NullPointerException，而原来的集合保存了 {@code null}。
+     */
+    private static boolean mayPassNull(@NotNull PsiMethodCallExpression call) {
+        JavaResolveResult result = call.resolveMethodGenerics();
+        if (!(result.getElement() instanceof PsiMethod method)) {
+            return true;
+        }
+        PsiParameter[] parameters = method.getParameterList().getParameters();
+        PsiExpression[] arguments = call.getArgumentList().getExpressions();
+        for (int i = 0; i < arguments.length && i < parameters.length; i++) {
+            PsiType parameterType = result.getSubstitutor().substitute(parameters[i].getType());
+            if (PsiPrimitiveType.getUnboxedType(parameterType) != null && !isPrimitive(arguments[i].getType()) &&
+                    NullabilityUtil.getExpressionNullability(arguments[i], true) != Nullability.NOT_NULL) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return 数组的初始长度：{@code new ArrayList<>(n)} 中的 n，或者没有参数时的 10；参数是集合时返回 {@code null}。
+     */
+    @Nullable
+    private static String getCapacity(@NotNull PsiNewExpression creation) {
+        PsiExpressionList arguments = creation.getArgumentList();
+        PsiExpression[] expressions = arguments == null ? PsiExpression.EMPTY_ARRAY : arguments.getExpressions();
+        if (expressions.length == 0) {
+            return "10";
+        }
+        return expressions.length == 1 && PsiTypes.intType().equals(expressions[0].getType()) ? expressions[0].getText() : null;
+    }
+
+    private static void convertToArray(@NotNull Project project, @NotNull PsiLocalVariable variable) {
+        PsiElementFactory factory = JavaPsiFacade.getInstance(project).getElementFactory();
+        JavaCodeStyleManager codeStyleManager = JavaCodeStyleManager.getInstance(project);
+        PsiElement scope = PsiUtil.getVariableCodeBlock(variable, null);
+        Primitive primitive = getPrimitive(PsiUtil.substituteTypeParameter(variable.getType(), CommonClassNames.JAVA_UTIL_LIST, 0, false));
+        PsiNewExpression creation = (PsiNewExpression) PsiUtil.skipParenthesizedExprDown(variable.getInitializer());
+        if (scope == null || primitive == null || creation == null) {
+            return;
+        }
+        String name = variable.getName();
+        String size = codeStyleManager.suggestUniqueVariableName(name + "Size", variable, true);
+        String capacity = getCapacity(creation);
+        String element = primitive.name();
+
+        // Later references first: a for-each body is rewritten before the loop around it copies its text
+        List<PsiReferenceExpression> references = findReferences(variable, scope);
+        Collections.reverse(references);
+        for (PsiReferenceExpression reference : references) {
+            if (reference.getParent() instanceof PsiForeachStatement foreach) {
+                convertForeach(factory, codeStyleManager, foreach, name, size, element);
+                continue;
+            }
+            PsiMethodCallExpression call = (PsiMethodCallExpression) reference.getParent().getParent();
+            PsiExpression[] arguments = call.getArgumentList().getExpressions();
+            switch (String.valueOf(getCalledMethod(reference))) {
+                case "add" -> {
+                    PsiStatement statement = (PsiStatement) call.getParent();
+                    PsiElement grow = statement.getParent().addBefore(factory.createStatementFromText("if (" + size + " == " +
+                            name + ".length) " + name + " = java.util.Arrays.copyOf(" + name + ", " + size + " * 2 + 1);",
+                            statement), statement);
+                    codeStyleManager.shortenClassReferences(grow);
+                    statement.replace(factory.createStatementFromText(name + "[" + size + "++] = " + arguments[0].getText() + ";", statement));
+                }
+                // The array is longer than the list, so indices are still checked against the list's size
+                case "set" -> codeStyleManager.shortenClassReferences(call.getParent().replace(factory.createStatementFromText(
+                        name + "[" + checkIndex(arguments[0], size) + "] = " + arguments[1].getText() + ";", call)));
+                case "get" -> codeStyleManager.shortenClassReferences(call.replace(factory.createExpressionFromText(
+                        name + "[" + checkIndex(arguments[0], size) + "]", call)));
+                case "size" -> call.replace(factory.createExpressionFromText(size, call));
+                case "isEmpty" -> call.replace(factory.createExpressionFromText(
+                        call.getParent() instanceof PsiExpression ? "(" + size + " == 0)" : size + " == 0", call));
+                default -> {
+                }
+            }
+        }
+
+        PsiDeclarationStatement declaration = (PsiDeclarationStatement) variable.getParent();
+        declaration.getParent().addAfter(factory.createStatementFromText("int " + size + " = 0;", declaration), declaration);
+        declaration.replace(factory.createStatementFromText(
+                element + "[] " + name + " = new " + element + "[" + capacity + "];", declaration));
+    }
+
+    @NotNull
+    private static String checkIndex(@NotNull PsiExpression index, @NotNull String size) {
+        return "java.util.Objects.checkIndex(" + index.getText() + ", " + size + ")";
+    }
+
+    /**
+     * 把 {@code for (T x : list) body} 改写为遍历数组前 size 个元素的计数循环。
+     */
+    private static void convertForeach(@NotNull PsiElementFactory factory, @NotNull JavaCodeStyleManager codeStyleManager,
+                                       @NotNull PsiForeachStatement foreach, @NotNull String name, @NotNull String size,
+                                       @NotNull String element) {
+        PsiParameter parameter = foreach.getIterationParameter();
+        PsiStatement body = foreach.getBody();
+        if (body == null) {
+            return;
+        }
+        String index = codeStyleManager.suggestUniqueVariableName("i", foreach, true);
+        String type = getPrimitive(parameter.getType()) != null ? element : parameter.getTypeElement() == null
+                ? element : parameter.getTypeElement().getText();
+        String statements;
+        if (body instanceof PsiBlockStatement block) {
+            PsiCodeBlock codeBlock = block.getCodeBlock();
+            PsiJavaToken lBrace = codeBlock.getLBrace();
+            PsiJavaToken rBrace = codeBlock.getRBrace();
+            String text = codeBlock.getText();
+            statements = lBrace == null || rBrace == null ? text
+                    : text.substring(lBrace.getStartOffsetInParent() + 1, rBrace.getStartOffsetInParent());
+        } else {
+            statements = body.getText();
+        }
+        String modifiers = parameter.hasModifierProperty(PsiModifier.FINAL) ? "final " : "";
+        foreach.replace(factory.createStatementFromText("for (int " + index + " = 0; " + index + " < " + size + "; " +
+                index + "++) {\n" + modifiers + type + " " + parameter.getName() + " = " + name + "[" + index + "];\n" +
+                statements + "\n}", foreach));
+    }
+
+    // ---------------------------------------------------------------- quick fixes
+
+    /**
+     * 该快速修复把声明和初始值替换为 fastutil 的原始类型集合，并把 List 的 {@code get(i)} 改为不装箱的访问方法。
+     */
+    private static class ConvertToPrimitiveCollectionQuickFix implements LocalQuickFix {
+
+        private final String myVariable;
+        private final String myCollection;
+
+        ConvertToPrimitiveCollectionQuickFix(@NotNull String variable, @NotNull String collection) {
+            myVariable = variable;
+            myCollection = collection;
+        }
+
+        @NotNull
+        @Override
+        public String getName() {
+            return InspectionBundle.message("inspection.boxed.collection.primitive.collection.quickfix",
+                    myVariable, StringUtilRt.getShortName(myCollection));
+        }
+
+        @NotNull
+        @Override
+        public String getFamilyName() {
+            return InspectionBundle.message("inspection.boxed.collection.primitive.collection.family");
+        }
+
+        @Override
+        public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+            if (!(descriptor.getPsiElement() instanceof PsiNewExpression creation) ||
+                    !(PsiUtil.skipParenthesizedExprUp(creation.getParent()) instanceof PsiVariable variable) ||
+                    creation.getClassReference() == null) {
+                return;
+            }
+            Shape shape = COLLECTIONS.get(creation.getClassReference().getQualifiedName());
+            Primitive[] boxed = shape == null ? null : getBoxedArguments(variable.getType(), shape);
+            if (boxed != null && canConvertToPrimitiveCollection(variable, shape, boxed)) {
+                convertToPrimitiveCollection(project, variable, myCollection);
+            }
+        }
+    }
+
+    /**
+     * 该快速修复把局部 List 改为原始类型数组加一个元素计数变量，添加元素时按需扩容。
+     */
+    private static class ConvertToArrayQuickFix implements LocalQuickFix {
+
+        private final String myVariable;
+        private final String myElementType;
+
+        ConvertToArrayQuickFix(@NotNull String variable, @NotNull String elementType) {
+            myVariable = variable;
+            myElementType = elementType;
+        }
+
+        @NotNull
+        @Override
+        public String getName() {
+            return InspectionBundle.message("inspection.boxed.collection.array.quickfix", myVariable, myElementType);
+        }
+
+        @NotNull
+        @Override
+        public String getFamilyName() {
+            return InspectionBundle.message("inspection.boxed.collection.array.family");
+        }
+
+        @Override
+        public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+            if (descriptor.getPsiElement() instanceof PsiNewExpression creation &&
+                    PsiUtil.skipParenthesizedExprUp(creation.getParent()) instanceof PsiLocalVariable variable &&
+                    canConvertToArray(variable)) {
+                convertToArray(project, variable);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.codeInspection.InspectionManager;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiJavaFile;
+import com.zhangchengk.panda.study.cache.CachedProblem;
+import com.zhangchengk.panda.study.cache.PandaResultCache;
+import com.zhangchengk.panda.study.index.PandaPattern;
+import com.zhangchengk.panda.study.index.PandaPatternIndex;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * {@link ComparingStringReferencesInspection} 的全局（批处理）版本，用于 "Inspect Code" 对整个项目的检查。
+ * <p>
+ * 范围内的 Java 文件先经 {@link PandaPatternIndex} 过滤，只有可能包含字符串比较的文件会被检查，并且只检查索引记录的位置。
+ * 未修改文件的结果来自 {@link PandaResultCache}，运行结束时在状态栏报告缓存命中率。
+ */
+final class ComparingStringReferencesGlobalInspection extends PandaGlobalInspection {
+
+    private final ComparingStringReferencesInspection myLocalTool = new ComparingStringReferencesInspection();
+
+    /**
+     * 本次运行的设置哈希；同时运行的两次检查使用相同的设置，因此写入同一个值。
+     */
+    private volatile int mySettingsHash;
+
+    @NotNull
+    @Override
+    protected List<VirtualFile> filterCandidates(@NotNull Project project, @NotNull List<VirtualFile> files) {
+        // Only files the index reports as containing a possible String comparison are parsed
+        return PandaPatternIndex.filterCandidates(project, files, PandaPattern.STRING_COMPARISON);
+    }
+
+    @Override
+    protected void beforeRun(@NotNull Project project) {
+        PandaResultCache.getInstance(project).resetStatistics();
+        mySettingsHash = PandaResultCache.settingsHash(myLocalTool);
+    }
+
+    @Override
+    protected void afterRun(@NotNull Project project) {
+        PandaResultCache.getInstance(project).save();
+    }
+
+    @NotNull
+    @Override
+    protected List<ProblemDescriptor> inspectFile(@NotNull PsiJavaFile file, @NotNull InspectionManager manager) {
+        PandaResultCache cache = PandaResultCache.getInstance(file.getProject());
+        String toolId = myLocalTool.getShortName();
+        int settingsHash = mySettingsHash;
+        List<CachedProblem> cached = cache.get(toolId, settingsHash, file);
+        List<ProblemDescriptor> problems = cached == null ? null : myLocalTool.restoreProblems(file, cached, manager);
+        if (problems == null) {
+            problems = DumbService.isDumb(file.getProject())
+                    ? myLocalTool.checkFile(file, manager)
+                    : myLocalTool.checkOffsets(file,
+                    PandaPatternIndex.getOffsets(file.getProject(), file.getVirtualFile(), PandaPattern.STRING_COMPARISON), manager);
+            cache.put(toolId, settingsHash, file, problems);
+        }
+        return problems;
+    }
+
+    @NotNull
+    @Override
+    protected String getSummary(@NotNull Project project, int problems, int files, int candidates) {
+        PandaResultCache cache = PandaResultCache.getInstance(project);
+        return String.format("Panda result cache: %d of %d files reused (%.0f%% hit rate)",
+                cache.getHits(), cache.getHits() + cache.getMisses(), cache.getHitRate() * 100);
+    }
+}
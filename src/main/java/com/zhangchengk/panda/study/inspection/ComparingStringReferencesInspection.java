@@ -1,27 +1,45 @@
 package com.zhangchengk.panda.study.inspection;
 
 import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
-import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.CleanupLocalInspectionTool;
+import com.intellij.codeInspection.InspectionManager;
+import com.intellij.codeInspection.LocalInspectionToolSession;
 import com.intellij.codeInspection.ProblemDescriptor;
 import com.intellij.codeInspection.ProblemsHolder;
-import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
 import com.intellij.psi.*;
 import com.intellij.psi.tree.IElementType;
-import com.intellij.psi.util.PsiTypesUtil;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.zhangchengk.panda.study.cache.CachedProblem;
+import com.zhangchengk.panda.study.cache.PandaResultCache;
+import com.zhangchengk.panda.study.core.PatternOffsets;
+import com.zhangchengk.panda.study.metrics.PandaMetric;
+import com.zhangchengk.panda.study.metrics.PandaMetrics;
+import com.zhangchengk.panda.study.metrics.VisitTimer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * 实现一个检查，用于检测使用 'a==b' 或 'a!=b' 比较字符串引用的情况。
- * 快速修复会将这些比较转换为使用 'a.equals(b)' 或 '!a.equals(b)'。
+ * 快速修复会将这些比较转换为不会抛出 NullPointerException 的 equals 调用，见 {@link ReplaceWithEqualsQuickFix}。
+ * 该检查也可以由 Code Cleanup 运行。
  */
-final class ComparingStringReferencesInspection extends AbstractBaseJavaLocalInspectionTool {
+public final class ComparingStringReferencesInspection extends AbstractBaseJavaLocalInspectionTool
+        implements PandaJavaInspection, CleanupLocalInspectionTool {
+
+    private static final Key<VisitTimer> VISIT_TIMER = Key.create("panda.comparing.string.references.visit.timer");
+    private static final Key<Integer> SETTINGS_HASH = Key.create("panda.comparing.string.references.settings.hash");
 
     private final ReplaceWithEqualsQuickFix myQuickFix = new ReplaceWithEqualsQuickFix();
 
     /**
      * 重写此方法以提供一个自定义访问者，
-     * 该访问者用于检查使用关系运算符 '==' 和 '!=' 的表达式。
+     * 该访问者把二元表达式分发给 {@link #registerHandlers} 注册的处理器。
      * 访问者必须是非递归的，并且必须是线程安全的。
      *
      * @param holder     用于访问者注册发现的问题的对象
@@ -31,112 +49,227 @@ final class ComparingStringReferencesInspection extends AbstractBaseJavaLocalIns
     @NotNull
     @Override
     public PsiElementVisitor buildVisitor(@NotNull final ProblemsHolder holder, boolean isOnTheFly) {
-        return new JavaElementVisitor() {
-
-            /**
-             * 评估二进制 PSI 表达式，以确定它们是否包含关系运算符 '==' 和 '!='，
-             * 并且它们是字符串类型。
-             * 评估会忽略将对象与 null 进行比较的表达式。
-             * 如果满足这些条件，则在 ProblemsHolder 中注册问题。
-             *
-             * @param expression 要评估的二进制表达式。
-             */
-            @Override
-            public void visitBinaryExpression(@NotNull PsiBinaryExpression expression) {
-                super.visitBinaryExpression(expression);
-                IElementType opSign = expression.getOperationTokenType();
-                if (opSign == JavaTokenType.EQEQ || opSign == JavaTokenType.NE) {
-                    // The binary expression is the correct type for this inspection
-                    PsiExpression lOperand = expression.getLOperand();
-                    PsiExpression rOperand = expression.getROperand();
-                    if (rOperand == null || isNullLiteral(lOperand) || isNullLiteral(rOperand)) {
-                        return;
-                    }
-                    // Nothing is compared to null, now check the types being compared
-                    if (isStringType(lOperand) || isStringType(rOperand)) {
-                        // Identified an expression with potential problems, register problem with the quick fix object
-                        holder.registerProblem(expression,
-                                InspectionBundle.message("inspection.comparing.string.references.problem.descriptor"),
-                                myQuickFix);
-                    }
-                }
+        return createVisitor(holder, null);
+    }
+
+    /**
+     * 编辑器中的检查通过此方法创建访问者。指标启用时，为本文件创建一个 {@link VisitTimer}，
+     * 在 {@link #inspectionFinished} 中记录访问耗时和问题数量。
+     * 批处理模式下先查询 {@link PandaResultCache}：命中时直接恢复问题并跳过遍历，未命中时在检查结束后写入缓存。
+     */
+    @NotNull
+    @Override
+    public PsiElementVisitor buildVisitor(@NotNull ProblemsHolder holder,
+                                         boolean isOnTheFly,
+                                         @NotNull LocalInspectionToolSession session) {
+        if (!isOnTheFly) {
+            // Batch runs reuse the results of files that have not changed since the previous run
+            PsiFile file = session.getFile();
+            int settingsHash = PandaResultCache.settingsHash(this);
+            List<CachedProblem> cached = PandaResultCache.getInstance(file.getProject())
+                    .get(getShortName(), settingsHash, file);
+            if (cached != null && restoreProblems(file, cached, holder)) {
+                return PsiElementVisitor.EMPTY_VISITOR;
             }
+            session.putUserData(SETTINGS_HASH, settingsHash);
+        }
+        VisitTimer timer = null;
+        if (PandaMetrics.isEnabled()) {
+            timer = new VisitTimer();
+            session.putUserData(VISIT_TIMER, timer);
+        }
+        return createVisitor(holder, timer);
+    }
 
-            private boolean isStringType(PsiExpression operand) {
-                PsiClass psiClass = PsiTypesUtil.getPsiClass(operand.getType());
-                if (psiClass == null) {
-                    return false;
-                }
+    @Override
+    public void inspectionFinished(@NotNull LocalInspectionToolSession session, @NotNull ProblemsHolder problemsHolder) {
+        VisitTimer timer = session.getUserData(VISIT_TIMER);
+        if (timer != null) {
+            timer.finish(PandaMetric.INSPECTION_FILE_VISIT, problemsHolder.getResultCount());
+        }
+        Integer settingsHash = session.getUserData(SETTINGS_HASH);
+        if (settingsHash != null) {
+            PsiFile file = session.getFile();
+            PandaResultCache.getInstance(file.getProject())
+                    .put(getShortName(), settingsHash, file, problemsHolder.getResults());
+        }
+    }
 
-                return "java.lang.String" == psiClass.getQualifiedName();
-            }
+    /**
+     * 从缓存的结果重新创建问题描述，附带与首次检查相同的快速修复。调用方必须持有读操作。
+     *
+     * @return 重新创建的问题；某个缓存位置上已不存在对应的比较时返回 {@code null}，调用方应重新检查文件
+     */
+    @Nullable
+    List<ProblemDescriptor> restoreProblems(@NotNull PsiFile file, @NotNull List<CachedProblem> cached,
+                                            @NotNull InspectionManager manager) {
+        ProblemsHolder holder = new ProblemsHolder(manager, file, false);
+        return restoreProblems(file, cached, holder) ? holder.getResults() : null;
+    }
 
-            private static boolean isNullLiteral(PsiExpression expression) {
-                return expression instanceof PsiLiteralExpression &&
-                        ((PsiLiteralExpression) expression).getValue() == null;
+    private boolean restoreProblems(@NotNull PsiFile file, @NotNull List<CachedProblem> cached,
+                                    @NotNull ProblemsHolder holder) {
+        List<PsiBinaryExpression> expressions = new ArrayList<>(cached.size());
+        for (CachedProblem problem : cached) {
+            PsiBinaryExpression expression = PsiTreeUtil.findElementOfClassAtRange(file,
+                    problem.startOffset(), problem.endOffset(), PsiBinaryExpression.class);
+            if (expression == null) {
+                return false;
             }
-        };
+            expressions.add(expression);
+        }
+        for (int i = 0; i < expressions.size(); i++) {
+            holder.registerProblem(expressions.get(i), cached.get(i).description(), myQuickFix);
+        }
+        return true;
+    }
+
+    @Override
+    public void registerHandlers(@NotNull PandaNodeHandlers handlers, @NotNull ProblemsHolder holder) {
+        registerHandlers(handlers, holder, null);
+    }
+
+    @NotNull
+    private PsiElementVisitor createVisitor(@NotNull ProblemsHolder holder, @Nullable VisitTimer timer) {
+        PandaNodeHandlers handlers = new PandaNodeHandlers();
+        registerHandlers(handlers, holder, timer);
+        return handlers.createVisitor();
     }
 
     /**
-     * 该类通过操作 PSI 树，将检查问题中的表达式从使用 '==' 或 '!=' 替换为 'a.equals(b)' 来提供解决方案。
+     * 为二元表达式注册处理器，检查使用关系运算符 '==' 和 '!=' 的表达式。
+     *
+     * @param timer 指标启用时用于累计处理耗时，否则为 {@code null}
      */
-    private static class ReplaceWithEqualsQuickFix implements LocalQuickFix {
-
-        /**
-         * 返回一个部分本地化的字符串，表示快速修复的意图。
-         * 该字符串用于此插件的测试代码。
-         *
-         * @return 快速修复的简短名称。
-         */
-        @NotNull
-        @Override
-        public String getName() {
-            return InspectionBundle.message("inspection.comparing.string.references.use.quickfix");
-        }
+    private void registerHandlers(@NotNull PandaNodeHandlers handlers,
+                                  @NotNull ProblemsHolder holder,
+                                  @Nullable VisitTimer timer) {
+        // 本次文件遍历中已判定过的类型。处理器按文件注册，因此缓存只在一次遍历内有效。
+        // 以实例为键，避免 PsiClassType#equals 触发解析。
+        Map<PsiType, Boolean> stringTypes = new IdentityHashMap<>();
+        handlers.register(PsiBinaryExpression.class, expression -> {
+            if (timer == null) {
+                checkBinaryExpression(expression, holder, stringTypes);
+                return;
+            }
+            long start = System.nanoTime();
+            checkBinaryExpression(expression, holder, stringTypes);
+            timer.add(System.nanoTime() - start);
+        });
+    }
 
-        public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
-            // binaryExpression 包含一个形式为 "x == y" 的 PSI 表达式，
-            // 需要将其替换为 "x.equals(y)"
-            PsiBinaryExpression binaryExpression = (PsiBinaryExpression) descriptor.getPsiElement();
-            IElementType opSign = binaryExpression.getOperationTokenType();
-            PsiExpression lExpr = binaryExpression.getLOperand();
-            PsiExpression rExpr = binaryExpression.getROperand();
-            if (rExpr == null) {
+    /**
+     * 评估二进制 PSI 表达式，以确定它们是否包含关系运算符 '==' 和 '!='，
+     * 并且它们是字符串类型。
+     * 评估会忽略将对象与 null 进行比较的表达式。
+     * 如果满足这些条件，则在 ProblemsHolder 中注册问题。
+     *
+     * @param expression 要评估的二进制表达式。
+     */
+    private void checkBinaryExpression(@NotNull PsiBinaryExpression expression,
+                                       @NotNull ProblemsHolder holder,
+                                       @NotNull Map<PsiType, Boolean> stringTypes) {
+        IElementType opSign = expression.getOperationTokenType();
+        if (opSign == JavaTokenType.EQEQ || opSign == JavaTokenType.NE) {
+            // The binary expression is the correct type for this inspection
+            PsiExpression lOperand = expression.getLOperand();
+            PsiExpression rOperand = expression.getROperand();
+            if (rOperand == null || isNullLiteral(lOperand) || isNullLiteral(rOperand)) {
                 return;
             }
-            // 步骤 1：从文本创建一个替换片段，其中 "a" 和 "b" 作为占位符
-            PsiElementFactory factory = JavaPsiFacade.getInstance(project).getElementFactory();
-            PsiMethodCallExpression equalsCall =
-                    (PsiMethodCallExpression) factory.createExpressionFromText("a.equals(b)", null);
-            // 步骤 2：用原始文件中的元素替换 "a" 和 "b"
-            PsiExpression qualifierExpression =
-                    equalsCall.getMethodExpression().getQualifierExpression();
-            assert qualifierExpression != null;
-            qualifierExpression.replace(lExpr);
-            equalsCall.getArgumentList().getExpressions()[0].replace(rExpr);
-           // 步骤 3：用替换树替换原始文件中的较大元素
-            PsiExpression result = (PsiExpression) binaryExpression.replace(equalsCall);
-
-            // Steps 4-6 needed only for negation
-            if (opSign == JavaTokenType.NE) {
-                // 步骤 4：创建一个带有否定和被否定的操作数占位符的替换片段
-                PsiPrefixExpression negation =
-                        (PsiPrefixExpression) factory.createExpressionFromText("!a", null);
-                PsiExpression operand = negation.getOperand();
-                assert operand != null;
-                // 步骤 5：用实际表达式替换操作数占位符
-                operand.replace(result);
-                // 步骤 6：用否定表达式替换结果
-                result.replace(negation);
+            // Nothing is compared to null, now check the types being compared
+            if (isStringType(lOperand, stringTypes) || isStringType(rOperand, stringTypes)) {
+                // Identified an expression with potential problems, register problem with the quick fix object
+                holder.registerProblem(expression,
+                        InspectionBundle.message("inspection.comparing.string.references.problem.descriptor"),
+                        myQuickFix);
             }
         }
+    }
 
-        @NotNull
-        public String getFamilyName() {
-            return getName();
+    /**
+     * 判断操作数是否为 {@code java.lang.String} 类型。
+     * 原始类型（包括 null 类型）和非类类型在任何解析之前被直接排除，
+     * 简单类名不是 "String" 的类型同样无需解析。
+     */
+    private static boolean isStringType(@NotNull PsiExpression operand, @NotNull Map<PsiType, Boolean> stringTypes) {
+        PsiType type = operand.getType();
+        // Fast path: primitives, the null type and arrays can never be a String
+        if (!(type instanceof PsiClassType classType)) {
+            return false;
         }
+        // The short class name comes from the reference text and needs no resolve
+        if (!"String".equals(classType.getClassName())) {
+            return false;
+        }
+        return stringTypes.computeIfAbsent(type,
+                t -> t.equalsToText(CommonClassNames.JAVA_LANG_STRING));
+    }
+
+    private static boolean isNullLiteral(PsiExpression expression) {
+        return expression instanceof PsiLiteralExpression &&
+                ((PsiLiteralExpression) expression).getValue() == null;
+    }
 
+    /**
+     * 在批处理模式下检查整个文件，供全局检查和无界面分析器使用。
+     * 候选比较由 {@link PatternOffsets} 在文件文本上找出，不遍历整棵 PSI 树。
+     * 调用方必须持有读操作。
+     *
+     * @param file    要检查的文件
+     * @param manager 用于创建问题描述的检查管理器
+     * @return 文件中发现的问题
+     */
+    @NotNull
+    public List<ProblemDescriptor> checkFile(@NotNull PsiFile file, @NotNull InspectionManager manager) {
+        // The PSI-free scanner finds the candidate operators, so only those comparisons are resolved
+        int[] offsets = PatternOffsets.scan(file.getViewProvider().getContents()).getStringComparisons();
+        return checkOffsets(file, offsets, manager);
+    }
+
+    /**
+     * 只在给定偏移量处的比较上运行本检查，供已经从 {@code PandaPatternIndex} 得到候选位置的批处理使用。
+     * 调用方必须持有读操作。
+     *
+     * @param file    要检查的文件
+     * @param offsets '==' 或 '!=' 运算符的偏移量
+     * @param manager 用于创建问题描述的检查管理器
+     * @return 这些位置上发现的问题
+     */
+    @NotNull
+    public List<ProblemDescriptor> checkOffsets(@NotNull PsiFile file, int @NotNull [] offsets,
+                                                @NotNull InspectionManager manager) {
+        long start = PandaMetrics.start();
+        ProblemsHolder holder = new ProblemsHolder(manager, file, false);
+        PsiElementVisitor visitor = createVisitor(holder, null);
+        for (int offset : offsets) {
+            PsiElement token = file.findElementAt(offset);
+            if (token != null && token.getParent() instanceof PsiBinaryExpression expression &&
+                    expression.getOperationSign() == token) {
+                expression.accept(visitor);
+            }
+        }
+        List<ProblemDescriptor> problems = holder.getResults();
+        if (start != 0) {
+            PandaMetrics.stop(PandaMetric.INSPECTION_FILE_VISIT, start);
+            PandaMetrics.addProblems(problems.size());
+        }
+        return problems;
+    }
+
+    /**
+     * 对给定元素及其所有子元素运行本检查的访问者。调用方必须持有读操作。
+     *
+     * @param root    要检查的子树的根
+     * @param manager 用于创建问题描述的检查管理器
+     * @return 子树中发现的问题
+     */
+    @NotNull
+    public List<ProblemDescriptor> checkElement(@NotNull PsiElement root, @NotNull InspectionManager manager) {
+        SharedJavaWalk walk = new SharedJavaWalk(root.getContainingFile(), manager);
+        ProblemsHolder holder = walk.add(this);
+        walk.run(root);
+        return holder.getResults();
     }
 
     @Override
@@ -0,0 +1,69 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.PsiPrefixExpression;
+import com.zhangchengk.panda.study.metrics.PandaMetrics;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 缓存 {@link ReplaceWithEqualsQuickFix} 使用的 PSI 原型。
+ * 每个原型只解析一次，之后每次替换只复制它，而不是重新从文本创建。
+ */
+@Service(Service.Level.PROJECT)
+final class EqualsTemplates {
+
+    private final Project myProject;
+
+    private PsiMethodCallExpression myEquals;
+    private PsiMethodCallExpression myObjectsEquals;
+    private PsiPrefixExpression myNegation;
+
+    EqualsTemplates(@NotNull Project project) {
+        myProject = project;
+    }
+
+    static EqualsTemplates getInstance(@NotNull Project project) {
+        return PandaMetrics.getService(project, EqualsTemplates.class);
+    }
+
+    /**
+     * @return {@code a.equals(b)} 的新副本。
+     */
+    @NotNull
+    synchronized PsiMethodCallExpression copyEquals() {
+        if (myEquals == null || !myEquals.isValid()) {
+            myEquals = (PsiMethodCallExpression) createExpression("a.equals(b)");
+        }
+        return (PsiMethodCallExpression) myEquals.copy();
+    }
+
+    /**
+     * @return {@code java.util.Objects.equals(a, b)} 的新副本。插入文件后需要缩短类引用。
+     */
+    @NotNull
+    synchronized PsiMethodCallExpression copyObjectsEquals() {
+        if (myObjectsEquals == null || !myObjectsEquals.isValid()) {
+            myObjectsEquals = (PsiMethodCallExpression) createExpression("java.util.Objects.equals(a, b)");
+        }
+        return (PsiMethodCallExpression) myObjectsEquals.copy();
+    }
+
+    /**
+     * @return {@code !a} 的新副本。
+     */
+    @NotNull
+    synchronized PsiPrefixExpression copyNegation() {
+        if (myNegation == null || !myNegation.isValid()) {
+            myNegation = (PsiPrefixExpression) createExpression("!a");
+        }
+        return (PsiPrefixExpression) myNegation.copy();
+    }
+
+    private PsiExpression createExpression(@NotNull String text) {
+        return JavaPsiFacade.getInstance(myProject).getElementFactory().createExpressionFromText(text, null);
+    }
+}
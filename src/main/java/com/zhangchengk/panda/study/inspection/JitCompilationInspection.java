@@ -0,0 +1,72 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.psi.PsiElementVisitor;
+import com.intellij.psi.PsiIdentifier;
+import com.intellij.psi.PsiMethod;
+import com.zhangchengk.panda.study.jit.CompilationLog;
+import com.zhangchengk.panda.study.jit.CompilationLogService;
+import com.zhangchengk.panda.study.jit.CompiledMethod;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 实现一个检查，根据导入的 {@code -XX:+LogCompilation} 日志在 Java 方法上报告 JIT 编译的问题：
+ * <ul>
+ *     <li>被编译的热点方法的字节码大于 {@code FreqInlineSize}，因此 C2 不会把它内联到调用方；</li>
+ *     <li>方法在调用点内联失败的原因，例如 "callee is too large"；</li>
+ *     <li>方法的编译代码在运行时被去优化的次数和原因。</li>
+ * </ul>
+ * 没有导入日志时检查不报告任何问题。日志的导入见 {@link com.zhangchengk.panda.study.jit.ImportCompilationLogAction}。
+ */
+public final class JitCompilationInspection extends AbstractBaseJavaLocalInspectionTool
+        implements PandaJavaInspection {
+
+    /**
+     * 提供一个访问者，在编译日志中有记录的方法名上报告问题。
+     * 访问者必须是非递归的，并且必须是线程安全的。
+     *
+     * @param holder     用于访问者注册发现的问题的对象
+     * @param isOnTheFly 如果检查是在非批处理模式下运行，则为 true
+     * @return 此检查的非空访问者
+     */
+    @NotNull
+    @Override
+    public PsiElementVisitor buildVisitor(@NotNull final ProblemsHolder holder, boolean isOnTheFly) {
+        CompilationLog log = CompilationLogService.getInstance(holder.getProject()).getLog();
+        if (log.isEmpty()) {
+            return PsiElementVisitor.EMPTY_VISITOR;
+        }
+        PandaNodeHandlers handlers = new PandaNodeHandlers();
+        registerHandlers(handlers, holder);
+        return handlers.createVisitor();
+    }
+
+    @Override
+    public void registerHandlers(@NotNull PandaNodeHandlers handlers, @NotNull ProblemsHolder holder) {
+        CompilationLog log = CompilationLogService.getInstance(holder.getProject()).getLog();
+        if (!log.isEmpty()) {
+            handlers.register(PsiMethod.class, method -> checkMethod(method, log, holder));
+        }
+    }
+
+    private static void checkMethod(@NotNull PsiMethod method, @NotNull CompilationLog log, @NotNull ProblemsHolder holder) {
+        PsiIdentifier name = method.getNameIdentifier();
+        CompiledMethod compiled = name == null ? null : log.find(method);
+        if (compiled == null) {
+            return;
+        }
+        if (compiled.getCompilations() > 0 && compiled.getBytecodeSize() > log.getFreqInlineSize()) {
+            holder.registerProblem(name, InspectionBundle.message("inspection.jit.compilation.too.big.descriptor",
+                    compiled.getBytecodeSize(), log.getFreqInlineSize()));
+        }
+        if (compiled.getInlineFailureCount() > 0) {
+            holder.registerProblem(name, InspectionBundle.message("inspection.jit.compilation.inline.failed.descriptor",
+                    compiled.getInlineFailureCount(), compiled.describeInlineFailures()));
+        }
+        if (compiled.getDeoptimizationCount() > 0) {
+            holder.registerProblem(name, InspectionBundle.message("inspection.jit.compilation.deoptimized.descriptor",
+                    compiled.getDeoptimizationCount(), compiled.describeDeoptimizations()));
+        }
+    }
+}
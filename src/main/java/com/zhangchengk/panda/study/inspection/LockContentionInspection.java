@@ -0,0 +1,1319 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.codeInsight.Nullability;
+import com.intellij.codeInsight.daemon.impl.analysis.HighlightControlFlowUtil;
+import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.codeInspection.dataFlow.NullabilityUtil;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtilRt;
+import com.intellij.psi.*;
+import com.intellij.psi.codeStyle.JavaCodeStyleManager;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.util.InheritanceUtil;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.PsiUtil;
+import com.intellij.psi.util.TypeConversionUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 实现一个检查，用于检测在多核上限制扩展性的锁竞争：
+ * <ul>
+ *     <li>只更新一个计数器字段（{@code ++}、{@code --}、{@code +=}、{@code -=}）的 synchronized 方法或代码块；</li>
+ *     <li>只对一个 Map 字段执行一次更新的 synchronized 方法或代码块；</li>
+ *     <li>对一个 ConcurrentMap 字段只按同一个键访问、却锁住所有键的 synchronized 方法或代码块；</li>
+ *     <li>{@code Collections.synchronizedMap(new HashMap<>())}，以及 Hashtable 和 Vector 类型的字段；</li>
+ *     <li>对 ConcurrentMap 的先检查后执行（check-then-act），例如 {@code if (!map.containsKey(k)) map.put(k, v)}。</li>
+ * </ul>
+ * 快速修复把计数器改为 LongAdder 或 AtomicInteger/AtomicLong，把 Map 改为 ConcurrentHashMap 并使用
+ * {@code merge}/{@code computeIfAbsent}，或者把整个对象上的锁改为按键分段的锁（lock striping）。
+ * 只有当字段是私有的、并且文件中对它的所有访问都能安全改写时，才提供改写字段的快速修复。
+ * Vector 只报告、不提供快速修复：CopyOnWriteArrayList 只适合很少修改的列表，每次写入都复制整个数组。
+ */
+public final class LockContentionInspection extends AbstractBaseJavaLocalInspectionTool
+        implements PandaJavaInspection {
+
+    private static final String CONCURRENT_MAP = "java.util.concurrent.ConcurrentMap";
+    private static final String CONCURRENT_HASH_MAP = "java.util.concurrent.ConcurrentHashMap";
+    private static final String HASH_MAP = "java.util.HashMap";
+    private static final String LONG_ADDER = "java.util.concurrent.atomic.LongAdder";
+
+    private static final String HASHTABLE = "java.util.Hashtable";
+    private static final String VECTOR = "java.util.Vector";
+
+    /**
+     * 只在 Hashtable 上存在的方法；字段声明为 Hashtable 并调用了这些方法时不能替换。
+     */
+    private static final Set<String> LEGACY_ONLY_METHODS = Set.of("elements", "keys", "contains", "rehash");
+    private static final Set<String> MAP_UPDATE_METHODS = Set.of("put", "remove", "putIfAbsent", "putAll", "clear",
+            "merge", "compute", "computeIfAbsent", "computeIfPresent", "replace");
+    private static final Map<String, String> SUM_FUNCTIONS = Map.of(
+            CommonClassNames.JAVA_LANG_INTEGER, "Integer::sum",
+            CommonClassNames.JAVA_LANG_LONG, "Long::sum",
+            CommonClassNames.JAVA_LANG_DOUBLE, "Double::sum");
+    private static final int STRIPES = 16;
+
+    /**
+     * 对计数器字段的一次访问的种类。
+     */
+    private enum Access {
+        /** 作为语句的 {@code ++}、{@code --}、{@code +=}、{@code -=} */
+        UPDATE,
+        /** 结果被使用的更新，例如 {@code return ++count} */
+        UPDATE_VALUE,
+        /** 作为语句的赋值，右侧不读取字段 */
+        STORE,
+        READ,
+        UNSUPPORTED
+    }
+
+    /**
+     * {@code map.put(k, map.getOrDefault(k, 0) + n)} 或 {@code map.put(k, map.get(k) + n)}。
+     */
+    private record CountingPut(@NotNull PsiReferenceExpression map, @NotNull PsiExpression key,
+                               @NotNull PsiExpression increment) {
+    }
+
+    /**
+     * 可以改写为 {@code computeIfAbsent} 的先检查后执行：{@code variable} 不为 {@code null} 时，
+     * 它是用 {@code map.get(key)} 初始化的局部变量。
+     */
+    private record PutIfAbsent(@NotNull PsiReferenceExpression map, @NotNull PsiExpression key,
+                               @NotNull PsiExpression value, @Nullable PsiLocalVariable variable) {
+    }
+
+    /**
+     * 一个可以按键分段加锁的 synchronized 区域：区域内只按同一个键访问同一个 ConcurrentMap 字段。
+     */
+    private record StripeTarget(@NotNull PsiField map, @NotNull PsiExpression key) {
+    }
+
+    /**
+     * synchronized 区域锁住的对象：{@code instance} 为 true 时是 {@code target} 类的当前实例，
+     * 否则是 {@code target} 类的 Class 对象，或者 {@code target} 字段引用的对象。
+     */
+    private record Monitor(@NotNull PsiElement target, boolean instance) {
+    }
+
+    /**
+     * 提供一个访问者，检查 synchronized 区域、同步集合和对 ConcurrentMap 的先检查后执行。
+     * 访问者必须是非递归的，并且必须是线程安全的。
+     *
+     * @param holder     用于访问者注册发现的问题的对象
+     * @param isOnTheFly 如果检查是在非批处理模式下运行，则为 true
+     * @return 此检查的非空访问者
+     */
+    @NotNull
+    @Override
+    public PsiElementVisitor buildVisitor(@NotNull final ProblemsHolder holder, boolean isOnTheFly) {
+        PandaNodeHandlers handlers = new PandaNodeHandlers();
+        registerHandlers(handlers, holder);
+        return handlers.createVisitor();
+    }
+
+    @Override
+    public void registerHandlers(@NotNull PandaNodeHandlers handlers, @NotNull ProblemsHolder holder) {
+        handlers.register(PsiMethod.class, method -> {
+            if (method.hasModifierProperty(PsiModifier.SYNCHRONIZED) && method.getBody() != null) {
+                checkRegion(method, holder);
+            }
+        });
+        handlers.register(PsiSynchronizedStatement.class, statement -> {
+            if (statement.getBody() != null) {
+                checkRegion(statement, holder);
+            }
+        });
+        handlers.register(PsiField.class, field -> checkLegacyCollection(field, holder));
+        handlers.register(PsiMethodCallExpression.class, call -> checkCall(call, holder));
+        handlers.register(PsiIfStatement.class, statement -> checkCheckThenAct(statement, holder));
+    }
+
+    private static void checkRegion(@NotNull PsiElement region, @NotNull ProblemsHolder holder) {
+        PsiElement anchor = getSynchronizedKeyword(region);
+        PsiStatement statement = getSingleStatement(region);
+        PsiField counter = statement == null ? null : getUpdatedCounter(statement);
+        if (counter != null) {
+            List<LocalQuickFix> fixes = new ArrayList<>(2);
+            if (canConvertCounter(counter, true)) {
+                fixes.add(new ConvertCounterQuickFix(counter.getName(), LONG_ADDER));
+            }
+            if (canConvertCounter(counter, false)) {
+                fixes.add(new ConvertCounterQuickFix(counter.getName(), getAtomicClass(counter)));
+            }
+            holder.registerProblem(anchor,
+                    InspectionBundle.message("inspection.lock.contention.counter.descriptor", counter.getName()),
+                    fixes.toArray(LocalQuickFix.EMPTY_ARRAY));
+            return;
+        }
+        PsiField map = statement == null ? null : getUpdatedMap(statement);
+        if (map != null) {
+            String message = InspectionBundle.message("inspection.lock.contention.map.descriptor", map.getName());
+            if (canConvertMap(map)) {
+                holder.registerProblem(anchor, message, new ConvertToConcurrentMapQuickFix(map.getName()));
+            } else {
+                holder.registerProblem(anchor, message);
+            }
+            return;
+        }
+        StripeTarget target = getStripeTarget(region);
+        if (target != null) {
+            String message = InspectionBundle.message("inspection.lock.contention.striping.descriptor", target.map().getName());
+            if (getStripeRegions(region, target.map()) != null) {
+                holder.registerProblem(anchor, message, new StripeLockQuickFix());
+            } else {
+                holder.registerProblem(anchor, message);
+            }
+        }
+    }
+
+    private static void checkLegacyCollection(@NotNull PsiField field, @NotNull ProblemsHolder holder) {
+        PsiIdentifier name = field.getNameIdentifier();
+        String legacy = getLegacyCollection(field);
+        if (legacy == null) {
+            return;
+        }
+        String message = InspectionBundle.message("inspection.lock.contention.legacy.collection.descriptor",
+                field.getName(), StringUtilRt.getShortName(legacy));
+        if (HASHTABLE.equals(legacy) && canReplaceLegacyCollection(field)) {
+            holder.registerProblem(name, message, new ReplaceLegacyCollectionQuickFix(CONCURRENT_HASH_MAP));
+        } else {
+            holder.registerProblem(name, message);
+        }
+    }
+
+    private static void checkCall(@NotNull PsiMethodCallExpression call, @NotNull ProblemsHolder holder) {
+        String name = call.getMethodExpression().getReferenceName();
+        if ("synchronizedMap".equals(name)) {
+            PsiMethod method = call.resolveMethod();
+            PsiClass owner = method == null ? null : method.getContainingClass();
+            if (owner != null && "java.util.Collections".equals(owner.getQualifiedName())) {
+                String message = InspectionBundle.message("inspection.lock.contention.synchronized.map.descriptor");
+                if (canReplaceSynchronizedMap(call)) {
+                    holder.registerProblem(call, message, new ReplaceLegacyCollectionQuickFix(CONCURRENT_HASH_MAP));
+                } else {
+                    holder.registerProblem(call, message);
+                }
+            }
+        } else if ("put".equals(name) && !isInsideSynchronized(call)) {
+            CountingPut put = getCountingPut(call);
+            if (put != null && isConcurrentMap(put.map()) && getSumFunction(put.map()) != null &&
+                    call.getParent() instanceof PsiExpressionStatement) {
+                holder.registerProblem(call,
+                        InspectionBundle.message("inspection.lock.contention.check.then.act.descriptor", put.map().getText()),
+                        new AtomicMapUpdateQuickFix("merge"));
+            }
+        }
+    }
+
+    private static void checkCheckThenAct(@NotNull PsiIfStatement statement, @NotNull ProblemsHolder holder) {
+        if (statement.getElseBranch() != null || isInsideSynchronized(statement)) {
+            return;
+        }
+        PutIfAbsent update = getPutIfAbsent(statement);
+        if (update != null && isConcurrentMap(update.map())) {
+            holder.registerProblem(statement.getFirstChild(),
+                    InspectionBundle.message("inspection.lock.contention.check.then.act.descriptor", update.map().getText()),
+                    new AtomicMapUpdateQuickFix("computeIfAbsent"));
+        }
+    }
+
+    // ---------------------------------------------------------------- synchronized regions
+
+    /**
+     * @return 包含元素的 synchronized 代码块或 synchronized 方法；不跨越 lambda 和类的边界。
+     */
+    @Nullable
+    private static PsiElement findSynchronizedRegion(@NotNull PsiElement element) {
+        for (PsiElement parent = element.getParent(); parent != null; parent = parent.getParent()) {
+            if (parent instanceof PsiSynchronizedStatement) {
+                return parent;
+            }
+            if (parent instanceof PsiMethod method) {
+                return method.hasModifierProperty(PsiModifier.SYNCHRONIZED) ? method : null;
+            }
+            if (parent instanceof PsiLambdaExpression || parent instanceof PsiClass || parent instanceof PsiFile) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isInsideSynchronized(@NotNull PsiElement element) {
+        return findSynchronizedRegion(element) != null;
+    }
+
+    @Nullable
+    private static PsiCodeBlock getRegionBody(@NotNull PsiElement region) {
+        return region instanceof PsiMethod method ? method.getBody() : ((PsiSynchronizedStatement) region).getBody();
+    }
+
+    @Nullable
+    private static PsiStatement getSingleStatement(@NotNull PsiElement region) {
+        PsiCodeBlock body = getRegionBody(region);
+        PsiStatement[] statements = body == null ? PsiStatement.EMPTY_ARRAY : body.getStatements();
+        return statements.length == 1 ? statements[0] : null;
+    }
+
+    @NotNull
+    private static PsiElement getSynchronizedKeyword(@NotNull PsiElement region) {
+        if (region instanceof PsiMethod method) {
+            for (PsiElement child : method.getModifierList().getChildren()) {
+                if (child instanceof PsiKeyword && PsiKeyword.SYNCHRONIZED.equals(child.getText())) {
+                    return child;
+                }
+            }
+            PsiIdentifier name = method.getNameIdentifier();
+            return name == null ? method : name;
+        }
+        return region.getFirstChild();
+    }
+
+    /**
+     * @return 快速修复的问题元素（synchronized 关键字）所在的区域。
+     */
+    @Nullable
+    private static PsiElement getRegionOfKeyword(@NotNull PsiElement keyword) {
+        PsiElement parent = keyword.getParent();
+        if (parent instanceof PsiSynchronizedStatement) {
+            return parent;
+        }
+        PsiMethod method = PsiTreeUtil.getParentOfType(keyword, PsiMethod.class, false);
+        return method != null && method.hasModifierProperty(PsiModifier.SYNCHRONIZED) ? method : null;
+    }
+
+    /**
+     * @return 区域锁住的对象；锁表达式是其他表达式时返回 {@code null}，因为无法判断它与另一个区域的锁是否是同一个对象。
+     * 分段锁 {@code locks[i]} 按数组字段识别，它与 {@code this}、Class 对象和其他字段都不同。
+     */
+    @Nullable
+    private static Monitor getMonitor(@NotNull PsiElement region) {
+        if (region instanceof PsiMethod method) {
+            PsiClass owner = method.getContainingClass();
+            return owner == null ? null : new Monitor(owner, !method.hasModifierProperty(PsiModifier.STATIC));
+        }
+        PsiExpression lock = PsiUtil.skipParenthesizedExprDown(((PsiSynchronizedStatement) region).getLockExpression());
+        if (lock instanceof PsiArrayAccessExpression arrayAccess) {
+            lock = PsiUtil.skipParenthesizedExprDown(arrayAccess.getArrayExpression());
+        }
+        if (lock instanceof PsiThisExpression thisExpression) {
+            PsiJavaCodeReferenceElement qualifier = thisExpression.getQualifier();
+            PsiElement owner = qualifier == null ? PsiTreeUtil.getParentOfType(region, PsiClass.class) : qualifier.resolve();
+            return owner instanceof PsiClass ? new Monitor(owner, true) : null;
+        }
+        if (lock instanceof PsiClassObjectAccessExpression classObject) {
+            PsiClass target = PsiUtil.resolveClassInClassTypeOnly(classObject.getOperand().getType());
+            return target == null ? null : new Monitor(target, false);
+        }
+        if (lock instanceof PsiReferenceExpression reference && reference.resolve() instanceof PsiField field &&
+                field.hasModifierProperty(PsiModifier.PRIVATE) && field.hasModifierProperty(PsiModifier.FINAL)) {
+            return new Monitor(field, false);
+        }
+        return null;
+    }
+
+    private static boolean isStriped(@NotNull PsiElement region) {
+        return region instanceof PsiSynchronizedStatement statement &&
+                PsiUtil.skipParenthesizedExprDown(statement.getLockExpression()) instanceof PsiArrayAccessExpression;
+    }
+
+    /**
+     * 去掉只剩一个无锁操作的区域上的锁：synchronized 方法去掉修饰符，synchronized 代码块替换为其中的语句。
+     */
+    private static void unwrap(@NotNull PsiElement region) {
+        if (!region.isValid()) {
+            return;
+        }
+        if (region instanceof PsiMethod method) {
+            method.getModifierList().setModifierProperty(PsiModifier.SYNCHRONIZED, false);
+        } else {
+            PsiStatement statement = getSingleStatement(region);
+            if (statement != null) {
+                region.replace(statement);
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- counters
+
+    /**
+     * @return 语句是对 int/long 字段的 {@code ++}、{@code --}、{@code +=} 或 {@code -=} 时返回该字段。
+     */
+    @Nullable
+    private static PsiField getUpdatedCounter(@NotNull PsiStatement statement) {
+        if (!(statement instanceof PsiExpressionStatement expressionStatement)) {
+            return null;
+        }
+        PsiExpression expression = expressionStatement.getExpression();
+        PsiExpression operand;
+        if (expression instanceof PsiUnaryExpression unary && isIncrement(unary.getOperationTokenType())) {
+            operand = unary.getOperand();
+        } else if (expression instanceof PsiAssignmentExpression assignment && isCompoundAdd(assignment.getOperationTokenType())) {
+            operand = assignment.getLExpression();
+        } else {
+            return null;
+        }
+        if (!(PsiUtil.skipParenthesizedExprDown(operand) instanceof PsiReferenceExpression reference) ||
+                !(reference.resolve() instanceof PsiField field) || !isCounterType(field.getType())) {
+            return null;
+        }
+        return field;
+    }
+
+    private static boolean isIncrement(@NotNull IElementType operation) {
+        return operation == JavaTokenType.PLUSPLUS || operation == JavaTokenType.MINUSMINUS;
+    }
+
+    private static boolean isCompoundAdd(@NotNull IElementType operation) {
+        return operation == JavaTokenType.PLUSEQ || operation == JavaTokenType.MINUSEQ;
+    }
+
+    private static boolean isCounterType(@NotNull PsiType type) {
+        return PsiTypes.intType().equals(type) || PsiTypes.longType().equals(type);
+    }
+
+    @NotNull
+    private static String getAtomicClass(@NotNull PsiField counter) {
+        return PsiTypes.intType().equals(counter.getType())
+                ? "java.util.concurrent.atomic.AtomicInteger"
+                : "java.util.concurrent.atomic.AtomicLong";
+    }
+
+    @NotNull
+    private static Access classify(@NotNull PsiReferenceExpression reference, @NotNull PsiField field) {
+        PsiElement parent = PsiUtil.skipParenthesizedExprUp(reference.getParent());
+        if (parent instanceof PsiUnaryExpression unary && isIncrement(unary.getOperationTokenType())) {
+            return unary.getParent() instanceof PsiExpressionStatement ? Access.UPDATE : Access.UPDATE_VALUE;
+        }
+        if (parent instanceof PsiAssignmentExpression assignment &&
+                PsiTreeUtil.isAncestor(assignment.getLExpression(), reference, false)) {
+            PsiExpression rExpression = assignment.getRExpression();
+            if (rExpression == null || references(rExpression, field)) {
+                return Access.UNSUPPORTED;
+            }
+            boolean statement = assignment.getParent() instanceof PsiExpressionStatement;
+            IElementType operation = assignment.getOperationTokenType();
+            if (isCompoundAdd(operation)) {
+                return statement ? Access.UPDATE : Access.UPDATE_VALUE;
+            }
+            return operation == JavaTokenType.EQ && statement ? Access.STORE : Access.UNSUPPORTED;
+        }
+        return PsiUtil.isAccessedForWriting(reference) ? Access.UNSUPPORTED : Access.READ;
+    }
+
+    /**
+     * 计数器可以改写的条件：字段是私有的，文件中没有无法改写的写操作，
+     * 并且所有更新要么不在 synchronized 区域中，要么所在区域只有这一次更新。
+     * 位于更大的 synchronized 区域中的更新可能与其他状态一起构成不变式，改为无锁后不再安全。
+     *
+     * @param longAdder 是否改写为 LongAdder：它不能返回更新后的值，只能重置为 0
+     */
+    private static boolean canConvertCounter(@NotNull PsiField counter, boolean longAdder) {
+        if (!counter.hasModifierProperty(PsiModifier.PRIVATE)) {
+            return false;
+        }
+        PsiExpression initializer = counter.getInitializer();
+        if (longAdder && initializer != null && !isZero(initializer)) {
+            return false;
+        }
+        for (PsiReferenceExpression reference : findReferences(counter)) {
+            switch (classify(reference, counter)) {
+                case UNSUPPORTED:
+                    return false;
+                case UPDATE_VALUE:
+                    if (longAdder) {
+                        return false;
+                    }
+                    // fall through
+                case UPDATE:
+                    PsiElement region = findSynchronizedRegion(reference);
+                    PsiStatement statement = region == null ? null : getSingleStatement(region);
+                    if (region != null && (statement == null || getUpdatedCounter(statement) != counter)) {
+                        return false;
+                    }
+                    break;
+                case STORE:
+                    PsiAssignmentExpression store = (PsiAssignmentExpression) PsiUtil.skipParenthesizedExprUp(reference.getParent());
+                    if (longAdder && !isZero(store.getRExpression())) {
+                        return false;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isZero(@Nullable PsiExpression expression) {
+        return PsiUtil.skipParenthesizedExprDown(expression) instanceof PsiLiteralExpression literal &&
+                literal.getValue() instanceof Number number && number.longValue() == 0;
+    }
+
+    /**
+     * 把计数器字段改为 {@code atomicClass} 类型，改写文件中对它的所有访问，并去掉只剩这次更新的区域上的锁。
+     */
+    private static void convertCounter(@NotNull Project project, @NotNull PsiField counter, @NotNull String atomicClass) {
+        // private long hits, misses;  -> only the converted field changes its type
+        counter.normalizeDeclaration();
+        boolean longAdder = LONG_ADDER.equals(atomicClass);
+        boolean isInt = PsiTypes.intType().equals(counter.getType());
+        PsiType counterType = counter.getType();
+        PsiElementFactory factory = JavaPsiFacade.getInstance(project).getElementFactory();
+
+        Set<PsiElement> regions = new LinkedHashSet<>();
+        for (PsiReferenceExpression reference : findReferences(counter)) {
+            Access access = classify(reference, counter);
+            String base = reference.getText();
+            PsiElement target = reference;
+            String replacement;
+            PsiElement parent = PsiUtil.skipParenthesizedExprUp(reference.getParent());
+            if (access == Access.UPDATE || access == Access.UPDATE_VALUE) {
+                PsiElement region = findSynchronizedRegion(reference);
+                if (region != null) {
+                    regions.add(region);
+                }
+                target = parent;
+                replacement = base + getUpdateCall(parent, access == Access.UPDATE, longAdder, counterType);
+            } else if (access == Access.STORE) {
+                target = parent;
+                PsiExpression value = ((PsiAssignmentExpression) parent).getRExpression();
+                replacement = longAdder ? base + ".reset()" : base + ".set(" + castIfNeeded(value, counterType) + ")";
+            } else {
+                replacement = base + (longAdder ? (isInt ? ".intValue()" : ".sum()") : ".get()");
+            }
+            target.replace(factory.createExpressionFromText(replacement, target));
+        }
+
+        PsiExpression initializer = counter.getInitializer();
+        String argument = longAdder || initializer == null ? "" : initializer.getText();
+        PsiTypeElement typeElement = counter.getTypeElement();
+        if (typeElement != null) {
+            typeElement.replace(factory.createTypeElementFromText(atomicClass, counter));
+        }
+        counter.setInitializer(factory.createExpressionFromText("new " + atomicClass + "(" + argument + ")", counter));
+        PsiModifierList modifiers = counter.getModifierList();
+        if (modifiers != null) {
+            modifiers.setModifierProperty(PsiModifier.VOLATILE, false);
+            modifiers.setModifierProperty(PsiModifier.FINAL, true);
+        }
+        JavaCodeStyleManager.getInstance(project).shortenClassReferences(counter);
+
+        for (PsiElement region : regions) {
+            unwrap(region);
+        }
+    }
+
+    @NotNull
+    private static String getUpdateCall(@NotNull PsiElement update, boolean statement, boolean longAdder, @NotNull PsiType type) {
+        if (update instanceof PsiUnaryExpression unary) {
+            boolean increment = unary.getOperationTokenType() == JavaTokenType.PLUSPLUS;
+            if (longAdder) {
+                return increment ? ".increment()" : ".decrement()";
+            }
+            if (statement || unary instanceof PsiPrefixExpression) {
+                return increment ? ".incrementAndGet()" : ".decrementAndGet()";
+            }
+            return increment ? ".getAndIncrement()" : ".getAndDecrement()";
+        }
+        PsiAssignmentExpression assignment = (PsiAssignmentExpression) update;
+        String delta = castIfNeeded(assignment.getRExpression(), type);
+        if (assignment.getOperationTokenType() == JavaTokenType.MINUSEQ) {
+            delta = "-(" + delta + ")";
+        }
+        return (longAdder ? ".add(" : ".addAndGet(") + delta + ")";
+    }
+
+    /**
+     * 复合赋值隐含一次窄化转换，改为方法参数后需要显式转换。
+     */
+    @NotNull
+    private static String castIfNeeded(@Nullable PsiExpression value, @NotNull PsiType type) {
+        if (value == null) {
+            return "0";
+        }
+        PsiType valueType = value.getType();
+        return valueType == null || TypeConversionUtil.isAssignable(type, valueType)
+                ? value.getText()
+                : "(" + type.getCanonicalText() + ") (" + value.getText() + ")";
+    }
+
+    // ---------------------------------------------------------------- maps
+
+    /**
+     * @return 语句是对一个 Map 字段的单次更新（或计数式的 {@code put}）时返回该字段。
+     */
+    @Nullable
+    private static PsiField getUpdatedMap(@NotNull PsiStatement statement) {
+        if (!(statement instanceof PsiExpressionStatement expressionStatement) ||
+                !(expressionStatement.getExpression() instanceof PsiMethodCallExpression call) ||
+                !MAP_UPDATE_METHODS.contains(call.getMethodExpression().getReferenceName()) ||
+                !(PsiUtil.skipParenthesizedExprDown(call.getMethodExpression().getQualifierExpression()) instanceof PsiReferenceExpression qualifier) ||
+                !(qualifier.resolve() instanceof PsiField field) ||
+                !InheritanceUtil.isInheritor(field.getType(), CommonClassNames.JAVA_UTIL_MAP)) {
+            return null;
+        }
+        CountingPut put = getCountingPut(call);
+        if (put != null) {
+            return getSumFunction(put.map()) == null ? null : field;
+        }
+        // Any other access to the map in the same statement would make it a compound operation
+        for (PsiReferenceExpression reference : PsiTreeUtil.findChildrenOfType(call.getArgumentList(), PsiReferenceExpression.class)) {
+            if (reference.isReferenceTo(field)) {
+                return null;
+            }
+        }
+        return field;
+    }
+
+    @Nullable
+    private static CountingPut getCountingPut(@NotNull PsiMethodCallExpression call) {
+        PsiExpression[] arguments = call.getArgumentList().getExpressions();
+        if (!"put".equals(call.getMethodExpression().getReferenceName()) || arguments.length != 2 ||
+                !(PsiUtil.skipParenthesizedExprDown(call.getMethodExpression().getQualifierExpression()) instanceof PsiReferenceExpression map) ||
+                !(PsiUtil.skipParenthesizedExprDown(arguments[1]) instanceof PsiBinaryExpression sum) ||
+                sum.getOperationTokenType() != JavaTokenType.PLUS || sum.getROperand() == null ||
+                !(PsiUtil.skipParenthesizedExprDown(sum.getLOperand()) instanceof PsiMethodCallExpression lookup) ||
+                !(PsiUtil.skipParenthesizedExprDown(lookup.getMethodExpression().getQualifierExpression()) instanceof PsiReferenceExpression lookupMap) ||
+                !isSameVariable(map, lookupMap)) {
+            return null;
+        }
+        String lookupName = lookup.getMethodExpression().getReferenceName();
+        PsiExpression[] lookupArguments = lookup.getArgumentList().getExpressions();
+        boolean matches = "get".equals(lookupName) && lookupArguments.length == 1 ||
+                "getOrDefault".equals(lookupName) && lookupArguments.length == 2 && isZero(lookupArguments[1]);
+        if (!matches || !isSimpleKey(arguments[0]) || !arguments[0].getText().equals(lookupArguments[0].getText())) {
+            return null;
+        }
+        return new CountingPut(map, arguments[0], sum.getROperand());
+    }
+
+    /**
+     * @return 与 Map 值类型对应的求和函数，例如 {@code Integer::sum}；值类型不是数字包装类型时返回 {@code null}。
+     */
+    @Nullable
+    private static String getSumFunction(@NotNull PsiReferenceExpression map) {
+        PsiType valueType = PsiUtil.substituteTypeParameter(map.getType(), CommonClassNames.JAVA_UTIL_MAP, 1, false);
+        return valueType == null ? null : SUM_FUNCTIONS.get(valueType.getCanonicalText());
+    }
+
+    /**
+     * Map 字段可以改为 ConcurrentHashMap 的条件：字段是私有的，用 {@code new HashMap} 或 {@code new ConcurrentHashMap} 初始化，
+     * 满足 {@link #canUseConcurrentHashMap}，并且它出现在的所有 synchronized 区域都只有对它的一次更新。
+     */
+    private static boolean canConvertMap(@NotNull PsiField map) {
+        if (!map.hasModifierProperty(PsiModifier.PRIVATE) ||
+                !(PsiUtil.skipParenthesizedExprDown(map.getInitializer()) instanceof PsiNewExpression creation) ||
+                creation.getAnonymousClass() != null || creation.getClassReference() == null) {
+            return false;
+        }
+        String created = creation.getClassReference().getQualifiedName();
+        if (!HASH_MAP.equals(created) && !CONCURRENT_HASH_MAP.equals(created) ||
+                !canUseConcurrentHashMap(map, HASH_MAP.equals(created))) {
+            return false;
+        }
+        for (PsiReferenceExpression reference : findReferences(map)) {
+            PsiElement region = findSynchronizedRegion(reference);
+            PsiStatement statement = region == null ? null : getSingleStatement(region);
+            if (region != null && (statement == null || getUpdatedMap(statement) != map)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void convertMap(@NotNull Project project, @NotNull PsiField map) {
+        PsiElementFactory factory = JavaPsiFacade.getInstance(project).getElementFactory();
+        Set<PsiElement> regions = new LinkedHashSet<>();
+        for (PsiReferenceExpression reference : findReferences(map)) {
+            PsiElement region = findSynchronizedRegion(reference);
+            if (region != null) {
+                regions.add(region);
+            }
+        }
+        for (PsiElement region : regions) {
+            PsiStatement statement = getSingleStatement(region);
+            if (statement instanceof PsiExpressionStatement expressionStatement &&
+                    expressionStatement.getExpression() instanceof PsiMethodCallExpression call) {
+                replaceCountingPut(factory, call);
+            }
+        }
+        replaceCollectionType(project, map, CONCURRENT_HASH_MAP);
+        for (PsiElement region : regions) {
+            unwrap(region);
+        }
+    }
+
+    /**
+     * 把计数式的 {@code put} 改写为原子的 {@code merge}。
+     */
+    private static void replaceCountingPut(@NotNull PsiElementFactory factory, @NotNull PsiMethodCallExpression call) {
+        CountingPut put = getCountingPut(call);
+        String sum = put == null ? null : getSumFunction(put.map());
+        if (sum != null) {
+            call.replace(factory.createExpressionFromText(put.map().getText() + ".merge(" + put.key().getText() + ", " +
+                    put.increment().getText() + ", " + sum + ")", call));
+        }
+    }
+
+    /**
+     * Map 变量可以换成 ConcurrentHashMap 的条件：之后不再被赋值，并且只作为方法调用的限定符使用。
+     * 这排除了 {@code synchronized (map)}：换成 ConcurrentHashMap 后它的方法不再持有这个锁，
+     * 也排除了把 Map 传到别处，因为别处可能这样加锁。
+     *
+     * @param checkNulls 是否要求所有方法参数都不是 {@code null}；原来的 Map 接受 {@code null} 键和值时需要检查，
+     *                   ConcurrentHashMap 对它们抛出 NullPointerException
+     */
+    private static boolean canUseConcurrentHashMap(@NotNull PsiVariable map, boolean checkNulls) {
+        for (PsiReferenceExpression reference : findReferences(map)) {
+            if (PsiUtil.isAccessedForWriting(reference) ||
+                    !(reference.getParent() instanceof PsiReferenceExpression methodExpression) ||
+                    !(methodExpression.getParent() instanceof PsiMethodCallExpression call) ||
+                    // putAll() copies from a map whose entries cannot be checked
+                    checkNulls && "putAll".equals(methodExpression.getReferenceName())) {
+                return false;
+            }
+            if (checkNulls) {
+                for (PsiExpression argument : call.getArgumentList().getExpressions()) {
+                    if (!isNotNull(argument)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNotNull(@NotNull PsiExpression argument) {
+        PsiExpression expression = PsiUtil.skipParenthesizedExprDown(argument);
+        if (expression == null || expression instanceof PsiFunctionalExpression) {
+            return true;
+        }
+        if (expression.getType() instanceof PsiPrimitiveType type) {
+            return !PsiTypes.nullType().equals(type);
+        }
+        return NullabilityUtil.getExpressionNullability(expression, true) == Nullability.NOT_NULL;
+    }
+
+    private static boolean isConcurrentMap(@NotNull PsiReferenceExpression map) {
+        return InheritanceUtil.isInheritor(map.getType(), CONCURRENT_MAP);
+    }
+
+    // ---------------------------------------------------------------- check-then-act
+
+    @Nullable
+    private static PutIfAbsent getPutIfAbsent(@NotNull PsiIfStatement statement) {
+        PsiExpression condition = PsiUtil.skipParenthesizedExprDown(statement.getCondition());
+        PsiStatement[] then = getStatements(statement.getThenBranch());
+        if (condition == null) {
+            return null;
+        }
+        // if (!map.containsKey(k)) map.put(k, v);  or  if (map.get(k) == null) map.put(k, v);
+        PsiMethodCallExpression check = getAbsenceCheck(condition);
+        if (check != null && then.length == 1) {
+            PsiMethodCallExpression put = getPut(then[0]);
+            if (put != null && isSameMapAndKey(check, put)) {
+                PsiExpression[] arguments = put.getArgumentList().getExpressions();
+                return new PutIfAbsent(getQualifier(put), arguments[0], arguments[1], null);
+            }
+            return null;
+        }
+        // V v = map.get(k); if (v == null) { v = create(); map.put(k, v); }
+        if (!(condition instanceof PsiBinaryExpression nullCheck) || nullCheck.getOperationTokenType() != JavaTokenType.EQEQ ||
+                then.length != 2 ||
+                !(getNullComparedOperand(nullCheck) instanceof PsiReferenceExpression checked) ||
+                !(checked.resolve() instanceof PsiLocalVariable variable) ||
+                !(PsiUtil.skipParenthesizedExprDown(variable.getInitializer()) instanceof PsiMethodCallExpression get) ||
+                !"get".equals(get.getMethodExpression().getReferenceName()) ||
+                get.getArgumentList().getExpressionCount() != 1 ||
+                !(variable.getParent() instanceof PsiDeclarationStatement declaration) ||
+                declaration.getDeclaredElements().length != 1 ||
+                PsiTreeUtil.skipWhitespacesAndCommentsBackward(statement) != declaration ||
+                !(then[0] instanceof PsiExpressionStatement first) ||
+                !(first.getExpression() instanceof PsiAssignmentExpression assignment) ||
+                assignment.getOperationTokenType() != JavaTokenType.EQ ||
+                !(PsiUtil.skipParenthesizedExprDown(assignment.getLExpression()) instanceof PsiReferenceExpression assigned) ||
+                !assigned.isReferenceTo(variable) || assignment.getRExpression() == null) {
+            return null;
+        }
+        PsiMethodCallExpression put = getPut(then[1]);
+        if (put == null || !isSameMapAndKey(get, put) ||
+                !(PsiUtil.skipParenthesizedExprDown(put.getArgumentList().getExpressions()[1]) instanceof PsiReferenceExpression value) ||
+                !value.isReferenceTo(variable)) {
+            return null;
+        }
+        return new PutIfAbsent(getQualifier(put), put.getArgumentList().getExpressions()[0], assignment.getRExpression(), variable);
+    }
+
+    @Nullable
+    private static PsiMethodCallExpression getAbsenceCheck(@NotNull PsiExpression condition) {
+        if (condition instanceof PsiPrefixExpression negation && negation.getOperationTokenType() == JavaTokenType.EXCL &&
+                PsiUtil.skipParenthesizedExprDown(negation.getOperand()) instanceof PsiMethodCallExpression call &&
+                "containsKey".equals(call.getMethodExpression().getReferenceName())) {
+            return call;
+        }
+        if (condition instanceof PsiBinaryExpression binary && binary.getOperationTokenType() == JavaTokenType.EQEQ &&
+                getNullComparedOperand(binary) instanceof PsiMethodCallExpression call &&
+                "get".equals(call.getMethodExpression().getReferenceName())) {
+            return call;
+        }
+        return null;
+    }
+
+    @Nullable
+    private static PsiExpression getNullComparedOperand(@NotNull PsiBinaryExpression binary) {
+        PsiExpression left = PsiUtil.skipParenthesizedExprDown(binary.getLOperand());
+        PsiExpression right = PsiUtil.skipParenthesizedExprDown(binary.getROperand());
+        if (right != null && PsiTypes.nullType().equals(right.getType())) {
+            return left;
+        }
+        return left != null && PsiTypes.nullType().equals(left.getType()) ? right : null;
+    }
+
+    @Nullable
+    private static PsiMethodCallExpression getPut(@NotNull PsiStatement statement) {
+        return statement instanceof PsiExpressionStatement expressionStatement &&
+                expressionStatement.getExpression() instanceof PsiMethodCallExpression call &&
+                "put".equals(call.getMethodExpression().getReferenceName()) &&
+                call.getArgumentList().getExpressionCount() == 2 &&
+                getQualifier(call) != null ? call : null;
+    }
+
+    private static boolean isSameMapAndKey(@NotNull PsiMethodCallExpression check, @NotNull PsiMethodCallExpression put) {
+        PsiReferenceExpression checkedMap = getQualifier(check);
+        PsiReferenceExpression putMap = getQualifier(put);
+        PsiExpression[] checkArguments = check.getArgumentList().getExpressions();
+        PsiExpression key = put.getArgumentList().getExpressions()[0];
+        return checkedMap != null && putMap != null && isSameVariable(checkedMap, putMap) &&
+                checkArguments.length == 1 && isSimpleKey(key) && key.getText().equals(checkArguments[0].getText());
+    }
+
+    @Nullable
+    private static PsiReferenceExpression getQualifier(@NotNull PsiMethodCallExpression call) {
+        return PsiUtil.skipParenthesizedExprDown(call.getMethodExpression().getQualifierExpression())
+                instanceof PsiReferenceExpression qualifier ? qualifier : null;
+    }
+
+    private static boolean isSameVariable(@NotNull PsiReferenceExpression a, @NotNull PsiReferenceExpression b) {
+        PsiElement target = a.resolve();
+        return target instanceof PsiVariable && a.getText().equals(b.getText()) && target == b.resolve();
+    }
+
+    /**
+     * 键必须没有副作用，这样检查和更新使用的才是同一个值。
+     */
+    private static boolean isSimpleKey(@NotNull PsiExpression key) {
+        PsiExpression expression = PsiUtil.skipParenthesizedExprDown(key);
+        return expression instanceof PsiLiteralExpression ||
+                expression instanceof PsiReferenceExpression reference && reference.resolve() instanceof PsiVariable;
+    }
+
+    @NotNull
+    private static PsiStatement[] getStatements(@Nullable PsiStatement branch) {
+        if (branch instanceof PsiBlockStatement block) {
+            return block.getCodeBlock().getStatements();
+        }
+        return branch == null ? PsiStatement.EMPTY_ARRAY : new PsiStatement[]{branch};
+    }
+
+    /**
+     * 值表达式移入 lambda 后，其中引用的局部变量必须是 effectively final 的。
+     */
+    private static boolean canMoveIntoLambda(@NotNull PsiExpression expression, @NotNull PsiElement scope) {
+        for (PsiReferenceExpression reference : PsiTreeUtil.findChildrenOfType(expression, PsiReferenceExpression.class)) {
+            if (reference.resolve() instanceof PsiVariable variable && !(variable instanceof PsiField) &&
+                    !HighlightControlFlowUtil.isEffectivelyFinal(variable, scope, null)) {
+                return false;
+            }
+        }
+        return !(expression instanceof PsiReferenceExpression reference) ||
+                !(reference.resolve() instanceof PsiVariable variable) || variable instanceof PsiField ||
+                HighlightControlFlowUtil.isEffectivelyFinal(variable, scope, null);
+    }
+
+    // ---------------------------------------------------------------- lock striping
+
+    /**
+     * @return 区域中的代码只按同一个键（不在区域内修改的局部变量或参数）访问同一个 ConcurrentMap 字段时，返回该字段和键。
+     */
+    @Nullable
+    private static StripeTarget getStripeTarget(@NotNull PsiElement region) {
+        PsiCodeBlock body = getRegionBody(region);
+        if (body == null || isStriped(region)) {
+            return null;
+        }
+        PsiField map = null;
+        PsiExpression key = null;
+        for (PsiReferenceExpression reference : PsiTreeUtil.findChildrenOfType(body, PsiReferenceExpression.class)) {
+            PsiElement target = reference.resolve();
+            if (target instanceof PsiMethod method && reference.getQualifierExpression() == null &&
+                    !method.hasModifierProperty(PsiModifier.STATIC)) {
+                // An instance method of the class may touch other state under the same lock
+                return null;
+            }
+            if (!(target instanceof PsiField field)) {
+                continue;
+            }
+            if (map == null) {
+                map = field;
+            } else if (map != field) {
+                return null;
+            }
+            if (!(reference.getParent() instanceof PsiReferenceExpression methodExpression) ||
+                    !(methodExpression.getParent() instanceof PsiMethodCallExpression call) ||
+                    PsiUtil.isAccessedForWriting(reference)) {
+                return null;
+            }
+            PsiExpression[] arguments = call.getArgumentList().getExpressions();
+            if (arguments.length == 0 || key != null && !key.getText().equals(arguments[0].getText())) {
+                return null;
+            }
+            key = arguments[0];
+        }
+        if (map == null || key == null || !InheritanceUtil.isInheritor(map.getType(), CONCURRENT_MAP) ||
+                !(PsiUtil.skipParenthesizedExprDown(key) instanceof PsiReferenceExpression keyReference) ||
+                !(keyReference.resolve() instanceof PsiVariable keyVariable) || keyVariable instanceof PsiField ||
+                PsiTreeUtil.isAncestor(body, keyVariable, true) || isWrittenIn(keyVariable, body) ||
+                usesMonitor(body)) {
+            return null;
+        }
+        return new StripeTarget(map, key);
+    }
+
+    /**
+     * 分段加锁后原来的锁不再保护 Map，因此必须一起改写所有在同一个锁下访问 Map 的区域。
+     *
+     * @return 与 {@code region} 锁住同一个对象并访问 {@code map} 的所有区域；其中有不能按键分段加锁的区域，
+     * Map 在锁住未知对象的区域中被访问，或者通过其他对象访问时返回 {@code null}
+     */
+    @Nullable
+    private static Set<PsiElement> getStripeRegions(@NotNull PsiElement region, @NotNull PsiField map) {
+        Monitor monitor = getMonitor(region);
+        if (monitor == null || !map.hasModifierProperty(PsiModifier.PRIVATE)) {
+            return null;
+        }
+        Set<PsiElement> regions = new LinkedHashSet<>();
+        for (PsiReferenceExpression reference : findReferences(map)) {
+            PsiExpression qualifier = reference.getQualifierExpression();
+            if (qualifier != null && !(qualifier instanceof PsiThisExpression)) {
+                return null;
+            }
+            PsiElement locked = null;
+            for (PsiElement enclosing = findSynchronizedRegion(reference); enclosing != null;
+                 enclosing = findSynchronizedRegion(enclosing)) {
+                Monitor enclosingMonitor = getMonitor(enclosing);
+                if (enclosingMonitor == null || enclosingMonitor.equals(monitor) && locked != null) {
+                    return null;
+                }
+                if (enclosingMonitor.equals(monitor)) {
+                    locked = enclosing;
+                }
+            }
+            if (locked != null) {
+                StripeTarget target = getStripeTarget(locked);
+                if (target == null || target.map() != map) {
+                    return null;
+                }
+                regions.add(locked);
+            }
+        }
+        return regions;
+    }
+
+    private static boolean isWrittenIn(@NotNull PsiVariable variable, @NotNull PsiElement scope) {
+        for (PsiReferenceExpression reference : PsiTreeUtil.findChildrenOfType(scope, PsiReferenceExpression.class)) {
+            if (reference.isReferenceTo(variable) && PsiUtil.isAccessedForWriting(reference)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean usesMonitor(@NotNull PsiElement scope) {
+        for (PsiMethodCallExpression call : PsiTreeUtil.findChildrenOfType(scope, PsiMethodCallExpression.class)) {
+            String name = call.getMethodExpression().getReferenceName();
+            if ("wait".equals(name) || "notify".equals(name) || "notifyAll".equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ---------------------------------------------------------------- legacy collections
+
+    /**
+     * @return 字段的声明类型或初始值是 Hashtable 或 Vector 时返回该类的全限定名。
+     */
+    @Nullable
+    private static String getLegacyCollection(@NotNull PsiField field) {
+        PsiClass declared = PsiUtil.resolveClassInClassTypeOnly(field.getType());
+        if (declared != null && isLegacyCollection(declared.getQualifiedName())) {
+            return declared.getQualifiedName();
+        }
+        if (PsiUtil.skipParenthesizedExprDown(field.getInitializer()) instanceof PsiNewExpression creation &&
+                creation.getAnonymousClass() == null && creation.getClassReference() != null &&
+                isLegacyCollection(creation.getClassReference().getQualifiedName())) {
+            return creation.getClassReference().getQualifiedName();
+        }
+        return null;
+    }
+
+    private static boolean isLegacyCollection(@Nullable String qualifiedName) {
+        return HASHTABLE.equals(qualifiedName) || VECTOR.equals(qualifiedName);
+    }
+
+    /**
+     * 字段必须是私有的并满足 {@link #canUseConcurrentHashMap}；Hashtable 本身不接受 {@code null}，因此不需要检查参数。
+     * 字段声明为接口类型时只需替换初始值；声明为 Hashtable 时还不能调用 Hashtable 特有的方法。
+     */
+    private static boolean canReplaceLegacyCollection(@NotNull PsiField field) {
+        PsiClass declared = PsiUtil.resolveClassInClassTypeOnly(field.getType());
+        if (declared == null || !field.hasModifierProperty(PsiModifier.PRIVATE) || !canUseConcurrentHashMap(field, false)) {
+            return false;
+        }
+        if (!declared.isInterface()) {
+            for (PsiReferenceExpression reference : findReferences(field)) {
+                if (reference.getParent() instanceof PsiReferenceExpression methodExpression &&
+                        LEGACY_ONLY_METHODS.contains(methodExpression.getReferenceName())) {
+                    return false;
+                }
+            }
+        }
+        PsiExpression initializer = PsiUtil.skipParenthesizedExprDown(field.getInitializer());
+        return initializer == null || initializer instanceof PsiNewExpression creation && creation.getAnonymousClass() == null;
+    }
+
+    /**
+     * @return 被 {@code Collections.synchronizedMap} 包装的 {@code new HashMap<>(...)}；参数是其他表达式时返回 {@code null}，
+     * 因为原来的 Map 可能在别处被直接使用，不能换成一个副本。
+     */
+    @Nullable
+    private static PsiNewExpression getWrappedHashMap(@NotNull PsiMethodCallExpression call) {
+        PsiExpression[] arguments = call.getArgumentList().getExpressions();
+        return arguments.length == 1 &&
+                PsiUtil.skipParenthesizedExprDown(arguments[0]) instanceof PsiNewExpression creation &&
+                creation.getAnonymousClass() == null && creation.getClassReference() != null &&
+                HASH_MAP.equals(creation.getClassReference().getQualifiedName()) ? creation : null;
+    }
+
+    /**
+     * 包装的 HashMap 可以换成 ConcurrentHashMap 的条件：调用是私有字段或局部变量的初始值，并且这个变量满足
+     * {@link #canUseConcurrentHashMap}。HashMap 接受 {@code null}，因此要检查参数。
+     */
+    private static boolean canReplaceSynchronizedMap(@NotNull PsiMethodCallExpression call) {
+        return getWrappedHashMap(call) != null &&
+                PsiUtil.skipParenthesizedExprUp(call.getParent()) instanceof PsiVariable variable &&
+                (variable instanceof PsiLocalVariable ||
+                        variable instanceof PsiField && variable.hasModifierProperty(PsiModifier.PRIVATE)) &&
+                canUseConcurrentHashMap(variable, true);
+    }
+
+    /**
+     * 把字段声明中的具体集合类型和 {@code new} 表达式中的类替换为 {@code replacement}，保留类型参数。
+     */
+    private static void replaceCollectionType(@NotNull Project project, @NotNull PsiField field, @NotNull String replacement) {
+        field.normalizeDeclaration();
+        PsiElementFactory factory = JavaPsiFacade.getInstance(project).getElementFactory();
+        PsiTypeElement typeElement = field.getTypeElement();
+        PsiClass declared = PsiUtil.resolveClassInClassTypeOnly(field.getType());
+        if (typeElement != null && declared != null && !declared.isInterface() &&
+                field.getType() instanceof PsiClassType classType) {
+            typeElement.replace(factory.createTypeElementFromText(replacement + getTypeArguments(classType), field));
+        }
+        if (PsiUtil.skipParenthesizedExprDown(field.getInitializer()) instanceof PsiNewExpression creation) {
+            creation.replace(createCollection(factory, creation, replacement));
+        }
+        JavaCodeStyleManager.getInstance(project).shortenClassReferences(field);
+    }
+
+    @NotNull
+    private static String getTypeArguments(@NotNull PsiClassType type) {
+        PsiType[] parameters = type.getParameters();
+        if (parameters.length == 0) {
+            return "";
+        }
+        StringBuilder text = new StringBuilder("<");
+        for (int i = 0; i < parameters.length; i++) {
+            text.append(i == 0 ? "" : ", ").append(parameters[i].getCanonicalText());
+        }
+        return text.append('>').toString();
+    }
+
+    /**
+     * @return 与 {@code creation} 有相同类型参数和构造参数的 {@code new replacement(...)}。
+     */
+    @NotNull
+    private static PsiExpression createCollection(@NotNull PsiElementFactory factory, @NotNull PsiNewExpression creation,
+                                                  @NotNull String replacement) {
+        PsiJavaCodeReferenceElement classReference = creation.getClassReference();
+        PsiReferenceParameterList typeArguments = classReference == null ? null : classReference.getParameterList();
+        PsiExpressionList arguments = creation.getArgumentList();
+        String argumentText = arguments == null ? "()" : arguments.getText();
+        return factory.createExpressionFromText("new " + replacement + (typeArguments == null ? "" : typeArguments.getText()) +
+                argumentText, creation);
+    }
+
+    // ---------------------------------------------------------------- utilities
+
+    /**
+     * @return 文件中对变量的所有引用。只用于私有字段和局部变量，因此不需要搜索其他文件。
+     */
+    @NotNull
+    private static List<PsiReferenceExpression> findReferences(@NotNull PsiVariable variable) {
+        List<PsiReferenceExpression> references = new ArrayList<>();
+        String name = variable.getName();
+        for (PsiReferenceExpression reference : PsiTreeUtil.findChildrenOfType(variable.getContainingFile(), PsiReferenceExpression.class)) {
+            if (name.equals(reference.getReferenceName()) && reference.isReferenceTo(variable)) {
+                references.add(reference);
+            }
+        }
+        return references;
+    }
+
+    private static boolean references(@NotNull PsiElement scope, @NotNull PsiField field) {
+        for (PsiReferenceExpression reference : PsiTreeUtil.findChildrenOfType(scope, PsiReferenceExpression.class)) {
+            if (reference.isReferenceTo(field)) {
+                return true;
+            }
+        }
+        return scope instanceof PsiReferenceExpression reference && reference.isReferenceTo(field);
+    }
+
+    // ---------------------------------------------------------------- quick fixes
+
+    /**
+     * 该快速修复把计数器字段改为 LongAdder 或 AtomicInteger/AtomicLong，并去掉只更新该计数器的区域上的锁。
+     */
+    private static class ConvertCounterQuickFix implements LocalQuickFix {
+
+        private final String myCounter;
+        private final String myAtomicClass;
+
+        ConvertCounterQuickFix(@NotNull String counter, @NotNull String atomicClass) {
+            myCounter = counter;
+            myAtomicClass = atomicClass;
+        }
+
+        @NotNull
+        @Override
+        public String getName() {
+            return InspectionBundle.message("inspection.lock.contention.convert.counter.quickfix",
+                    myCounter, StringUtilRt.getShortName(myAtomicClass));
+        }
+
+        @NotNull
+        @Override
+        public String getFamilyName() {
+            return InspectionBundle.message("inspection.lock.contention.convert.counter.family");
+        }
+
+        @Override
+        public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+            PsiElement region = getRegionOfKeyword(descriptor.getPsiElement());
+            PsiStatement statement = region == null ? null : getSingleStatement(region);
+            PsiField counter = statement == null ? null : getUpdatedCounter(statement);
+            if (counter != null && canConvertCounter(counter, LONG_ADDER.equals(myAtomicClass))) {
+                convertCounter(project, counter, myAtomicClass);
+            }
+        }
+    }
+
+    /**
+     * 该快速修复把 Map 字段改为 ConcurrentHashMap，把计数式的 {@code put} 改为 {@code merge}，并去掉只更新该 Map 的区域上的锁。
+     */
+    private static class ConvertToConcurrentMapQuickFix implements LocalQuickFix {
+
+        private final String myMap;
+
+        ConvertToConcurrentMapQuickFix(@NotNull String map) {
+            myMap = map;
+        }
+
+        @NotNull
+        @Override
+        public String getName() {
+            return InspectionBundle.message("inspection.lock.contention.concurrent.map.quickfix", myMap);
+        }
+
+        @NotNull
+        @Override
+        public String getFamilyName() {
+            return InspectionBundle.message("inspection.lock.contention.concurrent.map.family");
+        }
+
+        @Override
+        public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+            PsiElement region = getRegionOfKeyword(descriptor.getPsiElement());
+            PsiStatement statement = region == null ? null : getSingleStatement(region);
+            PsiField map = statement == null ? null : getUpdatedMap(statement);
+            if (map != null && canConvertMap(map)) {
+                convertMap(project, map);
+            }
+        }
+    }
+
+    /**
+     * 该快速修复把 Hashtable 字段或 {@code Collections.synchronizedMap(new HashMap<>())} 替换为并发集合。
+     */
+    private static class ReplaceLegacyCollectionQuickFix implements LocalQuickFix {
+
+        private final String myReplacement;
+
+        ReplaceLegacyCollectionQuickFix(@NotNull String replacement) {
+            myReplacement = replacement;
+        }
+
+        @NotNull
+        @Override
+        public String getName() {
+            return InspectionBundle.message("inspection.lock.contention.replace.collection.quickfix",
+                    StringUtilRt.getShortName(myReplacement));
+        }
+
+        @NotNull
+        @Override
+        public String getFamilyName() {
+            return InspectionBundle.message("inspection.lock.contention.replace.collection.family");
+        }
+
+        @Override
+        public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+            PsiElement element = descriptor.getPsiElement();
+            if (element instanceof PsiMethodCallExpression call) {
+                PsiNewExpression wrapped = getWrappedHashMap(call);
+                if (wrapped != null && canReplaceSynchronizedMap(call)) {
+                    PsiElementFactory factory = JavaPsiFacade.getInstance(project).getElementFactory();
+                    PsiElement replaced = call.replace(createCollection(factory, wrapped, myReplacement));
+                    JavaCodeStyleManager.getInstance(project).shortenClassReferences(replaced);
+                }
+            } else if (element.getParent() instanceof PsiField field && canReplaceLegacyCollection(field)) {
+                replaceCollectionType(project, field, myReplacement);
+            }
+        }
+    }
+
+    /**
+     * 该快速修复把对 ConcurrentMap 的先检查后执行改写为一次原子的 {@code computeIfAbsent} 或 {@code merge}。
+     */
+    private static class AtomicMapUpdateQuickFix implements LocalQuickFix {
+
+        private final String myMethod;
+
+        AtomicMapUpdateQuickFix(@NotNull String method) {
+            myMethod = method;
+        }
+
+        @NotNull
+        @Override
+        public String getName() {
+            return InspectionBundle.message("inspection.lock.contention.atomic.update.quickfix", myMethod);
+        }
+
+        @NotNull
+        @Override
+        public String getFamilyName() {
+            return InspectionBundle.message("inspection.lock.contention.atomic.update.family");
+        }
+
+        @Override
+        public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+            PsiElement element = descriptor.getPsiElement();
+            PsiElementFactory factory = JavaPsiFacade.getInstance(project).getElementFactory();
+            if (element instanceof PsiMethodCallExpression call) {
+                replaceCountingPut(factory, call);
+                return;
+            }
+            if (!(element.getParent() instanceof PsiIfStatement statement)) {
+                return;
+            }
+            PutIfAbsent update = getPutIfAbsent(statement);
+            if (update == null || !canMoveIntoLambda(update.value(), statement)) {
+                return;
+            }
+            String parameter = JavaCodeStyleManager.getInstance(project).suggestUniqueVariableName("k", statement, true);
+            String compute = update.map().getText() + ".computeIfAbsent(" + update.key().getText() + ", " +
+                    parameter + " -> " + update.value().getText() + ")";
+            PsiLocalVariable variable = update.variable();
+            if (variable == null) {
+                statement.replace(factory.createStatementFromText(compute + ";", statement));
+            } else {
+                variable.setInitializer(factory.createExpressionFromText(compute, variable));
+                statement.delete();
+            }
+        }
+    }
+
+    /**
+     * 该快速修复为 ConcurrentMap 字段增加一组锁对象，并把在同一个锁下访问该字段的所有区域换成按键的哈希值选出的一个锁，
+     * 这样只有访问同一分段的线程才会互相等待。同一个字段的所有区域共用一组锁。
+     */
+    private static class StripeLockQuickFix implements LocalQuickFix {
+
+        @NotNull
+        @Override
+        public String getFamilyName() {
+            return InspectionBundle.message("inspection.lock.contention.striping.quickfix");
+        }
+
+        @Override
+        public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+            PsiElement region = getRegionOfKeyword(descriptor.getPsiElement());
+            StripeTarget target = region == null ? null : getStripeTarget(region);
+            Set<PsiElement> regions = target == null ? null : getStripeRegions(region, target.map());
+            PsiClass owner = target == null ? null : target.map().getContainingClass();
+            if (regions == null || owner == null) {
+                return;
+            }
+            PsiElementFactory factory = JavaPsiFacade.getInstance(project).getElementFactory();
+            JavaCodeStyleManager codeStyleManager = JavaCodeStyleManager.getInstance(project);
+            String locks = getLocks(project, target.map(), owner);
+            for (PsiElement striped : regions) {
+                StripeTarget stripedTarget = getStripeTarget(striped);
+                if (stripedTarget == null) {
+                    continue;
+                }
+                String stripe = locks + "[Math.floorMod(java.util.Objects.hashCode(" + stripedTarget.key().getText() + "), " +
+                        locks + ".length)]";
+                if (striped instanceof PsiSynchronizedStatement statement && statement.getLockExpression() != null) {
+                    codeStyleManager.shortenClassReferences(
+                            statement.getLockExpression().replace(factory.createExpressionFromText(stripe, statement)));
+                } else if (striped instanceof PsiMethod method && method.getBody() != null) {
+                    method.getModifierList().setModifierProperty(PsiModifier.SYNCHRONIZED, false);
+                    PsiCodeBlock body = method.getBody();
+                    PsiCodeBlock block = factory.createCodeBlockFromText("{\nsynchronized (" + stripe + ") " + body.getText() + "\n}", method);
+                    codeStyleManager.shortenClassReferences(body.replace(block));
+                }
+            }
+        }
+
+        /**
+         * @return Map 字段的锁数组：已有的 {@code <map>Locks} 数组，或者在 Map 字段之后新增的数组。
+         * 数组与 Map 字段同为静态或实例字段。
+         */
+        @NotNull
+        private static String getLocks(@NotNull Project project, @NotNull PsiField map, @NotNull PsiClass owner) {
+            boolean isStatic = map.hasModifierProperty(PsiModifier.STATIC);
+            String name = map.getName() + "Locks";
+            PsiField existing = owner.findFieldByName(name, false);
+            if (existing != null && existing.getType().equalsToText(CommonClassNames.JAVA_LANG_OBJECT + "[]") &&
+                    existing.hasModifierProperty(PsiModifier.FINAL) && existing.hasModifierProperty(PsiModifier.STATIC) == isStatic) {
+                return name;
+            }
+            JavaCodeStyleManager codeStyleManager = JavaCodeStyleManager.getInstance(project);
+            String locks = codeStyleManager.suggestUniqueVariableName(name, owner, true);
+            PsiField field = JavaPsiFacade.getInstance(project).getElementFactory().createFieldFromText(
+                    "private " + (isStatic ? "static " : "") + "final Object[] " + locks +
+                            " = java.util.stream.Stream.generate(Object::new).limit(" + STRIPES + ").toArray();", owner);
+            codeStyleManager.shortenClassReferences(owner.addAfter(field, map));
+            return locks;
+        }
+    }
+}
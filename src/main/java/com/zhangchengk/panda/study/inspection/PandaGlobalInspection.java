@@ -0,0 +1,171 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.analysis.AnalysisScope;
+import com.intellij.codeInspection.GlobalInspectionContext;
+import com.intellij.codeInspection.GlobalInspectionTool;
+import com.intellij.codeInspection.InspectionManager;
+import com.intellij.codeInspection.ProblemDescriptionsProcessor;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.codeInspection.reference.RefEntity;
+import com.intellij.concurrency.JobLauncher;
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileTypes.FileTypeRegistry;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.wm.StatusBar;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Panda 全局（批处理）检查的公共部分，子类只提供候选文件过滤、单个文件的检查和运行结束时的摘要。
+ * <p>
+ * 范围内的 Java 文件经 {@link #filterCandidates} 过滤后被分发到所有核心上并行处理。
+ * 每个文件在一个可取消的非阻塞读操作中检查，完成后立即把问题提交到结果视图。运行结束时在日志和状态栏报告 {@link #getSummary}。
+ */
+abstract class PandaGlobalInspection extends GlobalInspectionTool {
+
+    private static final Logger LOG = Logger.getInstance(PandaGlobalInspection.class);
+
+    /**
+     * 读操作由本检查按文件自行获取，这样写操作可以在文件之间插入，而不必等待整个范围检查完成。
+     */
+    @Override
+    public boolean isReadActionNeeded() {
+        return false;
+    }
+
+    @Override
+    public boolean isGraphNeeded() {
+        return false;
+    }
+
+    @Override
+    public final void runInspection(@NotNull AnalysisScope scope,
+                                    @NotNull InspectionManager manager,
+                                    @NotNull GlobalInspectionContext globalContext,
+                                    @NotNull ProblemDescriptionsProcessor problemDescriptionsProcessor) {
+        Project project = globalContext.getProject();
+        List<VirtualFile> files = ReadAction.nonBlocking(() -> filterCandidates(project, collectJavaFiles(scope)))
+                .executeSynchronously();
+
+        ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+        if (indicator == null) {
+            indicator = new EmptyProgressIndicator();
+        }
+        ProgressIndicator progress = indicator;
+        PsiManager psiManager = PsiManager.getInstance(project);
+        AtomicInteger problemCount = new AtomicInteger();
+        AtomicInteger fileCount = new AtomicInteger();
+
+        beforeRun(project);
+        boolean completed;
+        try {
+            // JobLauncher splits the file list into chunks for the shared pool and stops all workers on cancellation
+            completed = JobLauncher.getInstance().invokeConcurrentlyUnderProgress(files, progress, file -> {
+                ReadAction.nonBlocking(() -> {
+                            int problems = submitFile(file, psiManager, manager, globalContext, problemDescriptionsProcessor);
+                            if (problems > 0) {
+                                problemCount.addAndGet(problems);
+                                fileCount.incrementAndGet();
+                            }
+                        })
+                        .wrapProgress(progress)
+                        .executeSynchronously();
+                return true;
+            });
+        }
+        finally {
+            afterRun(project);
+        }
+        if (!completed) {
+            throw new ProcessCanceledException();
+        }
+        String message = getSummary(project, problemCount.get(), fileCount.get(), files.size());
+        LOG.info(message);
+        ApplicationManager.getApplication().invokeLater(() -> StatusBar.Info.set(message, project), project.getDisposed());
+    }
+
+    /**
+     * @return {@code files} 中可能有问题的文件；可以返回全部文件。调用方持有读操作。
+     */
+    @NotNull
+    protected abstract List<VirtualFile> filterCandidates(@NotNull Project project, @NotNull List<VirtualFile> files);
+
+    /**
+     * 检查单个文件。可能在多个线程中同时调用，调用方持有读操作。
+     */
+    @NotNull
+    protected abstract List<ProblemDescriptor> inspectFile(@NotNull PsiJavaFile file, @NotNull InspectionManager manager);
+
+    /**
+     * @return 运行结束时在日志和状态栏显示的消息
+     */
+    @NotNull
+    protected abstract String getSummary(@NotNull Project project, int problems, int files, int candidates);
+
+    /**
+     * 在检查第一个文件之前调用。
+     */
+    protected void beforeRun(@NotNull Project project) {
+    }
+
+    /**
+     * 在检查完所有文件或运行被取消后调用。
+     */
+    protected void afterRun(@NotNull Project project) {
+    }
+
+    /**
+     * 检查单个文件，并把结果提交给处理器。调用方必须持有读操作。
+     *
+     * @return 文件中的问题数
+     */
+    private int submitFile(@NotNull VirtualFile file,
+                           @NotNull PsiManager psiManager,
+                           @NotNull InspectionManager manager,
+                           @NotNull GlobalInspectionContext globalContext,
+                           @NotNull ProblemDescriptionsProcessor processor) {
+        if (!file.isValid()) {
+            return 0;
+        }
+        PsiFile psiFile = psiManager.findFile(file);
+        if (!(psiFile instanceof PsiJavaFile javaFile)) {
+            return 0;
+        }
+        List<ProblemDescriptor> problems = inspectFile(javaFile, manager);
+        RefEntity refFile = problems.isEmpty() ? null : globalContext.getRefManager().getReference(psiFile);
+        if (refFile == null) {
+            return 0;
+        }
+        // Stream the file's problems to the results view as soon as it is done
+        synchronized (processor) {
+            processor.addProblemElement(refFile, problems.toArray(ProblemDescriptor.EMPTY_ARRAY));
+        }
+        return problems.size();
+    }
+
+    @NotNull
+    private static List<VirtualFile> collectJavaFiles(@NotNull AnalysisScope scope) {
+        List<VirtualFile> files = new ArrayList<>();
+        scope.accept(file -> {
+            if (FileTypeRegistry.getInstance().isFileOfType(file, JavaFileType.INSTANCE)) {
+                files.add(file);
+            }
+            return true;
+        });
+        return files;
+    }
+}
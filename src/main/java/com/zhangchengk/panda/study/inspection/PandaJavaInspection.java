@@ -0,0 +1,23 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.codeInspection.ProblemsHolder;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 参与共享遍历的 Panda Java 检查。
+ * <p>
+ * 检查不再各自构建遍历整棵树的访问者，而是为关心的 PSI 节点类型注册处理器。
+ * {@link SharedJavaWalk} 把多个检查的处理器合并到一次遍历中，按元素类型分发，
+ * 因此增加检查只增加被命中节点上的处理开销，而不增加遍历次数。
+ */
+public interface PandaJavaInspection {
+
+    /**
+     * 为本检查关心的节点类型注册处理器。处理器把发现的问题注册到给定的 holder 中。
+     * 每个文件调用一次，处理器可以持有只在本文件内有效的状态。
+     *
+     * @param handlers 处理器注册表
+     * @param holder   本检查在此文件中的问题收集器
+     */
+    void registerHandlers(@NotNull PandaNodeHandlers handlers, @NotNull ProblemsHolder holder);
+}
@@ -0,0 +1,81 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiElementVisitor;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 按 PSI 节点类型注册的处理器集合，并据此创建一个按类型分发的访问者。
+ * <p>
+ * 分发表以元素的具体类为键，第一次遇到某个类时计算出所有匹配的处理器，之后的同类元素只需一次哈希查找，
+ * 不再逐个执行 instanceof 判断。注册表和它创建的访问者都不是线程安全的，应当按文件创建。
+ */
+public final class PandaNodeHandlers {
+
+    private final List<Class<? extends PsiElement>> myTypes = new ArrayList<>();
+    private final List<Consumer<PsiElement>> myHandlers = new ArrayList<>();
+
+    /**
+     * 为给定类型及其子类型的节点注册处理器。同一节点上的处理器按注册顺序调用。
+     *
+     * @param type    节点类型，通常是 PSI 接口，例如 {@code PsiBinaryExpression.class}
+     * @param handler 处理器
+     */
+    public <T extends PsiElement> void register(@NotNull Class<T> type, @NotNull Consumer<? super T> handler) {
+        myTypes.add(type);
+        myHandlers.add(element -> handler.accept(type.cast(element)));
+    }
+
+    /**
+     * @return 是否没有注册任何处理器。
+     */
+    public boolean isEmpty() {
+        return myHandlers.isEmpty();
+    }
+
+    /**
+     * 创建一个非递归的访问者，对每个被访问的元素调用所有匹配的处理器。
+     * 它可以直接作为 {@code buildVisitor} 的结果交给平台，也可以由 {@link SharedJavaWalk} 驱动。
+     */
+    @NotNull
+    public PsiElementVisitor createVisitor() {
+        return new Dispatcher(List.copyOf(myTypes), List.copyOf(myHandlers));
+    }
+
+    private static final class Dispatcher extends PsiElementVisitor {
+
+        private final List<Class<? extends PsiElement>> myTypes;
+        private final List<Consumer<PsiElement>> myHandlers;
+        private final Map<Class<?>, List<Consumer<PsiElement>>> myDispatch = new HashMap<>();
+
+        Dispatcher(@NotNull List<Class<? extends PsiElement>> types, @NotNull List<Consumer<PsiElement>> handlers) {
+            myTypes = types;
+            myHandlers = handlers;
+        }
+
+        @Override
+        public void visitElement(@NotNull PsiElement element) {
+            List<Consumer<PsiElement>> handlers = myDispatch.computeIfAbsent(element.getClass(), this::resolve);
+            for (int i = 0, size = handlers.size(); i < size; i++) {
+                handlers.get(i).accept(element);
+            }
+        }
+
+        @NotNull
+        private List<Consumer<PsiElement>> resolve(@NotNull Class<?> elementClass) {
+            List<Consumer<PsiElement>> matching = new ArrayList<>(1);
+            for (int i = 0; i < myTypes.size(); i++) {
+                if (myTypes.get(i).isAssignableFrom(elementClass)) {
+                    matching.add(myHandlers.get(i));
+                }
+            }
+            return matching.isEmpty() ? List.of() : matching;
+        }
+    }
+}
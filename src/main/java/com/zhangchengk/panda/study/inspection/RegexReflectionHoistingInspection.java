@@ -0,0 +1,658 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.codeInsight.ExceptionUtil;
+import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
+import com.intellij.codeInspection.BatchQuickFix;
+import com.intellij.codeInspection.CommonProblemDescriptor;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.*;
+import com.intellij.psi.codeStyle.JavaCodeStyleManager;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.PsiUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 实现一个检查，用于检测每次执行都会重新编译正则表达式或重新做反射查找的调用：
+ * <ul>
+ *     <li>正则表达式是编译期常量的 {@code String.matches}、{@code replaceAll}、{@code replaceFirst}、
+ *     不能走快速路径的 {@code String.split}、{@code Pattern.matches}，以及方法中的 {@code Pattern.compile}；</li>
+ *     <li>参数都是常量的 {@code Class.forName}、{@code getMethod}、{@code getDeclaredMethod}、{@code getConstructor}、
+ *     {@code getField} 等反射查找。</li>
+ * </ul>
+ * 只执行一次的代码（静态字段的初始值和静态初始化块）不报告。
+ * 快速修复把文件中所有这样的调用一次性提升到顶层类中：正则表达式提升到 {@code private static final} 字段，相同的正则表达式共用一个字段；
+ * 反射查找提升到延迟初始化的静态字段和它的访问方法，查找失败时异常仍然在原来的调用处抛出。
+ */
+public final class RegexReflectionHoistingInspection extends AbstractBaseJavaLocalInspectionTool
+        implements PandaJavaInspection {
+
+    private static final String PATTERN = "java.util.regex.Pattern";
+
+    /**
+     * 按方法名预先过滤，避免对其他调用做解析。
+     */
+    private static final Set<String> METHOD_NAMES = Set.of("matches", "split", "replaceAll", "replaceFirst", "compile",
+            "forName", "getMethod", "getDeclaredMethod", "getConstructor", "getDeclaredConstructor",
+            "getField", "getDeclaredField");
+    private static final Set<String> LOOKUP_METHODS = Set.of("forName", "getMethod", "getDeclaredMethod",
+            "getConstructor", "getDeclaredConstructor", "getField", "getDeclaredField");
+
+    /**
+     * {@code String.split} 对不是这些元字符的单个字符（或转义的非字母数字字符）走快速路径，不编译正则表达式。
+     */
+    private static final String SPLIT_META_CHARACTERS = ".$|()[{^?*+\\";
+
+    /**
+     * 一个可以提升到静态字段的调用。
+     *
+     * @param regex       是否是正则表达式；否则是反射查找
+     * @param display     报告中显示的方法，例如 {@code String.split}
+     * @param key         相同 key 的调用共用一个字段
+     * @param type        字段类型的全限定文本
+     * @param initializer 字段初始值的文本，可以在静态上下文中求值
+     * @param baseName    字段名的基础
+     * @param suffix      调用被替换为字段名加上这段文本，例如 {@code .matcher(s).matches()}
+     * @param exceptions  反射查找声明的受检异常，逗号分隔；正则表达式为空
+     */
+    private record Hoistable(boolean regex, @NotNull String display, @NotNull String key, @NotNull String type,
+                             @NotNull String initializer, @NotNull String baseName, @NotNull String suffix,
+                             @NotNull String exceptions) {
+    }
+
+    private final HoistToStaticFieldsQuickFix myQuickFix = new HoistToStaticFieldsQuickFix();
+
+    /**
+     * 提供一个访问者，检查正则表达式和反射查找的调用。
+     * 访问者必须是非递归的，并且必须是线程安全的。
+     *
+     * @param holder     用于访问者注册发现的问题的对象
+     * @param isOnTheFly 如果检查是在非批处理模式下运行，则为 true
+     * @return 此检查的非空访问者
+     */
+    @NotNull
+    @Override
+    public PsiElementVisitor buildVisitor(@NotNull final ProblemsHolder holder, boolean isOnTheFly) {
+        PandaNodeHandlers handlers = new PandaNodeHandlers();
+        registerHandlers(handlers, holder);
+        return handlers.createVisitor();
+    }
+
+    @Override
+    public void registerHandlers(@NotNull PandaNodeHandlers handlers, @NotNull ProblemsHolder holder) {
+        handlers.register(PsiMethodCallExpression.class, call -> checkCall(call, holder));
+    }
+
+    private void checkCall(@NotNull PsiMethodCallExpression call, @NotNull ProblemsHolder holder) {
+        Hoistable hoistable = getHoistable(call);
+        if (hoistable == null) {
+            return;
+        }
+        String message = InspectionBundle.message(hoistable.regex()
+                ? "inspection.regex.reflection.hoisting.regex.descriptor"
+                : "inspection.regex.reflection.hoisting.reflection.descriptor", hoistable.display());
+        if (canRewrite(call)) {
+            holder.registerProblem(call, message, myQuickFix);
+        } else {
+            holder.registerProblem(call, message);
+        }
+    }
+
+    @Nullable
+    private static Hoistable getHoistable(@NotNull PsiMethodCallExpression call) {
+        PsiReferenceExpression methodExpression = call.getMethodExpression();
+        String name = methodExpression.getReferenceName();
+        // Cheap syntactic checks first: a known method name outside code that runs once per class
+        if (name == null || !METHOD_NAMES.contains(name) || isRunOnce(call)) {
+            return null;
+        }
+        PsiMethod method = call.resolveMethod();
+        PsiClass containingClass = method == null ? null : method.getContainingClass();
+        if (containingClass == null) {
+            return null;
+        }
+        String display = containingClass.getName() + "." + name;
+        PsiExpression[] arguments = call.getArgumentList().getExpressions();
+        PsiExpression qualifier = PsiUtil.skipParenthesizedExprDown(methodExpression.getQualifierExpression());
+        String className = String.valueOf(containingClass.getQualifiedName());
+        if (CommonClassNames.JAVA_LANG_STRING.equals(className)) {
+            if (qualifier == null || arguments.length == 0) {
+                return null;
+            }
+            String string = qualifier.getText();
+            String suffix = switch (name) {
+                case "matches" -> arguments.length == 1 ? ".matcher(" + string + ").matches()" : null;
+                case "split" -> arguments.length == 1 ? ".split(" + string + ")"
+                        : arguments.length == 2 ? ".split(" + string + ", " + arguments[1].getText() + ")" : null;
+                case "replaceAll", "replaceFirst" -> arguments.length == 2
+                        ? ".matcher(" + string + ")." + name + "(" + arguments[1].getText() + ")"
+                        : null;
+                default -> null;
+            };
+            return suffix == null ? null : getRegex(call, display, arguments[0], null, "split".equals(name), suffix);
+        }
+        if (PATTERN.equals(className)) {
+            if ("compile".equals(name) && (arguments.length == 1 || arguments.length == 2)) {
+                return getRegex(call, display, arguments[0], arguments.length == 2 ? arguments[1] : null, false, "");
+            }
+            if ("matches".equals(name) && arguments.length == 2) {
+                return getRegex(call, display, arguments[0], null, false,
+                        ".matcher(" + arguments[1].getText() + ").matches()");
+            }
+            return null;
+        }
+        if (CommonClassNames.JAVA_LANG_CLASS.equals(className) && LOOKUP_METHODS.contains(name) &&
+                !isLookupReceiver(call)) {
+            return getLookup(call, display);
+        }
+        return null;
+    }
+
+    /**
+     * @return 调用是否只在类初始化时执行一次：位于静态字段的初始值或静态初始化块中，并且不在 lambda 或方法中。
+     */
+    private static boolean isRunOnce(@NotNull PsiElement element) {
+        PsiElement context = PsiTreeUtil.getParentOfType(element, PsiLambdaExpression.class, PsiMember.class);
+        return context instanceof PsiField field && field.hasModifierProperty(PsiModifier.STATIC) ||
+                context instanceof PsiClassInitializer initializer && initializer.hasModifierProperty(PsiModifier.STATIC);
+    }
+
+    // ---------------------------------------------------------------- regular expressions
+
+    @Nullable
+    private static Hoistable getRegex(@NotNull PsiMethodCallExpression call, @NotNull String display,
+                                      @NotNull PsiExpression regexExpression, @Nullable PsiExpression flagsExpression,
+                                      boolean split, @NotNull String suffix) {
+        PsiConstantEvaluationHelper helper = JavaPsiFacade.getInstance(call.getProject()).getConstantEvaluationHelper();
+        if (!(helper.computeConstantExpression(regexExpression) instanceof String regex) ||
+                split && isFastPathSplit(regex)) {
+            return null;
+        }
+        int flags = 0;
+        String flagsText = "";
+        if (flagsExpression != null) {
+            if (!(helper.computeConstantExpression(flagsExpression) instanceof Integer value)) {
+                return null;
+            }
+            flags = value;
+            flagsText = ", " + toStaticText(flagsExpression, value);
+        }
+        return new Hoistable(true, display, getRegexKey(regex, flags), PATTERN,
+                PATTERN + ".compile(" + toStaticText(regexExpression, regex) + flagsText + ")",
+                getPatternBaseName(call, regexExpression), suffix, "");
+    }
+
+    @NotNull
+    private static String getRegexKey(@NotNull String regex, int flags) {
+        return "regex:" + flags + ":" + regex;
+    }
+
+    /**
+     * 与 {@code String.split} 中的判断相同：单个非元字符，或者反斜杠加一个非字母数字字符。
+     */
+    private static boolean isFastPathSplit(@NotNull String regex) {
+        if (regex.length() == 1) {
+            return SPLIT_META_CHARACTERS.indexOf(regex.charAt(0)) == -1;
+        }
+        if (regex.length() == 2 && regex.charAt(0) == '\\') {
+            char c = regex.charAt(1);
+            return (c < '0' || c > '9') && (c < 'a' || c > 'z') && (c < 'A' || c > 'Z') && !Character.isSurrogate(c);
+        }
+        return false;
+    }
+
+    /**
+     * 正则表达式是常量字段时用字段名命名，例如 {@code HEADER_REGEX} 得到 {@code HEADER_PATTERN}；否则用所在方法的名字。
+     */
+    @NotNull
+    private static String getPatternBaseName(@NotNull PsiElement call, @NotNull PsiExpression regexExpression) {
+        if (PsiUtil.skipParenthesizedExprDown(regexExpression) instanceof PsiReferenceExpression reference &&
+                reference.resolve() instanceof PsiField field) {
+            String name = toConstantName(field.getName());
+            for (String suffix : List.of("_REGEX", "_REGEXP", "_PATTERN")) {
+                name = StringUtil.trimEnd(name, suffix);
+            }
+            return name + "_PATTERN";
+        }
+        PsiMethod method = PsiTreeUtil.getParentOfType(call, PsiMethod.class);
+        return method == null ? "PATTERN" : toConstantName(method.getName()) + "_PATTERN";
+    }
+
+    // ---------------------------------------------------------------- reflection
+
+    @Nullable
+    private static Hoistable getLookup(@NotNull PsiMethodCallExpression call, @NotNull String display) {
+        String initializer = getLookupText(call);
+        PsiType type = call.getType();
+        if (initializer == null || type == null) {
+            return null;
+        }
+        Set<String> exceptions = new LinkedHashSet<>();
+        collectThrownExceptions(call, exceptions);
+        return new Hoistable(false, display, "lookup:" + initializer,
+                GenericsUtil.getVariableTypeByExpressionType(type).getCanonicalText(), initializer,
+                getLookupBaseName(call), "", String.join(", ", exceptions));
+    }
+
+    /**
+     * 收集查找（以及作为接收者的 {@code Class.forName}）声明的受检异常，访问方法原样声明这些异常，
+     * 因此调用处已有的 {@code throws} 和 {@code catch} 仍然适用。
+     */
+    private static void collectThrownExceptions(@NotNull PsiMethodCallExpression call, @NotNull Set<String> exceptions) {
+        if (PsiUtil.skipParenthesizedExprDown(call.getMethodExpression().getQualifierExpression())
+                instanceof PsiMethodCallExpression receiver) {
+            collectThrownExceptions(receiver, exceptions);
+        }
+        PsiMethod method = call.resolveMethod();
+        if (method == null) {
+            return;
+        }
+        for (PsiClassType type : method.getThrowsList().getReferencedTypes()) {
+            if (!ExceptionUtil.isUncheckedException(type)) {
+                exceptions.add(type.getCanonicalText());
+            }
+        }
+    }
+
+    /**
+     * 返回可以在静态上下文中求值的查找表达式文本：接收者是类字面量或常量名的 {@code Class.forName}，
+     * 名字参数是字符串常量，参数类型是类字面量。
+     *
+     * @return 查找表达式文本；调用依赖于运行时的值时返回 {@code null}
+     */
+    @Nullable
+    private static String getLookupText(@NotNull PsiMethodCallExpression call) {
+        PsiReferenceExpression methodExpression = call.getMethodExpression();
+        String name = methodExpression.getReferenceName();
+        PsiExpression[] arguments = call.getArgumentList().getExpressions();
+        PsiExpression qualifier = PsiUtil.skipParenthesizedExprDown(methodExpression.getQualifierExpression());
+        StringBuilder text = new StringBuilder();
+        if ("forName".equals(name)) {
+            if (arguments.length != 1) {
+                return null;
+            }
+            text.append(CommonClassNames.JAVA_LANG_CLASS);
+        } else if (qualifier instanceof PsiClassObjectAccessExpression && isStaticContextSafe(qualifier)) {
+            text.append(qualifier.getText());
+        } else if (qualifier instanceof PsiMethodCallExpression receiver && isForName(receiver)) {
+            String receiverText = getLookupText(receiver);
+            if (receiverText == null) {
+                return null;
+            }
+            text.append(receiverText);
+        } else {
+            return null;
+        }
+        boolean named = name != null && !name.endsWith("Constructor");
+        text.append('.').append(name).append('(');
+        for (int i = 0; i < arguments.length; i++) {
+            String argument = getLookupArgumentText(arguments[i], named && i == 0);
+            if (argument == null) {
+                return null;
+            }
+            text.append(i == 0 ? "" : ", ").append(argument);
+        }
+        return text.append(')').toString();
+    }
+
+    @Nullable
+    private static String getLookupArgumentText(@NotNull PsiExpression argument, boolean name) {
+        if (name) {
+            Object value = JavaPsiFacade.getInstance(argument.getProject()).getConstantEvaluationHelper()
+                    .computeConstantExpression(argument);
+            return value instanceof String ? toStaticText(argument, value) : null;
+        }
+        return PsiUtil.skipParenthesizedExprDown(argument) instanceof PsiClassObjectAccessExpression &&
+                isStaticContextSafe(argument) ? argument.getText() : null;
+    }
+
+    private static boolean isForName(@NotNull PsiMethodCallExpression call) {
+        return "forName".equals(call.getMethodExpression().getReferenceName()) && isClassMethod(call);
+    }
+
+    private static boolean isClassMethod(@NotNull PsiMethodCallExpression call) {
+        PsiMethod method = call.resolveMethod();
+        PsiClass containingClass = method == null ? null : method.getContainingClass();
+        return containingClass != null && CommonClassNames.JAVA_LANG_CLASS.equals(containingClass.getQualifiedName());
+    }
+
+    /**
+     * {@code Class.forName("a.B").getMethod("m")} 作为一个整体提升，因此不单独报告其中的 {@code forName}。
+     */
+    private static boolean isLookupReceiver(@NotNull PsiMethodCallExpression call) {
+        return call.getParent() instanceof PsiReferenceExpression reference &&
+                reference.getParent() instanceof PsiMethodCallExpression outer &&
+                LOOKUP_METHODS.contains(reference.getReferenceName()) &&
+                isClassMethod(outer) && getLookupText(outer) != null;
+    }
+
+    @NotNull
+    private static String getLookupBaseName(@NotNull PsiMethodCallExpression call) {
+        String name = String.valueOf(call.getMethodExpression().getReferenceName());
+        PsiExpression[] arguments = call.getArgumentList().getExpressions();
+        PsiConstantEvaluationHelper helper = JavaPsiFacade.getInstance(call.getProject()).getConstantEvaluationHelper();
+        if (name.endsWith("Constructor")) {
+            PsiExpression qualifier = PsiUtil.skipParenthesizedExprDown(call.getMethodExpression().getQualifierExpression());
+            if (qualifier instanceof PsiClassObjectAccessExpression classObject) {
+                return toConstantName(classObject.getOperand().getType().getPresentableText()) + "_CONSTRUCTOR";
+            }
+            return qualifier instanceof PsiMethodCallExpression receiver
+                    ? StringUtil.trimEnd(getLookupBaseName(receiver), "_CLASS") + "_CONSTRUCTOR"
+                    : "CONSTRUCTOR";
+        }
+        if (arguments.length == 0 || !(helper.computeConstantExpression(arguments[0]) instanceof String argument)) {
+            return name.toUpperCase(Locale.ROOT);
+        }
+        if (name.equals("forName")) {
+            String simpleName = argument.substring(Math.max(argument.lastIndexOf('.'), argument.lastIndexOf('$')) + 1);
+            return toConstantName(simpleName) + "_CLASS";
+        }
+        return toConstantName(argument) + (name.endsWith("Method") ? "_METHOD" : "_FIELD");
+    }
+
+    // ---------------------------------------------------------------- shared helpers
+
+    /**
+     * 表达式能否原样移动到顶层类的静态字段初始值中：不引用局部变量、参数、实例成员、局部类或类型参数。
+     * 顶层类自己的字段也不行，因为新字段位于类的开头，在初始值中按简单名引用后面的字段是非法的前向引用。
+     */
+    private static boolean isStaticContextSafe(@NotNull PsiExpression expression) {
+        if (PsiTreeUtil.findChildOfAnyType(expression, false, PsiThisExpression.class, PsiSuperExpression.class) != null) {
+            return false;
+        }
+        PsiClass owner = PsiUtil.getTopLevelClass(expression);
+        for (PsiJavaCodeReferenceElement reference :
+                PsiTreeUtil.collectElementsOfType(expression, PsiJavaCodeReferenceElement.class)) {
+            PsiElement target = reference.resolve();
+            boolean safe;
+            if (target instanceof PsiField field) {
+                safe = field.hasModifierProperty(PsiModifier.STATIC) && field.getContainingClass() != owner;
+            } else if (target instanceof PsiMethod method) {
+                safe = method.hasModifierProperty(PsiModifier.STATIC);
+            } else if (target instanceof PsiClass psiClass) {
+                safe = !(psiClass instanceof PsiTypeParameter) && !PsiUtil.isLocalOrAnonymousClass(psiClass);
+            } else {
+                safe = target instanceof PsiPackage;
+            }
+            if (!safe) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return 表达式在静态上下文中可用时返回原文，否则返回其常量值的字面量。
+     */
+    @NotNull
+    private static String toStaticText(@NotNull PsiExpression expression, @NotNull Object value) {
+        PsiExpression unwrapped = PsiUtil.skipParenthesizedExprDown(expression);
+        if (unwrapped != null && isStaticContextSafe(unwrapped)) {
+            return unwrapped.getText();
+        }
+        return value instanceof String string ? "\"" + StringUtil.escapeStringCharacters(string) + "\"" : value.toString();
+    }
+
+    /**
+     * 把驼峰式的名字转换为常量命名，例如 {@code parseHeader} 得到 {@code PARSE_HEADER}。
+     */
+    @NotNull
+    private static String toConstantName(@NotNull String name) {
+        StringBuilder result = new StringBuilder(name.length() + 4);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isJavaIdentifierPart(c)) {
+                c = '_';
+            } else if (Character.isUpperCase(c) && i > 0 && Character.isLowerCase(name.charAt(i - 1))) {
+                result.append('_');
+            }
+            result.append(Character.toUpperCase(c));
+        }
+        return result.toString();
+    }
+
+    // ---------------------------------------------------------------- hoisting
+
+    /**
+     * 调用能否被快速修复改写：顶层类可以声明私有静态字段（不是接口，也不是枚举，枚举的构造函数不能读取静态字段）。
+     */
+    private static boolean canRewrite(@NotNull PsiMethodCallExpression call) {
+        PsiClass owner = PsiUtil.getTopLevelClass(call);
+        return owner != null && !owner.isInterface() && !owner.isEnum() && owner.getLBrace() != null;
+    }
+
+    /**
+     * 把文件中所有可以提升的调用改写为对顶层类中静态字段的引用。调用方必须持有写操作。
+     * <p>
+     * 调用按文档的逆序处理，这样嵌套的调用先被改写，外层调用再用更新后的文本计算替换。
+     * 新字段都插入到类的开头，因此按逆序插入后字段的顺序与调用在文件中出现的顺序一致，并且在其他静态初始值之前完成初始化。
+     * 字段名只在创建字段的调用处保证不被遮蔽，因此每个调用处都检查名字是否解析到这个字段，被局部变量等遮蔽时用类名限定。
+     *
+     * @param ignored 不改写的调用，例如用户在检查结果视图中排除的问题
+     */
+    static void hoistAll(@NotNull Project project, @NotNull PsiFile file, @NotNull Collection<PsiElement> ignored) {
+        PsiElementFactory factory = JavaPsiFacade.getInstance(project).getElementFactory();
+        JavaCodeStyleManager codeStyleManager = JavaCodeStyleManager.getInstance(project);
+        List<PsiMethodCallExpression> calls = new ArrayList<>(PsiTreeUtil.findChildrenOfType(file, PsiMethodCallExpression.class));
+        Collections.reverse(calls);
+        Map<PsiClass, Map<String, String>> fieldsByOwner = new HashMap<>();
+        for (PsiMethodCallExpression call : calls) {
+            if (!call.isValid() || ignored.contains(call)) {
+                continue;
+            }
+            Hoistable hoistable = getHoistable(call);
+            if (hoistable == null || !canRewrite(call)) {
+                continue;
+            }
+            PsiClass owner = PsiUtil.getTopLevelClass(call);
+            Map<String, String> fields = fieldsByOwner.computeIfAbsent(owner, RegexReflectionHoistingInspection::findPatternFields);
+            String field = fields.get(hoistable.key());
+            if (field == null) {
+                field = hoistable.regex()
+                        ? addField(factory, codeStyleManager, owner, call, hoistable)
+                        : addLookupAccessor(factory, codeStyleManager, owner, call, hoistable);
+                fields.put(hoistable.key(), field);
+            }
+            String reference = refersToOwner(factory, owner, field, call) ? field : owner.getName() + "." + field;
+            call.replace(factory.createExpressionFromText(reference + hoistable.suffix(), call));
+        }
+    }
+
+    /**
+     * @param reference 字段名，或者访问方法的调用文本
+     * @return 在调用处 {@code reference} 是否解析到 {@code owner} 中的成员，而不是同名的局部变量、参数或内部类的成员
+     */
+    private static boolean refersToOwner(@NotNull PsiElementFactory factory, @NotNull PsiClass owner,
+                                         @NotNull String reference, @NotNull PsiElement call) {
+        PsiExpression expression = factory.createExpressionFromText(reference, call);
+        PsiElement target = expression instanceof PsiMethodCallExpression accessorCall ? accessorCall.resolveMethod()
+                : expression instanceof PsiReferenceExpression referenceExpression ? referenceExpression.resolve()
+                : null;
+        return target instanceof PsiMember member && member.getContainingClass() == owner;
+    }
+
+    /**
+     * @return 类中已有的、用常量正则表达式初始化的静态 {@code Pattern} 字段，以 key 索引，可以直接复用。
+     */
+    @NotNull
+    private static Map<String, String> findPatternFields(@NotNull PsiClass owner) {
+        Map<String, String> fields = new HashMap<>();
+        PsiConstantEvaluationHelper helper = JavaPsiFacade.getInstance(owner.getProject()).getConstantEvaluationHelper();
+        for (PsiField field : owner.getFields()) {
+            if (!field.hasModifierProperty(PsiModifier.STATIC) || !field.hasModifierProperty(PsiModifier.FINAL) ||
+                    !(PsiUtil.skipParenthesizedExprDown(field.getInitializer()) instanceof PsiMethodCallExpression initializer) ||
+                    !"compile".equals(initializer.getMethodExpression().getReferenceName())) {
+                continue;
+            }
+            PsiMethod method = initializer.resolveMethod();
+            PsiClass containingClass = method == null ? null : method.getContainingClass();
+            PsiExpression[] arguments = initializer.getArgumentList().getExpressions();
+            if (containingClass == null || !PATTERN.equals(containingClass.getQualifiedName()) ||
+                    arguments.length == 0 || arguments.length > 2) {
+                continue;
+            }
+            Object regex = helper.computeConstantExpression(arguments[0]);
+            Object flags = arguments.length == 2 ? helper.computeConstantExpression(arguments[1]) : Integer.valueOf(0);
+            if (regex instanceof String string && flags instanceof Integer value) {
+                fields.putIfAbsent(getRegexKey(string, value), field.getName());
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * 在类的开头声明用编译好的正则表达式初始化的字段。
+     *
+     * @return 字段名
+     */
+    @NotNull
+    private static String addField(@NotNull PsiElementFactory factory, @NotNull JavaCodeStyleManager codeStyleManager,
+                                   @NotNull PsiClass owner, @NotNull PsiElement call, @NotNull Hoistable hoistable) {
+        String name = codeStyleManager.suggestUniqueVariableName(hoistable.baseName(), call, true);
+        PsiField field = factory.createFieldFromText("private static final " + hoistable.type() + " " + name +
+                " = " + hoistable.initializer() + ";", owner);
+        codeStyleManager.shortenClassReferences(owner.addAfter(field, owner.getLBrace()));
+        return name;
+    }
+
+    /**
+     * 为反射查找声明一个延迟初始化的静态字段和读取它的访问方法，例如 {@code RUN_METHOD} 得到字段 {@code runMethod}
+     * 和方法 {@code getRunMethod()}。
+     * <p>
+     * 查找不在静态初始化块中执行：那样类或方法缺失时类初始化会失败，之后每次使用这个类都抛出 {@link NoClassDefFoundError}，
+     * 原来可以在调用处捕获的异常变成了无法恢复的错误。访问方法在第一次成功时才缓存结果，失败时把原来的受检异常抛给调用处，
+     * 下一次调用会重新查找，与改写前的行为相同。多个线程可能同时查找，得到的是等价的对象。
+     *
+     * @return 替换调用的表达式文本
+     */
+    @NotNull
+    private static String addLookupAccessor(@NotNull PsiElementFactory factory,
+                                            @NotNull JavaCodeStyleManager codeStyleManager,
+                                            @NotNull PsiClass owner, @NotNull PsiElement call,
+                                            @NotNull Hoistable hoistable) {
+        String field = codeStyleManager.suggestUniqueVariableName(toCamelCase(hoistable.baseName()), call, true);
+        String accessor = "get" + StringUtil.capitalize(field);
+        for (int i = 2; owner.findMethodsByName(accessor, true).length > 0; i++) {
+            accessor = "get" + StringUtil.capitalize(field) + i;
+        }
+        String throwsText = hoistable.exceptions().isEmpty() ? "" : " throws " + hoistable.exceptions();
+        PsiMethod method = factory.createMethodFromText("private static " + hoistable.type() + " " + accessor + "()" +
+                throwsText + " {\n" +
+                hoistable.type() + " value = " + field + ";\n" +
+                "if (value == null) {\n" + field + " = value = " + hoistable.initializer() + ";\n}\n" +
+                "return value;\n" +
+                "}", owner);
+        codeStyleManager.shortenClassReferences(owner.addBefore(method, owner.getRBrace()));
+        PsiField declaration = factory.createFieldFromText("private static volatile " + hoistable.type() + " " + field + ";", owner);
+        codeStyleManager.shortenClassReferences(owner.addAfter(declaration, owner.getLBrace()));
+        return accessor + "()";
+    }
+
+    /**
+     * 把常量命名转换为驼峰式，例如 {@code RUN_METHOD} 得到 {@code runMethod}。
+     */
+    @NotNull
+    private static String toCamelCase(@NotNull String constantName) {
+        StringBuilder result = new StringBuilder(constantName.length());
+        boolean upper = false;
+        for (int i = 0; i < constantName.length(); i++) {
+            char c = constantName.charAt(i);
+            if (c == '_') {
+                upper = result.length() > 0;
+                continue;
+            }
+            result.append(upper ? Character.toUpperCase(c) : Character.toLowerCase(c));
+            upper = false;
+        }
+        return result.toString();
+    }
+
+    // ---------------------------------------------------------------- quick fix
+
+    /**
+     * 该快速修复一次提升文件中所有的正则表达式和反射查找，整个文件是一个撤销步骤。
+     * 在检查结果视图中对多个问题一起应用时，按文件分组，每个文件只处理一次，用户排除的调用保持不变。
+     */
+    private static class HoistToStaticFieldsQuickFix implements LocalQuickFix, BatchQuickFix {
+
+        @NotNull
+        @Override
+        public String getFamilyName() {
+            return InspectionBundle.message("inspection.regex.reflection.hoisting.quickfix");
+        }
+
+        @Override
+        public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+            PsiElement element = descriptor.getPsiElement();
+            if (element != null) {
+                hoistAll(project, element.getContainingFile(), Collections.emptyList());
+            }
+        }
+
+        @Override
+        public void applyFix(@NotNull Project project,
+                             CommonProblemDescriptor @NotNull [] descriptors,
+                             @NotNull List<PsiElement> psiElementsToIgnore,
+                             @Nullable Runnable refreshViews) {
+            Set<PsiFile> files = new LinkedHashSet<>();
+            for (CommonProblemDescriptor descriptor : descriptors) {
+                if (descriptor instanceof ProblemDescriptor problem &&
+                        problem.getPsiElement() instanceof PsiMethodCallExpression call &&
+                        !psiElementsToIgnore.contains(call)) {
+                    files.add(call.getContainingFile());
+                }
+            }
+            if (files.isEmpty()) {
+                return;
+            }
+            ProgressManager.getInstance().run(new Task.Modal(project,
+                    InspectionBundle.message("inspection.regex.reflection.hoisting.batch.progress"), true) {
+
+                @Override
+                public void run(@NotNull ProgressIndicator indicator) {
+                    indicator.setIndeterminate(false);
+                    int done = 0;
+                    for (PsiFile file : files) {
+                        indicator.checkCanceled();
+                        indicator.setFraction((double) done++ / files.size());
+                        indicator.setText2(ReadAction.compute(file::getName));
+                        ApplicationManager.getApplication().invokeAndWait(() -> {
+                            if (file.isValid()) {
+                                WriteCommandAction.writeCommandAction(project, file).withName(getFamilyName())
+                                        .run(() -> hoistAll(project, file, psiElementsToIgnore));
+                            }
+                        }, ModalityState.defaultModalityState());
+                    }
+                }
+
+                @Override
+                public void onFinished() {
+                    if (refreshViews != null) {
+                        refreshViews.run();
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.codeInspection.BatchQuickFix;
+import com.intellij.codeInspection.CommonProblemDescriptor;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.*;
+import com.intellij.psi.codeStyle.JavaCodeStyleManager;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.util.PsiUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 该类通过操作 PSI 树，将检查问题中的表达式从使用 '==' 或 '!=' 替换为 equals 调用来提供解决方案。
+ * <p>
+ * 替换总是选择不会抛出 NullPointerException 的形式：有字符串字面量时以字面量作为接收者，
+ * 例如 {@code "lit".equals(x)}；否则使用 {@code Objects.equals(a, b)}。
+ * 模板来自 {@link EqualsTemplates}，不会为每个问题重新解析。
+ * <p>
+ * 在检查结果视图中对多个问题一起应用时，按文件分组，每个文件在一个写命令中完成全部替换，
+ * 并在整个范围上显示进度。Code Cleanup 逐个调用 {@link #applyFix(Project, ProblemDescriptor)}。
+ */
+final class ReplaceWithEqualsQuickFix implements LocalQuickFix, BatchQuickFix {
+
+    /**
+     * 返回一个部分本地化的字符串，表示快速修复的意图。
+     * 该字符串用于此插件的测试代码。
+     *
+     * @return 快速修复的简短名称。
+     */
+    @NotNull
+    @Override
+    public String getName() {
+        return InspectionBundle.message("inspection.comparing.string.references.use.quickfix");
+    }
+
+    @NotNull
+    @Override
+    public String getFamilyName() {
+        return getName();
+    }
+
+    @Override
+    public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+        if (descriptor.getPsiElement() instanceof PsiBinaryExpression binaryExpression) {
+            replace(project, binaryExpression);
+        }
+    }
+
+    /**
+     * 批量应用：先在 EDT 上按文件分组，再在可取消的模态进度中逐个文件写入，每个文件一个撤销步骤。
+     */
+    @Override
+    public void applyFix(@NotNull Project project,
+                         CommonProblemDescriptor @NotNull [] descriptors,
+                         @NotNull List<PsiElement> psiElementsToIgnore,
+                         @Nullable Runnable refreshViews) {
+        SmartPointerManager pointerManager = SmartPointerManager.getInstance(project);
+        Map<PsiFile, List<SmartPsiElementPointer<PsiBinaryExpression>>> byFile = new LinkedHashMap<>();
+        for (CommonProblemDescriptor descriptor : descriptors) {
+            if (descriptor instanceof ProblemDescriptor problem &&
+                    problem.getPsiElement() instanceof PsiBinaryExpression binaryExpression &&
+                    !psiElementsToIgnore.contains(binaryExpression)) {
+                byFile.computeIfAbsent(binaryExpression.getContainingFile(), file -> new ArrayList<>())
+                        .add(pointerManager.createSmartPsiElementPointer(binaryExpression));
+            }
+        }
+        if (byFile.isEmpty()) {
+            return;
+        }
+        ProgressManager.getInstance().run(new Task.Modal(project,
+                InspectionBundle.message("inspection.comparing.string.references.batch.progress"), true) {
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                indicator.setIndeterminate(false);
+                int done = 0;
+                for (Map.Entry<PsiFile, List<SmartPsiElementPointer<PsiBinaryExpression>>> entry : byFile.entrySet()) {
+                    indicator.checkCanceled();
+                    indicator.setFraction((double) done++ / byFile.size());
+                    indicator.setText2(ReadAction.compute(() -> entry.getKey().getName()));
+                    replaceInFile(project, entry.getKey(), entry.getValue());
+                }
+            }
+
+            @Override
+            public void onFinished() {
+                if (refreshViews != null) {
+                    refreshViews.run();
+                }
+            }
+        });
+    }
+
+    private void replaceInFile(@NotNull Project project,
+                               @NotNull PsiFile file,
+                               @NotNull List<SmartPsiElementPointer<PsiBinaryExpression>> pointers) {
+        ApplicationManager.getApplication().invokeAndWait(() -> {
+            if (!file.isValid()) {
+                return;
+            }
+            WriteCommandAction.writeCommandAction(project, file).withName(getName()).run(() -> {
+                for (SmartPsiElementPointer<PsiBinaryExpression> pointer : pointers) {
+                    PsiBinaryExpression binaryExpression = pointer.getElement();
+                    if (binaryExpression != null) {
+                        replace(project, binaryExpression);
+                    }
+                }
+            });
+        }, ModalityState.defaultModalityState());
+    }
+
+    /**
+     * 把一个 '==' 或 '!=' 比较替换为等价的 equals 调用。调用方必须持有写操作。
+     *
+     * @return 替换后的表达式；比较不完整时返回 {@code null}
+     */
+    @Nullable
+    static PsiExpression replace(@NotNull Project project, @NotNull PsiBinaryExpression binaryExpression) {
+        IElementType opSign = binaryExpression.getOperationTokenType();
+        PsiExpression lExpr = binaryExpression.getLOperand();
+        PsiExpression rExpr = binaryExpression.getROperand();
+        if (rExpr == null) {
+            return null;
+        }
+        EqualsTemplates templates = EqualsTemplates.getInstance(project);
+        // 步骤 1：选择不会因 null 接收者抛出异常的模板，并用原始文件中的元素替换占位符
+        PsiMethodCallExpression equalsCall;
+        boolean objectsEquals = false;
+        if (isStringLiteral(lExpr) || isStringLiteral(rExpr)) {
+            PsiExpression receiver = isStringLiteral(lExpr) ? lExpr : rExpr;
+            PsiExpression argument = receiver == lExpr ? rExpr : lExpr;
+            equalsCall = templates.copyEquals();
+            PsiExpression qualifierExpression = equalsCall.getMethodExpression().getQualifierExpression();
+            assert qualifierExpression != null;
+            qualifierExpression.replace(receiver);
+            equalsCall.getArgumentList().getExpressions()[0].replace(argument);
+        } else {
+            equalsCall = templates.copyObjectsEquals();
+            PsiExpression[] arguments = equalsCall.getArgumentList().getExpressions();
+            arguments[0].replace(lExpr);
+            arguments[1].replace(rExpr);
+            objectsEquals = true;
+        }
+        PsiExpression replacement = equalsCall;
+        // 步骤 2：'!=' 需要否定
+        if (opSign == JavaTokenType.NE) {
+            PsiPrefixExpression negation = templates.copyNegation();
+            PsiExpression operand = negation.getOperand();
+            assert operand != null;
+            operand.replace(equalsCall);
+            replacement = negation;
+        }
+        // 步骤 3：用替换树替换原始文件中的较大元素
+        PsiExpression result = (PsiExpression) binaryExpression.replace(replacement);
+        if (objectsEquals) {
+            result = (PsiExpression) JavaCodeStyleManager.getInstance(project).shortenClassReferences(result);
+        }
+        return result;
+    }
+
+    private static boolean isStringLiteral(@NotNull PsiExpression expression) {
+        return PsiUtil.skipParenthesizedExprDown(expression) instanceof PsiLiteralExpression literal &&
+                literal.getValue() instanceof String;
+    }
+}
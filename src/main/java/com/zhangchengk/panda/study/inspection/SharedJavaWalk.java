@@ -0,0 +1,65 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.codeInspection.InspectionManager;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiElementVisitor;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 在批处理模式下用一次遍历运行多个 {@link PandaJavaInspection}。
+ * <p>
+ * 每个检查拥有自己的 {@link ProblemsHolder}，所有处理器注册到同一个 {@link PandaNodeHandlers} 中，
+ * 因此文件只被遍历一次。调用方还可以通过 {@link #getHandlers()} 注册不属于任何检查的处理器。
+ * 调用方必须持有读操作。
+ * <pre>{@code
+ * SharedJavaWalk walk = new SharedJavaWalk(file, manager);
+ * ProblemsHolder strings = walk.add(stringInspection);
+ * ProblemsHolder loops = walk.add(loopInspection);
+ * walk.run(file);
+ * }</pre>
+ */
+public final class SharedJavaWalk {
+
+    private final PsiFile myFile;
+    private final InspectionManager myManager;
+    private final PandaNodeHandlers myHandlers = new PandaNodeHandlers();
+
+    public SharedJavaWalk(@NotNull PsiFile file, @NotNull InspectionManager manager) {
+        myFile = file;
+        myManager = manager;
+    }
+
+    /**
+     * 把检查加入本次遍历。
+     *
+     * @return 遍历结束后保存该检查结果的问题收集器
+     */
+    @NotNull
+    public ProblemsHolder add(@NotNull PandaJavaInspection inspection) {
+        ProblemsHolder holder = new ProblemsHolder(myManager, myFile, false);
+        inspection.registerHandlers(myHandlers, holder);
+        return holder;
+    }
+
+    @NotNull
+    public PandaNodeHandlers getHandlers() {
+        return myHandlers;
+    }
+
+    /**
+     * 遍历给定元素及其所有子元素，对每个元素分发到已注册的处理器。
+     */
+    public void run(@NotNull PsiElement root) {
+        if (myHandlers.isEmpty()) {
+            return;
+        }
+        PsiElementVisitor visitor = myHandlers.createVisitor();
+        PsiTreeUtil.processElements(root, element -> {
+            element.accept(visitor);
+            return true;
+        });
+    }
+}
@@ -0,0 +1,66 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.codeInspection.InspectionManager;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.impl.cache.CacheManager;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.UsageSearchContext;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link VirtualThreadPinningInspection} 的全局（批处理）版本，用于在迁移到虚拟线程之前通过 "Inspect Code" 得到整个项目的报告。
+ * <p>
+ * 范围内的 Java 文件先经 IDE 的单词索引过滤，只有包含 {@code synchronized} 或 {@code Executors} 的文件会被检查。
+ * 运行结束时在状态栏报告问题总数和涉及的文件数。
+ */
+final class VirtualThreadPinningGlobalInspection extends PandaGlobalInspection {
+
+    private static final String[] WORDS = {"synchronized", "Executors"};
+
+    private final VirtualThreadPinningInspection myLocalTool = new VirtualThreadPinningInspection();
+
+    /**
+     * @return 可能包含 synchronized 区域或线程池工厂调用的文件；索引不可用时返回全部文件。
+     */
+    @NotNull
+    @Override
+    protected List<VirtualFile> filterCandidates(@NotNull Project project, @NotNull List<VirtualFile> files) {
+        if (files.isEmpty() || DumbService.isDumb(project)) {
+            return files;
+        }
+        GlobalSearchScope searchScope = GlobalSearchScope.filesScope(project, files);
+        Set<VirtualFile> candidates = new LinkedHashSet<>();
+        CacheManager cacheManager = CacheManager.getInstance(project);
+        for (String word : WORDS) {
+            Collections.addAll(candidates,
+                    cacheManager.getVirtualFilesWithWord(word, UsageSearchContext.IN_CODE, searchScope, true));
+        }
+        return new ArrayList<>(candidates);
+    }
+
+    @NotNull
+    @Override
+    protected List<ProblemDescriptor> inspectFile(@NotNull PsiJavaFile file, @NotNull InspectionManager manager) {
+        SharedJavaWalk walk = new SharedJavaWalk(file, manager);
+        ProblemsHolder holder = walk.add(myLocalTool);
+        walk.run(file);
+        return holder.getResults();
+    }
+
+    @NotNull
+    @Override
+    protected String getSummary(@NotNull Project project, int problems, int files, int candidates) {
+        return InspectionBundle.message("inspection.virtual.thread.pinning.global.summary", problems, files, candidates);
+    }
+}
@@ -0,0 +1,419 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.openapi.project.Project;
+import com.intellij.pom.java.LanguageLevel;
+import com.intellij.psi.*;
+import com.intellij.psi.codeStyle.JavaCodeStyleManager;
+import com.intellij.psi.util.InheritanceUtil;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.PsiUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 实现一个检查，为迁移到虚拟线程查找两类问题：
+ * <ul>
+ *     <li>包含阻塞调用（文件和套接字 I/O、JDBC、{@code Thread.sleep}、{@code Object.wait} 等）的 synchronized 方法或代码块。
+ *     在 JDK 21 到 23 上，虚拟线程在持有监视器时阻塞会把它钉（pin）在载体线程上，载体线程在这期间不能运行其他虚拟线程；</li>
+ *     <li>用 {@code Executors.newFixedThreadPool} 或 {@code newCachedThreadPool} 创建、并被提交了阻塞任务的线程池。
+ *     固定大小的池把并发的阻塞操作数限制为线程数，而每个任务一个虚拟线程的执行器没有这个限制。</li>
+ * </ul>
+ * 锁住私有 final 锁对象的 synchronized 代码块可以改为 {@code ReentrantLock}：锁对象的所有使用都在这个文件中，
+ * 因此可以一起改写，保持互斥。{@code newCachedThreadPool} 可以改为 {@code Executors.newVirtualThreadPerTaskExecutor()}；
+ * 固定大小的池不提供快速修复，因为它的线程数可能正是用来限制对某个资源的并发访问。
+ * 整个项目的报告见 {@link VirtualThreadPinningGlobalInspection}。
+ */
+public final class VirtualThreadPinningInspection extends AbstractBaseJavaLocalInspectionTool
+        implements PandaJavaInspection {
+
+    private static final String REENTRANT_LOCK = "java.util.concurrent.locks.ReentrantLock";
+    private static final String EXECUTORS = "java.util.concurrent.Executors";
+
+    /**
+     * 其方法都可能阻塞的类型，包括它们的子类型。
+     */
+    private static final Set<String> BLOCKING_TYPES = Set.of(
+            "java.io.InputStream", "java.io.OutputStream", "java.io.Reader", "java.io.Writer",
+            "java.io.RandomAccessFile", "java.net.Socket", "java.net.ServerSocket", "java.net.DatagramSocket",
+            "java.net.URLConnection", "java.net.http.HttpClient", "java.nio.channels.FileChannel",
+            "java.nio.channels.SocketChannel", "java.nio.channels.ServerSocketChannel", "java.nio.file.Files",
+            "java.sql.Connection", "java.sql.Statement", "java.sql.ResultSet", "javax.sql.DataSource",
+            "java.sql.DriverManager");
+    /**
+     * 内存中的流：它们是 {@link #BLOCKING_TYPES} 的子类型，但从不阻塞。
+     */
+    private static final Set<String> IN_MEMORY_TYPES = Set.of(
+            "java.io.ByteArrayInputStream", "java.io.ByteArrayOutputStream", "java.io.StringReader",
+            "java.io.StringWriter", "java.io.CharArrayReader", "java.io.CharArrayWriter");
+    /**
+     * 创建时就会打开文件或连接的类型。
+     */
+    private static final Set<String> OPENING_TYPES = Set.of(
+            "java.io.FileInputStream", "java.io.FileOutputStream", "java.io.FileReader", "java.io.FileWriter",
+            "java.io.RandomAccessFile", "java.net.Socket", "java.net.ServerSocket");
+    private static final Set<String> POOL_FACTORIES = Set.of("newFixedThreadPool", "newCachedThreadPool");
+    private static final Set<String> SUBMIT_METHODS = Set.of("submit", "execute", "invokeAll", "invokeAny");
+
+    /**
+     * 提供一个访问者，检查 synchronized 区域中的阻塞调用和执行阻塞任务的平台线程池。
+     * 访问者必须是非递归的，并且必须是线程安全的。
+     *
+     * @param holder     用于访问者注册发现的问题的对象
+     * @param isOnTheFly 如果检查是在非批处理模式下运行，则为 true
+     * @return 此检查的非空访问者
+     */
+    @NotNull
+    @Override
+    public PsiElementVisitor buildVisitor(@NotNull final ProblemsHolder holder, boolean isOnTheFly) {
+        PandaNodeHandlers handlers = new PandaNodeHandlers();
+        registerHandlers(handlers, holder);
+        return handlers.createVisitor();
+    }
+
+    @Override
+    public void registerHandlers(@NotNull PandaNodeHandlers handlers, @NotNull ProblemsHolder holder) {
+        handlers.register(PsiMethod.class, method -> {
+            if (method.hasModifierProperty(PsiModifier.SYNCHRONIZED) && method.getBody() != null) {
+                checkRegion(method, method.getBody(), holder);
+            }
+        });
+        handlers.register(PsiSynchronizedStatement.class, statement -> {
+            if (statement.getBody() != null) {
+                checkRegion(statement, statement.getBody(), holder);
+            }
+        });
+        handlers.register(PsiMethodCallExpression.class, call -> checkThreadPool(call, holder));
+    }
+
+    private static void checkRegion(@NotNull PsiElement region, @NotNull PsiCodeBlock body, @NotNull ProblemsHolder holder) {
+        PsiCall blocking = findBlockingCall(body);
+        if (blocking == null) {
+            return;
+        }
+        PsiElement anchor = region instanceof PsiMethod method ? getSynchronizedKeyword(method) : region.getFirstChild();
+        String message = InspectionBundle.message("inspection.virtual.thread.pinning.descriptor", describe(blocking));
+        if (getLockField(region) != null) {
+            holder.registerProblem(anchor, message, new ConvertToReentrantLockQuickFix());
+        } else {
+            holder.registerProblem(anchor, message);
+        }
+    }
+
+    private static void checkThreadPool(@NotNull PsiMethodCallExpression call, @NotNull ProblemsHolder holder) {
+        String name = call.getMethodExpression().getReferenceName();
+        if (!POOL_FACTORIES.contains(name)) {
+            return;
+        }
+        PsiMethod factory = call.resolveMethod();
+        PsiClass executors = factory == null ? null : factory.getContainingClass();
+        if (executors == null || !EXECUTORS.equals(executors.getQualifiedName())) {
+            return;
+        }
+        PsiCall blocking = findBlockingTask(call);
+        if (blocking == null) {
+            return;
+        }
+        String message = InspectionBundle.message("inspection.virtual.thread.pool.descriptor", name, describe(blocking));
+        if ("newCachedThreadPool".equals(name) && PsiUtil.getLanguageLevel(call).isAtLeast(LanguageLevel.JDK_21) &&
+                executors.findMethodsByName("newVirtualThreadPerTaskExecutor", false).length > 0) {
+            holder.registerProblem(call, message, new UseVirtualThreadExecutorQuickFix());
+        } else {
+            holder.registerProblem(call, message);
+        }
+    }
+
+    // ---------------------------------------------------------------- blocking calls
+
+    /**
+     * @return 作用域中的第一个阻塞调用；不进入 lambda、匿名类和局部类，因为它们通常在别的线程或稍后执行。
+     */
+    @Nullable
+    static PsiCall findBlockingCall(@NotNull PsiElement scope) {
+        PsiCall[] found = new PsiCall[1];
+        scope.accept(new JavaRecursiveElementWalkingVisitor() {
+            @Override
+            public void visitLambdaExpression(@NotNull PsiLambdaExpression expression) {
+            }
+
+            @Override
+            public void visitClass(@NotNull PsiClass aClass) {
+            }
+
+            @Override
+            public void visitCallExpression(@NotNull PsiCallExpression callExpression) {
+                if (isBlocking(callExpression)) {
+                    found[0] = callExpression;
+                    stopWalking();
+                    return;
+                }
+                super.visitCallExpression(callExpression);
+            }
+        });
+        return found[0];
+    }
+
+    static boolean isBlocking(@NotNull PsiCallExpression call) {
+        if (call instanceof PsiNewExpression creation) {
+            PsiJavaCodeReferenceElement reference = creation.getClassReference();
+            return reference != null && reference.resolve() instanceof PsiClass created && isInheritorOfAny(created, OPENING_TYPES);
+        }
+        PsiMethod method = call.resolveMethod();
+        PsiClass owner = method == null ? null : method.getContainingClass();
+        if (owner == null) {
+            return false;
+        }
+        String name = method.getName();
+        String ownerName = owner.getQualifiedName();
+        if (CommonClassNames.JAVA_LANG_OBJECT.equals(ownerName)) {
+            return "wait".equals(name);
+        }
+        if (CommonClassNames.JAVA_LANG_THREAD.equals(ownerName)) {
+            return "sleep".equals(name) || "join".equals(name);
+        }
+        if (isInheritorOfAny(owner, Set.of("java.util.concurrent.Future", "java.util.concurrent.CompletableFuture"))) {
+            return "get".equals(name) || "join".equals(name);
+        }
+        if (InheritanceUtil.isInheritor(owner, "java.util.concurrent.BlockingQueue")) {
+            return "take".equals(name) || "put".equals(name);
+        }
+        if (InheritanceUtil.isInheritor(owner, "java.util.concurrent.CountDownLatch") ||
+                InheritanceUtil.isInheritor(owner, "java.util.concurrent.Semaphore")) {
+            return "await".equals(name) || "acquire".equals(name);
+        }
+        if (method.isConstructor() || IN_MEMORY_TYPES.contains(ownerName)) {
+            return false;
+        }
+        // Calls on a variable typed as an in-memory stream resolve to the stream's own methods or to the base class
+        if (call instanceof PsiMethodCallExpression methodCall &&
+                PsiUtil.resolveClassInClassTypeOnly(getQualifierType(methodCall)) instanceof PsiClass receiver &&
+                IN_MEMORY_TYPES.contains(receiver.getQualifiedName())) {
+            return false;
+        }
+        return isInheritorOfAny(owner, BLOCKING_TYPES);
+    }
+
+    @Nullable
+    private static PsiType getQualifierType(@NotNull PsiMethodCallExpression call) {
+        PsiExpression qualifier = call.getMethodExpression().getQualifierExpression();
+        return qualifier == null ? null : qualifier.getType();
+    }
+
+    private static boolean isInheritorOfAny(@NotNull PsiClass psiClass, @NotNull Set<String> baseClasses) {
+        for (String baseClass : baseClasses) {
+            if (InheritanceUtil.isInheritor(psiClass, baseClass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return 用于消息的调用描述，例如 {@code Thread.sleep()} 或 {@code new FileInputStream()}。
+     */
+    @NotNull
+    private static String describe(@NotNull PsiCall call) {
+        if (call instanceof PsiNewExpression creation && creation.getClassReference() != null) {
+            return "new " + creation.getClassReference().getReferenceName() + "()";
+        }
+        PsiMethod method = call.resolveMethod();
+        PsiClass owner = method == null ? null : method.getContainingClass();
+        return method == null ? call.getText() : (owner == null ? "" : owner.getName() + ".") + method.getName() + "()";
+    }
+
+    // ---------------------------------------------------------------- thread pools
+
+    /**
+     * @return 提交给线程池的任务中的第一个阻塞调用。线程池必须被保存到一个变量中，
+     * 任务是 lambda 或者引用同一文件中某个方法的方法引用。
+     */
+    @Nullable
+    private static PsiCall findBlockingTask(@NotNull PsiMethodCallExpression factory) {
+        PsiElement parent = PsiUtil.skipParenthesizedExprUp(factory.getParent());
+        PsiVariable pool = null;
+        if (parent instanceof PsiVariable variable) {
+            pool = variable;
+        } else if (parent instanceof PsiAssignmentExpression assignment &&
+                PsiUtil.skipParenthesizedExprDown(assignment.getLExpression()) instanceof PsiReferenceExpression reference &&
+                reference.resolve() instanceof PsiVariable variable) {
+            pool = variable;
+        }
+        if (pool == null) {
+            return null;
+        }
+        PsiElement scope = pool instanceof PsiField ? pool.getContainingFile() : PsiUtil.getVariableCodeBlock(pool, null);
+        if (scope == null) {
+            return null;
+        }
+        for (PsiReferenceExpression reference : PsiTreeUtil.findChildrenOfType(scope, PsiReferenceExpression.class)) {
+            if (!(reference.getParent() instanceof PsiReferenceExpression methodExpression) ||
+                    !SUBMIT_METHODS.contains(methodExpression.getReferenceName()) ||
+                    !(methodExpression.getParent() instanceof PsiMethodCallExpression submit) ||
+                    !reference.isReferenceTo(pool)) {
+                continue;
+            }
+            for (PsiExpression task : submit.getArgumentList().getExpressions()) {
+                PsiCall blocking = findBlockingCallInTask(PsiUtil.skipParenthesizedExprDown(task));
+                if (blocking != null) {
+                    return blocking;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static PsiCall findBlockingCallInTask(@Nullable PsiExpression task) {
+        if (task instanceof PsiLambdaExpression lambda && lambda.getBody() != null) {
+            return findBlockingCall(lambda.getBody());
+        }
+        if (task instanceof PsiMethodReferenceExpression reference &&
+                reference.resolve() instanceof PsiMethod method && method.getBody() != null &&
+                method.getContainingFile() == reference.getContainingFile()) {
+            return findBlockingCall(method.getBody());
+        }
+        return null;
+    }
+
+    // ---------------------------------------------------------------- ReentrantLock conversion
+
+    /**
+     * @return synchronized 代码块锁住的私有 final 字段。字段必须用 {@code new Object()} 初始化，
+     * 并且文件中对它的每个引用都是 synchronized 代码块的锁，这样它只被用作监视器，所有锁住它的代码都在这个文件中。
+     * 其他监视器返回 {@code null}：{@code this}、类对象、synchronized 方法和非私有字段锁住的对象可以在其他文件中被锁住，
+     * 只改写这个文件中的区域会破坏互斥。
+     */
+    @Nullable
+    private static PsiField getLockField(@NotNull PsiElement region) {
+        if (!(region instanceof PsiSynchronizedStatement statement) ||
+                !(PsiUtil.skipParenthesizedExprDown(statement.getLockExpression()) instanceof PsiReferenceExpression reference) ||
+                !(reference.resolve() instanceof PsiField field) ||
+                !field.hasModifierProperty(PsiModifier.PRIVATE) || !field.hasModifierProperty(PsiModifier.FINAL) ||
+                !(PsiUtil.skipParenthesizedExprDown(field.getInitializer()) instanceof PsiNewExpression creation) ||
+                creation.getAnonymousClass() != null || creation.getClassReference() == null ||
+                !CommonClassNames.JAVA_LANG_OBJECT.equals(creation.getClassReference().getQualifiedName())) {
+            return null;
+        }
+        return findRegions(field) == null ? null : field;
+    }
+
+    /**
+     * @return 锁住 {@code lock} 的所有 synchronized 代码块，按在文件中的顺序；字段在其他地方被使用，
+     * 或者任何一个区域使用 wait/notify 时返回 {@code null}，因为那需要改写为 {@code Condition}。
+     */
+    @Nullable
+    private static List<PsiSynchronizedStatement> findRegions(@NotNull PsiField lock) {
+        List<PsiSynchronizedStatement> regions = new ArrayList<>();
+        String name = lock.getName();
+        for (PsiReferenceExpression reference : PsiTreeUtil.findChildrenOfType(lock.getContainingFile(), PsiReferenceExpression.class)) {
+            if (!name.equals(reference.getReferenceName()) || !reference.isReferenceTo(lock)) {
+                continue;
+            }
+            if (!(PsiUtil.skipParenthesizedExprUp(reference.getParent()) instanceof PsiSynchronizedStatement statement) ||
+                    !PsiTreeUtil.isAncestor(statement.getLockExpression(), reference, false)) {
+                return null;
+            }
+            for (PsiMethodCallExpression call : PsiTreeUtil.findChildrenOfType(statement, PsiMethodCallExpression.class)) {
+                String method = call.getMethodExpression().getReferenceName();
+                if ("wait".equals(method) || "notify".equals(method) || "notifyAll".equals(method)) {
+                    return null;
+                }
+            }
+            regions.add(statement);
+        }
+        return regions;
+    }
+
+    @NotNull
+    private static PsiElement getSynchronizedKeyword(@NotNull PsiMethod method) {
+        for (PsiElement child : method.getModifierList().getChildren()) {
+            if (child instanceof PsiKeyword && PsiKeyword.SYNCHRONIZED.equals(child.getText())) {
+                return child;
+            }
+        }
+        PsiIdentifier name = method.getNameIdentifier();
+        return name == null ? method : name;
+    }
+
+    /**
+     * 该快速修复把锁对象字段改为 {@code ReentrantLock}，并把文件中锁住它的所有 synchronized 代码块改写为
+     * {@code lock.lock(); try { ... } finally { lock.unlock(); }}。
+     * 虚拟线程在 {@code ReentrantLock} 上等待或在持有它时阻塞，都会从载体线程卸载。
+     */
+    private static class ConvertToReentrantLockQuickFix implements LocalQuickFix {
+
+        @NotNull
+        @Override
+        public String getFamilyName() {
+            return InspectionBundle.message("inspection.virtual.thread.pinning.reentrant.lock.quickfix");
+        }
+
+        @Override
+        public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+            PsiField lock = descriptor.getPsiElement().getParent() instanceof PsiSynchronizedStatement statement
+                    ? getLockField(statement)
+                    : null;
+            List<PsiSynchronizedStatement> regions = lock == null ? null : findRegions(lock);
+            PsiTypeElement typeElement = lock == null ? null : lock.getTypeElement();
+            if (regions == null || typeElement == null) {
+                return;
+            }
+            PsiElementFactory factory = JavaPsiFacade.getInstance(project).getElementFactory();
+            JavaCodeStyleManager codeStyleManager = JavaCodeStyleManager.getInstance(project);
+            // Inner regions first, so that an outer region copies their converted text
+            for (int i = regions.size() - 1; i >= 0; i--) {
+                convert(factory, regions.get(i));
+            }
+            typeElement.replace(factory.createTypeElementFromText(REENTRANT_LOCK, lock));
+            lock.setInitializer(factory.createExpressionFromText("new " + REENTRANT_LOCK + "()", lock));
+            codeStyleManager.shortenClassReferences(lock);
+        }
+
+        private static void convert(@NotNull PsiElementFactory factory, @NotNull PsiSynchronizedStatement statement) {
+            PsiExpression lockExpression = statement.getLockExpression();
+            PsiCodeBlock body = statement.getBody();
+            if (lockExpression == null || body == null) {
+                return;
+            }
+            // The lock expression already refers to the field correctly from this place, e.g. Outer.this.lock
+            String lock = lockExpression.getText();
+            String guarded = "try " + body.getText() + "\nfinally {\n" + lock + ".unlock();\n}";
+            if (statement.getParent() instanceof PsiCodeBlock block) {
+                block.addBefore(factory.createStatementFromText(lock + ".lock();", statement), statement);
+                statement.replace(factory.createStatementFromText(guarded, statement));
+            } else {
+                statement.replace(factory.createStatementFromText("{\n" + lock + ".lock();\n" + guarded + "\n}", statement));
+            }
+        }
+    }
+
+    /**
+     * 该快速修复把 {@code newCachedThreadPool} 替换为 {@code Executors.newVirtualThreadPerTaskExecutor()}，丢弃线程工厂参数。
+     * 两者都不限制同时运行的任务数。
+     */
+    private static class UseVirtualThreadExecutorQuickFix implements LocalQuickFix {
+
+        @NotNull
+        @Override
+        public String getFamilyName() {
+            return InspectionBundle.message("inspection.virtual.thread.pool.quickfix");
+        }
+
+        @Override
+        public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+            if (!(descriptor.getPsiElement() instanceof PsiMethodCallExpression call)) {
+                return;
+            }
+            PsiElementFactory factory = JavaPsiFacade.getInstance(project).getElementFactory();
+            PsiElement replaced = call.replace(factory.createExpressionFromText(EXECUTORS + ".newVirtualThreadPerTaskExecutor()", call));
+            JavaCodeStyleManager.getInstance(project).shortenClassReferences(replaced);
+        }
+    }
+}
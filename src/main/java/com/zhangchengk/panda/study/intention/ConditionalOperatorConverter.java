@@ -5,35 +5,52 @@ import com.intellij.codeInsight.intention.IntentionAction;
 import com.intellij.codeInsight.intention.PsiElementBaseIntentionAction;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.project.Project;
-import com.intellij.psi.JavaPsiFacade;
 import com.intellij.psi.JavaTokenType;
 import com.intellij.psi.PsiAssignmentExpression;
 import com.intellij.psi.PsiBlockStatement;
+import com.intellij.psi.PsiCallExpression;
+import com.intellij.psi.PsiCodeBlock;
 import com.intellij.psi.PsiConditionalExpression;
 import com.intellij.psi.PsiDeclarationStatement;
 import com.intellij.psi.PsiElement;
-import com.intellij.psi.PsiElementFactory;
 import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiExpressionList;
 import com.intellij.psi.PsiExpressionStatement;
-import com.intellij.psi.PsiForStatement;
 import com.intellij.psi.PsiIfStatement;
 import com.intellij.psi.PsiJavaToken;
+import com.intellij.psi.PsiLabeledStatement;
 import com.intellij.psi.PsiLocalVariable;
+import com.intellij.psi.PsiLoopStatement;
+import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.PsiNewExpression;
+import com.intellij.psi.PsiParenthesizedExpression;
 import com.intellij.psi.PsiReferenceExpression;
+import com.intellij.psi.PsiReturnStatement;
 import com.intellij.psi.PsiStatement;
+import com.intellij.psi.PsiThisExpression;
+import com.intellij.psi.PsiTypeElement;
 import com.intellij.psi.codeStyle.CodeStyleManager;
+import com.intellij.psi.util.JavaPsiConstructorUtil;
 import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.PsiUtil;
 import com.intellij.util.IncorrectOperationException;
+import com.siyeh.ig.psiutils.SideEffectChecker;
+import com.zhangchengk.panda.study.metrics.PandaMetric;
+import com.zhangchengk.panda.study.metrics.PandaMetrics;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
 /**
  * 实现一个意图操作，将三元表达式替换为 if-then-else 语句。
  * 将光标放到 ? 触发动作
  */
 @NonNls
-final class ConditionalOperatorConverter extends PsiElementBaseIntentionAction implements IntentionAction {
+public final class ConditionalOperatorConverter extends PsiElementBaseIntentionAction implements IntentionAction {
 
     /**
      * 检查此意图是否在文件中的光标偏移位置可用——光标必须位于三元表达式的 "?" 字符之前。如果满足此条件，此意图的条目将显示在可用意图列表中。
@@ -46,6 +63,16 @@ final class ConditionalOperatorConverter extends PsiElementBaseIntentionAction i
      * @return 如果光标位于字符串字面量元素中，则返回 {@code true}，表示应将此功能添加到意图菜单；对于其他类型的光标位置，返回 {@code false}。
      */
     public boolean isAvailable(@NotNull Project project, Editor editor, @Nullable PsiElement element) {
+        long start = PandaMetrics.start();
+        try {
+            return isAvailable(element);
+        }
+        finally {
+            PandaMetrics.stop(PandaMetric.CONVERTER_IS_AVAILABLE, start);
+        }
+    }
+
+    private static boolean isAvailable(@Nullable PsiElement element) {
         // Quick sanity check
         if (element == null) {
             return false;
@@ -56,10 +83,10 @@ final class ConditionalOperatorConverter extends PsiElementBaseIntentionAction i
             if (token.getTokenType() != JavaTokenType.QUEST) {
                 return false;
             }
-            // Is this token part of a fully formed conditional, i.e. a ternary?
+            // Is this token part of a fully formed conditional, i.e. a ternary, that can be converted?
             if (token.getParent() instanceof PsiConditionalExpression conditionalExpression) {
                 // Satisfies all criteria; call back invoke method
-                return conditionalExpression.getThenExpression() != null && conditionalExpression.getElseExpression() != null;
+                return isConvertible(conditionalExpression);
             }
             return false;
         }
@@ -78,126 +105,318 @@ final class ConditionalOperatorConverter extends PsiElementBaseIntentionAction i
      */
     public void invoke(@NotNull Project project, Editor editor, @NotNull PsiElement element)
             throws IncorrectOperationException {
-        // Get the factory for making new PsiElements, and the code style manager to format new statements
-        PsiElementFactory factory = JavaPsiFacade.getInstance(project).getElementFactory();
-        CodeStyleManager codeStylist = CodeStyleManager.getInstance(project);
-
         // Get the parent of the "?" element in the ternary statement to find the conditional expression that contains it
         PsiConditionalExpression conditionalExpression =
                 PsiTreeUtil.getParentOfType(element, PsiConditionalExpression.class, false);
         if (conditionalExpression == null) {
             return;
         }
-        // Verify the conditional expression exists and has two outcomes in the ternary statement.
-        PsiExpression thenExpression = conditionalExpression.getThenExpression();
-        PsiExpression elseExpression = conditionalExpression.getElseExpression();
-        if (thenExpression == null || elseExpression == null) {
-            return;
+        long start = PandaMetrics.start();
+        try {
+            PsiIfStatement ifStatement = convert(project, conditionalExpression);
+            if (ifStatement != null) {
+                // The only reformat of the conversion
+                CodeStyleManager.getInstance(project).reformat(ifStatement);
+            }
+        }
+        finally {
+            PandaMetrics.stop(PandaMetric.CONVERTER_INVOKE, start);
         }
+    }
+
+    /**
+     * 检查三元表达式是否可以被转换：两个分支都存在，并且它（或以它为参数的方法调用，{@code this(...)} 和 {@code super(...)} 除外）
+     * 是局部变量的初始值、赋值语句的右侧、返回值，或者本身构成一条语句。
+     * 转换后条件最先求值，因此语句中原本先于三元表达式求值的部分（调用的限定符、前面的参数、赋值的左侧）必须没有副作用，
+     * 这时条件也必须没有副作用。通常只检查父元素；只有存在这样的部分时才做解析，因此可以在 {@link #isAvailable} 和批量扫描中频繁调用。
+     *
+     * @param conditionalExpression 要检查的三元表达式。
+     * @return 如果 {@link #convert} 能够处理该表达式，则返回 {@code true}。
+     */
+    public static boolean isConvertible(@NotNull PsiConditionalExpression conditionalExpression) {
+        return findSite(conditionalExpression) != null;
+    }
 
-        // Keep searching up the PSI Tree in case the ternary is part of a FOR statement.
-        PsiElement originalStatement = PsiTreeUtil.getParentOfType(conditionalExpression, PsiStatement.class, false);
-        while (originalStatement instanceof PsiForStatement) {
-            originalStatement = PsiTreeUtil.getParentOfType(originalStatement, PsiStatement.class, true);
+    /**
+     * 将三元表达式转换为 if-then-else 语句，供意图操作和批量转换共用。
+     * 包含三元表达式的语句在每个分支中复制一份，并用对应的分支值替换三元表达式；
+     * else 分支中嵌套的三元表达式变为 else-if 链，then 分支中嵌套的三元表达式变为嵌套的 if 语句。
+     * <p>
+     * 新语句由缓存的 PSI 原型复制而来，不会被格式化；调用方负责对返回的语句做一次格式化。
+     * 调用方必须处于写操作中，并应先用 {@link #isConvertible} 检查表达式。
+     *
+     * @param project               对正在编辑的 Project 对象的引用。
+     * @param conditionalExpression 要转换的三元表达式。
+     * @return 新插入的 if 语句；如果无法转换，则返回 {@code null}。
+     */
+    @Nullable
+    static PsiIfStatement convert(@NotNull Project project, @NotNull PsiConditionalExpression conditionalExpression) {
+        Site site = findSite(conditionalExpression);
+        if (site != null && site.variable() != null &&
+                ((PsiDeclarationStatement) site.statement()).getDeclaredElements().length > 1) {
+            site = splitDeclaration(site);
         }
-        if (originalStatement == null) {
-            return;
+        if (site == null) {
+            return null;
         }
+        ConverterTemplates templates = ConverterTemplates.getInstance(project);
 
-        // If the original statement is a declaration based on a ternary operator,
-        // split the declaration and assignment
-        if (originalStatement instanceof PsiDeclarationStatement declaration) {
-            // Find the local variable within the declaration statement
-            PsiElement[] declaredElements = declaration.getDeclaredElements();
-            PsiLocalVariable variable = null;
-            for (PsiElement declaredElement : declaredElements) {
-                if (declaredElement instanceof PsiLocalVariable &&
-                        PsiTreeUtil.isAncestor(declaredElement, conditionalExpression, true)) {
-                    variable = (PsiLocalVariable) declaredElement;
-                    break;
-                }
-            }
-            if (variable == null) {
-                return;
-            }
-
-            // Ensure that the variable declaration is not combined with other declarations, and add a mark
-            variable.normalizeDeclaration();
-            Object marker = new Object();
-            PsiTreeUtil.mark(conditionalExpression, marker);
-
-            // Create a new expression to declare the local variable
-            PsiExpressionStatement statement =
-                    (PsiExpressionStatement) factory.createStatementFromText(variable.getName() + " = 0;", null);
-            statement = (PsiExpressionStatement) codeStylist.reformat(statement);
-
-            // Replace initializer with the ternary expression, making an assignment statement using the ternary
-            PsiExpression rExpression = ((PsiAssignmentExpression) statement.getExpression()).getRExpression();
-            PsiExpression variableInitializer = variable.getInitializer();
-            if (rExpression == null || variableInitializer == null) {
-                return;
-            }
-            rExpression.replace(variableInitializer);
+        // Build the statement that is copied into each branch, detached from the file:
+        // the original statement, or "name = initializer;" for a declaration
+        Object marker = new Object();
+        PsiTreeUtil.mark(site.slot(), marker);
+        PsiStatement host;
+        try {
+            host = site.variable() == null ? (PsiStatement) site.statement().copy() : createAssignment(templates, site.variable());
+        }
+        finally {
+            PsiTreeUtil.releaseMark(site.slot(), marker);
+        }
+        PsiElement hostSlot = PsiTreeUtil.releaseMark(host, marker);
+        if (!(hostSlot instanceof PsiExpression hostExpression) ||
+                !(PsiUtil.skipParenthesizedExprDown(hostExpression) instanceof PsiConditionalExpression hostTernary)) {
+            return null;
+        }
+        PsiIfStatement ifStatement = buildIf(templates, host, hostTernary);
 
-            // Remove the initializer portion of the local variable statement,
-            // making it a declaration statement with no initializer
-            variableInitializer.delete();
+        if (site.variable() == null) {
+            // Replace the entire original statement with the new IF
+            return (PsiIfStatement) site.statement().replace(ifStatement);
+        }
 
-            // Get the grandparent of the local var declaration, and add the new declaration just beneath it
-            PsiElement variableParent = variable.getParent();
-            originalStatement = variableParent.getParent().addAfter(statement, variableParent);
-            conditionalExpression = (PsiConditionalExpression) PsiTreeUtil.releaseMark(originalStatement, marker);
+        // Split the declaration: keep it without an initializer and add the new IF just beneath it.
+        // A 'var' declaration needs its inferred type spelled out once the initializer is gone.
+        PsiLocalVariable variable = site.variable();
+        PsiTypeElement typeElement = variable.getTypeElement();
+        if (typeElement.isInferredType()) {
+            typeElement.replace(templates.getFactory().createTypeElement(variable.getType()));
         }
-        if (conditionalExpression == null) {
-            return;
+        variable.setInitializer(null);
+        return (PsiIfStatement) site.statement().getParent().addAfter(ifStatement, site.statement());
+    }
+
+    /**
+     * 把包含多个变量的声明拆成每个变量一条声明，这样 if 语句会被插入到三元表达式所在的变量和后面的变量之间，
+     * 例如 {@code int x = c ? 1 : 2, y = x + 1;} 中 {@code y} 的初始值仍然看到赋值后的 {@code x}。
+     *
+     * @return 拆分后三元表达式的位置
+     */
+    @Nullable
+    private static Site splitDeclaration(@NotNull Site site) {
+        PsiElement block = site.statement().getParent();
+        Object marker = new Object();
+        PsiTreeUtil.mark(site.slot(), marker);
+        // Variables after the first are moved into copies of the declaration, so find the ternary again by its mark
+        Objects.requireNonNull(site.variable()).normalizeDeclaration();
+        PsiElement slot = PsiTreeUtil.releaseMark(block, marker);
+        if (!(slot instanceof PsiExpression expression) ||
+                !(PsiUtil.skipParenthesizedExprDown(expression) instanceof PsiConditionalExpression ternary)) {
+            return null;
         }
+        return findSite(ternary);
+    }
+
+    /**
+     * 以缓存的原型创建 if 语句：条件取自三元表达式，每个分支是 host 的一个副本，
+     * 其中三元表达式被替换为对应的分支值。
+     */
+    @NotNull
+    private static PsiIfStatement buildIf(@NotNull ConverterTemplates templates,
+                                          @NotNull PsiStatement host,
+                                          @NotNull PsiConditionalExpression ternary) {
+        Object marker = new Object();
+        PsiTreeUtil.mark(getSlot(ternary), marker);
 
-        // Create an IF statement from a string with placeholder elements.
-        // This will replace the ternary statement
-        PsiIfStatement newIfStmt = (PsiIfStatement) factory.createStatementFromText("if (true) {a=b;} else {c=d;}", null);
-        newIfStmt = (PsiIfStatement) codeStylist.reformat(newIfStmt);
+        PsiIfStatement ifStatement = templates.copyIfElse();
+        PsiExpression condition = PsiUtil.skipParenthesizedExprDown(ternary.getCondition());
+        Objects.requireNonNull(ifStatement.getCondition()).replace(condition == null ? ternary.getCondition() : condition);
 
-        // Replace the conditional expression with the one from the original ternary expression
-        PsiReferenceExpression condition = (PsiReferenceExpression) conditionalExpression.getCondition().copy();
-        PsiExpression newIfStmtCondition = newIfStmt.getCondition();
-        if (newIfStmtCondition == null) {
-            return;
+        PsiStatement thenStatement = buildBranch(templates, host, marker, Objects.requireNonNull(ternary.getThenExpression()));
+        PsiBlockStatement thenBranch = (PsiBlockStatement) Objects.requireNonNull(ifStatement.getThenBranch());
+        thenBranch.getCodeBlock().add(thenStatement);
+
+        PsiStatement elseStatement = buildBranch(templates, host, marker, Objects.requireNonNull(ternary.getElseExpression()));
+        PsiBlockStatement elseBranch = (PsiBlockStatement) Objects.requireNonNull(ifStatement.getElseBranch());
+        if (elseStatement instanceof PsiIfStatement) {
+            // A nested ternary in the ELSE branch continues as an else-if chain
+            elseBranch.replace(elseStatement);
+        } else {
+            elseBranch.getCodeBlock().add(elseStatement);
         }
-        newIfStmtCondition.replace(condition);
+        return ifStatement;
+    }
 
-        // Begin building the assignment string for the THEN and ELSE clauses using the
-        // parent of the ternary conditional expression
-        PsiAssignmentExpression assignmentExpression =
-                PsiTreeUtil.getParentOfType(conditionalExpression, PsiAssignmentExpression.class, false);
-        if (assignmentExpression == null) {
-            return;
+    /**
+     * 复制 host，并将其中标记的三元表达式替换为分支值。如果分支值本身是一个完整的三元表达式，则继续将其转换为 if 语句。
+     */
+    @NotNull
+    private static PsiStatement buildBranch(@NotNull ConverterTemplates templates,
+                                            @NotNull PsiStatement host,
+                                            @NotNull Object marker,
+                                            @NotNull PsiExpression value) {
+        PsiStatement branch = (PsiStatement) host.copy();
+        PsiElement slot = PsiTreeUtil.releaseMark(branch, marker);
+        PsiExpression unwrapped = PsiUtil.skipParenthesizedExprDown(value);
+        PsiElement replaced = Objects.requireNonNull(slot).replace(unwrapped == null ? value : unwrapped);
+        if (replaced instanceof PsiConditionalExpression nested &&
+                nested.getThenExpression() != null && nested.getElseExpression() != null) {
+            return buildIf(templates, branch, nested);
         }
-        // Get the contents of the assignment expression up to the start of the ternary expression
-        String exprFrag = assignmentExpression.getLExpression().getText()
-                + assignmentExpression.getOperationSign().getText();
+        return branch;
+    }
 
-        // Build the THEN statement string for the new IF statement,
-        // make a PsiExpressionStatement from the string, and switch the placeholder
-        String thenStr = exprFrag + thenExpression.getText() + ";";
-        PsiExpressionStatement thenStmt = (PsiExpressionStatement) factory.createStatementFromText(thenStr, null);
-        PsiBlockStatement thenBranch = (PsiBlockStatement) newIfStmt.getThenBranch();
-        if (thenBranch == null) {
-            return;
+    /**
+     * 以原型 {@code a = b;} 创建 {@code name = initializer;}，不解析任何新的文本。
+     */
+    @NotNull
+    private static PsiStatement createAssignment(@NotNull ConverterTemplates templates, @NotNull PsiLocalVariable variable) {
+        PsiExpressionStatement statement = templates.copyAssignment();
+        PsiAssignmentExpression assignment = (PsiAssignmentExpression) statement.getExpression();
+        PsiReferenceExpression lExpression = (PsiReferenceExpression) assignment.getLExpression();
+        Objects.requireNonNull(lExpression.getReferenceNameElement()).replace(variable.getNameIdentifier());
+        Objects.requireNonNull(assignment.getRExpression()).replace(Objects.requireNonNull(variable.getInitializer()));
+        return statement;
+    }
+
+    /**
+     * 三元表达式在语句中的位置。
+     *
+     * @param statement 被替换（或在声明的情况下被拆分）的语句。
+     * @param variable  如果三元表达式属于局部变量的初始值，则为该变量，否则为 {@code null}。
+     * @param slot      三元表达式连同包裹它的括号。
+     */
+    private record Site(@NotNull PsiStatement statement, @Nullable PsiLocalVariable variable, @NotNull PsiExpression slot) {
+    }
+
+    @Nullable
+    private static Site findSite(@NotNull PsiConditionalExpression conditionalExpression) {
+        if (conditionalExpression.getThenExpression() == null || conditionalExpression.getElseExpression() == null) {
+            return null;
+        }
+        PsiExpression slot = getSlot(conditionalExpression);
+        // The ternary itself, or the call that receives it as an argument, decides where it may stand
+        PsiExpression position = slot;
+        boolean isArgument = false;
+        if (slot.getParent() instanceof PsiExpressionList arguments && arguments.getParent() instanceof PsiCallExpression call) {
+            // this(...) and super(...) must stay the first statement of the constructor
+            if (JavaPsiConstructorUtil.isConstructorCall(call)) {
+                return null;
+            }
+            position = getSlot(call);
+            isArgument = true;
+        }
+        PsiElement parent = position.getParent();
+        if (!keepsEvaluationOrder(conditionalExpression, slot, parent, isArgument)) {
+            return null;
+        }
+        if (parent instanceof PsiLocalVariable variable) {
+            if (variable.getParent() instanceof PsiDeclarationStatement declaration &&
+                    declaration.getParent() instanceof PsiCodeBlock) {
+                return new Site(declaration, variable, slot);
+            }
+            return null;
         }
-        thenBranch.getCodeBlock().getStatements()[0].replace(thenStmt);
+        if (parent instanceof PsiAssignmentExpression assignment && assignment.getRExpression() == position &&
+                assignment.getParent() instanceof PsiExpressionStatement statement && canBeReplaced(statement)) {
+            return new Site(statement, null, slot);
+        }
+        if (parent instanceof PsiReturnStatement statement && canBeReplaced(statement)) {
+            return new Site(statement, null, slot);
+        }
+        if (isArgument && parent instanceof PsiExpressionStatement statement && canBeReplaced(statement)) {
+            return new Site(statement, null, slot);
+        }
+        return null;
+    }
 
-        // Build the ELSE statement string for the new IF statement,
-        // make a PsiExpressionStatement from the string, and switch the placeholder
-        String elseStr = exprFrag + elseExpression.getText() + ";";
-        PsiExpressionStatement elseStmt = (PsiExpressionStatement) factory.createStatementFromText(elseStr, null);
-        PsiBlockStatement elseBranch = (PsiBlockStatement) newIfStmt.getElseBranch();
-        if (elseBranch == null) {
-            return;
+    /**
+     * 转换把条件移到整个语句之前求值。先于三元表达式求值的部分有副作用时，副作用会晚于条件发生；
+     * 条件有副作用时，它可能改变这些部分的值。两种情况都会改变程序的行为。
+     *
+     * @param parent     三元表达式（或以它为参数的调用）的父元素
+     * @param isArgument 三元表达式是否是调用的参数
+     */
+    private static boolean keepsEvaluationOrder(@NotNull PsiConditionalExpression ternary, @NotNull PsiExpression slot,
+                                                @NotNull PsiElement parent, boolean isArgument) {
+        List<PsiExpression> before = new ArrayList<>();
+        if (parent instanceof PsiAssignmentExpression assignment && !isPlainVariable(assignment.getLExpression())) {
+            // Array elements and qualified fields evaluate their array, index or qualifier first
+            before.add(assignment.getLExpression());
+        }
+        if (isArgument) {
+            PsiExpressionList arguments = (PsiExpressionList) slot.getParent();
+            PsiElement call = arguments.getParent();
+            PsiExpression qualifier = call instanceof PsiMethodCallExpression methodCall
+                    ? methodCall.getMethodExpression().getQualifierExpression()
+                    : call instanceof PsiNewExpression newExpression ? newExpression.getQualifier() : null;
+            if (qualifier != null) {
+                before.add(qualifier);
+            }
+            for (PsiExpression argument : arguments.getExpressions()) {
+                if (argument == slot) {
+                    break;
+                }
+                before.add(argument);
+            }
         }
-        elseBranch.getCodeBlock().getStatements()[0].replace(elseStmt);
+        if (before.isEmpty()) {
+            return true;
+        }
+        for (PsiExpression expression : before) {
+            if (SideEffectChecker.mayHaveSideEffects(expression)) {
+                return false;
+            }
+        }
+        return !conditionsMayHaveSideEffects(ternary);
+    }
+
+    /**
+     * @return 三元表达式的条件，或者随它一起转换为 else-if 和嵌套 if 的三元表达式的条件，是否可能有副作用
+     */
+    private static boolean conditionsMayHaveSideEffects(@NotNull PsiConditionalExpression ternary) {
+        if (SideEffectChecker.mayHaveSideEffects(ternary.getCondition())) {
+            return true;
+        }
+        for (PsiExpression branch : new PsiExpression[]{ternary.getThenExpression(), ternary.getElseExpression()}) {
+            if (PsiUtil.skipParenthesizedExprDown(branch) instanceof PsiConditionalExpression nested &&
+                    nested.getThenExpression() != null && nested.getElseExpression() != null &&
+                    conditionsMayHaveSideEffects(nested)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        // Replace the entire original statement with the new IF
-        originalStatement.replace(newIfStmt);
+    /**
+     * @return 是否是 {@code name} 或 {@code this.name}：作为赋值的左侧时不求值任何东西
+     */
+    private static boolean isPlainVariable(@NotNull PsiExpression expression) {
+        return PsiUtil.skipParenthesizedExprDown(expression) instanceof PsiReferenceExpression reference &&
+                (reference.getQualifierExpression() == null ||
+                        reference.getQualifierExpression() instanceof PsiThisExpression);
+    }
+
+    /**
+     * 语句必须能够被 if 语句替换：位于代码块中，或者是 if/循环语句的分支体，而不是 for 语句的初始化或更新部分。
+     */
+    private static boolean canBeReplaced(@NotNull PsiStatement statement) {
+        PsiElement parent = statement.getParent();
+        return parent instanceof PsiCodeBlock ||
+                parent instanceof PsiIfStatement ||
+                parent instanceof PsiLabeledStatement ||
+                parent instanceof PsiLoopStatement loop && loop.getBody() == statement;
+    }
+
+    /**
+     * @return 表达式连同包裹它的所有括号。
+     */
+    @NotNull
+    private static PsiExpression getSlot(@NotNull PsiExpression expression) {
+        PsiExpression slot = expression;
+        while (slot.getParent() instanceof PsiParenthesizedExpression parenthesized) {
+            slot = parenthesized;
+        }
+        return slot;
     }
 
     /**
@@ -0,0 +1,39 @@
+package com.zhangchengk.panda.study.intention;
+
+import com.intellij.analysis.AnalysisScope;
+import com.intellij.analysis.BaseAnalysisAction;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.wm.StatusBar;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 将 {@link ConditionalOperatorConverter} 应用到用户选择的范围（文件、目录、模块或自定义范围）中的所有三元表达式。
+ * <p>
+ * 范围选择对话框由 {@link BaseAnalysisAction} 提供，转换在可取消的后台任务中进行，详见 {@link TernaryBatchConverter}。
+ */
+public final class ConvertTernariesInScopeAction extends BaseAnalysisAction {
+
+    public ConvertTernariesInScopeAction() {
+        super(TernaryBatchConverter.COMMAND_NAME, "Ternary Conversion");
+    }
+
+    @Override
+    protected void analyze(@NotNull Project project, @NotNull AnalysisScope scope) {
+        new Task.Backgroundable(project, TernaryBatchConverter.COMMAND_NAME, true) {
+
+            private int myConverted;
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                myConverted = TernaryBatchConverter.convert(project, scope, indicator);
+            }
+
+            @Override
+            public void onSuccess() {
+                StatusBar.Info.set("Converted " + myConverted + " ternary operator(s) to if statements", project);
+            }
+        }.queue();
+    }
+}
@@ -0,0 +1,63 @@
+package com.zhangchengk.panda.study.intention;
+
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiElementFactory;
+import com.intellij.psi.PsiExpressionStatement;
+import com.intellij.psi.PsiIfStatement;
+import com.intellij.psi.PsiStatement;
+import com.zhangchengk.panda.study.metrics.PandaMetrics;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 缓存 {@link ConditionalOperatorConverter} 使用的 PSI 原型。
+ * 每个原型只解析一次，之后每次转换只复制它，而不是重新从文本创建。
+ */
+@Service(Service.Level.PROJECT)
+final class ConverterTemplates {
+
+    private final Project myProject;
+
+    private PsiIfStatement myIfElse;
+    private PsiExpressionStatement myAssignment;
+
+    ConverterTemplates(@NotNull Project project) {
+        myProject = project;
+    }
+
+    static ConverterTemplates getInstance(@NotNull Project project) {
+        return PandaMetrics.getService(project, ConverterTemplates.class);
+    }
+
+    /**
+     * @return {@code if (a) {} else {}} 的新副本，两个分支都是空代码块。
+     */
+    @NotNull
+    synchronized PsiIfStatement copyIfElse() {
+        if (myIfElse == null || !myIfElse.isValid()) {
+            myIfElse = (PsiIfStatement) createStatement("if (a) {\n} else {\n}");
+        }
+        return (PsiIfStatement) myIfElse.copy();
+    }
+
+    /**
+     * @return {@code a = b;} 的新副本。
+     */
+    @NotNull
+    synchronized PsiExpressionStatement copyAssignment() {
+        if (myAssignment == null || !myAssignment.isValid()) {
+            myAssignment = (PsiExpressionStatement) createStatement("a = b;");
+        }
+        return (PsiExpressionStatement) myAssignment.copy();
+    }
+
+    @NotNull
+    PsiElementFactory getFactory() {
+        return JavaPsiFacade.getInstance(myProject).getElementFactory();
+    }
+
+    private PsiStatement createStatement(@NotNull String text) {
+        return getFactory().createStatementFromText(text, null);
+    }
+}
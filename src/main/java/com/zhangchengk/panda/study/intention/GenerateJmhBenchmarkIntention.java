@@ -0,0 +1,219 @@
+package com.zhangchengk.panda.study.intention;
+
+import com.intellij.codeInsight.hint.HintManager;
+import com.intellij.codeInsight.intention.PsiElementBaseIntentionAction;
+import com.intellij.codeInsight.intention.preview.IntentionPreviewInfo;
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleUtilCore;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.ui.popup.JBPopupFactory;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDirectory;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiFileFactory;
+import com.intellij.psi.PsiIdentifier;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.codeStyle.CodeStyleManager;
+import com.intellij.psi.codeStyle.JavaCodeStyleManager;
+import com.intellij.util.IncorrectOperationException;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jps.model.java.JavaSourceRootType;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 实现一个意图操作，为光标所在的方法生成 JMH 基准测试类。
+ * 将光标放到方法名上触发动作。
+ * <p>
+ * 基准测试类与被测类位于同一个包中，因此也可以调用包私有的方法。
+ * 如果项目中有 Gradle 的 {@code jmh} 源码集（{@code src/jmh/java}），类生成在那里；否则生成在模块的测试源码根目录中。
+ * 两者都没有时不生成，并在编辑器中提示，基准测试类不应该混入产品代码。
+ * 生成的源码见 {@link JmhBenchmarkGenerator}。
+ */
+@NonNls
+public final class GenerateJmhBenchmarkIntention extends PsiElementBaseIntentionAction {
+
+    /**
+     * 检查光标是否位于可以生成基准测试的方法的名称上。
+     *
+     * <p>注意：此方法必须快速完成检查并返回。</p>
+     */
+    @Override
+    public boolean isAvailable(@NotNull Project project, Editor editor, @NotNull PsiElement element) {
+        PsiMethod method = getMethod(element);
+        return method != null && JmhBenchmarkGenerator.isSupported(method);
+    }
+
+    /**
+     * 先让用户选择运行参数预设，然后在一个写命令中创建基准测试类并在编辑器中打开。
+     * 在测试模式下直接使用 {@link JmhBenchmarkGenerator.Preset#QUICK}。
+     */
+    @Override
+    public void invoke(@NotNull Project project, Editor editor, @NotNull PsiElement element)
+            throws IncorrectOperationException {
+        PsiMethod method = getMethod(element);
+        if (method == null) {
+            return;
+        }
+        if (findTargetRoot(project, method) == null) {
+            HintManager.getInstance().showErrorHint(editor,
+                    "Cannot generate a JMH benchmark: the module has neither a src/jmh/java nor a test source root");
+            return;
+        }
+        if (ApplicationManager.getApplication().isUnitTestMode()) {
+            generate(project, method, JmhBenchmarkGenerator.Preset.QUICK);
+            return;
+        }
+        JBPopupFactory.getInstance()
+                .createPopupChooserBuilder(List.of(JmhBenchmarkGenerator.Preset.values()))
+                .setTitle("JMH Run Preset")
+                .setItemChosenCallback(preset -> {
+                    if (method.isValid()) {
+                        generate(project, method, preset);
+                    }
+                })
+                .createPopup()
+                .showInBestPositionFor(editor);
+    }
+
+    /**
+     * 意图不修改当前文件，因此预览显示将要创建的类。
+     */
+    @Override
+    public @NotNull IntentionPreviewInfo generatePreview(@NotNull Project project, @NotNull Editor editor, @NotNull PsiFile file) {
+        PsiElement element = file.findElementAt(editor.getCaretModel().getOffset());
+        PsiMethod method = element == null ? null : getMethod(element);
+        if (method == null) {
+            return IntentionPreviewInfo.EMPTY;
+        }
+        String className = JmhBenchmarkGenerator.suggestClassName(method);
+        return new IntentionPreviewInfo.CustomDiff(JavaFileType.INSTANCE, className + ".java", "",
+                JmhBenchmarkGenerator.generate(method, className, JmhBenchmarkGenerator.Preset.QUICK));
+    }
+
+    /**
+     * 创建文件需要在选择预设之后进行，因此意图本身不在写操作中启动。
+     */
+    @Override
+    public boolean startInWriteAction() {
+        return false;
+    }
+
+    @Nullable
+    private static PsiMethod getMethod(@NotNull PsiElement element) {
+        return element instanceof PsiIdentifier && element.getParent() instanceof PsiMethod method &&
+                method.getNameIdentifier() == element ? method : null;
+    }
+
+    private void generate(@NotNull Project project, @NotNull PsiMethod method, @NotNull JmhBenchmarkGenerator.Preset preset) {
+        WriteCommandAction.writeCommandAction(project).withName(getFamilyName()).run(() -> {
+            PsiDirectory directory = findTargetDirectory(project, method);
+            if (directory == null) {
+                return;
+            }
+            String className = suggestUniqueClassName(directory, JmhBenchmarkGenerator.suggestClassName(method));
+            String text = JmhBenchmarkGenerator.generate(method, className, preset);
+            PsiFile file = PsiFileFactory.getInstance(project).createFileFromText(className + ".java", JavaFileType.INSTANCE, text);
+            JavaCodeStyleManager.getInstance(project).shortenClassReferences(file);
+            CodeStyleManager.getInstance(project).reformat(file);
+            PsiFile created = (PsiFile) directory.add(file);
+            created.navigate(true);
+        });
+    }
+
+    @NotNull
+    private static String suggestUniqueClassName(@NotNull PsiDirectory directory, @NotNull String name) {
+        String candidate = name;
+        for (int i = 2; directory.findFile(candidate + ".java") != null; i++) {
+            candidate = name + i;
+        }
+        return candidate;
+    }
+
+    /**
+     * @return jmh 源码集的源码根目录，没有时返回模块的第一个测试源码根目录；两者都没有时返回 {@code null}。
+     */
+    @Nullable
+    private static VirtualFile findTargetRoot(@NotNull Project project, @NotNull PsiMethod method) {
+        VirtualFile virtualFile = method.getContainingFile().getVirtualFile();
+        if (virtualFile == null) {
+            return null;
+        }
+        VirtualFile root = findJmhSourceRoot(project, virtualFile);
+        if (root != null) {
+            return root;
+        }
+        Module module = ModuleUtilCore.findModuleForFile(virtualFile, project);
+        List<VirtualFile> testRoots = module == null
+                ? List.of()
+                : ModuleRootManager.getInstance(module).getSourceRoots(JavaSourceRootType.TEST_SOURCE);
+        return testRoots.isEmpty() ? null : testRoots.get(0);
+    }
+
+    /**
+     * 在 {@link #findTargetRoot} 中找到与被测类相同的包目录，必要时创建。
+     */
+    @Nullable
+    private static PsiDirectory findTargetDirectory(@NotNull Project project, @NotNull PsiMethod method) {
+        VirtualFile root = findTargetRoot(project, method);
+        if (root == null) {
+            return null;
+        }
+        PsiFile sourceFile = method.getContainingFile();
+        String packageName = sourceFile instanceof PsiJavaFile javaFile ? javaFile.getPackageName() : "";
+        try {
+            VirtualFile directory = packageName.isEmpty()
+                    ? root
+                    : VfsUtil.createDirectoryIfMissing(root, packageName.replace('.', '/'));
+            return directory == null ? null : PsiManager.getInstance(project).findDirectory(directory);
+        }
+        catch (IOException e) {
+            throw new IncorrectOperationException(e);
+        }
+    }
+
+    /**
+     * 查找与源文件同属一个 {@code src} 目录的 {@code src/jmh/java} 源码根目录。
+     * Gradle 为每个源码集导入一个模块，因此在整个项目的源码根目录中查找，而不只是源文件所在的模块。
+     */
+    @Nullable
+    private static VirtualFile findJmhSourceRoot(@NotNull Project project, @NotNull VirtualFile sourceFile) {
+        for (VirtualFile root : ProjectRootManager.getInstance(project).getContentSourceRoots()) {
+            VirtualFile sourceSet = root.getParent();
+            VirtualFile src = sourceSet == null ? null : sourceSet.getParent();
+            if (src != null && "java".equals(root.getName()) && "jmh".equals(sourceSet.getName()) &&
+                    VfsUtil.isAncestor(src, sourceFile, true)) {
+                return root;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 如果此操作适用，返回在意图列表中显示的文本。
+     */
+    @Override
+    @NotNull
+    public String getText() {
+        return getFamilyName();
+    }
+
+    @Override
+    @NotNull
+    public String getFamilyName() {
+        return "SDK: Generate JMH benchmark";
+    }
+}
@@ -0,0 +1,246 @@
+package com.zhangchengk.panda.study.intention;
+
+import com.intellij.psi.CommonClassNames;
+import com.intellij.psi.PsiArrayType;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassType;
+import com.intellij.psi.PsiCodeBlock;
+import com.intellij.psi.PsiEllipsisType;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiModifier;
+import com.intellij.psi.PsiParameter;
+import com.intellij.psi.PsiPrimitiveType;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.PsiTypes;
+import com.intellij.psi.codeStyle.JavaCodeStyleManager;
+import com.intellij.psi.util.TypeConversionUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 为一个方法生成 JMH 基准测试类的源码文本。
+ * <p>
+ * 生成的类避免手写基准测试最常见的错误：
+ * <ul>
+ *     <li>参数来自 {@code @State} 类的非 final 字段，JIT 不能把它们当作常量折叠；</li>
+ *     <li>原始类型和 String 参数成为 {@code @Param} 字段，可以在命令行上改变取值；</li>
+ *     <li>返回值交给 {@code Blackhole}，不会被当作死代码消除。</li>
+ * </ul>
+ */
+final class JmhBenchmarkGenerator {
+
+    /**
+     * 可选的 {@code @Fork}/{@code @Warmup}/{@code @Measurement} 预设。
+     */
+    enum Preset {
+        NONE("No preset (JMH defaults)", ""),
+        QUICK("Quick: 1 fork, 3 warmup and 5 measurement iterations of 1 s",
+                "@Fork(1)\n@Warmup(iterations = 3, time = 1)\n@Measurement(iterations = 5, time = 1)\n"),
+        THOROUGH("Thorough: 3 forks, 5 warmup and 10 measurement iterations of 2 s",
+                "@Fork(3)\n@Warmup(iterations = 5, time = 2)\n@Measurement(iterations = 10, time = 2)\n");
+
+        private final String myDescription;
+        private final String myAnnotations;
+
+        Preset(@NotNull String description, @NotNull String annotations) {
+            myDescription = description;
+            myAnnotations = annotations;
+        }
+
+        @Override
+        public String toString() {
+            return myDescription;
+        }
+    }
+
+    /**
+     * 每种原始类型的默认 {@code @Param} 取值，覆盖一个小值和一个较大的值。
+     */
+    private static final Map<PsiPrimitiveType, String> PARAM_VALUES = Map.of(
+            PsiTypes.intType(), "\"1\", \"1000\"",
+            PsiTypes.longType(), "\"1\", \"1000000\"",
+            PsiTypes.shortType(), "\"1\", \"1000\"",
+            PsiTypes.byteType(), "\"1\", \"100\"",
+            PsiTypes.doubleType(), "\"0.5\", \"1000.5\"",
+            PsiTypes.floatType(), "\"0.5\", \"1000.5\"",
+            PsiTypes.booleanType(), "\"false\", \"true\"",
+            PsiTypes.charType(), "\"a\"");
+
+    /**
+     * 集合接口参数使用的实现类。
+     */
+    private static final Map<String, String> COLLECTION_IMPLEMENTATIONS = Map.of(
+            CommonClassNames.JAVA_LANG_ITERABLE, "java.util.ArrayList",
+            CommonClassNames.JAVA_UTIL_COLLECTION, "java.util.ArrayList",
+            CommonClassNames.JAVA_UTIL_LIST, "java.util.ArrayList",
+            CommonClassNames.JAVA_UTIL_SET, "java.util.HashSet",
+            CommonClassNames.JAVA_UTIL_MAP, "java.util.HashMap");
+
+    private JmhBenchmarkGenerator() {
+    }
+
+    /**
+     * @return 是否可以为该方法生成基准测试：方法有方法体、不是构造函数、不是私有的、没有类型参数，
+     * 并且所在的类是可以从同一包中访问的顶层类或静态嵌套类；实例方法所在的类还需要可以访问的无参构造函数。
+     */
+    static boolean isSupported(@NotNull PsiMethod method) {
+        PsiClass containingClass = method.getContainingClass();
+        if (containingClass == null || containingClass.getQualifiedName() == null ||
+                method.isConstructor() || method.getBody() == null || method.hasTypeParameters() ||
+                method.hasModifierProperty(PsiModifier.PRIVATE) ||
+                containingClass.hasModifierProperty(PsiModifier.PRIVATE) ||
+                containingClass.isInterface() && !method.hasModifierProperty(PsiModifier.STATIC)) {
+            return false;
+        }
+        if (method.hasModifierProperty(PsiModifier.STATIC)) {
+            return true;
+        }
+        return !containingClass.hasModifierProperty(PsiModifier.ABSTRACT) && !containingClass.hasTypeParameters() &&
+                (containingClass.getContainingClass() == null || containingClass.hasModifierProperty(PsiModifier.STATIC)) &&
+                hasAccessibleNoArgConstructor(containingClass);
+    }
+
+    /**
+     * @return 基准测试类的默认名称，例如 {@code ParserParseBenchmark}。
+     */
+    @NotNull
+    static String suggestClassName(@NotNull PsiMethod method) {
+        PsiClass containingClass = method.getContainingClass();
+        String owner = containingClass == null ? "" : containingClass.getName();
+        String name = method.getName();
+        return owner + Character.toUpperCase(name.charAt(0)) + name.substring(1) + "Benchmark";
+    }
+
+    /**
+     * 生成基准测试类的完整源码。类型使用全限定名，插入文件后应缩短类引用。
+     * 参数成为同名字段，因此被测对象、{@code Blackhole} 参数和初始化方法的名字避开参数名和被测方法名。
+     *
+     * @param method    被测方法，必须满足 {@link #isSupported}
+     * @param className 基准测试类的名称
+     * @param preset    运行参数预设
+     */
+    @NotNull
+    static String generate(@NotNull PsiMethod method, @NotNull String className, @NotNull Preset preset) {
+        PsiClass containingClass = method.getContainingClass();
+        assert containingClass != null;
+        boolean isStatic = method.hasModifierProperty(PsiModifier.STATIC);
+        String owner = containingClass.getQualifiedName();
+        // Parameters become fields of the same name, the body sees all of them
+        JavaCodeStyleManager codeStyleManager = JavaCodeStyleManager.getInstance(method.getProject());
+        PsiCodeBlock body = Objects.requireNonNull(method.getBody());
+        String target = codeStyleManager.suggestUniqueVariableName("target", body, true);
+        String blackhole = codeStyleManager.suggestUniqueVariableName("blackhole", body, true);
+        String setUpName = "setUp".equals(method.getName()) ? "setUpTrial" : "setUp";
+        StringBuilder text = new StringBuilder(1024);
+        if (method.getContainingFile() instanceof PsiJavaFile javaFile && !javaFile.getPackageName().isEmpty()) {
+            text.append("package ").append(javaFile.getPackageName()).append(";\n\n");
+        }
+        text.append("import org.openjdk.jmh.annotations.*;\n\n")
+                .append("@State(Scope.Benchmark)\n")
+                .append("@BenchmarkMode(Mode.AverageTime)\n")
+                .append("@OutputTimeUnit(java.util.concurrent.TimeUnit.NANOSECONDS)\n")
+                .append(preset.myAnnotations)
+                .append("public class ").append(className).append(" {\n\n");
+
+        // One state field per parameter, so that the JIT cannot constant-fold the inputs
+        StringBuilder setUp = new StringBuilder();
+        for (PsiParameter parameter : method.getParameterList().getParameters()) {
+            PsiType type = parameter.getType();
+            if (type instanceof PsiEllipsisType ellipsisType) {
+                type = ellipsisType.toArrayType();
+            }
+            String paramValues = getParamValues(type);
+            if (paramValues != null) {
+                text.append("    @Param({").append(paramValues).append("})\n");
+            } else {
+                // Every primitive has @Param values, so only reference types get here
+                setUp.append("        ").append(parameter.getName()).append(" = ").append(getInitializer(type)).append(";\n");
+            }
+            text.append("    public ").append(type.getCanonicalText()).append(' ').append(parameter.getName()).append(";\n\n");
+        }
+        if (!isStatic) {
+            text.append("    private ").append(owner).append(' ').append(target).append(";\n\n");
+            setUp.insert(0, "        " + target + " = new " + owner + "();\n");
+        }
+        if (!setUp.isEmpty()) {
+            text.append("    @Setup(Level.Trial)\n")
+                    .append("    public void ").append(setUpName).append("() {\n")
+                    .append(setUp)
+                    .append("    }\n\n");
+        }
+
+        boolean returnsValue = !PsiTypes.voidType().equals(method.getReturnType());
+        text.append("    @Benchmark\n")
+                .append("    public void ").append(method.getName()).append('(')
+                .append(returnsValue ? "org.openjdk.jmh.infra.Blackhole " + blackhole : "")
+                .append(')')
+                .append(method.getThrowsList().getReferencedTypes().length > 0 ? " throws Exception" : "")
+                .append(" {\n        ");
+        StringBuilder call = new StringBuilder();
+        call.append(isStatic ? owner : target).append('.').append(method.getName()).append('(');
+        PsiParameter[] parameters = method.getParameterList().getParameters();
+        for (int i = 0; i < parameters.length; i++) {
+            call.append(i == 0 ? "" : ", ").append(parameters[i].getName());
+        }
+        call.append(')');
+        // The result goes into the Blackhole so that the call is not eliminated as dead code
+        text.append(returnsValue ? blackhole + ".consume(" + call + ")" : call).append(";\n    }\n}\n");
+        return text.toString();
+    }
+
+    /**
+     * 引用类型参数在初始化方法中的取值：数组为空数组，常用集合接口为对应的实现，
+     * 有可访问的无参构造函数的类为新实例，其他类型为 {@code null}，需要用户改为有代表性的数据。
+     */
+    @NotNull
+    private static String getInitializer(@NotNull PsiType type) {
+        if (type instanceof PsiArrayType arrayType) {
+            PsiType component = TypeConversionUtil.erasure(arrayType.getDeepComponentType());
+            return "new " + component.getCanonicalText() + "[0]" + "[]".repeat(arrayType.getArrayDimensions() - 1);
+        }
+        PsiClass psiClass = type instanceof PsiClassType classType ? classType.resolve() : null;
+        if (psiClass == null || psiClass.getQualifiedName() == null) {
+            return "null";
+        }
+        String implementation = COLLECTION_IMPLEMENTATIONS.get(psiClass.getQualifiedName());
+        if (implementation != null) {
+            return "new " + implementation + "<>()";
+        }
+        if (psiClass.isInterface() || psiClass.isEnum() || psiClass.hasModifierProperty(PsiModifier.ABSTRACT) ||
+                !hasAccessibleNoArgConstructor(psiClass)) {
+            return "null";
+        }
+        return "new " + psiClass.getQualifiedName() + (psiClass.hasTypeParameters() ? "<>" : "") + "()";
+    }
+
+    /**
+     * @return {@code @Param} 的取值列表；类型不是原始类型或 String 时返回 {@code null}。
+     */
+    @Nullable
+    private static String getParamValues(@NotNull PsiType type) {
+        if (type instanceof PsiPrimitiveType primitiveType) {
+            return PARAM_VALUES.get(primitiveType);
+        }
+        if (type instanceof PsiClassType classType && classType.equalsToText("java.lang.String")) {
+            return "\"\", \"panda\"";
+        }
+        return null;
+    }
+
+    private static boolean hasAccessibleNoArgConstructor(@NotNull PsiClass psiClass) {
+        PsiMethod[] constructors = psiClass.getConstructors();
+        if (constructors.length == 0) {
+            return true;
+        }
+        for (PsiMethod constructor : constructors) {
+            if (constructor.getParameterList().isEmpty() && !constructor.hasModifierProperty(PsiModifier.PRIVATE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
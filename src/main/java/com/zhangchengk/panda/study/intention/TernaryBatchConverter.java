@@ -0,0 +1,189 @@
+package com.zhangchengk.panda.study.intention;
+
+import com.intellij.analysis.AnalysisScope;
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileTypes.FileTypeRegistry;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Segment;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.JavaTokenType;
+import com.intellij.psi.PsiConditionalExpression;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiIfStatement;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiJavaToken;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.psi.codeStyle.CodeStyleManager;
+import com.zhangchengk.panda.study.core.PatternOffsets;
+import com.zhangchengk.panda.study.index.PandaPattern;
+import com.zhangchengk.panda.study.index.PandaPatternIndex;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 在一个分析范围内批量地将三元表达式转换为 if-then-else 语句。
+ * <p>
+ * 只有 {@link PandaPatternIndex} 报告含有三元表达式的文件会被打开。
+ * 每个文件先在可取消的后台非阻塞读操作中查找可转换的三元表达式，
+ * 然后在一个写命令中完成该文件的全部转换，并只调用一次 {@link CodeStyleManager} 格式化，
+ * 因此每个文件对应一个撤销步骤。
+ */
+final class TernaryBatchConverter {
+
+    static final String COMMAND_NAME = "Convert Ternary Operators to If Statements";
+
+    private TernaryBatchConverter() {
+    }
+
+    /**
+     * 转换范围内所有可转换的三元表达式。必须在后台线程中调用。
+     *
+     * @param project   当前项目。
+     * @param scope     要转换的范围。
+     * @param indicator 用于报告进度和检查取消的进度指示器。
+     * @return 转换的三元表达式数量。
+     */
+    static int convert(@NotNull Project project, @NotNull AnalysisScope scope, @NotNull ProgressIndicator indicator) {
+        indicator.setIndeterminate(false);
+        indicator.setText("Searching for ternary operators...");
+        // Files without a ternary are never parsed
+        List<VirtualFile> files = ReadAction.nonBlocking(() ->
+                        PandaPatternIndex.filterCandidates(project, collectJavaFiles(scope), PandaPattern.TERNARY))
+                .wrapProgress(indicator)
+                .executeSynchronously();
+
+        PsiManager psiManager = PsiManager.getInstance(project);
+        int converted = 0;
+        for (int i = 0; i < files.size(); i++) {
+            indicator.checkCanceled();
+            VirtualFile file = files.get(i);
+            indicator.setFraction((double) i / files.size());
+            indicator.setText2(file.getPresentableUrl());
+
+            List<SmartPsiElementPointer<PsiConditionalExpression>> sites =
+                    ReadAction.nonBlocking(() -> findConvertible(psiManager, file))
+                            .wrapProgress(indicator)
+                            .executeSynchronously();
+            if (!sites.isEmpty()) {
+                converted += convertInFile(project, sites);
+            }
+        }
+        indicator.setFraction(1);
+        return converted;
+    }
+
+    /**
+     * 在一个写命令中转换同一文件中的全部三元表达式，最后对新语句所在的范围统一格式化一次。
+     */
+    private static int convertInFile(@NotNull Project project,
+                                     @NotNull List<SmartPsiElementPointer<PsiConditionalExpression>> sites) {
+        PsiFile psiFile = sites.get(0).getContainingFile();
+        if (psiFile == null) {
+            return 0;
+        }
+        int[] converted = new int[1];
+        ApplicationManager.getApplication().invokeAndWait(() ->
+                WriteCommandAction.writeCommandAction(project, psiFile).withName(COMMAND_NAME).run(() -> {
+                    SmartPointerManager pointerManager = SmartPointerManager.getInstance(project);
+                    List<SmartPsiElementPointer<PsiIfStatement>> created = new ArrayList<>(sites.size());
+                    for (SmartPsiElementPointer<PsiConditionalExpression> site : sites) {
+                        PsiConditionalExpression conditionalExpression = site.getElement();
+                        if (conditionalExpression == null || !ConditionalOperatorConverter.isConvertible(conditionalExpression)) {
+                            continue;
+                        }
+                        PsiIfStatement ifStatement = ConditionalOperatorConverter.convert(project, conditionalExpression);
+                        if (ifStatement != null) {
+                            created.add(pointerManager.createSmartPsiElementPointer(ifStatement));
+                        }
+                    }
+                    converted[0] = created.size();
+                    reformat(project, psiFile, created);
+                }), ModalityState.defaultModalityState());
+        return converted[0];
+    }
+
+    private static void reformat(@NotNull Project project,
+                                 @NotNull PsiFile psiFile,
+                                 @NotNull List<SmartPsiElementPointer<PsiIfStatement>> created) {
+        if (created.isEmpty()) {
+            return;
+        }
+        PsiDocumentManager documentManager = PsiDocumentManager.getInstance(project);
+        Document document = documentManager.getDocument(psiFile);
+        if (document != null) {
+            documentManager.doPostponedOperationsAndUnblockDocument(document);
+        }
+        List<TextRange> ranges = new ArrayList<>(created.size());
+        for (SmartPsiElementPointer<PsiIfStatement> pointer : created) {
+            Segment range = pointer.getRange();
+            if (range != null) {
+                ranges.add(TextRange.create(range));
+            }
+        }
+        CodeStyleManager.getInstance(project).reformatText(psiFile, ranges);
+    }
+
+    @NotNull
+    private static List<SmartPsiElementPointer<PsiConditionalExpression>> findConvertible(@NotNull PsiManager psiManager,
+                                                                                         @NotNull VirtualFile file) {
+        PsiFile psiFile = file.isValid() ? psiManager.findFile(file) : null;
+        if (!(psiFile instanceof PsiJavaFile)) {
+            return List.of();
+        }
+        Project project = psiFile.getProject();
+        SmartPointerManager pointerManager = SmartPointerManager.getInstance(project);
+        List<SmartPsiElementPointer<PsiConditionalExpression>> sites = new ArrayList<>();
+        for (PsiConditionalExpression conditionalExpression : findTernaries(project, file, psiFile)) {
+            if (ConditionalOperatorConverter.isConvertible(conditionalExpression)) {
+                sites.add(pointerManager.createSmartPsiElementPointer(conditionalExpression));
+            }
+        }
+        return sites;
+    }
+
+    /**
+     * 只在 {@link PandaPatternIndex} 记录的 '?' 位置上查找三元表达式；索引不可用时直接扫描文件文本。
+     */
+    @NotNull
+    private static List<PsiConditionalExpression> findTernaries(@NotNull Project project,
+                                                                      @NotNull VirtualFile file,
+                                                                      @NotNull PsiFile psiFile) {
+        int[] offsets = DumbService.isDumb(project)
+                ? PatternOffsets.scan(psiFile.getViewProvider().getContents()).getTernaries()
+                : PandaPatternIndex.getOffsets(project, file, PandaPattern.TERNARY);
+        List<PsiConditionalExpression> ternaries = new ArrayList<>(offsets.length);
+        for (int offset : offsets) {
+            if (psiFile.findElementAt(offset) instanceof PsiJavaToken token &&
+                    token.getTokenType() == JavaTokenType.QUEST &&
+                    token.getParent() instanceof PsiConditionalExpression conditionalExpression) {
+                ternaries.add(conditionalExpression);
+            }
+        }
+        return ternaries;
+    }
+
+    @NotNull
+    private static List<VirtualFile> collectJavaFiles(@NotNull AnalysisScope scope) {
+        List<VirtualFile> files = new ArrayList<>();
+        scope.accept(file -> {
+            if (FileTypeRegistry.getInstance().isFileOfType(file, JavaFileType.INSTANCE)) {
+                files.add(file);
+            }
+            return true;
+        });
+        return files;
+    }
+}
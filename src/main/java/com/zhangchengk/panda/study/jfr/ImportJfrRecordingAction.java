@@ -0,0 +1,93 @@
+package com.zhangchengk.panda.study.jfr;
+
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.fileChooser.FileChooser;
+import com.intellij.openapi.fileChooser.FileChooserDescriptor;
+import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 导入一个本地的 JFR 记录（{@code .jfr}），在 "Panda JFR" 工具窗口和编辑器标记中显示热点方法。
+ * <p>
+ * 记录在可取消的后台任务中以流的方式解析，详见 {@link JfrRecordingParser}；
+ * 解析过程中工具窗口逐步显示已读取部分的结果。
+ */
+public final class ImportJfrRecordingAction extends DumbAwareAction {
+
+    private static final String TITLE = "Import JFR Recording";
+
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabledAndVisible(e.getProject() != null);
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
+        FileChooserDescriptor descriptor = FileChooserDescriptorFactory.createSingleFileDescriptor("jfr")
+                .withTitle(TITLE)
+                .withDescription("Select a Java Flight Recorder recording");
+        VirtualFile file = FileChooser.chooseFile(descriptor, project, null);
+        if (file == null) {
+            return;
+        }
+        ToolWindow toolWindow = ToolWindowManager.getInstance(project).getToolWindow(JfrProfileService.TOOL_WINDOW_ID);
+        if (toolWindow != null) {
+            toolWindow.activate(null);
+        }
+        Path path = file.toNioPath();
+        JfrProfileService service = JfrProfileService.getInstance(project);
+        new Task.Backgroundable(project, "Reading " + file.getName(), true) {
+
+            private String myError;
+            private boolean myCompleted;
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                indicator.setIndeterminate(true);
+                try {
+                    service.publish(new JfrRecordingParser().parse(path, indicator, service::publish));
+                    myCompleted = true;
+                }
+                catch (IOException ex) {
+                    myError = ex.getMessage();
+                }
+            }
+
+            @Override
+            public void onSuccess() {
+                if (myError != null) {
+                    Messages.showErrorDialog(project, myError, TITLE);
+                }
+            }
+
+            @Override
+            public void onFinished() {
+                // Failed or cancelled: the tool window goes back from the partial snapshot to the previous profile
+                if (!myCompleted) {
+                    service.discardSnapshots();
+                }
+            }
+        }.queue();
+    }
+}
@@ -0,0 +1,68 @@
+package com.zhangchengk.panda.study.jfr;
+
+import com.intellij.codeInsight.daemon.LineMarkerInfo;
+import com.intellij.codeInsight.daemon.LineMarkerProvider;
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.editor.markup.GutterIconRenderer;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiIdentifier;
+import com.intellij.psi.PsiMethod;
+import com.intellij.ui.content.Content;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 在导入的 JFR 记录中的热点方法名旁显示标记，提示中给出自身和总样本占比以及分配的字节数。
+ * 点击标记打开 "Panda JFR" 工具窗口并选中该方法。
+ * <p>
+ * 没有导入记录时只读取一次 volatile 字段，因此不会影响代码分析的速度。
+ */
+public final class JfrHotMethodLineMarkerProvider implements LineMarkerProvider {
+
+    @Override
+    public @Nullable LineMarkerInfo<?> getLineMarkerInfo(@NotNull PsiElement element) {
+        if (!(element instanceof PsiIdentifier) || !(element.getParent() instanceof PsiMethod method) ||
+                method.getNameIdentifier() != element) {
+            return null;
+        }
+        JfrProfile profile = JfrProfileService.getInstance(element.getProject()).getProfile();
+        if (profile.isEmpty()) {
+            return null;
+        }
+        int index = JfrProfileService.indexOf(profile, method);
+        if (index < 0 || !profile.isHot(index)) {
+            return null;
+        }
+        String tooltip = describe(profile, index);
+        return new LineMarkerInfo<>(element, element.getTextRange(), AllIcons.Actions.ProfileCPU,
+                e -> tooltip,
+                (mouseEvent, e) -> showInToolWindow(e, profile, index),
+                GutterIconRenderer.Alignment.RIGHT,
+                () -> "JFR hot method");
+    }
+
+    @NotNull
+    static String describe(@NotNull JfrProfile profile, int index) {
+        return String.format("JFR %s: %.1f%% self, %.1f%% total, %s allocated",
+                profile.getSource(),
+                profile.getSelfShare(index) * 100,
+                profile.getTotalShare(index) * 100,
+                StringUtil.formatFileSize(profile.getAllocatedBytes(index)));
+    }
+
+    private static void showInToolWindow(@NotNull PsiElement element, @NotNull JfrProfile profile, int index) {
+        ToolWindow toolWindow = ToolWindowManager.getInstance(element.getProject()).getToolWindow(JfrProfileService.TOOL_WINDOW_ID);
+        if (toolWindow == null) {
+            return;
+        }
+        toolWindow.activate(() -> {
+            Content content = toolWindow.getContentManager().getContent(0);
+            if (content != null && content.getComponent() instanceof JfrProfilePanel panel) {
+                panel.select(profile, index);
+            }
+        });
+    }
+}
@@ -0,0 +1,173 @@
+package com.zhangchengk.panda.study.jfr;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 从一个 JFR 记录中聚合出的按方法统计的样本：自身样本数、总样本数（方法出现在栈上的样本数）和在方法中分配的字节数。
+ * <p>
+ * 方法以连续的整数编号，各项统计保存在按编号索引的原始类型数组中。
+ * 实例是不可变的快照，可以在任意线程中读取；解析进行中的快照 {@link #isComplete()} 返回 {@code false}。
+ */
+public final class JfrProfile {
+
+    public static final JfrProfile EMPTY = new JfrProfile("", 0, new String[0], new String[0], new String[0],
+            new long[0], new long[0], new long[0], 0, 0, new Object2IntOpenHashMap<>(), true);
+
+    /**
+     * 自身样本或分配字节占比达到此值的方法在编辑器中显示标记。
+     */
+    private static final double HOT_SHARE = 0.01;
+
+    private final String mySource;
+    private final int myMethodCount;
+    private final String[] myClassNames;
+    private final String[] myMethodNames;
+    private final String[] myDescriptors;
+    private final long[] mySelfSamples;
+    private final long[] myTotalSamples;
+    private final long[] myAllocatedBytes;
+    private final long myExecutionSamples;
+    private final long myTotalAllocatedBytes;
+    private final Object2IntOpenHashMap<String> myIndex;
+    private final boolean myComplete;
+
+    JfrProfile(@NotNull String source,
+               int methodCount,
+               String @NotNull [] classNames,
+               String @NotNull [] methodNames,
+               String @NotNull [] descriptors,
+               long @NotNull [] selfSamples,
+               long @NotNull [] totalSamples,
+               long @NotNull [] allocatedBytes,
+               long executionSamples,
+               long totalAllocatedBytes,
+               @NotNull Object2IntOpenHashMap<String> index,
+               boolean complete) {
+        mySource = source;
+        myMethodCount = methodCount;
+        myClassNames = classNames;
+        myMethodNames = methodNames;
+        myDescriptors = descriptors;
+        mySelfSamples = selfSamples;
+        myTotalSamples = totalSamples;
+        myAllocatedBytes = allocatedBytes;
+        myExecutionSamples = executionSamples;
+        myTotalAllocatedBytes = totalAllocatedBytes;
+        myIndex = index;
+        myIndex.defaultReturnValue(-1);
+        myComplete = complete;
+    }
+
+    /**
+     * @param className  JVM 类名，例如 {@code a.b.Outer$Inner}
+     * @param methodName 方法名，构造函数为 {@code <init>}
+     * @param descriptor JVM 方法描述符，例如 {@code (Ljava/lang/String;)I}
+     * @return 方法在快照中的键
+     */
+    @NotNull
+    static String key(@NotNull String className, @NotNull String methodName, @NotNull String descriptor) {
+        return className + '#' + methodName + descriptor;
+    }
+
+    /**
+     * @return 方法的编号；记录中没有该方法的样本时返回 -1。
+     */
+    public int indexOf(@NotNull String className, @NotNull String methodName, @NotNull String descriptor) {
+        return myMethodCount == 0 ? -1 : myIndex.getInt(key(className, methodName, descriptor));
+    }
+
+    /**
+     * @return 记录文件的名称。
+     */
+    @NotNull
+    public String getSource() {
+        return mySource;
+    }
+
+    public boolean isEmpty() {
+        return myMethodCount == 0;
+    }
+
+    public boolean isComplete() {
+        return myComplete;
+    }
+
+    public int getMethodCount() {
+        return myMethodCount;
+    }
+
+    @NotNull
+    public String getClassName(int index) {
+        return myClassNames[index];
+    }
+
+    @NotNull
+    public String getMethodName(int index) {
+        return myMethodNames[index];
+    }
+
+    @NotNull
+    public String getDescriptor(int index) {
+        return myDescriptors[index];
+    }
+
+    /**
+     * @return 不带包名的 {@code Class.method}，用于显示。
+     */
+    @NotNull
+    public String getPresentableName(int index) {
+        String className = myClassNames[index];
+        return className.substring(className.lastIndexOf('.') + 1) + '.' + myMethodNames[index];
+    }
+
+    public long getSelfSamples(int index) {
+        return mySelfSamples[index];
+    }
+
+    public long getTotalSamples(int index) {
+        return myTotalSamples[index];
+    }
+
+    public long getAllocatedBytes(int index) {
+        return myAllocatedBytes[index];
+    }
+
+    public double getSelfShare(int index) {
+        return share(mySelfSamples[index], myExecutionSamples);
+    }
+
+    public double getTotalShare(int index) {
+        return share(myTotalSamples[index], myExecutionSamples);
+    }
+
+    public double getAllocationShare(int index) {
+        return share(myAllocatedBytes[index], myTotalAllocatedBytes);
+    }
+
+    /**
+     * @return 方法是否足够热，需要在编辑器中标记。
+     */
+    public boolean isHot(int index) {
+        return getSelfShare(index) >= HOT_SHARE || getAllocationShare(index) >= HOT_SHARE;
+    }
+
+    public long getExecutionSamples() {
+        return myExecutionSamples;
+    }
+
+    public long getTotalAllocatedBytes() {
+        return myTotalAllocatedBytes;
+    }
+
+    private static double share(long value, long total) {
+        return total == 0 ? 0 : (double) value / total;
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return mySource + ": " + myMethodCount + " methods, " + myExecutionSamples + " execution samples, " +
+                myTotalAllocatedBytes + " bytes allocated" + (myComplete ? "" : " (incomplete)");
+    }
+}
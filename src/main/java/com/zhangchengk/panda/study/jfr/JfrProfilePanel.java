@@ -0,0 +1,165 @@
+package com.zhangchengk.panda.study.jfr;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.actionSystem.ActionManager;
+import com.intellij.openapi.actionSystem.ActionToolbar;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.DefaultActionGroup;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.PsiMethod;
+import com.intellij.ui.DoubleClickListener;
+import com.intellij.ui.ScrollPaneFactory;
+import com.intellij.ui.table.JBTable;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+
+/**
+ * "Panda JFR" 工具窗口的内容：导入的 JFR 记录中每个方法的样本占比和分配字节数，可以按任意列排序。
+ * <p>
+ * 表格模型直接读取不可变的 {@link JfrProfile} 快照，因此解析过程中的每个新快照只需一次 {@code fireTableDataChanged}。
+ * 双击一行跳转到方法的声明。
+ */
+final class JfrProfilePanel extends SimpleToolWindowPanel implements Disposable {
+
+    private static final String[] COLUMNS = {"Method", "Class", "Self %", "Total %", "Self samples", "Total samples", "Allocated (KB)"};
+    private static final Class<?>[] COLUMN_CLASSES = {String.class, String.class, Double.class, Double.class, Long.class, Long.class, Long.class};
+
+    private final Project myProject;
+    private final ProfileTableModel myModel = new ProfileTableModel();
+    private final JBTable myTable = new JBTable(myModel);
+    private final JLabel mySummary = new JLabel();
+
+    JfrProfilePanel(@NotNull Project project) {
+        super(true, true);
+        myProject = project;
+
+        myTable.setAutoCreateRowSorter(true);
+        new DoubleClickListener() {
+            @Override
+            protected boolean onDoubleClick(@NotNull MouseEvent event) {
+                navigateToSelection();
+                return true;
+            }
+        }.installOn(myTable);
+        JPanel content = new JPanel(new BorderLayout());
+        content.add(ScrollPaneFactory.createScrollPane(myTable), BorderLayout.CENTER);
+        content.add(mySummary, BorderLayout.SOUTH);
+        setContent(content);
+        setToolbar(createToolbar().getComponent());
+
+        project.getMessageBus().connect(this).subscribe(JfrProfileService.TOPIC, this::setProfile);
+        setProfile(JfrProfileService.getInstance(project).getProfile());
+    }
+
+    @NotNull
+    private ActionToolbar createToolbar() {
+        DefaultActionGroup group = new DefaultActionGroup();
+        group.add(ActionManager.getInstance().getAction("com.zhangchengk.panda.study.jfr.ImportJfrRecordingAction"));
+        group.add(new DumbAwareAction("Clear", "Discard the imported recording", AllIcons.Actions.GC) {
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                JfrProfileService.getInstance(myProject).publish(JfrProfile.EMPTY);
+            }
+        });
+        ActionToolbar toolbar = ActionManager.getInstance().createActionToolbar("PandaJfr", group, true);
+        toolbar.setTargetComponent(this);
+        return toolbar;
+    }
+
+    private void setProfile(@NotNull JfrProfile profile) {
+        myModel.myProfile = profile;
+        myModel.fireTableDataChanged();
+        mySummary.setText(profile.isEmpty()
+                ? "No recording imported"
+                : String.format("%s: %d execution samples, %s allocated, %d methods%s",
+                profile.getSource(),
+                profile.getExecutionSamples(),
+                StringUtil.formatFileSize(profile.getTotalAllocatedBytes()),
+                profile.getMethodCount(),
+                profile.isComplete() ? "" : " (reading…)"));
+    }
+
+    /**
+     * 选中给定快照中的方法。快照已被替换时不做任何事。
+     */
+    void select(@NotNull JfrProfile profile, int index) {
+        if (myModel.myProfile != profile) {
+            return;
+        }
+        int row = myTable.convertRowIndexToView(index);
+        if (row >= 0) {
+            myTable.getSelectionModel().setSelectionInterval(row, row);
+            myTable.scrollRectToVisible(myTable.getCellRect(row, 0, true));
+        }
+    }
+
+    private void navigateToSelection() {
+        int row = myTable.getSelectedRow();
+        if (row < 0) {
+            return;
+        }
+        JfrProfile profile = myModel.myProfile;
+        int index = myTable.convertRowIndexToModel(row);
+        ReadAction.nonBlocking(() -> JfrProfileService.findMethod(myProject, profile, index))
+                .finishOnUiThread(ModalityState.defaultModalityState(), method -> {
+                    if (method != null) {
+                        method.navigate(true);
+                    }
+                })
+                .expireWith(this)
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    private static final class ProfileTableModel extends AbstractTableModel {
+
+        private JfrProfile myProfile = JfrProfile.EMPTY;
+
+        @Override
+        public int getRowCount() {
+            return myProfile.getMethodCount();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return COLUMN_CLASSES[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return switch (column) {
+                case 0 -> myProfile.getPresentableName(row);
+                case 1 -> myProfile.getClassName(row);
+                case 2 -> Math.round(myProfile.getSelfShare(row) * 1_000) / 10.0;
+                case 3 -> Math.round(myProfile.getTotalShare(row) * 1_000) / 10.0;
+                case 4 -> myProfile.getSelfSamples(row);
+                case 5 -> myProfile.getTotalSamples(row);
+                default -> myProfile.getAllocatedBytes(row) / 1_024;
+            };
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.zhangchengk.panda.study.jfr;
+
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.ClassUtil;
+import com.intellij.util.messages.Topic;
+import com.zhangchengk.panda.study.metrics.PandaMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 保存当前项目导入的 JFR 统计结果，供编辑器标记和 "Panda JFR" 工具窗口使用。
+ * <p>
+ * 新结果在 EDT 上通过 {@link #TOPIC} 发布；完整的结果发布后重新运行代码分析，以更新编辑器中的标记。
+ * 解析过程中的未完成快照只通知监听者显示进度，不替换 {@link #getProfile()}，因此失败或取消的导入不会留下部分结果。
+ */
+@Service(Service.Level.PROJECT)
+public final class JfrProfileService {
+
+    public static final String TOOL_WINDOW_ID = "Panda JFR";
+
+    @Topic.ProjectLevel
+    public static final Topic<Listener> TOPIC = new Topic<>(Listener.class, Topic.BroadcastDirection.NONE);
+
+    private final Project myProject;
+    private volatile JfrProfile myProfile = JfrProfile.EMPTY;
+
+    public interface Listener {
+        void profileChanged(@NotNull JfrProfile profile);
+    }
+
+    public JfrProfileService(@NotNull Project project) {
+        myProject = project;
+    }
+
+    public static JfrProfileService getInstance(@NotNull Project project) {
+        return PandaMetrics.getService(project, JfrProfileService.class);
+    }
+
+    /**
+     * @return 当前的统计结果，可以在任意线程中调用。
+     */
+    @NotNull
+    public JfrProfile getProfile() {
+        return myProfile;
+    }
+
+    /**
+     * 在 EDT 上通知监听者；完整的结果同时替换当前的统计结果。可以在任意线程中调用。
+     */
+    void publish(@NotNull JfrProfile profile) {
+        ApplicationManager.getApplication().invokeLater(() -> {
+            if (profile.isComplete()) {
+                myProfile = profile;
+            }
+            myProject.getMessageBus().syncPublisher(TOPIC).profileChanged(profile);
+            if (profile.isComplete()) {
+                DaemonCodeAnalyzer.getInstance(myProject).restart();
+            }
+        }, myProject.getDisposed());
+    }
+
+    /**
+     * 导入失败或被取消后调用：监听者重新显示当前的统计结果，替换已经显示的未完成快照。可以在任意线程中调用。
+     */
+    void discardSnapshots() {
+        ApplicationManager.getApplication().invokeLater(
+                () -> myProject.getMessageBus().syncPublisher(TOPIC).profileChanged(myProfile),
+                myProject.getDisposed());
+    }
+
+    /**
+     * @return 方法在当前统计结果中的编号；没有样本时返回 -1。调用方必须持有读操作。
+     */
+    static int indexOf(@NotNull JfrProfile profile, @NotNull PsiMethod method) {
+        PsiClass psiClass = method.getContainingClass();
+        String className = psiClass == null ? null : ClassUtil.getJVMClassName(psiClass);
+        if (className == null) {
+            return -1;
+        }
+        String name = method.isConstructor() ? "<init>" : method.getName();
+        return profile.indexOf(className, name, ClassUtil.getAsmMethodSignature(method));
+    }
+
+    /**
+     * 在项目及其依赖中查找统计结果中的方法。调用方必须持有读操作。
+     */
+    @Nullable
+    static PsiMethod findMethod(@NotNull Project project, @NotNull JfrProfile profile, int index) {
+        // JavaPsiFacade expects the canonical name of nested classes
+        String className = profile.getClassName(index).replace('$', '.');
+        PsiClass psiClass = JavaPsiFacade.getInstance(project).findClass(className, GlobalSearchScope.allScope(project));
+        if (psiClass == null) {
+            return null;
+        }
+        String name = profile.getMethodName(index);
+        PsiMethod[] candidates = "<init>".equals(name) ? psiClass.getConstructors() : psiClass.findMethodsByName(name, false);
+        for (PsiMethod candidate : candidates) {
+            if (profile.getDescriptor(index).equals(ClassUtil.getAsmMethodSignature(candidate))) {
+                return candidate;
+            }
+        }
+        return candidates.length > 0 ? candidates[0] : null;
+    }
+}
@@ -0,0 +1,28 @@
+package com.zhangchengk.panda.study.jfr;
+
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import com.zhangchengk.panda.study.metrics.PandaMetric;
+import com.zhangchengk.panda.study.metrics.PandaMetrics;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 创建 "Panda JFR" 工具窗口，显示 {@link JfrProfileService} 中导入的 JFR 统计结果。见 plugin.xml 中的声明。
+ */
+public final class JfrProfileToolWindowFactory implements ToolWindowFactory, DumbAware {
+
+    @Override
+    public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
+        long start = PandaMetrics.startInit();
+        JfrProfilePanel panel = new JfrProfilePanel(project);
+        Content content = ContentFactory.getInstance().createContent(panel, null, false);
+        Disposer.register(content, panel);
+        toolWindow.getContentManager().addContent(content);
+        PandaMetrics.stopInit(PandaMetric.TOOL_WINDOW_INIT, start);
+    }
+}
@@ -0,0 +1,223 @@
+package com.zhangchengk.panda.study.jfr;
+
+import com.intellij.openapi.progress.ProgressIndicator;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 以流的方式读取一个 JFR 记录，把执行样本和分配样本按方法聚合为 {@link JfrProfile}。
+ * <p>
+ * {@link RecordingFile} 一次只读取一个事件，并且只保留当前 chunk 的常量池，
+ * 因此内存占用只与记录中不同方法的数量有关，而与记录文件的大小无关。
+ * 解析过程中每隔 {@link #SNAPSHOT_INTERVAL_MS} 毫秒发布一个未完成的快照，使结果可以逐步显示。
+ * <p>
+ * 分配量只取一种来源，不会重复计算：记录中有 {@code jdk.ObjectAllocationSample} 时使用其 {@code weight}，
+ * 否则使用 TLAB 事件的 {@code allocationSize}。{@code tlabSize} 是整个新 TLAB 的大小，而不是触发事件的分配，不被使用。
+ * <p>
+ * 实例不是线程安全的，每次解析创建一个新实例。
+ */
+final class JfrRecordingParser {
+
+    private static final String EXECUTION_SAMPLE = "jdk.ExecutionSample";
+    private static final String ALLOCATION_SAMPLE = "jdk.ObjectAllocationSample";
+    private static final String ALLOCATION_IN_NEW_TLAB = "jdk.ObjectAllocationInNewTLAB";
+    private static final String ALLOCATION_OUTSIDE_TLAB = "jdk.ObjectAllocationOutsideTLAB";
+
+    private static final long SNAPSHOT_INTERVAL_MS = 1_000;
+    private static final int FRAME_CACHE_LIMIT = 1 << 16;
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    /**
+     * 同一 chunk 中的方法在常量池中只解析一次，按引用缓存可以避免为每个栈帧构造字符串键。
+     * 缓存有上限，超过时清空，旧 chunk 的方法对象因此可以被回收。
+     */
+    private final Reference2IntOpenHashMap<RecordedMethod> myFrameCache = new Reference2IntOpenHashMap<>();
+    private final Object2IntOpenHashMap<String> myMethodIds = new Object2IntOpenHashMap<>();
+
+    private int myMethodCount;
+    private String[] myClassNames = new String[INITIAL_CAPACITY];
+    private String[] myMethodNames = new String[INITIAL_CAPACITY];
+    private String[] myDescriptors = new String[INITIAL_CAPACITY];
+    private long[] mySelfSamples = new long[INITIAL_CAPACITY];
+    private long[] myTotalSamples = new long[INITIAL_CAPACITY];
+    private long[] mySampledBytes = new long[INITIAL_CAPACITY];
+    private long[] myTlabBytes = new long[INITIAL_CAPACITY];
+    // The stack stamp of each method, so that recursive frames count once towards the total
+    private int[] myStamps = new int[INITIAL_CAPACITY];
+    private int myStamp;
+
+    private long myExecutionSamples;
+    private boolean myHasAllocationSamples;
+    private long myTotalSampledBytes;
+    private long myTotalTlabBytes;
+
+    JfrRecordingParser() {
+        myFrameCache.defaultReturnValue(-1);
+        myMethodIds.defaultReturnValue(-1);
+    }
+
+    /**
+     * 解析整个记录。必须在后台线程中调用。
+     *
+     * @param file      JFR 记录文件
+     * @param indicator 用于报告进度和检查取消的进度指示器
+     * @param snapshots 接收解析过程中的未完成快照
+     * @return 完整的统计结果
+     */
+    @NotNull
+    JfrProfile parse(@NotNull Path file,
+                     @NotNull ProgressIndicator indicator,
+                     @NotNull Consumer<JfrProfile> snapshots) throws IOException {
+        String source = file.getFileName().toString();
+        long events = 0;
+        long nextSnapshot = System.currentTimeMillis() + SNAPSHOT_INTERVAL_MS;
+        try (RecordingFile recording = new RecordingFile(file)) {
+            while (recording.hasMoreEvents()) {
+                indicator.checkCanceled();
+                accept(recording.readEvent());
+                if ((++events & 0xFFFF) == 0) {
+                    indicator.setText2(events + " events, " + myMethodCount + " methods");
+                    long now = System.currentTimeMillis();
+                    if (now >= nextSnapshot) {
+                        snapshots.accept(snapshot(source, false));
+                        nextSnapshot = now + SNAPSHOT_INTERVAL_MS;
+                    }
+                }
+            }
+        }
+        return snapshot(source, true);
+    }
+
+    private void accept(@NotNull RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null) {
+            return;
+        }
+        switch (event.getEventType().getName()) {
+            case EXECUTION_SAMPLE -> addExecutionSample(stackTrace.getFrames());
+            case ALLOCATION_SAMPLE -> {
+                myHasAllocationSamples = true;
+                addAllocation(stackTrace.getFrames(), event.getLong("weight"), true);
+            }
+            case ALLOCATION_IN_NEW_TLAB, ALLOCATION_OUTSIDE_TLAB -> {
+                // Only a fallback for recordings without allocation samples
+                if (!myHasAllocationSamples) {
+                    addAllocation(stackTrace.getFrames(), event.getLong("allocationSize"), false);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void addExecutionSample(@NotNull List<RecordedFrame> frames) {
+        myExecutionSamples++;
+        int stamp = ++myStamp;
+        boolean top = true;
+        for (RecordedFrame frame : frames) {
+            if (!frame.isJavaFrame()) {
+                continue;
+            }
+            int id = getMethodId(frame.getMethod());
+            if (top) {
+                mySelfSamples[id]++;
+                top = false;
+            }
+            if (myStamps[id] != stamp) {
+                myStamps[id] = stamp;
+                myTotalSamples[id]++;
+            }
+        }
+    }
+
+    /**
+     * 分配的字节数记在栈顶的 Java 方法上，即执行分配的方法。
+     *
+     * @param sampled 来自 {@code jdk.ObjectAllocationSample}；否则来自 TLAB 事件
+     */
+    private void addAllocation(@NotNull List<RecordedFrame> frames, long bytes, boolean sampled) {
+        for (RecordedFrame frame : frames) {
+            if (frame.isJavaFrame()) {
+                int id = getMethodId(frame.getMethod());
+                if (sampled) {
+                    mySampledBytes[id] += bytes;
+                    myTotalSampledBytes += bytes;
+                } else {
+                    myTlabBytes[id] += bytes;
+                    myTotalTlabBytes += bytes;
+                }
+                return;
+            }
+        }
+    }
+
+    private int getMethodId(@NotNull RecordedMethod method) {
+        int id = myFrameCache.getInt(method);
+        if (id >= 0) {
+            return id;
+        }
+        RecordedClass type = method.getType();
+        String className = type == null ? "<unknown>" : type.getName();
+        String key = JfrProfile.key(className, method.getName(), method.getDescriptor());
+        id = myMethodIds.getInt(key);
+        if (id < 0) {
+            id = addMethod(className, method.getName(), method.getDescriptor());
+            myMethodIds.put(key, id);
+        }
+        if (myFrameCache.size() >= FRAME_CACHE_LIMIT) {
+            myFrameCache.clear();
+        }
+        myFrameCache.put(method, id);
+        return id;
+    }
+
+    private int addMethod(@NotNull String className, @NotNull String methodName, @NotNull String descriptor) {
+        if (myMethodCount == myClassNames.length) {
+            int capacity = myMethodCount * 2;
+            myClassNames = Arrays.copyOf(myClassNames, capacity);
+            myMethodNames = Arrays.copyOf(myMethodNames, capacity);
+            myDescriptors = Arrays.copyOf(myDescriptors, capacity);
+            mySelfSamples = Arrays.copyOf(mySelfSamples, capacity);
+            myTotalSamples = Arrays.copyOf(myTotalSamples, capacity);
+            mySampledBytes = Arrays.copyOf(mySampledBytes, capacity);
+            myTlabBytes = Arrays.copyOf(myTlabBytes, capacity);
+            myStamps = Arrays.copyOf(myStamps, capacity);
+        }
+        int id = myMethodCount++;
+        myClassNames[id] = className;
+        myMethodNames[id] = methodName;
+        myDescriptors[id] = descriptor;
+        return id;
+    }
+
+    @NotNull
+    private JfrProfile snapshot(@NotNull String source, boolean complete) {
+        int count = myMethodCount;
+        // TLAB events seen before the first allocation sample are dropped here as well
+        long[] allocatedBytes = myHasAllocationSamples ? mySampledBytes : myTlabBytes;
+        return new JfrProfile(source, count,
+                Arrays.copyOf(myClassNames, count),
+                Arrays.copyOf(myMethodNames, count),
+                Arrays.copyOf(myDescriptors, count),
+                Arrays.copyOf(mySelfSamples, count),
+                Arrays.copyOf(myTotalSamples, count),
+                Arrays.copyOf(allocatedBytes, count),
+                myExecutionSamples,
+                myHasAllocationSamples ? myTotalSampledBytes : myTotalTlabBytes,
+                complete ? myMethodIds : new Object2IntOpenHashMap<>(myMethodIds),
+                complete);
+    }
+}
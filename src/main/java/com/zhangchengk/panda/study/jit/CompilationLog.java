@@ -0,0 +1,85 @@
+package com.zhangchengk.panda.study.jit;
+
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.util.ClassUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+
+/**
+ * 从一个 {@code -XX:+LogCompilation} 文件中解析出的按方法的编译记录。
+ * <p>
+ * 方法以 JVM 类名、方法名和方法描述符为键，与 {@link ClassUtil#getJVMClassName} 和
+ * {@link ClassUtil#getAsmMethodSignature} 的结果一致，因此可以直接从 PSI 方法查找。
+ */
+public final class CompilationLog {
+
+    public static final CompilationLog EMPTY = new CompilationLog("", Map.of(), CompilationLogParser.DEFAULT_FREQ_INLINE_SIZE, false);
+
+    private final String mySource;
+    private final Map<String, CompiledMethod> myMethods;
+    private final int myFreqInlineSize;
+    private final boolean myTruncated;
+
+    CompilationLog(@NotNull String source, @NotNull Map<String, CompiledMethod> methods, int freqInlineSize,
+                   boolean truncated) {
+        mySource = source;
+        myMethods = methods;
+        myFreqInlineSize = freqInlineSize;
+        myTruncated = truncated;
+    }
+
+    @NotNull
+    static String key(@NotNull String className, @NotNull String methodName, @NotNull String descriptor) {
+        return className + '#' + methodName + descriptor;
+    }
+
+    /**
+     * @return 方法在日志中的记录；没有记录时返回 {@code null}。调用方必须持有读操作。
+     */
+    @Nullable
+    public CompiledMethod find(@NotNull PsiMethod method) {
+        if (myMethods.isEmpty()) {
+            return null;
+        }
+        PsiClass psiClass = method.getContainingClass();
+        String className = psiClass == null ? null : ClassUtil.getJVMClassName(psiClass);
+        if (className == null) {
+            return null;
+        }
+        String name = method.isConstructor() ? "<init>" : method.getName();
+        return myMethods.get(key(className, name, ClassUtil.getAsmMethodSignature(method)));
+    }
+
+    /**
+     * @return 日志文件的名称。
+     */
+    @NotNull
+    public String getSource() {
+        return mySource;
+    }
+
+    public boolean isEmpty() {
+        return myMethods.isEmpty();
+    }
+
+    public int getMethodCount() {
+        return myMethods.size();
+    }
+
+    /**
+     * @return 记录时 JVM 的 {@code -XX:FreqInlineSize}：超过此字节码大小的热点方法不会被 C2 内联。
+     */
+    public int getFreqInlineSize() {
+        return myFreqInlineSize;
+    }
+
+    /**
+     * @return 日志是否在 XML 结束之前被截断，例如 JVM 被强制终止时。
+     */
+    public boolean isTruncated() {
+        return myTruncated;
+    }
+}
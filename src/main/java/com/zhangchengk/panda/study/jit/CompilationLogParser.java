@@ -0,0 +1,265 @@
+package com.zhangchengk.panda.study.jit;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 用 StAX 以流的方式解析 HotSpot 的 {@code -XX:+LogCompilation} 日志，只在内存中保留按方法的记录。
+ * <p>
+ * 日志由两部分组成：
+ * <ul>
+ *     <li>主线程部分（{@code task_queued}、{@code nmethod}、运行时的 {@code uncommon_trap}），方法写成
+ *     {@code method='a.b.C name (I)V'}；</li>
+ *     <li>每个编译线程的 {@code compilation_log} 部分，先用 {@code type}、{@code klass}、{@code method} 元素定义编号，
+ *     然后在 {@code call} 之后的 {@code inline_fail} 中给出内联决策。编号只在所在的 {@code compilation_log} 中有效。</li>
+ * </ul>
+ * 被强制终止的 JVM 留下的日志没有结束标签，此时保留已经解析的记录并标记为截断。
+ */
+final class CompilationLogParser {
+
+    private static final Logger LOG = Logger.getInstance(CompilationLogParser.class);
+
+    /**
+     * x86_64 上 {@code FreqInlineSize} 的默认值，日志的命令行中没有指定时使用。
+     */
+    static final int DEFAULT_FREQ_INLINE_SIZE = 325;
+
+    private static final Pattern FREQ_INLINE_SIZE = Pattern.compile("-XX:FreqInlineSize=(\\d+)");
+    private static final Map<String, String> PRIMITIVE_DESCRIPTORS = Map.of(
+            "void", "V", "boolean", "Z", "byte", "B", "char", "C", "short", "S",
+            "int", "I", "long", "J", "float", "F", "double", "D");
+
+    private final Map<String, CompiledMethod> myMethods = new HashMap<>();
+    private final Int2ObjectOpenHashMap<String> myCompileIds = new Int2ObjectOpenHashMap<>();
+    // Ids of the current compilation_log section: type and klass ids map to descriptors, method ids to keys
+    private final Int2ObjectOpenHashMap<String> myTypeDescriptors = new Int2ObjectOpenHashMap<>();
+    private final Int2ObjectOpenHashMap<String> myClassNames = new Int2ObjectOpenHashMap<>();
+    private final Int2ObjectOpenHashMap<String> myMethodKeys = new Int2ObjectOpenHashMap<>();
+    private String myLastCallee;
+    private int myFreqInlineSize = DEFAULT_FREQ_INLINE_SIZE;
+
+    /**
+     * 解析整个日志。必须在后台线程中调用。
+     *
+     * @param file      日志文件
+     * @param indicator 用于报告进度和检查取消的进度指示器
+     */
+    @NotNull
+    CompilationLog parse(@NotNull Path file, @NotNull ProgressIndicator indicator) throws IOException, XMLStreamException {
+        long length = Math.max(1, Files.size(file));
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        boolean truncated = false;
+        try (CountingInputStream input = new CountingInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            XMLStreamReader reader = factory.createXMLStreamReader(input);
+            try {
+                int elements = 0;
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    if ((++elements & 0xFFF) == 0) {
+                        indicator.checkCanceled();
+                        indicator.setFraction((double) input.myCount / length);
+                    }
+                    startElement(reader);
+                }
+            }
+            catch (XMLStreamException e) {
+                if (myMethods.isEmpty()) {
+                    throw e;
+                }
+                LOG.info("Compilation log " + file + " is truncated: " + e.getMessage());
+                truncated = true;
+            }
+            finally {
+                reader.close();
+            }
+        }
+        return new CompilationLog(file.getFileName().toString(), myMethods, myFreqInlineSize, truncated);
+    }
+
+    private void startElement(@NotNull XMLStreamReader reader) throws XMLStreamException {
+        switch (reader.getLocalName()) {
+            case "compilation_log" -> {
+                myTypeDescriptors.clear();
+                myClassNames.clear();
+                myMethodKeys.clear();
+                myLastCallee = null;
+            }
+            case "type" -> {
+                String descriptor = PRIMITIVE_DESCRIPTORS.get(reader.getAttributeValue(null, "name"));
+                if (descriptor != null) {
+                    myTypeDescriptors.put(getInt(reader, "id"), descriptor);
+                }
+            }
+            case "klass" -> {
+                int id = getInt(reader, "id");
+                String name = reader.getAttributeValue(null, "name");
+                if (name != null) {
+                    // Descriptors use '/', but some JVMs write klass names with '.'
+                    String internalName = name.replace('.', '/');
+                    myClassNames.put(id, internalName);
+                    myTypeDescriptors.put(id, internalName.startsWith("[") ? internalName : 'L' + internalName + ';');
+                }
+            }
+            case "method" -> defineMethod(reader);
+            case "call" -> myLastCallee = myMethodKeys.get(getInt(reader, "method"));
+            case "inline_fail" -> {
+                String reason = reader.getAttributeValue(null, "reason");
+                if (myLastCallee != null && reason != null) {
+                    getMethod(myLastCallee).addInlineFailure(reason);
+                }
+            }
+            case "task_queued" -> {
+                String key = toKey(reader.getAttributeValue(null, "method"));
+                if (key != null) {
+                    myCompileIds.put(getInt(reader, "compile_id"), key);
+                    setBytecodeSize(key, reader);
+                }
+            }
+            case "nmethod" -> {
+                String key = toKey(reader.getAttributeValue(null, "method"));
+                if (key != null) {
+                    myCompileIds.put(getInt(reader, "compile_id"), key);
+                    getMethod(key).addCompilation();
+                }
+            }
+            case "uncommon_trap" -> {
+                // Traps with a thread attribute were hit at run time; the others are only planned by the compiler
+                String key = myCompileIds.get(getInt(reader, "compile_id"));
+                String reason = reader.getAttributeValue(null, "reason");
+                if (reader.getAttributeValue(null, "thread") != null && key != null && reason != null) {
+                    getMethod(key).addDeoptimization(reason);
+                }
+            }
+            case "args", "command" -> {
+                Matcher matcher = FREQ_INLINE_SIZE.matcher(reader.getElementText());
+                if (matcher.find()) {
+                    myFreqInlineSize = Integer.parseInt(matcher.group(1));
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * {@code <method id='..' holder='klass id' name='..' return='type id' arguments='type ids' bytes='..'/>}
+     */
+    private void defineMethod(@NotNull XMLStreamReader reader) {
+        String holder = myClassNames.get(getInt(reader, "holder"));
+        String name = reader.getAttributeValue(null, "name");
+        String returnType = myTypeDescriptors.get(getInt(reader, "return"));
+        if (holder == null || name == null || returnType == null) {
+            return;
+        }
+        StringBuilder descriptor = new StringBuilder("(");
+        String arguments = reader.getAttributeValue(null, "arguments");
+        if (arguments != null && !arguments.isEmpty()) {
+            for (String argument : arguments.split(" ")) {
+                String argumentType = myTypeDescriptors.get(parseInt(argument));
+                if (argumentType == null) {
+                    return;
+                }
+                descriptor.append(argumentType);
+            }
+        }
+        descriptor.append(')').append(returnType);
+        String key = CompilationLog.key(holder.replace('/', '.'), name, descriptor.toString());
+        myMethodKeys.put(getInt(reader, "id"), key);
+        setBytecodeSize(key, reader);
+    }
+
+    private void setBytecodeSize(@NotNull String key, @NotNull XMLStreamReader reader) {
+        int bytes = getInt(reader, "bytes");
+        if (bytes >= 0) {
+            getMethod(key).setBytecodeSize(bytes);
+        }
+    }
+
+    @NotNull
+    private CompiledMethod getMethod(@NotNull String key) {
+        return myMethods.computeIfAbsent(key, k -> new CompiledMethod());
+    }
+
+    /**
+     * 把 {@code method='a.b.C name (I)V'}（旧版本 JVM 中类名用 '/' 分隔）转换为方法的键。
+     */
+    @Nullable
+    private static String toKey(@Nullable String method) {
+        if (method == null) {
+            return null;
+        }
+        int nameStart = method.indexOf(' ');
+        int descriptorStart = method.indexOf(' ', nameStart + 1);
+        if (nameStart < 0 || descriptorStart < 0) {
+            return null;
+        }
+        return CompilationLog.key(method.substring(0, nameStart).replace('/', '.'),
+                method.substring(nameStart + 1, descriptorStart), method.substring(descriptorStart + 1));
+    }
+
+    private static int getInt(@NotNull XMLStreamReader reader, @NotNull String attribute) {
+        String value = reader.getAttributeValue(null, attribute);
+        return value == null ? -1 : parseInt(value);
+    }
+
+    private static int parseInt(@NotNull String value) {
+        try {
+            return Integer.parseInt(value);
+        }
+        catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 记录已读取的字节数，用于报告进度。
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long myCount;
+
+        CountingInputStream(@NotNull InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                myCount++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte @NotNull [] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                myCount += read;
+            }
+            return read;
+        }
+    }
+}
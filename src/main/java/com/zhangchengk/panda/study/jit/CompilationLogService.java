@@ -0,0 +1,43 @@
+package com.zhangchengk.panda.study.jit;
+
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.zhangchengk.panda.study.metrics.PandaMetrics;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 保存当前项目导入的编译日志，供 {@code JitCompilationInspection} 使用。
+ * <p>
+ * 新日志在 EDT 上替换旧日志，然后重新运行代码分析，使编辑器和 Problems 视图中的结果随之更新。
+ */
+@Service(Service.Level.PROJECT)
+public final class CompilationLogService {
+
+    private final Project myProject;
+    private volatile CompilationLog myLog = CompilationLog.EMPTY;
+
+    public CompilationLogService(@NotNull Project project) {
+        myProject = project;
+    }
+
+    public static CompilationLogService getInstance(@NotNull Project project) {
+        return PandaMetrics.getService(project, CompilationLogService.class);
+    }
+
+    /**
+     * @return 当前的编译日志，可以在任意线程中调用。
+     */
+    @NotNull
+    public CompilationLog getLog() {
+        return myLog;
+    }
+
+    void setLog(@NotNull CompilationLog log) {
+        ApplicationManager.getApplication().invokeLater(() -> {
+            myLog = log;
+            DaemonCodeAnalyzer.getInstance(myProject).restart();
+        }, myProject.getDisposed());
+    }
+}
@@ -0,0 +1,97 @@
+package com.zhangchengk.panda.study.jit;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 编译日志中一个方法的记录：字节码大小、编译次数、被调用方内联失败的原因和去优化的原因。
+ * <p>
+ * 记录在解析时由 {@link CompilationLogParser} 填充，解析完成后只读。
+ */
+public final class CompiledMethod {
+
+    private int myBytecodeSize = -1;
+    private int myCompilations;
+    private final Object2IntOpenHashMap<String> myInlineFailures = new Object2IntOpenHashMap<>();
+    private final Object2IntOpenHashMap<String> myDeoptimizations = new Object2IntOpenHashMap<>();
+
+    void setBytecodeSize(int bytecodeSize) {
+        myBytecodeSize = bytecodeSize;
+    }
+
+    void addCompilation() {
+        myCompilations++;
+    }
+
+    void addInlineFailure(@NotNull String reason) {
+        myInlineFailures.addTo(reason, 1);
+    }
+
+    void addDeoptimization(@NotNull String reason) {
+        myDeoptimizations.addTo(reason, 1);
+    }
+
+    /**
+     * @return 方法字节码的字节数；日志中没有记录时返回 -1。
+     */
+    public int getBytecodeSize() {
+        return myBytecodeSize;
+    }
+
+    /**
+     * @return 方法作为编译单元被编译（生成 nmethod）的次数。
+     */
+    public int getCompilations() {
+        return myCompilations;
+    }
+
+    public int getInlineFailureCount() {
+        return sum(myInlineFailures);
+    }
+
+    public int getDeoptimizationCount() {
+        return sum(myDeoptimizations);
+    }
+
+    /**
+     * @return 方法在调用点内联失败的原因及次数，按次数从多到少排列，例如 {@code hot method too big (3)}。
+     */
+    @NotNull
+    public String describeInlineFailures() {
+        return describe(myInlineFailures);
+    }
+
+    /**
+     * @return 编译代码去优化的原因及次数，例如 {@code unstable_if (2)}。
+     */
+    @NotNull
+    public String describeDeoptimizations() {
+        return describe(myDeoptimizations);
+    }
+
+    private static int sum(@NotNull Object2IntOpenHashMap<String> counts) {
+        int sum = 0;
+        for (Object2IntMap.Entry<String> entry : counts.object2IntEntrySet()) {
+            sum += entry.getIntValue();
+        }
+        return sum;
+    }
+
+    @NotNull
+    private static String describe(@NotNull Object2IntOpenHashMap<String> counts) {
+        List<Object2IntMap.Entry<String>> entries = new ArrayList<>(counts.object2IntEntrySet());
+        entries.sort((a, b) -> Integer.compare(b.getIntValue(), a.getIntValue()));
+        StringBuilder text = new StringBuilder();
+        for (Object2IntMap.Entry<String> entry : entries) {
+            if (!text.isEmpty()) {
+                text.append(", ");
+            }
+            text.append(entry.getKey()).append(" (").append(entry.getIntValue()).append(')');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,84 @@
+package com.zhangchengk.panda.study.jit;
+
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.fileChooser.FileChooser;
+import com.intellij.openapi.fileChooser.FileChooserDescriptor;
+import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.wm.StatusBar;
+import org.jetbrains.annotations.NotNull;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 导入一个 {@code -XX:+LogCompilation} 日志，由 {@code JitCompilationInspection} 在对应的 Java 方法上报告
+ * 内联失败、超过 {@code FreqInlineSize} 的热点方法和去优化。
+ * <p>
+ * 日志在可取消的后台任务中以流的方式解析，详见 {@link CompilationLogParser}。
+ */
+public final class ImportCompilationLogAction extends DumbAwareAction {
+
+    private static final String TITLE = "Import JIT Compilation Log";
+
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabledAndVisible(e.getProject() != null);
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
+        FileChooserDescriptor descriptor = FileChooserDescriptorFactory.createSingleFileDescriptor()
+                .withTitle(TITLE)
+                .withDescription("Select a log written with -XX:+UnlockDiagnosticVMOptions -XX:+LogCompilation");
+        VirtualFile file = FileChooser.chooseFile(descriptor, project, null);
+        if (file == null) {
+            return;
+        }
+        Path path = file.toNioPath();
+        new Task.Backgroundable(project, "Reading " + file.getName(), true) {
+
+            private CompilationLog myLog;
+            private String myError;
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                indicator.setIndeterminate(false);
+                try {
+                    myLog = new CompilationLogParser().parse(path, indicator);
+                }
+                catch (IOException | XMLStreamException ex) {
+                    myError = ex.getMessage();
+                }
+            }
+
+            @Override
+            public void onSuccess() {
+                if (myError != null) {
+                    Messages.showErrorDialog(project, myError, TITLE);
+                    return;
+                }
+                CompilationLogService.getInstance(project).setLog(myLog);
+                StatusBar.Info.set(String.format("Imported %d compiled methods from %s%s (FreqInlineSize=%d)",
+                        myLog.getMethodCount(), myLog.getSource(), myLog.isTruncated() ? ", truncated" : "",
+                        myLog.getFreqInlineSize()), project);
+            }
+        }.queue();
+    }
+}
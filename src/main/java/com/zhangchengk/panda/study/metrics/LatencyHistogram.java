@@ -0,0 +1,69 @@
+package com.zhangchengk.panda.study.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的延迟直方图。桶按 2 的幂划分：第 i 个桶统计 [2^i, 2^(i+1)) 纳秒内的样本。
+ * 记录样本不加锁、不分配对象；百分位数以所在桶的上界近似。
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray myBuckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder myTotalNanos = new LongAdder();
+    private final LongAccumulator myMaxNanos = new LongAccumulator(Long::max, 0);
+
+    void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        myBuckets.incrementAndGet(63 - Long.numberOfLeadingZeros(value | 1));
+        myTotalNanos.add(value);
+        myMaxNanos.accumulate(value);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += myBuckets.get(i);
+        }
+        return count;
+    }
+
+    public long getTotalNanos() {
+        return myTotalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return myMaxNanos.get();
+    }
+
+    /**
+     * @param fraction 百分位，例如 0.99
+     * @return 百分位数的近似值（所在桶的上界，纳秒）；没有样本时返回 0。
+     */
+    public long getPercentileNanos(double fraction) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * fraction));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += myBuckets.get(i);
+            if (seen >= rank) {
+                return Math.min((1L << (i + 1)) - 1, getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            myBuckets.set(i, 0);
+        }
+        myTotalNanos.reset();
+        myMaxNanos.reset();
+    }
+}
@@ -0,0 +1,51 @@
+package com.zhangchengk.panda.study.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Panda 记录的延迟指标，每个指标对应一个 {@link LatencyHistogram}。
+ * <p>
+ * 创建类的指标由 {@link PandaMetrics#startInit()} 记录，不受启用开关影响，也不会被 {@link PandaMetrics#reset()} 清除。
+ */
+public enum PandaMetric {
+
+    INSPECTION_FILE_VISIT("ComparingStringReferencesInspection: visitor time per file"),
+    BATCH_FILE_VISIT("pandaAnalyze: shared walk time per file (all rules)"),
+    CONVERTER_IS_AVAILABLE("ConditionalOperatorConverter.isAvailable"),
+    CONVERTER_INVOKE("ConditionalOperatorConverter.invoke"),
+    POPUP_ACTION_UPDATE("PopupDialogAction.update"),
+    GROUP_UPDATE("CustomDefaultActionGroup.update"),
+    DYNAMIC_GROUP_CHILDREN("DynamicActionGroup.getChildren"),
+    SERVICE_INIT("Project service creation", true),
+    TOOL_WINDOW_INIT("Tool window content creation", true);
+
+    private final String myDisplayName;
+    private final boolean myInit;
+    private final LatencyHistogram myHistogram = new LatencyHistogram();
+
+    PandaMetric(@NotNull String displayName) {
+        this(displayName, false);
+    }
+
+    PandaMetric(@NotNull String displayName, boolean init) {
+        myDisplayName = displayName;
+        myInit = init;
+    }
+
+    @NotNull
+    public String getDisplayName() {
+        return myDisplayName;
+    }
+
+    /**
+     * @return 是否是只在创建时记录一次的指标
+     */
+    public boolean isInit() {
+        return myInit;
+    }
+
+    @NotNull
+    public LatencyHistogram getHistogram() {
+        return myHistogram;
+    }
+}
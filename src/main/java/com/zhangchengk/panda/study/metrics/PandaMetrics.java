@@ -0,0 +1,160 @@
+package com.zhangchengk.panda.study.metrics;
+
+import com.google.gson.stream.JsonWriter;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Panda 的低开销指标入口。
+ * <p>
+ * 禁用时（默认）每个测量点只读取一次 volatile 字段；启用时只更新无锁计数器，不分配对象。
+ * 可在 "Panda Performance" 工具窗口中切换，或用 {@code -Dpanda.metrics.enabled=true} 在启动时启用。
+ * <pre>
+ * long start = PandaMetrics.start();
+ * try { ... } finally { PandaMetrics.stop(PandaMetric.CONVERTER_INVOKE, start); }
+ * </pre>
+ */
+public final class PandaMetrics {
+
+    private static final String PACKAGE_PREFIX = "com.zhangchengk.panda.";
+
+    /**
+     * 平台没有公开的 API 报告某个类加载器加载了多少个类，因此工具窗口和 JSON 中只报告已定义的包。
+     */
+    public static final String CLASS_COUNT_LIMITATION =
+            "Loaded classes are not counted: no public API reports them per class loader";
+
+    private static volatile boolean ourEnabled = Boolean.getBoolean("panda.metrics.enabled");
+
+    private static final LongAdder ourProblems = new LongAdder();
+
+    private PandaMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return ourEnabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        ourEnabled = enabled;
+    }
+
+    /**
+     * @return 当前时间（纳秒）；指标禁用时返回 0，此时 {@link #stop} 不做任何事。
+     */
+    public static long start() {
+        return ourEnabled ? System.nanoTime() : 0;
+    }
+
+    public static void stop(@NotNull PandaMetric metric, long start) {
+        if (start != 0) {
+            metric.getHistogram().record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 服务和工具窗口只创建一次，错过就无法再测量，因此与 {@link #start()} 不同，不论指标是否启用都计时。
+     *
+     * @return 当前时间（纳秒）
+     */
+    public static long startInit() {
+        return System.nanoTime();
+    }
+
+    public static void stopInit(@NotNull PandaMetric metric, long start) {
+        metric.getHistogram().record(System.nanoTime() - start);
+    }
+
+    /**
+     * 代替 {@link Project#getService}：服务第一次创建时把创建时间记录到 {@link PandaMetric#SERVICE_INIT}，
+     * 之后的调用与 {@link Project#getService} 一样只查找一次。
+     */
+    @NotNull
+    public static <T> T getService(@NotNull Project project, @NotNull Class<T> serviceClass) {
+        T service = project.getServiceIfCreated(serviceClass);
+        if (service != null) {
+            return service;
+        }
+        long start = startInit();
+        service = project.getService(serviceClass);
+        stopInit(PandaMetric.SERVICE_INIT, start);
+        return service;
+    }
+
+    public static void addProblems(int problems) {
+        ourProblems.add(problems);
+    }
+
+    public static long getProblemCount() {
+        return ourProblems.sum();
+    }
+
+    /**
+     * 插件类加载器已经定义的 Panda 包，按名称排序。类加载器在包中第一个类加载时定义这个包，
+     * 因此一个包出现在这里说明它至少有一个类已被加载；不在这里的包仍未加载。
+     */
+    @NotNull
+    public static List<String> getLoadedPackages() {
+        List<String> packages = new ArrayList<>();
+        for (Package definedPackage : PandaMetrics.class.getClassLoader().getDefinedPackages()) {
+            // In tests the application class loader also defines platform and library packages
+            if (definedPackage.getName().startsWith(PACKAGE_PREFIX)) {
+                packages.add(definedPackage.getName());
+            }
+        }
+        packages.sort(null);
+        return packages;
+    }
+
+    /**
+     * 清除延迟指标和问题计数。创建时间只记录一次，因此保留。
+     */
+    public static void reset() {
+        for (PandaMetric metric : PandaMetric.values()) {
+            if (!metric.isInit()) {
+                metric.getHistogram().reset();
+            }
+        }
+        ourProblems.reset();
+    }
+
+    /**
+     * 将所有指标以 JSON 形式写出，时间单位为微秒。
+     */
+    public static void writeJson(@NotNull Writer writer) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.setIndent("  ");
+        json.beginObject()
+                .name("enabled").value(ourEnabled)
+                .name("problems").value(getProblemCount());
+        json.name("classLoading").beginObject()
+                .name("loadedPackages").beginArray();
+        for (String loadedPackage : getLoadedPackages()) {
+            json.value(loadedPackage);
+        }
+        json.endArray()
+                .name("limitation").value(CLASS_COUNT_LIMITATION)
+                .endObject();
+        json.name("metrics").beginArray();
+        for (PandaMetric metric : PandaMetric.values()) {
+            LatencyHistogram histogram = metric.getHistogram();
+            json.beginObject()
+                    .name("name").value(metric.name())
+                    .name("displayName").value(metric.getDisplayName())
+                    .name("count").value(histogram.getCount())
+                    .name("p50Us").value(histogram.getPercentileNanos(0.5) / 1_000.0)
+                    .name("p99Us").value(histogram.getPercentileNanos(0.99) / 1_000.0)
+                    .name("maxUs").value(histogram.getMaxNanos() / 1_000.0)
+                    .name("totalMs").value(histogram.getTotalNanos() / 1_000_000.0)
+                    .endObject();
+        }
+        json.endArray().endObject();
+        json.flush();
+    }
+}
@@ -0,0 +1,147 @@
+package com.zhangchengk.panda.study.metrics;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.actionSystem.ActionManager;
+import com.intellij.openapi.actionSystem.ActionToolbar;
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.DefaultActionGroup;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.DumbAwareToggleAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import com.intellij.ui.ScrollPaneFactory;
+import com.intellij.ui.table.JBTable;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * "Panda Performance" 工具窗口的内容：每秒刷新一次的指标表格（包括服务和工具窗口的创建时间）、已加载的 Panda 包，
+ * 以及启用、重置和导出 JSON 的工具栏。
+ */
+final class PandaPerformancePanel extends SimpleToolWindowPanel implements Disposable {
+
+    private static final String[] COLUMNS = {"Metric", "Count", "p50 (µs)", "p99 (µs)", "Max (µs)", "Total (ms)"};
+
+    private final Project myProject;
+    private final DefaultTableModel myModel = new DefaultTableModel(COLUMNS, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+    private final JLabel myProblems = new JLabel();
+    private final JLabel myClassLoading = new JLabel();
+    private final Timer myRefreshTimer = new Timer(1_000, e -> refresh());
+
+    PandaPerformancePanel(@NotNull Project project) {
+        super(true, true);
+        myProject = project;
+
+        JBTable table = new JBTable(myModel);
+        table.setAutoCreateRowSorter(true);
+        JPanel content = new JPanel(new BorderLayout());
+        content.add(ScrollPaneFactory.createScrollPane(table), BorderLayout.CENTER);
+        JPanel status = new JPanel(new GridLayout(2, 1));
+        status.add(myProblems);
+        status.add(myClassLoading);
+        content.add(status, BorderLayout.SOUTH);
+        setContent(content);
+        setToolbar(createToolbar().getComponent());
+
+        refresh();
+        myRefreshTimer.start();
+    }
+
+    @NotNull
+    private ActionToolbar createToolbar() {
+        DefaultActionGroup group = new DefaultActionGroup();
+        group.add(new DumbAwareToggleAction("Record Metrics", "Enable Panda performance metrics", AllIcons.Actions.Execute) {
+            @Override
+            public boolean isSelected(@NotNull AnActionEvent e) {
+                return PandaMetrics.isEnabled();
+            }
+
+            @Override
+            public void setSelected(@NotNull AnActionEvent e, boolean state) {
+                PandaMetrics.setEnabled(state);
+            }
+
+            @Override
+            public @NotNull ActionUpdateThread getActionUpdateThread() {
+                return ActionUpdateThread.BGT;
+            }
+        });
+        group.add(new DumbAwareAction("Reset", "Clear all recorded metrics", AllIcons.Actions.GC) {
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                PandaMetrics.reset();
+                refresh();
+            }
+        });
+        group.add(new DumbAwareAction("Export JSON", "Save the recorded metrics as JSON", AllIcons.ToolbarDecorator.Export) {
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                exportJson();
+            }
+        });
+        ActionToolbar toolbar = ActionManager.getInstance().createActionToolbar("PandaPerformance", group, true);
+        toolbar.setTargetComponent(this);
+        return toolbar;
+    }
+
+    private void refresh() {
+        myModel.setRowCount(0);
+        for (PandaMetric metric : PandaMetric.values()) {
+            LatencyHistogram histogram = metric.getHistogram();
+            myModel.addRow(new Object[]{
+                    metric.getDisplayName(),
+                    histogram.getCount(),
+                    histogram.getPercentileNanos(0.5) / 1_000,
+                    histogram.getPercentileNanos(0.99) / 1_000,
+                    histogram.getMaxNanos() / 1_000,
+                    histogram.getTotalNanos() / 1_000_000
+            });
+        }
+        myProblems.setText(PandaMetrics.isEnabled()
+                ? "Problems reported by ComparingStringReferencesInspection: " + PandaMetrics.getProblemCount()
+                : "Recording is disabled");
+        List<String> packages = PandaMetrics.getLoadedPackages();
+        myClassLoading.setText("Loaded Panda packages: " + packages.size() + ". " + PandaMetrics.CLASS_COUNT_LIMITATION);
+        myClassLoading.setToolTipText(String.join(", ", packages));
+    }
+
+    private void exportJson() {
+        FileSaverDescriptor descriptor = new FileSaverDescriptor("Export Panda Metrics", "Save the recorded metrics as JSON", "json");
+        VirtualFileWrapper target = FileChooserFactory.getInstance()
+                .createSaveFileDialog(descriptor, myProject)
+                .save("panda-metrics.json");
+        if (target == null) {
+            return;
+        }
+        try (Writer writer = Files.newBufferedWriter(target.getFile().toPath(), StandardCharsets.UTF_8)) {
+            PandaMetrics.writeJson(writer);
+        }
+        catch (IOException e) {
+            Messages.showErrorDialog(myProject, e.getMessage(), "Export Panda Metrics");
+        }
+    }
+
+    @Override
+    public void dispose() {
+        myRefreshTimer.stop();
+    }
+}
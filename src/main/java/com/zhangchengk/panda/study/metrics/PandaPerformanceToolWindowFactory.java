@@ -0,0 +1,26 @@
+package com.zhangchengk.panda.study.metrics;
+
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 创建 "Panda Performance" 工具窗口，显示 {@link PandaMetrics} 记录的指标。见 plugin.xml 中的声明。
+ */
+public final class PandaPerformanceToolWindowFactory implements ToolWindowFactory, DumbAware {
+
+    @Override
+    public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
+        long start = PandaMetrics.startInit();
+        PandaPerformancePanel panel = new PandaPerformancePanel(project);
+        Content content = ContentFactory.getInstance().createContent(panel, null, false);
+        Disposer.register(content, panel);
+        toolWindow.getContentManager().addContent(content);
+        PandaMetrics.stopInit(PandaMetric.TOOL_WINDOW_INIT, start);
+    }
+}
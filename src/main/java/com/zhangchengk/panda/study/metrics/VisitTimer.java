@@ -0,0 +1,24 @@
+package com.zhangchengk.panda.study.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 累计一个访问者在单个文件上的耗时。访问者只在一个线程中使用，因此无需同步。
+ * 只在指标启用时为每个文件创建一次，访问节点时不分配对象。
+ */
+public final class VisitTimer {
+
+    private long myNanos;
+
+    public void add(long nanos) {
+        myNanos += nanos;
+    }
+
+    /**
+     * 文件访问结束时调用，记录累计的耗时和问题数量。
+     */
+    public void finish(@NotNull PandaMetric metric, int problems) {
+        metric.getHistogram().record(myNanos);
+        PandaMetrics.addProblems(problems);
+    }
+}
@@ -0,0 +1,64 @@
+package com.zhangchengk.panda.study.action;
+
+import com.intellij.openapi.actionSystem.ActionPlaces;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.impl.SimpleDataContext;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import com.zhangchengk.panda.study.metrics.PandaMetric;
+import com.zhangchengk.panda.study.metrics.PandaMetrics;
+import com.zhangchengk.panda.study.performance.PerformanceReport;
+
+/**
+ * 菜单打开时 Panda 动作的开销：{@code update()} 的延迟，以及 {@link DynamicActionGroup} 不再每次创建新的菜单项。
+ */
+public class ActionUpdatePerformanceTest extends LightJavaCodeInsightFixtureTestCase {
+
+    private static final int UPDATES = 100_000;
+
+    public void testDynamicChildrenAreCachedUntilInvalidated() {
+        DynamicActionGroup group = new DynamicActionGroup();
+        AnAction[] children = group.getChildren(createEvent(group));
+        assertSize(1, children);
+        assertSame(children, group.getChildren(createEvent(group)));
+        group.invalidate();
+        AnAction[] recreated = group.getChildren(createEvent(group));
+        assertNotSame(children, recreated);
+        assertSame(recreated, group.getChildren(null));
+    }
+
+    public void testUpdatePerformance() {
+        PopupDialogAction action = new PopupDialogAction();
+        DynamicActionGroup group = new DynamicActionGroup();
+        AnActionEvent actionEvent = createEvent(action);
+        AnActionEvent groupEvent = createEvent(group);
+        boolean enabled = PandaMetrics.isEnabled();
+        PandaMetrics.setEnabled(true);
+        try {
+            PandaMetrics.reset();
+            PerformanceReport.measure("action.update", 1_000,
+                    () -> {
+                    },
+                    () -> {
+                        for (int i = 0; i < UPDATES; i++) {
+                            action.update(actionEvent);
+                            group.getChildren(groupEvent);
+                        }
+                    });
+            assertTrue(actionEvent.getPresentation().isEnabledAndVisible());
+            PerformanceReport.metric("action.popupUpdate.p99", "µs",
+                    PandaMetric.POPUP_ACTION_UPDATE.getHistogram().getPercentileNanos(0.99) / 1_000.0);
+            PerformanceReport.metric("action.dynamicChildren.p99", "µs",
+                    PandaMetric.DYNAMIC_GROUP_CHILDREN.getHistogram().getPercentileNanos(0.99) / 1_000.0);
+        }
+        finally {
+            PandaMetrics.setEnabled(enabled);
+            PandaMetrics.reset();
+        }
+    }
+
+    private AnActionEvent createEvent(AnAction action) {
+        return AnActionEvent.createFromDataContext(ActionPlaces.UNKNOWN, action.getTemplatePresentation().clone(),
+                SimpleDataContext.getProjectContext(getProject()));
+    }
+}
@@ -0,0 +1,94 @@
+package com.zhangchengk.panda.study.cache;
+
+import com.intellij.codeInspection.InspectionManager;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import com.zhangchengk.panda.study.inspection.ComparingStringReferencesInspection;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * {@link PandaResultCache} 的条目在依赖的文件修改后失效，因为检查结果依赖于被引用的类型；与文件无关的修改不影响命中。
+ */
+public class PandaResultCacheTest extends LightJavaCodeInsightFixtureTestCase {
+
+    private final ComparingStringReferencesInspection myInspection = new ComparingStringReferencesInspection();
+
+    public void testEntryIsDroppedWhenADependencyChanges() {
+        PsiFile types = addTypes();
+        PsiFile file = addUses();
+        PandaResultCache cache = PandaResultCache.getInstance(getProject());
+        put(cache, file);
+        assertNotNull(get(cache, file));
+
+        // Uses.java itself is unchanged, but name() no longer returns a String
+        setText(types, "class Types {\n    static int name() { return 0; }\n}\n");
+        assertNull(get(cache, file));
+    }
+
+    public void testEntrySurvivesUnrelatedChanges() {
+        addTypes();
+        PsiFile other = myFixture.addFileToProject("Other.java", "class Other {}\n");
+        PsiFile file = addUses();
+        PandaResultCache cache = PandaResultCache.getInstance(getProject());
+        put(cache, file);
+
+        setText(other, "class Other {\n    int count;\n}\n");
+        FileDocumentManager.getInstance().saveAllDocuments();
+        assertNotNull(get(cache, file));
+    }
+
+    public void testEntryLoadedFromDiskIsDroppedWhenADependencyChangedInBetween() {
+        PsiFile types = addTypes();
+        PsiFile file = addUses();
+        PandaResultCache cache = new PandaResultCache(getProject());
+        put(cache, file);
+        cache.save();
+        assertNotNull(get(new PandaResultCache(getProject()), file));
+
+        // Changed and saved while no cache was loaded, as if the IDE had been closed
+        setText(types, "class Types {\n    static int name() { return 0; }\n}\n");
+        FileDocumentManager.getInstance().saveAllDocuments();
+        assertNull(get(new PandaResultCache(getProject()), file));
+    }
+
+    private PsiFile addTypes() {
+        return myFixture.addFileToProject("Types.java", """
+                class Types {
+                    static String name() { return ""; }
+                }
+                """);
+    }
+
+    private PsiFile addUses() {
+        PsiFile file = myFixture.configureByText("Uses.java", """
+                class Uses {
+                    boolean same(String a) { return a == Types.name(); }
+                }
+                """);
+        FileDocumentManager.getInstance().saveAllDocuments();
+        return file;
+    }
+
+    private void put(PandaResultCache cache, PsiFile file) {
+        cache.put(myInspection.getShortName(), PandaResultCache.settingsHash(myInspection), file,
+                myInspection.checkFile(file, InspectionManager.getInstance(getProject())));
+    }
+
+    private List<CachedProblem> get(PandaResultCache cache, PsiFile file) {
+        return cache.get(myInspection.getShortName(), PandaResultCache.settingsHash(myInspection), file);
+    }
+
+    private void setText(PsiFile file, String text) {
+        Document document = Objects.requireNonNull(PsiDocumentManager.getInstance(getProject()).getDocument(file));
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+            document.setText(text);
+            PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+        });
+    }
+}
@@ -0,0 +1,53 @@
+package com.zhangchengk.panda.study.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * {@link JavaPatternScanner} 的词法边界情况，不需要启动 IDE。
+ */
+public class JavaPatternScannerTest {
+
+    @Test
+    public void ignoresCommentsStringsAndTextBlocks() {
+        String text = """
+                class A {
+                    // a == b ? c : d
+                    /* a != b */
+                    String s = "a == b ? \\" ?";
+                    String t = \"""
+                        x == y ? 1 : 2
+                        \""";
+                    char c = '?';
+                    boolean f(String a, String b) { return a == b; }
+                }
+                """;
+        PatternOffsets offsets = PatternOffsets.scan(text);
+        assertArrayEquals(new int[]{text.indexOf("a == b; }") + 2}, offsets.getStringComparisons());
+        assertArrayEquals(new int[0], offsets.getTernaries());
+    }
+
+    @Test
+    public void skipsLiteralComparisonsAndWildcards() {
+        String text = "boolean b = x == 1.5e-3 || 0x1p+3 != y || s >= t || s <= t || s == t;"
+                + " Map<? super K, ?> m = c ? a : b;";
+        PatternOffsets offsets = PatternOffsets.scan(text);
+        assertArrayEquals(new int[]{text.indexOf("== t")}, offsets.getStringComparisons());
+        assertArrayEquals(new int[]{text.indexOf("? a")}, offsets.getTernaries());
+    }
+
+    @Test
+    public void keepsLiteralsThatArePartOfAnOperand() {
+        String text = "boolean b = \"a\" + 1 == s || s == 1 + \"\" || (1 == s) || f(s != null);";
+        PatternOffsets offsets = PatternOffsets.scan(text);
+        assertArrayEquals(new int[]{text.indexOf("== s"), text.indexOf("== 1")}, offsets.getStringComparisons());
+    }
+
+    @Test
+    public void superAfterTernaryIsNotAWildcard() {
+        String text = "Object o = c ? super.x() : y; List<? super T> l; Map<K, ? extends V> m;";
+        PatternOffsets offsets = PatternOffsets.scan(text);
+        assertArrayEquals(new int[]{text.indexOf("? super.x")}, offsets.getTernaries());
+    }
+}
@@ -0,0 +1,24 @@
+package com.zhangchengk.panda.study.hprof;
+
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import com.zhangchengk.panda.study.performance.PerformanceReport;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * {@link DuplicateStringScanner} 扫描测试进程堆转储的时间。
+ */
+public class DuplicateStringScannerPerformanceTest extends LightJavaCodeInsightFixtureTestCase {
+
+    public void testScanPerformance() throws IOException {
+        Path dump = TestHeapDump.get();
+        PerformanceReport.metric("hprof.dumpSize", "bytes", Files.size(dump));
+        PerformanceReport.measure("hprof.duplicateStrings", 30_000, 3,
+                () -> {
+                },
+                () -> assertFalse(new DuplicateStringScanner().scan(dump, new EmptyProgressIndicator()).isEmpty()));
+    }
+}
@@ -0,0 +1,59 @@
+package com.zhangchengk.panda.study.hprof;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.psi.PsiField;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.zhangchengk.panda.study.hprof.TestHeapDump.COPIES;
+import static com.zhangchengk.panda.study.hprof.TestHeapDump.VALUE;
+
+/**
+ * {@link DuplicateStringScanner} 在测试进程的堆转储中找出一组内容相同的字符串和引用它们的字段，并拒绝其他文件。
+ */
+public class DuplicateStringScannerTest extends LightJavaCodeInsightFixtureTestCase {
+
+    public void testDuplicatesAreFoundWithTheirField() throws Exception {
+        DuplicateStringReport report = new DuplicateStringScanner().scan(TestHeapDump.get(), new EmptyProgressIndicator());
+        assertTrue(report.getStringCount() > COPIES);
+        DuplicateStringReport.DuplicateString duplicate = report.getDuplicates().stream()
+                .filter(candidate -> VALUE.equals(candidate.preview()))
+                .findFirst()
+                .orElse(null);
+        assertNotNull("No duplicate group for " + VALUE + ": " + report, duplicate);
+        assertEquals(VALUE.length(), duplicate.length());
+        assertTrue(duplicate.count() >= COPIES);
+        // Every copy has its own String and value array
+        assertTrue(duplicate.retainedBytes() >= (COPIES - 1) * (24L + 16 + VALUE.length()));
+        DuplicateStringReport.FieldReference referrer = duplicate.referrers().get(0);
+        assertEquals(TestHeapDump.Node.class.getName(), referrer.className());
+        assertEquals("myName", referrer.fieldName());
+        assertTrue(referrer.count() >= COPIES - 1);
+        assertTrue(report.getRetainedBytes() >= duplicate.retainedBytes());
+
+        // Nested classes are recorded by their binary name
+        myFixture.addClass("package p; public class Outer { static class Inner { String name; } }");
+        PsiField field = ReadAction.compute(() -> HeapDumpService.findField(getProject(),
+                new DuplicateStringReport.FieldReference("p.Outer$Inner", "name", 1)));
+        assertNotNull(field);
+    }
+
+    public void testRejectsOtherFiles() throws Exception {
+        Path text = Files.createTempFile("panda", ".txt");
+        try {
+            Files.writeString(text, "not a heap dump");
+            new DuplicateStringScanner().scan(text, new EmptyProgressIndicator());
+            fail("A text file was accepted");
+        }
+        catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("not a HPROF heap dump"));
+        }
+        finally {
+            Files.delete(text);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.zhangchengk.panda.study.hprof;
+
+import com.intellij.testFramework.UsefulTestCase;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+
+import java.util.Random;
+
+/**
+ * {@link OffHeapLongTable} 删除键后，同一探测序列中的其他键仍然能找到，值也跟着移动。
+ */
+public class OffHeapLongTableTest extends UsefulTestCase {
+
+    public void testRemoveKeepsOtherKeysReachable() {
+        OffHeapLongTable table = new OffHeapLongTable(1);
+        Long2LongOpenHashMap expected = new Long2LongOpenHashMap();
+        Random random = new Random(42);
+        // Few distinct keys so that the table keeps growing, colliding and wrapping around
+        for (int i = 1; i <= 200_000; i++) {
+            long key = 1 + random.nextInt(3_000);
+            if (random.nextBoolean()) {
+                table.setValue(table.insert(key), 0, i);
+                expected.put(key, i);
+            } else {
+                long slot = table.find(key);
+                if (slot >= 0) {
+                    table.remove(slot);
+                }
+                expected.remove(key);
+            }
+        }
+        assertEquals(expected.size(), table.size());
+        for (long key = 1; key <= 3_000; key++) {
+            long slot = table.find(key);
+            if (expected.containsKey(key)) {
+                assertTrue("Lost key " + key, slot >= 0);
+                assertEquals(expected.get(key), table.getValue(slot, 0));
+            } else {
+                assertEquals(-1, slot);
+            }
+        }
+        table.clear();
+    }
+}
@@ -0,0 +1,59 @@
+package com.zhangchengk.panda.study.hprof;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 测试进程的堆转储，在第一次使用时写出，同一个 JVM 中的所有测试共用，JVM 退出时删除。
+ * <p>
+ * 转储中有 {@link #COPIES} 个内容为 {@link #VALUE} 的字符串，每个都由一个 {@link Node} 的 {@link Node#myName} 引用。
+ */
+final class TestHeapDump {
+
+    static final int COPIES = 10_000;
+    static final String VALUE = "panda-duplicate-string-scanner";
+
+    /**
+     * 一个链表节点，每个节点通过 {@link #myName} 引用一个单独的字符串副本。
+     */
+    static final class Node {
+        private final String myName;
+        private final Node myNext;
+
+        Node(String name, Node next) {
+            myName = name;
+            myNext = next;
+        }
+    }
+
+    private static Node ourHead;
+    private static Path ourDump;
+
+    private TestHeapDump() {
+    }
+
+    /**
+     * @return 堆转储文件；第一次调用时写出
+     */
+    static synchronized Path get() throws IOException {
+        if (ourDump == null) {
+            for (int i = 0; i < COPIES; i++) {
+                ourHead = new Node(new String(VALUE.toCharArray()), ourHead);
+            }
+            Path directory = Files.createTempDirectory("panda");
+            // dumpHeap refuses to overwrite an existing file
+            Path dump = directory.resolve("test.hprof");
+            ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class).dumpHeap(dump.toString(), true);
+            // The strings only have to be alive while the dump is written
+            ourHead = null;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> FileUtil.delete(directory.toFile())));
+            ourDump = dump;
+        }
+        return ourDump;
+    }
+}
@@ -0,0 +1,68 @@
+package com.zhangchengk.panda.study.index;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import com.zhangchengk.panda.study.performance.PerformanceReport;
+import com.zhangchengk.panda.study.performance.SyntheticSources;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link PandaPatternIndex} 的正确性和候选文件过滤的性能测试。
+ */
+public class PandaPatternIndexPerformanceTest extends LightJavaCodeInsightFixtureTestCase {
+
+    private static final int FILES = 400;
+    private static final int MATCHING = 20;
+
+    public void testIndexerSkipsNonStringComparisonsAndWildcards() {
+        String text = """
+                class A {
+                    boolean f(String s, int i, java.util.List<? extends Number> l, java.util.Map<String, ?> m) {
+                        boolean b = i == 1 || s == null || 'c' != s.charAt(0) || true == l.isEmpty();
+                        return s == m.get("k") ? b : !b;
+                    }
+                }
+                """;
+        Map<Integer, int[]> data = PandaPatternIndex.index(text);
+        assertOrderedEquals(data.get(PandaPattern.STRING_COMPARISON.ordinal()), text.indexOf("s == m"));
+        assertOrderedEquals(data.get(PandaPattern.TERNARY.ordinal()), text.indexOf("? b"));
+        assertEmpty(PandaPatternIndex.index("class B { int x = 1 + 2; }").keySet());
+    }
+
+    /**
+     * 5% 的文件包含字符串比较：通过索引过滤只需查询倒排表，而全量分析需要解析每个文件。
+     */
+    public void testCandidateFilteringPerformance() {
+        List<VirtualFile> files = new ArrayList<>(FILES);
+        for (int i = 0; i < FILES; i++) {
+            String name = "C" + i;
+            String text = i % (FILES / MATCHING) == 0
+                    ? SyntheticSources.stringComparisons(name, 100)
+                    : SyntheticSources.arithmetic(name, 100);
+            files.add(myFixture.addFileToProject(name + ".java", text).getVirtualFile());
+        }
+        PerformanceReport.measure("index.filterCandidates", 500,
+                () -> {
+                },
+                () -> assertSize(MATCHING, ReadAction.compute(() ->
+                        PandaPatternIndex.filterCandidates(getProject(), files, PandaPattern.STRING_COMPARISON))));
+        PerformanceReport.measure("index.parseAll", 30_000,
+                () -> {
+                },
+                () -> ReadAction.run(() -> {
+                    PsiManager psiManager = PsiManager.getInstance(getProject());
+                    psiManager.dropPsiCaches();
+                    for (VirtualFile file : files) {
+                        PsiFile psiFile = psiManager.findFile(file);
+                        assertNotNull(psiFile);
+                        psiFile.getNode().getLastChildNode();
+                    }
+                }));
+    }
+}
@@ -0,0 +1,181 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.codeInspection.LocalInspectionTool;
+import com.intellij.lang.annotation.HighlightSeverity;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * {@link AllocationInLoopInspection} 把循环中的字符串拼接改为 StringBuilder、为集合预先分配容量的快速修复结果，以及不报告的情况。
+ */
+public class AllocationInLoopInspectionTest extends PandaInspectionTestCase {
+
+    @NotNull
+    @Override
+    protected LocalInspectionTool createInspection() {
+        return new AllocationInLoopInspection();
+    }
+
+    public void testHoistConcatenation() {
+        myFixture.configureByText("Join.java", """
+                class Join {
+                    String join(String[] parts) {
+                        String s = "";
+                        for (String part : parts) {
+                            s += part;
+                        }
+                        return s;
+                    }
+                }
+                """);
+        launch(InspectionBundle.message("inspection.allocation.in.loop.use.string.builder.quickfix"));
+        myFixture.checkResult("""
+                class Join {
+                    String join(String[] parts) {
+                        String s = "";
+                        StringBuilder sBuilder = new StringBuilder(s.length() + 16 * parts.length).append(s);
+                        for (String part : parts) {
+                            sBuilder.append(part);
+                        }
+                        s = sBuilder.toString();
+                        return s;
+                    }
+                }
+                """);
+    }
+
+    public void testNoHoistForVariableThatMayBeNull() {
+        // With no parts the result must stay null, but the builder would return "null"
+        myFixture.configureByText("Join.java", """
+                class Join {
+                    String join(String[] parts) {
+                        String s = null;
+                        for (String part : parts) {
+                            s += part;
+                        }
+                        return s;
+                    }
+                }
+                """);
+        assertSize(1, myFixture.doHighlighting(HighlightSeverity.WARNING));
+        assertFalse(hasFix(InspectionBundle.message("inspection.allocation.in.loop.use.string.builder.quickfix")));
+    }
+
+    public void testNoHoistWhenValueIsReadInLoop() {
+        myFixture.configureByText("Lines.java", """
+                class Lines {
+                    String lines(String[] parts) {
+                        String s = "";
+                        for (String part : parts) {
+                            s += part;
+                            if (s.length() > 80) break;
+                        }
+                        return s;
+                    }
+                }
+                """);
+        assertSize(1, myFixture.doHighlighting(HighlightSeverity.WARNING));
+        assertFalse(hasFix(InspectionBundle.message("inspection.allocation.in.loop.use.string.builder.quickfix")));
+    }
+
+    public void testHoistNullOperand() {
+        myFixture.configureByText("Counter.java", """
+                class Counter {
+                    String count(int n) {
+                        String s = "";
+                        int i = 0;
+                        while (i++ < n) {
+                            s = s + i + null;
+                        }
+                        return s;
+                    }
+                }
+                """);
+        launch(InspectionBundle.message("inspection.allocation.in.loop.use.string.builder.quickfix"));
+        myFixture.checkResult("""
+                class Counter {
+                    String count(int n) {
+                        String s = "";
+                        int i = 0;
+                        StringBuilder sBuilder = new StringBuilder(s.length() + 16).append(s);
+                        while (i++ < n) {
+                            sBuilder.append(i).append((String) null);
+                        }
+                        s = sBuilder.toString();
+                        return s;
+                    }
+                }
+                """);
+    }
+
+    public void testPresizeList() {
+        myFixture.configureByText("Copies.java", """
+                import java.util.*;
+
+                class Copies {
+                    void copy(List<String> names, int n) {
+                        for (int i = 0; i < n; i++) {
+                            List<String> copy = new ArrayList<>();
+                            for (String name : names) {
+                                copy.add(name);
+                            }
+                        }
+                    }
+                }
+                """);
+        launch(InspectionBundle.message("inspection.allocation.in.loop.presize.collection.quickfix", "names.size()"));
+        assertTrue(myFixture.getFile().getText(),
+                myFixture.getFile().getText().contains("List<String> copy = new ArrayList<>(names.size());"));
+    }
+
+    public void testPresizeHashSetForLoadFactor() {
+        myFixture.configureByText("Distinct.java", """
+                import java.util.*;
+
+                class Distinct {
+                    void distinct(String[][] rows) {
+                        for (String[] row : rows) {
+                            Set<String> seen = new HashSet<>();
+                            for (String cell : row) {
+                                seen.add(cell);
+                            }
+                        }
+                    }
+                }
+                """);
+        launch(InspectionBundle.message("inspection.allocation.in.loop.presize.collection.quickfix", "row.length"));
+        assertTrue(myFixture.getFile().getText(),
+                myFixture.getFile().getText().contains("Set<String> seen = new HashSet<>((int) Math.ceil(row.length / 0.75));"));
+    }
+
+    public void testAllocationsThatAreNotReported() {
+        myFixture.configureByText("Quiet.java", """
+                import java.util.*;
+
+                class Quiet {
+                    String field = "";
+
+                    void quiet(String[] parts, List<String> names, int n) {
+                        // Not inside a loop
+                        String once = "";
+                        once += parts[0];
+                        List<String> single = new ArrayList<>();
+                        for (String name : names) {
+                            single.add(name);
+                        }
+                        for (String part : parts) {
+                            // Declared in the loop body, so a new string per iteration is expected
+                            String local = "";
+                            local += part;
+                            // Fields are not hoisted
+                            field += part;
+                            // Already sized, or the size is unknown
+                            List<String> sized = new ArrayList<>(names.size());
+                            List<String> unknown = new ArrayList<>();
+                            unknown.add(part);
+                        }
+                    }
+                }
+                """);
+        assertEmpty(myFixture.doHighlighting(HighlightSeverity.WARNING));
+    }
+}
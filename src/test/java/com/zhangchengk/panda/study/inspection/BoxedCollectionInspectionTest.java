@@ -0,0 +1,183 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.codeInsight.daemon.impl.HighlightInfo;
+import com.intellij.codeInspection.LocalInspectionTool;
+import com.intellij.lang.annotation.HighlightSeverity;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * {@link BoxedCollectionInspection} 的开销估算，以及改用基本类型数组、fastutil 集合和 {@code Objects.equals} 的快速修复结果。
+ */
+public class BoxedCollectionInspectionTest extends PandaInspectionTestCase {
+
+    @NotNull
+    @Override
+    protected LocalInspectionTool createInspection() {
+        return new BoxedCollectionInspection();
+    }
+
+    public void testOverheadEstimate() {
+        myFixture.configureByText("Ids.java", """
+                import java.util.*;
+
+                class Ids {
+                    private final List<Integer> list = new ArrayList<>();
+                    private final Set<Long> set = new HashSet<>();
+                    private final Map<Long, String> map = new HashMap<>();
+                    private final Map<String, String> names = new HashMap<>();
+                }
+                """);
+        List<HighlightInfo> infos = myFixture.doHighlighting(HighlightSeverity.WARNING);
+        assertSize(3, infos);
+        assertEquals(InspectionBundle.message("inspection.boxed.collection.descriptor", "List<Integer>", 16),
+                infos.get(0).getDescription());
+        assertEquals(InspectionBundle.message("inspection.boxed.collection.descriptor", "Set<Long>", 51),
+                infos.get(1).getDescription());
+        assertEquals(InspectionBundle.message("inspection.boxed.collection.descriptor", "Map<Long, String>", 45),
+                infos.get(2).getDescription());
+    }
+
+    public void testLocalListNotFilledInLoopIsIgnored() {
+        myFixture.configureByText("Pair.java", """
+                import java.util.*;
+
+                class Pair {
+                    List<Integer> pair(int a, int b) {
+                        List<Integer> result = new ArrayList<>();
+                        result.add(a);
+                        result.add(b);
+                        return result;
+                    }
+                }
+                """);
+        assertEmpty(myFixture.doHighlighting(HighlightSeverity.WARNING));
+    }
+
+    public void testConvertToArray() {
+        myFixture.configureByText("Squares.java", """
+                import java.util.*;
+
+                class Squares {
+                    long sum(int n) {
+                        List<Integer> squares = new ArrayList<>(n);
+                        for (int i = 0; i < n; i++) {
+                            squares.add(i * i);
+                        }
+                        long sum = 0;
+                        for (int square : squares) {
+                            sum += square;
+                        }
+                        return squares.isEmpty() ? -1 : sum;
+                    }
+                }
+                """);
+        launch(InspectionBundle.message("inspection.boxed.collection.array.quickfix", "squares", "int"));
+        String text = myFixture.getFile().getText();
+        assertTrue(text, text.contains("int[] squares = new int[n];"));
+        assertTrue(text, text.contains("int squaresSize = 0;"));
+        assertTrue(text, text.contains("if (squaresSize == squares.length) squares = Arrays.copyOf(squares, squaresSize * 2 + 1);"));
+        assertTrue(text, text.contains("squares[squaresSize++] = i * i;"));
+        assertTrue(text, text.contains("int square = squares["));
+        assertTrue(text, text.contains("return (squaresSize == 0) ? -1 : sum;"));
+        assertFalse(text, text.contains("List<Integer>"));
+    }
+
+    public void testConvertToArrayKeepsIndexChecks() {
+        myFixture.configureByText("Values.java", """
+                import java.util.*;
+
+                class Values {
+                    long pick(int n, int k) {
+                        List<Long> values = new ArrayList<>();
+                        for (int i = 0; i < n; i++) {
+                            values.add((long) i);
+                        }
+                        values.set(0, 7L);
+                        return values.get(k) + 1;
+                    }
+                }
+                """);
+        launch(InspectionBundle.message("inspection.boxed.collection.array.quickfix", "values", "long"));
+        String text = myFixture.getFile().getText();
+        assertTrue(text, text.contains("values[Objects.checkIndex(0, valuesSize)] = 7L;"));
+        assertTrue(text, text.contains("return values[Objects.checkIndex(k, valuesSize)] + 1;"));
+    }
+
+    public void testNoArrayFixForBoxedUsesOrNullElements() {
+        myFixture.configureByText("Boxes.java", """
+                import java.util.*;
+
+                class Boxes {
+                    String describe(int n, Integer missing) {
+                        List<Integer> first = new ArrayList<>();
+                        List<Integer> second = new ArrayList<>();
+                        for (int i = 0; i < n; i++) {
+                            first.add(i);
+                            second.add(i);
+                        }
+                        second.add(missing);
+                        return first.get(0).toString() + second.size();
+                    }
+                }
+                """);
+        assertSize(2, myFixture.doHighlighting(HighlightSeverity.WARNING));
+        assertFalse(hasFix(InspectionBundle.message("inspection.boxed.collection.array.quickfix", "first", "int")));
+        assertFalse(hasFix(InspectionBundle.message("inspection.boxed.collection.array.quickfix", "second", "int")));
+    }
+
+    public void testConvertToFastutilListInMultiVariableDeclaration() {
+        myFixture.addClass("""
+                package it.unimi.dsi.fastutil.ints;
+                public class IntArrayList extends java.util.ArrayList<Integer> {
+                    public IntArrayList() {}
+                    public int getInt(int index) { return 0; }
+                }
+                """);
+        myFixture.configureByText("Pairs.java", """
+                import java.util.*;
+
+                class Pairs {
+                    private final List<Integer> ids = new ArrayList<>(), names = new ArrayList<>();
+                }
+                """);
+        launch(InspectionBundle.message("inspection.boxed.collection.primitive.collection.quickfix", "ids", "IntArrayList"));
+        String text = myFixture.getFile().getText();
+        assertTrue(text, text.contains("private final IntArrayList ids = new IntArrayList();"));
+        assertTrue(text, text.contains("private final List<Integer> names = new ArrayList<>();"));
+    }
+
+    public void testConvertToFastutilList() {
+        myFixture.addClass("""
+                package it.unimi.dsi.fastutil.ints;
+                public class IntArrayList extends java.util.ArrayList<Integer> {
+                    public IntArrayList() {}
+                    public int getInt(int index) { return 0; }
+                }
+                """);
+        myFixture.configureByText("Cache.java", """
+                import java.util.*;
+
+                class Cache {
+                    private final List<Integer> ids = new ArrayList<>();
+                    int first() { return ids.get(0); }
+                }
+                """);
+        launch(InspectionBundle.message("inspection.boxed.collection.primitive.collection.quickfix", "ids", "IntArrayList"));
+        String text = myFixture.getFile().getText();
+        assertTrue(text, text.contains("private final IntArrayList ids = new IntArrayList();"));
+        assertTrue(text, text.contains("return ids.getInt(0);"));
+    }
+
+    public void testBoxedComparison() {
+        myFixture.configureByText("Compare.java", """
+                class Compare {
+                    boolean same(Long a, Long b, long c) { return a == b || a == c || a == null; }
+                }
+                """);
+        assertSize(1, myFixture.doHighlighting(HighlightSeverity.WARNING));
+        launch(InspectionBundle.message("inspection.comparing.string.references.use.quickfix"));
+        assertTrue(myFixture.getFile().getText().contains("Objects.equals(a, b) || a == c"));
+    }
+}
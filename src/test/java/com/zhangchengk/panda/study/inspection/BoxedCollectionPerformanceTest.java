@@ -0,0 +1,27 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.codeInspection.LocalInspectionTool;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 在 4000 个 Map 字段（一半的键是装箱类型）上运行 {@link BoxedCollectionInspection} 的高亮时间。
+ */
+public class BoxedCollectionPerformanceTest extends PandaInspectionTestCase {
+
+    private static final int FIELDS = 2_000;
+
+    @NotNull
+    @Override
+    protected LocalInspectionTool createInspection() {
+        return new BoxedCollectionInspection();
+    }
+
+    public void testHighlightingPerformance() {
+        StringBuilder text = new StringBuilder("import java.util.*;\nclass Fields {\n");
+        for (int i = 0; i < FIELDS; i++) {
+            text.append("    private final Map<Long, String> m").append(i).append(" = new HashMap<>();\n")
+                    .append("    private final Map<String, String> s").append(i).append(" = new HashMap<>();\n");
+        }
+        measureHighlighting("inspection.boxedCollection.highlighting", "Fields.java", text.append("}\n").toString(), FIELDS);
+    }
+}
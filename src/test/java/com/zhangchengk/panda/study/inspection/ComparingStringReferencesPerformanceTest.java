@@ -0,0 +1,102 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.codeInsight.intention.IntentionAction;
+import com.intellij.codeInspection.InspectionManager;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.lang.annotation.HighlightSeverity;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.PsiFile;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import com.zhangchengk.panda.study.cache.CachedProblem;
+import com.zhangchengk.panda.study.cache.PandaResultCache;
+import com.zhangchengk.panda.study.performance.PerformanceReport;
+import com.zhangchengk.panda.study.performance.SyntheticSources;
+
+import java.util.List;
+
+/**
+ * {@link ComparingStringReferencesInspection} 及其快速修复的性能回归测试。
+ */
+public class ComparingStringReferencesPerformanceTest extends LightJavaCodeInsightFixtureTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        myFixture.enableInspections(new ComparingStringReferencesInspection());
+    }
+
+    /**
+     * 约 20k 行、只有数值比较的文件：快速路径应在不解析任何类的情况下排除所有操作数。
+     */
+    public void testHighlightingNumericComparisonsPerformance() {
+        myFixture.configureByText("Numeric.java", SyntheticSources.numericComparisons("Numeric", 5_000));
+        PerformanceReport.measure("inspection.highlighting.numeric", 8_000,
+                () -> DaemonCodeAnalyzer.getInstance(getProject()).restart(),
+                () -> assertEmpty(myFixture.doHighlighting(HighlightSeverity.WARNING)));
+    }
+
+    public void testHighlightingStringComparisonsPerformance() {
+        myFixture.configureByText("Strings.java", SyntheticSources.stringComparisons("Strings", 3_000));
+        PerformanceReport.measure("inspection.highlighting.strings", 8_000,
+                () -> DaemonCodeAnalyzer.getInstance(getProject()).restart(),
+                () -> assertSize(3_000, myFixture.doHighlighting(HighlightSeverity.WARNING)));
+    }
+
+    public void testReplaceWithEqualsQuickFixPerformance() {
+        String name = InspectionBundle.message("inspection.comparing.string.references.use.quickfix");
+        PerformanceReport.measure("inspection.quickfix.replaceWithEquals", 10_000,
+                () -> myFixture.configureByText("Fixes.java", SyntheticSources.stringComparisons("Fixes", 200)),
+                () -> {
+                    for (IntentionAction fix : myFixture.getAllQuickFixes()) {
+                        if (name.equals(fix.getText())) {
+                            myFixture.launchAction(fix);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * 从检查结果视图对整个文件批量应用修复：一个写命令，模板只解析一次。
+     */
+    public void testBatchReplaceWithEqualsPerformance() {
+        PsiFile[] file = new PsiFile[1];
+        PerformanceReport.measure("inspection.quickfix.replaceWithEquals.batch", 5_000,
+                () -> file[0] = myFixture.configureByText("Batch.java", SyntheticSources.stringComparisons("Batch", 2_000)),
+                () -> {
+                    List<ProblemDescriptor> problems = new ComparingStringReferencesInspection()
+                            .checkFile(file[0], InspectionManager.getInstance(getProject()));
+                    assertSize(2_000, problems);
+                    new ReplaceWithEqualsQuickFix().applyFix(getProject(),
+                            problems.toArray(ProblemDescriptor.EMPTY_ARRAY), List.of(), null);
+                    String text = file[0].getText();
+                    assertFalse(text.contains(" == ") || text.contains(" != "));
+                    assertEquals(1_000, StringUtil.getOccurrenceCount(text, "!Objects.equals(a, b)"));
+                });
+    }
+
+    /**
+     * 文件未修改时，批处理运行从 {@link PandaResultCache} 恢复结果而不再遍历文件。
+     */
+    public void testCachedBatchRunPerformance() {
+        PsiFile file = myFixture.configureByText("Cached.java", SyntheticSources.stringComparisons("Cached", 3_000));
+        FileDocumentManager.getInstance().saveAllDocuments();
+        ComparingStringReferencesInspection inspection = new ComparingStringReferencesInspection();
+        InspectionManager manager = InspectionManager.getInstance(getProject());
+        PandaResultCache cache = PandaResultCache.getInstance(getProject());
+        int settingsHash = PandaResultCache.settingsHash(inspection);
+        cache.put(inspection.getShortName(), settingsHash, file, inspection.checkFile(file, manager));
+        cache.resetStatistics();
+        PerformanceReport.measure("inspection.batch.cached", 1_000,
+                () -> {
+                },
+                () -> {
+                    List<CachedProblem> cached = cache.get(inspection.getShortName(), settingsHash, file);
+                    assertNotNull(cached);
+                    assertSize(3_000, inspection.restoreProblems(file, cached, manager));
+                });
+        PerformanceReport.metric("inspection.batch.cached.hitRate", "ratio", cache.getHitRate());
+        assertEquals(1.0, cache.getHitRate());
+    }
+}
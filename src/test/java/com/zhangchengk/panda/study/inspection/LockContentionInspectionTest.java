@@ -0,0 +1,241 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.codeInsight.daemon.impl.HighlightInfo;
+import com.intellij.codeInspection.LocalInspectionTool;
+import com.intellij.lang.annotation.HighlightSeverity;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * {@link LockContentionInspection} 报告的区域和集合，以及计数器、Map、锁分段和先检查后执行的快速修复结果。
+ */
+public class LockContentionInspectionTest extends PandaInspectionTestCase {
+
+    @NotNull
+    @Override
+    protected LocalInspectionTool createInspection() {
+        return new LockContentionInspection();
+    }
+
+    public void testConvertCounterToLongAdder() {
+        myFixture.configureByText("Stats.java", """
+                class Stats {
+                    private long hits;
+                    synchronized void hit() { hits++; }
+                    synchronized void add(long n) { hits += n; }
+                    long hits() { return hits; }
+                    void reset() { hits = 0; }
+                }
+                """);
+        assertSize(2, myFixture.doHighlighting(HighlightSeverity.WARNING));
+        launch(InspectionBundle.message("inspection.lock.contention.convert.counter.quickfix", "hits", "LongAdder"));
+        myFixture.checkResult("""
+                import java.util.concurrent.atomic.LongAdder;
+
+                class Stats {
+                    private final LongAdder hits = new LongAdder();
+                    void hit() { hits.increment(); }
+                    void add(long n) { hits.add(n); }
+                    long hits() { return hits.sum(); }
+                    void reset() { hits.reset(); }
+                }
+                """);
+    }
+
+    public void testCounterWithInvariantHasNoFix() {
+        myFixture.configureByText("Bounded.java", """
+                class Bounded {
+                    private int count;
+                    synchronized void inc() { count++; }
+                    synchronized boolean tryInc(int max) { if (count >= max) return false; count++; return true; }
+                }
+                """);
+        assertSize(1, myFixture.doHighlighting(HighlightSeverity.WARNING));
+        assertEmpty(myFixture.getAllQuickFixes());
+    }
+
+    public void testConvertMapAndMerge() {
+        myFixture.configureByText("Words.java", """
+                import java.util.HashMap;
+                import java.util.Map;
+
+                class Words {
+                    private final Map<String, Integer> counts = new HashMap<>();
+                    void add(String word) {
+                        if (word == null) {
+                            return;
+                        }
+                        synchronized (this) {
+                            counts.put(word, counts.getOrDefault(word, 0) + 1);
+                        }
+                    }
+                }
+                """);
+        launch(InspectionBundle.message("inspection.lock.contention.concurrent.map.quickfix", "counts"));
+        myFixture.checkResult("""
+                import java.util.HashMap;
+                import java.util.Map;
+                import java.util.concurrent.ConcurrentHashMap;
+
+                class Words {
+                    private final Map<String, Integer> counts = new ConcurrentHashMap<>();
+                    void add(String word) {
+                        if (word == null) {
+                            return;
+                        }
+                        counts.merge(word, 1, Integer::sum);
+                    }
+                }
+                """);
+    }
+
+    public void testCheckThenActAndLegacyCollections() {
+        myFixture.configureByText("Cache.java", """
+                import java.util.*;
+                import java.util.concurrent.ConcurrentHashMap;
+
+                class Cache {
+                    private final Map<String, List<String>> groups = new ConcurrentHashMap<>();
+                    private final List<String> log = new Vector<>();
+                    private final Map<String, String> names = Collections.synchronizedMap(new HashMap<>());
+                    private final Map<String, String> aliases = new Hashtable<>();
+                    void add(String key, String value) {
+                        List<String> group = groups.get(key);
+                        if (group == null) {
+                            group = new ArrayList<>();
+                            groups.put(key, group);
+                        }
+                        group.add(value);
+                        synchronized (aliases) {
+                            aliases.putIfAbsent(value, key);
+                        }
+                    }
+                }
+                """);
+        // Vector is reported without a fix; the Hashtable used as a lock is reported on the field and the region, without a fix
+        List<HighlightInfo> infos = myFixture.doHighlighting(HighlightSeverity.WARNING);
+        assertSize(5, infos);
+        assertTrue(infos.stream().anyMatch(info -> InspectionBundle.message(
+                "inspection.lock.contention.legacy.collection.descriptor", "log", "Vector").equals(info.getDescription())));
+        assertEquals(1, myFixture.getAllQuickFixes().stream().filter(fix -> fix.getText().equals(
+                InspectionBundle.message("inspection.lock.contention.replace.collection.quickfix", "ConcurrentHashMap"))).count());
+        launch(InspectionBundle.message("inspection.lock.contention.atomic.update.quickfix", "computeIfAbsent"));
+        String text = myFixture.getFile().getText();
+        assertTrue(text, text.contains("List<String> group = groups.computeIfAbsent(key, k -> new ArrayList<>());"));
+        assertFalse(text, text.contains("group == null"));
+    }
+
+    public void testStripeLock() {
+        myFixture.configureByText("Sessions.java", """
+                import java.util.concurrent.ConcurrentHashMap;
+
+                class Sessions {
+                    private final ConcurrentHashMap<String, Integer> sessions = new ConcurrentHashMap<>();
+                    void touch(String id) {
+                        synchronized (this) {
+                            Integer old = sessions.get(id);
+                            sessions.put(id, old == null ? 1 : old + 1);
+                        }
+                    }
+                }
+                """);
+        launch(InspectionBundle.message("inspection.lock.contention.striping.quickfix"));
+        String text = myFixture.getFile().getText();
+        assertTrue(text, text.contains("private final Object[] sessionsLocks = Stream.generate(Object::new).limit(16).toArray();"));
+        assertTrue(text, text.contains("synchronized (sessionsLocks[Math.floorMod(Objects.hashCode(id), sessionsLocks.length)])"));
+    }
+
+    public void testNoMapFixWhenNullMayBePut() {
+        myFixture.configureByText("Names.java", """
+                import java.util.HashMap;
+                import java.util.Map;
+
+                class Names {
+                    private final Map<String, String> names = new HashMap<>();
+                    void clear() {
+                        synchronized (this) {
+                            names.put("last", null);
+                        }
+                    }
+                }
+                """);
+        assertSize(1, myFixture.doHighlighting(HighlightSeverity.WARNING));
+        assertEmpty(myFixture.getAllQuickFixes());
+    }
+
+    public void testConvertCounterInMultiVariableDeclaration() {
+        myFixture.configureByText("Stats.java", """
+                class Stats {
+                    private long hits, misses;
+                    synchronized void hit() { hits++; }
+                    synchronized void miss() { misses++; }
+                    long total() { return hits + misses; }
+                }
+                """);
+        launch(InspectionBundle.message("inspection.lock.contention.convert.counter.quickfix", "hits", "LongAdder"));
+        String text = myFixture.getFile().getText();
+        assertTrue(text, text.contains("private final LongAdder hits = new LongAdder();"));
+        assertTrue(text, text.contains("private long misses;"));
+        assertTrue(text, text.contains("return hits.sum() + misses;"));
+    }
+
+    public void testStripeLockConvertsAllRegionsOfTheMap() {
+        myFixture.configureByText("Sessions.java", """
+                import java.util.concurrent.ConcurrentHashMap;
+
+                class Sessions {
+                    private final ConcurrentHashMap<String, Integer> sessions = new ConcurrentHashMap<>();
+                    void touch(String id) {
+                        synchronized (this) {
+                            Integer old = sessions.get(id);
+                            sessions.put(id, old == null ? 1 : old + 1);
+                        }
+                    }
+                    synchronized void close(String id) {
+                        if (sessions.get(id) != null) {
+                            sessions.remove(id);
+                        }
+                    }
+                }
+                """);
+        launch(InspectionBundle.message("inspection.lock.contention.striping.quickfix"));
+        String text = myFixture.getFile().getText().replaceAll("\\s+", " ");
+        String stripe = "synchronized (sessionsLocks[Math.floorMod(Objects.hashCode(id), sessionsLocks.length)]) { ";
+        assertEquals(text, 1, text.split("Object\\[] sessionsLocks", -1).length - 1);
+        assertTrue(text, text.contains(stripe + "Integer old"));
+        assertTrue(text, text.contains("void close(String id) { " + stripe + "if (sessions.get(id) != null)"));
+        assertFalse(text, text.contains("synchronized (this)"));
+        assertFalse(text, text.contains("synchronized void"));
+    }
+
+    public void testNoStripeLockWhenOtherRegionsUseTheMap() {
+        myFixture.configureByText("Sessions.java", """
+                import java.util.concurrent.ConcurrentHashMap;
+
+                class Sessions {
+                    private final ConcurrentHashMap<String, Integer> sessions = new ConcurrentHashMap<>();
+                    void touch(String id) {
+                        synchronized (this) {
+                            Integer old = sessions.get(id);
+                            sessions.put(id, old == null ? 1 : old + 1);
+                        }
+                    }
+                    void close(String id) {
+                        synchronized (this) {
+                            sessions.remove(id);
+                        }
+                    }
+                    synchronized int total() {
+                        int total = 0;
+                        for (int count : sessions.values()) {
+                            total += count;
+                        }
+                        return total;
+                    }
+                }
+                """);
+        assertSize(2, myFixture.doHighlighting(HighlightSeverity.WARNING));
+        assertEmpty(myFixture.getAllQuickFixes());
+    }
+}
@@ -0,0 +1,28 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.codeInspection.LocalInspectionTool;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 在 2000 个只递增计数器的 synchronized 方法上运行 {@link LockContentionInspection} 的高亮时间。
+ */
+public class LockContentionPerformanceTest extends PandaInspectionTestCase {
+
+    private static final int COUNTERS = 2_000;
+
+    @NotNull
+    @Override
+    protected LocalInspectionTool createInspection() {
+        return new LockContentionInspection();
+    }
+
+    public void testHighlightingPerformance() {
+        StringBuilder text = new StringBuilder("class Counters {\n");
+        for (int i = 0; i < COUNTERS; i++) {
+            text.append("    private long c").append(i).append(";\n")
+                    .append("    synchronized void inc").append(i).append("() { c").append(i).append("++; }\n")
+                    .append("    long get").append(i).append("() { return c").append(i).append("; }\n");
+        }
+        measureHighlighting("inspection.lockContention.highlighting", "Counters.java", text.append("}\n").toString(), COUNTERS);
+    }
+}
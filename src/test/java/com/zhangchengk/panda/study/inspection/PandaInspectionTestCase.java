@@ -0,0 +1,70 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.codeInsight.intention.IntentionAction;
+import com.intellij.codeInspection.LocalInspectionTool;
+import com.intellij.lang.annotation.HighlightSeverity;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import com.zhangchengk.panda.study.performance.PerformanceReport;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 单个 Panda 检查的测试基类：在每个测试前启用 {@link #createInspection()} 返回的检查。
+ * <p>
+ * {@code *InspectionTest} 用 {@link #launch(String)} 按名字应用快速修复并检查结果；
+ * {@code *PerformanceTest} 用 {@link #measureHighlighting} 在一个合成文件上测量高亮时间。
+ */
+public abstract class PandaInspectionTestCase extends LightJavaCodeInsightFixtureTestCase {
+
+    /**
+     * 高亮一个合成文件的时间预算（毫秒）。
+     */
+    protected static final int HIGHLIGHTING_BUDGET_MS = 10_000;
+
+    @NotNull
+    protected abstract LocalInspectionTool createInspection();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        myFixture.enableInspections(createInspection());
+    }
+
+    /**
+     * 应用当前文件中名为 {@code name} 的快速修复；没有这个修复时测试失败。
+     */
+    protected void launch(@NotNull String name) {
+        for (IntentionAction fix : myFixture.getAllQuickFixes()) {
+            if (name.equals(fix.getText())) {
+                myFixture.launchAction(fix);
+                return;
+            }
+        }
+        fail("No quick fix " + name);
+    }
+
+    /**
+     * @return 当前文件中是否有名为 {@code name} 的快速修复
+     */
+    protected boolean hasFix(@NotNull String name) {
+        for (IntentionAction fix : myFixture.getAllQuickFixes()) {
+            if (name.equals(fix.getText())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 打开 {@code text}，测量重新运行代码分析的时间，并检查报告的警告数。
+     *
+     * @param metric   {@link PerformanceReport} 中的指标名
+     * @param problems 预期的警告数
+     */
+    protected void measureHighlighting(@NotNull String metric, @NotNull String fileName, @NotNull String text, int problems) {
+        myFixture.configureByText(fileName, text);
+        PerformanceReport.measure(metric, HIGHLIGHTING_BUDGET_MS,
+                () -> DaemonCodeAnalyzer.getInstance(getProject()).restart(),
+                () -> assertSize(problems, myFixture.doHighlighting(HighlightSeverity.WARNING)));
+    }
+}
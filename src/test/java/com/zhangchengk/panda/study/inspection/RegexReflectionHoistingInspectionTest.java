@@ -0,0 +1,148 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.codeInspection.BatchQuickFix;
+import com.intellij.codeInspection.InspectionManager;
+import com.intellij.codeInspection.LocalInspectionTool;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.lang.annotation.HighlightSeverity;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * {@link RegexReflectionHoistingInspection} 报告的调用，以及把正则表达式和反射查找提到静态字段的快速修复结果，
+ * 包括在检查结果视图中批量应用时排除的调用。
+ */
+public class RegexReflectionHoistingInspectionTest extends PandaInspectionTestCase {
+
+    @NotNull
+    @Override
+    protected LocalInspectionTool createInspection() {
+        return new RegexReflectionHoistingInspection();
+    }
+
+    public void testHoistAllCallSitesInFile() {
+        myFixture.configureByText("Handler.java", """
+                import java.util.regex.Pattern;
+
+                class Handler {
+                    private static final Pattern STATIC = Pattern.compile("once");
+
+                    String[] parse(String line) {
+                        if (line.matches("[0-9]+")) {
+                            return new String[]{line};
+                        }
+                        return line.split(",\\\\s*");
+                    }
+
+                    int count(String[] lines) {
+                        int count = 0;
+                        for (String line : lines) {
+                            count += line.split(",\\\\s*", 2).length + line.split(",").length;
+                        }
+                        return count;
+                    }
+                }
+                """);
+        assertSize(3, myFixture.doHighlighting(HighlightSeverity.WARNING));
+        launch(InspectionBundle.message("inspection.regex.reflection.hoisting.quickfix"));
+        String text = myFixture.getFile().getText();
+        // Both splits on ",\\s*" share one field, the fast-path split on "," is left alone
+        assertEquals(text, 1, text.split("Pattern\\.compile\\(\",", -1).length - 1);
+        assertTrue(text, text.contains("private static final Pattern PARSE_PATTERN = Pattern.compile(\"[0-9]+\");"));
+        assertTrue(text, text.contains("PARSE_PATTERN.matcher(line).matches()"));
+        assertTrue(text, text.contains(".split(line, 2).length + line.split(\",\").length"));
+        assertEmpty(myFixture.doHighlighting(HighlightSeverity.WARNING));
+    }
+
+    public void testHoistReflectiveLookup() {
+        myFixture.configureByText("Invoker.java", """
+                class Invoker {
+                    Object call(Object target) throws Exception {
+                        return Class.forName("java.lang.Runnable").getMethod("run").invoke(target);
+                    }
+                }
+                """);
+        assertSize(1, myFixture.doHighlighting(HighlightSeverity.WARNING));
+        launch(InspectionBundle.message("inspection.regex.reflection.hoisting.quickfix"));
+        String text = myFixture.getFile().getText();
+        // A failed lookup must still throw at the call site instead of failing class initialization
+        assertFalse(text, text.contains("static {"));
+        assertTrue(text, text.contains("private static volatile Method runMethod;"));
+        assertTrue(text, text.contains("private static Method getRunMethod() throws ClassNotFoundException, NoSuchMethodException {"));
+        assertTrue(text, text.contains("runMethod = value = Class.forName(\"java.lang.Runnable\").getMethod(\"run\");"));
+        assertTrue(text, text.contains("return getRunMethod().invoke(target);"));
+    }
+
+    public void testHoistLookupKeepsCatch() {
+        myFixture.configureByText("Probe.java", """
+                class Probe {
+                    boolean present() {
+                        try {
+                            Class.forName("java.lang.Runnable");
+                            return true;
+                        } catch (ClassNotFoundException e) {
+                            return false;
+                        }
+                    }
+                }
+                """);
+        assertSize(1, myFixture.doHighlighting(HighlightSeverity.WARNING));
+        launch(InspectionBundle.message("inspection.regex.reflection.hoisting.quickfix"));
+        String text = myFixture.getFile().getText();
+        assertTrue(text, text.contains("private static Class<?> getRunnableClass() throws ClassNotFoundException {"));
+        assertTrue(text, text.contains("getRunnableClass();"));
+        assertTrue(text, text.contains("} catch (ClassNotFoundException e) {"));
+    }
+
+    public void testReusedFieldIsQualifiedWhereShadowed() {
+        myFixture.configureByText("Shadow.java", """
+                class Shadow {
+                    boolean digits(String line) {
+                        String CHECK_PATTERN = "local";
+                        return line.matches("[0-9]+") && !CHECK_PATTERN.isEmpty();
+                    }
+
+                    boolean check(String line) {
+                        return line.matches("[0-9]+");
+                    }
+                }
+                """);
+        assertSize(2, myFixture.doHighlighting(HighlightSeverity.WARNING));
+        launch(InspectionBundle.message("inspection.regex.reflection.hoisting.quickfix"));
+        String text = myFixture.getFile().getText();
+        // The field is named at the call in check(); digits() has a local with the same name
+        assertTrue(text, text.contains("private static final Pattern CHECK_PATTERN = Pattern.compile(\"[0-9]+\");"));
+        assertTrue(text, text.contains("return CHECK_PATTERN.matcher(line).matches();"));
+        assertTrue(text, text.contains("return Shadow.CHECK_PATTERN.matcher(line).matches() && !CHECK_PATTERN.isEmpty();"));
+    }
+
+    public void testBatchFixSkipsIgnoredCalls() {
+        PsiFile file = myFixture.configureByText("Parser.java", """
+                class Parser {
+                    boolean digits(String line) {
+                        return line.matches("[0-9]+");
+                    }
+
+                    String[] fields(String line) {
+                        return line.split(",\\\\s*");
+                    }
+                }
+                """);
+        SharedJavaWalk walk = new SharedJavaWalk(file, InspectionManager.getInstance(getProject()));
+        ProblemsHolder holder = walk.add(new RegexReflectionHoistingInspection());
+        walk.run(file);
+        List<ProblemDescriptor> problems = holder.getResults();
+        assertSize(2, problems);
+        PsiElement split = problems.get(1).getPsiElement();
+        BatchQuickFix fix = (BatchQuickFix) problems.get(0).getFixes()[0];
+        fix.applyFix(getProject(), problems.toArray(ProblemDescriptor.EMPTY_ARRAY), List.of(split), null);
+        String text = file.getText();
+        assertTrue(text, text.contains("DIGITS_PATTERN.matcher(line).matches()"));
+        assertTrue(text, text.contains("return line.split(\",\\\\s*\");"));
+        assertFalse(text, text.contains("FIELDS_PATTERN"));
+    }
+}
@@ -0,0 +1,27 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.codeInspection.LocalInspectionTool;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 在 4000 个 {@code split} 调用（一半走 JDK 的单字符快速路径）上运行 {@link RegexReflectionHoistingInspection} 的高亮时间。
+ */
+public class RegexReflectionHoistingPerformanceTest extends PandaInspectionTestCase {
+
+    private static final int METHODS = 2_000;
+
+    @NotNull
+    @Override
+    protected LocalInspectionTool createInspection() {
+        return new RegexReflectionHoistingInspection();
+    }
+
+    public void testHighlightingPerformance() {
+        StringBuilder text = new StringBuilder("class Splitters {\n");
+        for (int i = 0; i < METHODS; i++) {
+            text.append("    String[] words").append(i).append("(String s) { return s.split(\"\\\\s+\"); }\n")
+                    .append("    String[] fields").append(i).append("(String s) { return s.split(\",\"); }\n");
+        }
+        measureHighlighting("inspection.regexReflectionHoisting.highlighting", "Splitters.java", text.append("}\n").toString(), METHODS);
+    }
+}
@@ -0,0 +1,88 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.codeInspection.InspectionManager;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.psi.PsiFile;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import com.zhangchengk.panda.study.performance.PerformanceReport;
+import com.zhangchengk.panda.study.performance.SyntheticSources;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 比较 N 个检查各自遍历文件与 {@link SharedJavaWalk} 一次遍历的耗时。
+ */
+public class SharedJavaWalkPerformanceTest extends LightJavaCodeInsightFixtureTestCase {
+
+    private static final int INSPECTIONS = 8;
+
+    private PsiFile myFile;
+    private List<PandaJavaInspection> myInspections;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        myFile = myFixture.configureByText("Strings.java", SyntheticSources.stringComparisons("Strings", 3_000));
+        myInspections = new ArrayList<>();
+        for (int i = 0; i < INSPECTIONS; i++) {
+            myInspections.add(i % 2 == 0 ? new ComparingStringReferencesInspection() : new AllocationInLoopInspection());
+        }
+        // Warm up the resolve caches so that both measurements pay only for traversal and dispatch
+        walkSeparately();
+    }
+
+    public void testSeparateWalksPerformance() {
+        long[] elapsed = new long[1];
+        PerformanceReport.measure("visitor.separate." + INSPECTIONS, 20_000,
+                () -> {
+                },
+                () -> {
+                    long start = System.nanoTime();
+                    assertEquals(3_000 * INSPECTIONS / 2, walkSeparately());
+                    elapsed[0] = System.nanoTime() - start;
+                });
+        PerformanceReport.metric("visitor.separate.perInspection", "ms", elapsed[0] / 1e6 / INSPECTIONS);
+    }
+
+    public void testSharedWalkPerformance() {
+        long[] elapsed = new long[1];
+        PerformanceReport.measure("visitor.shared." + INSPECTIONS, 10_000,
+                () -> {
+                },
+                () -> {
+                    long start = System.nanoTime();
+                    assertEquals(3_000 * INSPECTIONS / 2, walkShared());
+                    elapsed[0] = System.nanoTime() - start;
+                });
+        PerformanceReport.metric("visitor.shared.perInspection", "ms", elapsed[0] / 1e6 / INSPECTIONS);
+    }
+
+    /**
+     * 每个检查各自遍历一次文件，相当于为每个检查单独构建访问者。
+     */
+    private int walkSeparately() {
+        int problems = 0;
+        for (PandaJavaInspection inspection : myInspections) {
+            SharedJavaWalk walk = new SharedJavaWalk(myFile, InspectionManager.getInstance(getProject()));
+            ProblemsHolder holder = walk.add(inspection);
+            walk.run(myFile);
+            problems += holder.getResultCount();
+        }
+        return problems;
+    }
+
+    private int walkShared() {
+        SharedJavaWalk walk = new SharedJavaWalk(myFile, InspectionManager.getInstance(getProject()));
+        List<ProblemsHolder> holders = new ArrayList<>();
+        for (PandaJavaInspection inspection : myInspections) {
+            holders.add(walk.add(inspection));
+        }
+        walk.run(myFile);
+        int problems = 0;
+        for (ProblemsHolder holder : holders) {
+            problems += holder.getResultCount();
+        }
+        return problems;
+    }
+}
@@ -0,0 +1,131 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.codeInspection.LocalInspectionTool;
+import com.intellij.lang.annotation.HighlightSeverity;
+import com.intellij.testFramework.LightProjectDescriptor;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * {@link VirtualThreadPinningInspection} 报告的阻塞调用，以及改用 ReentrantLock 和虚拟线程执行器的快速修复结果。
+ */
+public class VirtualThreadPinningInspectionTest extends PandaInspectionTestCase {
+
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()} 需要 Java 21 的 JDK。
+     */
+    @NotNull
+    @Override
+    protected LightProjectDescriptor getProjectDescriptor() {
+        return JAVA_21;
+    }
+
+    @NotNull
+    @Override
+    protected LocalInspectionTool createInspection() {
+        return new VirtualThreadPinningInspection();
+    }
+
+    public void testReplaceSynchronizedWithReentrantLock() {
+        myFixture.configureByText("Store.java", """
+                import java.io.*;
+
+                class Store {
+                    private final Object lock = new Object();
+                    private int writes;
+                    void save(File file, byte[] data) throws IOException {
+                        synchronized (lock) {
+                            try (OutputStream out = new FileOutputStream(file)) {
+                                out.write(data);
+                            }
+                            synchronized (lock) {
+                                writes++;
+                            }
+                        }
+                    }
+                    void count() {
+                        synchronized (lock) {
+                            writes++;
+                        }
+                    }
+                }
+                """);
+        assertSize(1, myFixture.doHighlighting(HighlightSeverity.WARNING));
+        launch(InspectionBundle.message("inspection.virtual.thread.pinning.reentrant.lock.quickfix"));
+        String text = myFixture.getFile().getText();
+        // All blocks lock the same object, so all of them, the nested one included, must move to the lock
+        assertFalse(text, text.contains("synchronized"));
+        assertTrue(text, text.contains("private final ReentrantLock lock = new ReentrantLock();"));
+        assertEquals(text, 3, text.split("lock\\.lock\\(\\)", -1).length - 1);
+        assertEquals(text, 3, text.split("lock\\.unlock\\(\\)", -1).length - 1);
+        assertEmpty(myFixture.doHighlighting(HighlightSeverity.WARNING));
+    }
+
+    public void testMonitorsVisibleToOtherFilesHaveNoFix() {
+        myFixture.configureByText("Store.java", """
+                class Store {
+                    final Object lock = new Object();
+                    private final Object shared = new Object();
+                    synchronized void pause() throws InterruptedException {
+                        Thread.sleep(10);
+                    }
+                    void sleep() throws InterruptedException {
+                        synchronized (this) {
+                            Thread.sleep(10);
+                        }
+                        synchronized (Store.class) {
+                            Thread.sleep(10);
+                        }
+                        synchronized (lock) {
+                            Thread.sleep(10);
+                        }
+                        synchronized (shared) {
+                            Thread.sleep(10);
+                        }
+                    }
+                    Object shared() {
+                        return shared;
+                    }
+                }
+                """);
+        assertSize(5, myFixture.doHighlighting(HighlightSeverity.WARNING));
+        assertEmpty(myFixture.getAllQuickFixes());
+    }
+
+    public void testWaitHasNoFix() {
+        myFixture.configureByText("Mailbox.java", """
+                class Mailbox {
+                    private String message;
+                    synchronized String take() throws InterruptedException {
+                        while (message == null) wait();
+                        return message;
+                    }
+                }
+                """);
+        assertSize(1, myFixture.doHighlighting(HighlightSeverity.WARNING));
+        assertEmpty(myFixture.getAllQuickFixes());
+    }
+
+    public void testReplaceCachedThreadPool() {
+        myFixture.configureByText("Fetcher.java", """
+                import java.util.concurrent.*;
+
+                class Fetcher {
+                    private final ExecutorService pool = Executors.newCachedThreadPool();
+                    private final ExecutorService bounded = Executors.newFixedThreadPool(8);
+                    private final ExecutorService cpu = Executors.newFixedThreadPool(8);
+                    void fetch() {
+                        pool.submit(() -> { Thread.sleep(100); return null; });
+                        bounded.submit(() -> { Thread.sleep(100); return null; });
+                        cpu.submit(() -> Math.sqrt(2));
+                    }
+                }
+                """);
+        // The fixed pool may bound access to a resource, so only the cached pool can be replaced
+        assertSize(2, myFixture.doHighlighting(HighlightSeverity.WARNING));
+        assertSize(1, myFixture.getAllQuickFixes());
+        launch(InspectionBundle.message("inspection.virtual.thread.pool.quickfix"));
+        String text = myFixture.getFile().getText();
+        assertTrue(text, text.contains("private final ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();"));
+        assertTrue(text, text.contains("private final ExecutorService bounded = Executors.newFixedThreadPool(8);"));
+    }
+}
@@ -0,0 +1,38 @@
+package com.zhangchengk.panda.study.inspection;
+
+import com.intellij.codeInspection.LocalInspectionTool;
+import com.intellij.testFramework.LightProjectDescriptor;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 在 2000 个 synchronized 方法（一半调用 {@code Thread.sleep}）上运行 {@link VirtualThreadPinningInspection} 的高亮时间。
+ */
+public class VirtualThreadPinningPerformanceTest extends PandaInspectionTestCase {
+
+    private static final int METHODS = 2_000;
+
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()} 需要 Java 21 的 JDK。
+     */
+    @NotNull
+    @Override
+    protected LightProjectDescriptor getProjectDescriptor() {
+        return JAVA_21;
+    }
+
+    @NotNull
+    @Override
+    protected LocalInspectionTool createInspection() {
+        return new VirtualThreadPinningInspection();
+    }
+
+    public void testHighlightingPerformance() {
+        StringBuilder text = new StringBuilder("class Sleepers {\n");
+        for (int i = 0; i < METHODS; i++) {
+            text.append("    synchronized void sleep").append(i).append("() throws InterruptedException { Thread.sleep(")
+                    .append(i).append("); }\n")
+                    .append("    synchronized int get").append(i).append("() { return ").append(i).append("; }\n");
+        }
+        measureHighlighting("inspection.virtualThreadPinning.highlighting", "Sleepers.java", text.append("}\n").toString(), METHODS);
+    }
+}
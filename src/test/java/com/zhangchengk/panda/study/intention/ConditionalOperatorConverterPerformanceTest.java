@@ -0,0 +1,136 @@
+package com.zhangchengk.panda.study.intention;
+
+import com.intellij.analysis.AnalysisScope;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.psi.JavaTokenType;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaToken;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import com.zhangchengk.panda.study.performance.PerformanceReport;
+import com.zhangchengk.panda.study.performance.SyntheticSources;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * {@link ConditionalOperatorConverter} 的性能回归测试。
+ */
+public class ConditionalOperatorConverterPerformanceTest extends LightJavaCodeInsightFixtureTestCase {
+
+    private final ConditionalOperatorConverter myConverter = new ConditionalOperatorConverter();
+
+    /**
+     * 对大文件中每个 PSI 元素调用 isAvailable，模拟光标在文件中移动。
+     */
+    public void testIsAvailablePerformance() {
+        PsiFile file = myFixture.configureByText("Ternaries.java", SyntheticSources.ternaries("Ternaries", 5_000));
+        List<PsiElement> leaves = new ArrayList<>();
+        PsiTreeUtil.processElements(file, element -> {
+            if (element.getFirstChild() == null) {
+                leaves.add(element);
+            }
+            return true;
+        });
+        PerformanceReport.measure("intention.conditionalOperator.isAvailable", 2_000,
+                () -> {
+                },
+                () -> {
+                    int available = 0;
+                    for (PsiElement leaf : leaves) {
+                        if (myConverter.isAvailable(getProject(), myFixture.getEditor(), leaf)) {
+                            available++;
+                        }
+                    }
+                    assertEquals(5_000, available);
+                });
+    }
+
+    public void testInvokePerformance() {
+        PerformanceReport.measure("intention.conditionalOperator.invoke", 10_000,
+                () -> myFixture.configureByText("Convert.java", SyntheticSources.ternaries("Convert", 200)),
+                () -> {
+                    // Convert from the end of the file so that the offsets of earlier ternaries stay valid
+                    List<PsiJavaToken> quests = findQuestTokens(myFixture.getFile());
+                    for (int i = quests.size() - 1; i >= 0; i--) {
+                        PsiJavaToken quest = quests.get(i);
+                        WriteCommandAction.runWriteCommandAction(getProject(),
+                                () -> myConverter.invoke(getProject(), myFixture.getEditor(), quest));
+                    }
+                    assertEmpty(findQuestTokens(myFixture.getFile()));
+                });
+    }
+
+    /**
+     * 转换所有支持形式的三元表达式（嵌套的三元表达式随外层一起转换），并记录每次转换的平均耗时和分配字节数。
+     */
+    public void testInvokeMixedFormsPerformance() {
+        int methods = 100;
+        int conversions = methods * 4;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] allocated = new long[1];
+        long[] elapsed = new long[1];
+        PerformanceReport.measure("intention.conditionalOperator.invokeMixed", 10_000,
+                () -> myFixture.configureByText("Mixed.java", SyntheticSources.mixedTernaries("Mixed", methods)),
+                () -> {
+                    long startBytes = threads.getCurrentThreadAllocatedBytes();
+                    long start = System.nanoTime();
+                    List<PsiJavaToken> quests = findQuestTokens(myFixture.getFile());
+                    int converted = 0;
+                    for (int i = quests.size() - 1; i >= 0; i--) {
+                        PsiJavaToken quest = quests.get(i);
+                        if (!quest.isValid() || !myConverter.isAvailable(getProject(), myFixture.getEditor(), quest)) {
+                            continue;
+                        }
+                        WriteCommandAction.runWriteCommandAction(getProject(),
+                                () -> myConverter.invoke(getProject(), myFixture.getEditor(), quest));
+                        converted++;
+                    }
+                    elapsed[0] = System.nanoTime() - start;
+                    allocated[0] = threads.getCurrentThreadAllocatedBytes() - startBytes;
+                    assertEquals(conversions, converted);
+                    assertEmpty(findQuestTokens(myFixture.getFile()));
+                });
+        PerformanceReport.metric("intention.conditionalOperator.invokeMixed.latencyPerConversion", "us",
+                elapsed[0] / 1_000.0 / conversions);
+        PerformanceReport.metric("intention.conditionalOperator.invokeMixed.allocationPerConversion", "bytes",
+                (double) allocated[0] / conversions);
+    }
+
+    /**
+     * 在 10 个文件、共 50k 个三元表达式上运行批量转换。
+     */
+    public void testBatchConversionPerformance() {
+        int files = 10;
+        int ternariesPerFile = 5_000;
+        PerformanceReport.measure("intention.conditionalOperator.batch50k", 180_000, 1,
+                () -> {
+                    for (int i = 0; i < files; i++) {
+                        myFixture.addFileToProject("batch/Batch" + i + ".java",
+                                SyntheticSources.ternaries("Batch" + i, ternariesPerFile));
+                    }
+                },
+                () -> {
+                    Future<Integer> converted = ApplicationManager.getApplication().executeOnPooledThread(() ->
+                            TernaryBatchConverter.convert(getProject(), new AnalysisScope(getProject()), new EmptyProgressIndicator()));
+                    assertEquals(files * ternariesPerFile, PlatformTestUtil.waitForFuture(converted, 180_000).intValue());
+                });
+    }
+
+    private static List<PsiJavaToken> findQuestTokens(PsiFile file) {
+        List<PsiJavaToken> quests = new ArrayList<>();
+        PsiTreeUtil.processElements(file, element -> {
+            if (element instanceof PsiJavaToken token && token.getTokenType() == JavaTokenType.QUEST) {
+                quests.add(token);
+            }
+            return true;
+        });
+        return quests;
+    }
+}
@@ -0,0 +1,180 @@
+package com.zhangchengk.panda.study.intention;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.psi.PsiElement;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+
+/**
+ * {@link ConditionalOperatorConverter} 在各种位置上的转换结果，以及改变求值顺序时不提供转换。
+ */
+public class ConditionalOperatorConverterTest extends LightJavaCodeInsightFixtureTestCase {
+
+    private final ConditionalOperatorConverter myConverter = new ConditionalOperatorConverter();
+
+    public void testSplitMultiVariableDeclaration() {
+        myFixture.configureByText("Split.java", """
+                class Split {
+                    int f(boolean c) {
+                        int x = c <caret>? 1 : 2, y = x + 1;
+                        return y;
+                    }
+                }
+                """);
+        convert();
+        myFixture.checkResult("""
+                class Split {
+                    int f(boolean c) {
+                        int x;
+                        if (c) {
+                            x = 1;
+                        } else {
+                            x = 2;
+                        }
+                        int y = x + 1;
+                        return y;
+                    }
+                }
+                """);
+    }
+
+    public void testConvertReturn() {
+        myFixture.configureByText("Return.java", """
+                class Return {
+                    int f(boolean c) {
+                        return c <caret>? 1 : 2;
+                    }
+                }
+                """);
+        convert();
+        myFixture.checkResult("""
+                class Return {
+                    int f(boolean c) {
+                        if (c) {
+                            return 1;
+                        } else {
+                            return 2;
+                        }
+                    }
+                }
+                """);
+    }
+
+    public void testConvertNestedTernaryToElseIf() {
+        myFixture.configureByText("Sign.java", """
+                class Sign {
+                    int f(boolean a, boolean b) {
+                        return a <caret>? 1 : b ? 2 : 3;
+                    }
+                }
+                """);
+        convert();
+        myFixture.checkResult("""
+                class Sign {
+                    int f(boolean a, boolean b) {
+                        if (a) {
+                            return 1;
+                        } else if (b) {
+                            return 2;
+                        } else {
+                            return 3;
+                        }
+                    }
+                }
+                """);
+    }
+
+    public void testConvertArgument() {
+        myFixture.configureByText("Print.java", """
+                class Print {
+                    void f(boolean c) {
+                        System.out.println(c <caret>? "yes" : "no");
+                    }
+                }
+                """);
+        convert();
+        myFixture.checkResult("""
+                class Print {
+                    void f(boolean c) {
+                        if (c) {
+                            System.out.println("yes");
+                        } else {
+                            System.out.println("no");
+                        }
+                    }
+                }
+                """);
+    }
+
+    public void testNotAvailableAfterQualifierWithSideEffects() {
+        myFixture.configureByText("Qualifier.java", """
+                class Qualifier {
+                    Qualifier next() { return this; }
+                    void accept(int i) {}
+                    void f(boolean c) {
+                        next().accept(c <caret>? 1 : 2);
+                    }
+                }
+                """);
+        assertFalse(myConverter.isAvailable(getProject(), myFixture.getEditor(), getElementAtCaret()));
+    }
+
+    public void testNotAvailableAfterArgumentWithSideEffects() {
+        myFixture.configureByText("Argument.java", """
+                class Argument {
+                    int a() { return 0; }
+                    void accept(int i, int j) {}
+                    void f(boolean c) {
+                        accept(a(), c <caret>? 1 : 2);
+                    }
+                }
+                """);
+        assertFalse(myConverter.isAvailable(getProject(), myFixture.getEditor(), getElementAtCaret()));
+    }
+
+    public void testNotAvailableWhenConditionChangesEarlierArgument() {
+        myFixture.configureByText("Counter.java", """
+                class Counter {
+                    void accept(int i, int j) {}
+                    void f(int i) {
+                        accept(i, i++ > 0 <caret>? 1 : 2);
+                    }
+                }
+                """);
+        assertFalse(myConverter.isAvailable(getProject(), myFixture.getEditor(), getElementAtCaret()));
+    }
+
+    public void testNotAvailableAfterArrayIndexWithSideEffects() {
+        myFixture.configureByText("Index.java", """
+                class Index {
+                    int next() { return 0; }
+                    void f(int[] values, boolean c) {
+                        values[next()] = c <caret>? 1 : 2;
+                    }
+                }
+                """);
+        assertFalse(myConverter.isAvailable(getProject(), myFixture.getEditor(), getElementAtCaret()));
+    }
+
+    public void testNotAvailableInConstructorCall() {
+        myFixture.configureByText("Point.java", """
+                class Point {
+                    Point(int x) {}
+                    Point(boolean c) {
+                        this(c <caret>? 1 : 2);
+                    }
+                }
+                """);
+        assertFalse(myConverter.isAvailable(getProject(), myFixture.getEditor(), getElementAtCaret()));
+    }
+
+    private void convert() {
+        PsiElement quest = getElementAtCaret();
+        assertTrue(myConverter.isAvailable(getProject(), myFixture.getEditor(), quest));
+        WriteCommandAction.runWriteCommandAction(getProject(),
+                () -> myConverter.invoke(getProject(), myFixture.getEditor(), quest));
+    }
+
+    private PsiElement getElementAtCaret() {
+        return myFixture.getFile().findElementAt(myFixture.getCaretOffset());
+    }
+}
@@ -0,0 +1,71 @@
+package com.zhangchengk.panda.study.intention;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.testFramework.PsiTestUtil;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+
+/**
+ * {@link GenerateJmhBenchmarkIntention} 生成的基准测试类，以及没有测试源码根目录时不生成。
+ */
+public class GenerateJmhBenchmarkIntentionTest extends LightJavaCodeInsightFixtureTestCase {
+
+    private VirtualFile myTestRoot;
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            if (myTestRoot != null) {
+                PsiTestUtil.removeSourceRoot(getModule(), myTestRoot);
+            }
+        }
+        catch (Throwable e) {
+            addSuppressedException(e);
+        }
+        finally {
+            super.tearDown();
+        }
+    }
+
+    public void testNamesDoNotCollideWithParameters() {
+        myTestRoot = myFixture.getTempDirFixture().findOrCreateDir("benchmarks");
+        PsiTestUtil.addSourceRoot(getModule(), myTestRoot, true);
+        myFixture.configureByText("Parser.java", """
+                package p;
+
+                public class Parser {
+                    public int <caret>setUp(String target, java.util.List<String> blackhole) {
+                        return target.length() + blackhole.size();
+                    }
+                }
+                """);
+        myFixture.launchAction(new GenerateJmhBenchmarkIntention());
+        VirtualFile created = myTestRoot.findFileByRelativePath("p/ParserSetUpBenchmark.java");
+        assertNotNull(created);
+        PsiFile file = PsiManager.getInstance(getProject()).findFile(created);
+        assertNotNull(file);
+        String text = file.getText();
+        assertFalse(text, text.contains("TODO"));
+        assertTrue(text, text.contains("public String target;"));
+        assertTrue(text, text.contains("public List<String> blackhole;"));
+        assertTrue(text, text.contains("blackhole = new ArrayList<>();"));
+        assertTrue(text, text.contains("public void setUpTrial() {"));
+        assertTrue(text, text.matches("(?s).*private Parser (target\\d+);.*\\1 = new Parser\\(\\);.*"));
+        assertTrue(text, text.matches("(?s).*public void setUp\\((?:org\\.openjdk\\.jmh\\.infra\\.)?Blackhole (blackhole\\d+)\\) \\{\\s*\\1\\.consume\\(target\\d+\\.setUp\\(target, blackhole\\)\\);.*"));
+    }
+
+    public void testNoBenchmarkWithoutTestSourceRoot() {
+        myFixture.configureByText("Parser.java", """
+                package p;
+
+                public class Parser {
+                    public static int <caret>parse(String line) {
+                        return line.length();
+                    }
+                }
+                """);
+        myFixture.launchAction(new GenerateJmhBenchmarkIntention());
+        assertNull(myFixture.getFile().getContainingDirectory().findFile("ParserParseBenchmark.java"));
+    }
+}
@@ -0,0 +1,23 @@
+package com.zhangchengk.panda.study.jfr;
+
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import com.zhangchengk.panda.study.performance.PerformanceReport;
+
+import java.nio.file.Path;
+
+/**
+ * {@link JfrRecordingParser} 解析测试进程的 JFR 记录的速度。
+ */
+public class JfrRecordingParserPerformanceTest extends LightJavaCodeInsightFixtureTestCase {
+
+    public void testParsePerformance() throws Exception {
+        Path recording = TestRecording.get();
+        PerformanceReport.metric("jfr.recordingSize", "bytes", recording.toFile().length());
+        PerformanceReport.measure("jfr.parse", 2_000,
+                () -> {
+                },
+                () -> assertFalse(new JfrRecordingParser().parse(recording, new EmptyProgressIndicator(), snapshot -> {
+                }).isEmpty()));
+    }
+}
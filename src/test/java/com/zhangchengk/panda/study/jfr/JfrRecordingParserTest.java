@@ -0,0 +1,62 @@
+package com.zhangchengk.panda.study.jfr;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.psi.PsiClass;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.nio.file.Path;
+
+/**
+ * {@link JfrRecordingParser} 从测试进程的 JFR 记录中按方法聚合出的样本和分配量。
+ */
+public class JfrRecordingParserTest extends LightJavaCodeInsightFixtureTestCase {
+
+    public void testBusyMethodIsHot() throws Exception {
+        JfrProfile profile = new JfrRecordingParser().parse(TestRecording.get(), new EmptyProgressIndicator(), snapshot -> {
+        });
+        assertTrue(profile.isComplete());
+        int index = profile.indexOf(TestRecording.class.getName(), "spin", "()J");
+        assertTrue("spin() was not sampled: " + profile, index >= 0);
+        assertTrue(profile.getSelfSamples(index) > 0);
+        assertTrue(profile.getTotalSamples(index) >= profile.getSelfSamples(index));
+        assertTrue(profile.getTotalAllocatedBytes() > 0);
+        assertTrue(profile.isHot(index));
+
+        // Nested classes are recorded by their binary name
+        PsiClass psiClass = myFixture.addClass("package p; public class Busy { static class Loop { long spin() { return 0; } } }");
+        String key = JfrProfile.key("p.Busy$Loop", "spin", "()J");
+        JfrProfile busy = new JfrProfile("busy.jfr", 1, new String[]{"p.Busy$Loop"}, new String[]{"spin"}, new String[]{"()J"},
+                new long[]{1}, new long[]{1}, new long[]{0}, 1, 0,
+                new Object2IntOpenHashMap<>(new String[]{key}, new int[]{0}), true);
+        assertEquals(0, ReadAction.compute(() ->
+                JfrProfileService.indexOf(busy, psiClass.getInnerClasses()[0].getMethods()[0])).intValue());
+    }
+
+    /**
+     * 分配量只来自 {@code jdk.ObjectAllocationSample} 的 weight，同时录制的 TLAB 事件不再重复计算。
+     */
+    public void testAllocationSamplesAreNotCountedTwice() throws Exception {
+        Path file = TestRecording.get();
+        long weights = 0;
+        try (RecordingFile recording = new RecordingFile(file)) {
+            while (recording.hasMoreEvents()) {
+                RecordedEvent event = recording.readEvent();
+                RecordedStackTrace stackTrace = event.getStackTrace();
+                if ("jdk.ObjectAllocationSample".equals(event.getEventType().getName()) && stackTrace != null &&
+                        stackTrace.getFrames().stream().anyMatch(RecordedFrame::isJavaFrame)) {
+                    weights += event.getLong("weight");
+                }
+            }
+        }
+        JfrProfile profile = new JfrRecordingParser().parse(file, new EmptyProgressIndicator(), snapshot -> {
+        });
+        assertTrue(weights > 0);
+        assertEquals(weights, profile.getTotalAllocatedBytes());
+    }
+}
@@ -0,0 +1,57 @@
+package com.zhangchengk.panda.study.jfr;
+
+import com.intellij.openapi.util.io.FileUtil;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * 在测试进程中录制 {@link #spin()} 得到的 JFR 记录，在第一次使用时录制，同一个 JVM 中的所有测试共用，JVM 退出时删除。
+ */
+final class TestRecording {
+
+    private static final int ITERATIONS = 20_000_000;
+
+    private static Path ourRecording;
+
+    private TestRecording() {
+    }
+
+    /**
+     * @return 记录文件；第一次调用时录制
+     */
+    static synchronized Path get() throws IOException {
+        if (ourRecording == null) {
+            Path path = Files.createTempFile("panda", ".jfr");
+            try (Recording recording = new Recording()) {
+                recording.enable("jdk.ExecutionSample").withPeriod(Duration.ofMillis(1));
+                recording.enable("jdk.ObjectAllocationSample").withStackTrace();
+                // Recorded as well, so that the parser has to ignore them in favour of the samples
+                recording.enable("jdk.ObjectAllocationInNewTLAB").withStackTrace();
+                recording.start();
+                spin();
+                recording.stop();
+                recording.dump(path);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> FileUtil.delete(path.toFile())));
+            ourRecording = path;
+        }
+        return ourRecording;
+    }
+
+    /**
+     * 一个固定迭代次数的热点方法，每次迭代分配一个小数组，使记录中同时有执行样本和分配样本。
+     */
+    private static long spin() {
+        long sum = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long[] values = new long[16];
+            values[(int) (sum & 15)] = sum;
+            sum += values[(int) (sum & 15)] + 1;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,31 @@
+package com.zhangchengk.panda.study.jit;
+
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import com.zhangchengk.panda.study.performance.PerformanceReport;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * {@link CompilationLogParser} 解析大日志的速度。正确性由 {@link CompilationLogParserTest} 检查。
+ */
+public class CompilationLogParserPerformanceTest extends LightJavaCodeInsightFixtureTestCase {
+
+    private static final int TASKS = 50_000;
+
+    public void testParsePerformance() throws Exception {
+        Path file = TestCompilationLog.write(TASKS, true);
+        try {
+            PerformanceReport.metric("jit.logSize", "bytes", Files.size(file));
+            // The compilation_log section adds the constructor of Hot0
+            PerformanceReport.measure("jit.parse", 5_000,
+                    () -> {
+                    },
+                    () -> assertEquals(TASKS + 1, new CompilationLogParser().parse(file, new EmptyProgressIndicator()).getMethodCount()));
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.zhangchengk.panda.study.jit;
+
+import com.intellij.lang.annotation.HighlightSeverity;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import com.intellij.util.ui.UIUtil;
+import com.zhangchengk.panda.study.inspection.JitCompilationInspection;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * {@link CompilationLogParser} 读出的方法记录、用 '.' 分隔的类名，以及截断日志的处理。
+ */
+public class CompilationLogParserTest extends LightJavaCodeInsightFixtureTestCase {
+
+    public void testMethodRecords() throws Exception {
+        Path file = TestCompilationLog.write(2, true);
+        try {
+            CompilationLog log = new CompilationLogParser().parse(file, new EmptyProgressIndicator());
+            assertEquals(200, log.getFreqInlineSize());
+            assertFalse(log.isTruncated());
+
+            myFixture.configureByText("Hot0.java", "package p; public class Hot0 { Hot0(String s, int i) {} long big(int i) { return i; } }");
+            PsiClass hot = ((PsiJavaFile) myFixture.getFile()).getClasses()[0];
+            CompiledMethod big = log.find(hot.findMethodsByName("big", false)[0]);
+            assertNotNull(big);
+            assertEquals(400, big.getBytecodeSize());
+            assertEquals(1, big.getCompilations());
+            assertEquals("hot method too big (1)", big.describeInlineFailures());
+            assertEquals("unstable_if (1)", big.describeDeoptimizations());
+            CompiledMethod constructor = log.find(hot.getConstructors()[0]);
+            assertNotNull(constructor);
+            assertEquals(0, constructor.getInlineFailureCount());
+
+            CompilationLogService.getInstance(getProject()).setLog(log);
+            UIUtil.dispatchAllInvocationEvents();
+            myFixture.enableInspections(new JitCompilationInspection());
+            assertSize(3, myFixture.doHighlighting(HighlightSeverity.WARNING));
+        }
+        finally {
+            CompilationLogService.getInstance(getProject()).setLog(CompilationLog.EMPTY);
+            UIUtil.dispatchAllInvocationEvents();
+            Files.delete(file);
+        }
+    }
+
+    public void testDottedClassNames() throws Exception {
+        Path file = Files.createTempFile("compilation", ".xml");
+        try {
+            Files.writeString(file, """
+                    <?xml version='1.0' encoding='UTF-8'?>
+                    <hotspot_log version='160 1' process='1' time_ms='1'>
+                    <compilation_log thread='2'>
+                    <task compile_id='1' method='p.Caller run ()V' bytes='20' count='10000' iicount='10000' level='4'>
+                    <type id='1' name='void'/>
+                    <type id='2' name='int'/>
+                    <klass id='3' name='p.Dotted' flags='1'/>
+                    <klass id='4' name='java.lang.String' flags='17'/>
+                    <klass id='5' name='[Ljava.lang.String;' flags='1041'/>
+                    <method id='6' holder='3' name='accept' return='1' arguments='4 5 2' flags='1' bytes='30' iicount='1'/>
+                    <call method='6' count='1' prof_factor='1' inline='1'/>
+                    <inline_fail reason='too big'/>
+                    </task>
+                    </compilation_log>
+                    </hotspot_log>
+                    """);
+            CompilationLog log = new CompilationLogParser().parse(file, new EmptyProgressIndicator());
+
+            myFixture.configureByText("Dotted.java", "package p; public class Dotted { void accept(String s, String[] a, int i) {} }");
+            PsiClass dotted = ((PsiJavaFile) myFixture.getFile()).getClasses()[0];
+            CompiledMethod accept = log.find(dotted.findMethodsByName("accept", false)[0]);
+            assertNotNull(accept);
+            assertEquals(30, accept.getBytecodeSize());
+            assertEquals("too big (1)", accept.describeInlineFailures());
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    public void testTruncatedLogKeepsParsedRecords() throws Exception {
+        Path file = TestCompilationLog.write(10, false);
+        try {
+            CompilationLog log = new CompilationLogParser().parse(file, new EmptyProgressIndicator());
+            assertTrue(log.isTruncated());
+            assertEquals(10, log.getMethodCount());
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+}
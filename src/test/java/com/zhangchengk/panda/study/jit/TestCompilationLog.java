@@ -0,0 +1,73 @@
+package com.zhangchengk.panda.study.jit;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 测试用的 LogCompilation 日志。
+ * <p>
+ * 每个编译任务编译一个方法 {@code p.HotN.big(I)J}；日志末尾的 {@code compilation_log} 部分还定义了 {@code p.Hot0} 的构造函数，
+ * 并记录 {@code big} 的一次内联失败。
+ */
+final class TestCompilationLog {
+
+    private static final String HEADER = """
+            <?xml version='1.0' encoding='UTF-8'?>
+            <hotspot_log version='160 1' process='1' time_ms='1'>
+            <vm_arguments>
+            <args>-XX:+UnlockDiagnosticVMOptions -XX:+LogCompilation -XX:FreqInlineSize=200</args>
+            </vm_arguments>
+            <tty>
+            """;
+
+    private static final String TASK = """
+            <task_queued compile_id='%1$d' method='p.Hot%1$d big (I)J' bytes='%2$d' count='5000' iicount='5000' level='4'/>
+            <nmethod compile_id='%1$d' compiler='c2' level='4' method='p.Hot%1$d big (I)J' bytes='%2$d'/>
+            <uncommon_trap thread='1' reason='unstable_if' action='reinterpret' compile_id='%1$d' compiler='c2' level='4'/>
+            """;
+
+    private static final String COMPILATION_LOG = """
+            <compilation_log thread='2'>
+            <task compile_id='9' method='p.Caller run ()V' bytes='20' count='10000' iicount='10000' level='4'>
+            <type id='1' name='void'/>
+            <type id='2' name='long'/>
+            <type id='3' name='int'/>
+            <klass id='4' name='p/Hot0' flags='1'/>
+            <klass id='5' name='java/lang/String' flags='17'/>
+            <method id='6' holder='4' name='big' return='2' arguments='3' flags='1' bytes='400' iicount='5000'/>
+            <method id='7' holder='4' name='&lt;init&gt;' return='1' arguments='5 3' flags='1' bytes='10' iicount='1'/>
+            <call method='6' count='5000' prof_factor='1' inline='1'/>
+            <inline_fail reason='hot method too big'/>
+            <call method='7' count='1' prof_factor='1' inline='1'/>
+            <inline_success reason='inline (hot)'/>
+            </task>
+            </compilation_log>
+            """;
+
+    private TestCompilationLog() {
+    }
+
+    /**
+     * 写一个含有 {@code tasks} 个编译任务的日志；{@code complete} 为 false 时模拟被强制终止的 JVM，日志在一个元素中间结束。
+     */
+    static Path write(int tasks, boolean complete) throws IOException {
+        Path file = Files.createTempFile("compilation", ".xml");
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            for (int i = 0; i < tasks; i++) {
+                writer.write(String.format(TASK, i, i == 0 ? 400 : 100));
+            }
+            if (!complete) {
+                writer.write("<task_queued compile_id='");
+                return file;
+            }
+            writer.write("</tty>\n");
+            writer.write(COMPILATION_LOG);
+            writer.write("</hotspot_log>\n");
+        }
+        return file;
+    }
+}
@@ -0,0 +1,113 @@
+package com.zhangchengk.panda.study.performance;
+
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.util.ThrowableRunnable;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 通过平台的性能测试工具运行带时间预算的测量，并把每次测量的样本写入 JSON 报告，
+ * 以便在不同版本之间绘制趋势图。
+ * <p>
+ * 报告路径由 Gradle 的 {@code panda.performance.report} 系统属性提供；未设置时只断言不写文件。
+ */
+public final class PerformanceReport {
+
+    private static final int ATTEMPTS = 5;
+
+    private static final List<String> ourEntries = Collections.synchronizedList(new ArrayList<>());
+
+    private PerformanceReport() {
+    }
+
+    /**
+     * 运行一次带预算的性能测量。超出预算时断言失败，从而使 Gradle 的 {@code check} 任务失败。
+     *
+     * @param name     测量名称，即 JSON 中的键
+     * @param budgetMs 单次尝试的时间预算（毫秒）
+     * @param setup    每次尝试前运行，不计入时间
+     * @param test     被测量的代码
+     */
+    public static void measure(@NotNull String name,
+                               int budgetMs,
+                               @NotNull ThrowableRunnable<?> setup,
+                               @NotNull ThrowableRunnable<?> test) {
+        measure(name, budgetMs, ATTEMPTS, setup, test);
+    }
+
+    /**
+     * 与 {@link #measure(String, int, ThrowableRunnable, ThrowableRunnable)} 相同，但可以指定尝试次数，
+     * 用于单次运行就很耗时的测量。
+     */
+    public static void measure(@NotNull String name,
+                               int budgetMs,
+                               int attempts,
+                               @NotNull ThrowableRunnable<?> setup,
+                               @NotNull ThrowableRunnable<?> test) {
+        List<Long> samples = new ArrayList<>();
+        boolean passed = false;
+        try {
+            PlatformTestUtil.startPerformanceTest(name, budgetMs, () -> {
+                        long start = System.nanoTime();
+                        test.run();
+                        samples.add((System.nanoTime() - start) / 1_000_000);
+                    })
+                    .setup(setup)
+                    .attempts(attempts)
+                    .assertTiming();
+            passed = true;
+        }
+        finally {
+            record(name, budgetMs, samples, passed);
+        }
+    }
+
+    /**
+     * 把一个派生指标（例如每次转换的分配字节数）写入报告，不做预算断言。
+     *
+     * @param name  指标名称
+     * @param unit  指标单位
+     * @param value 指标值
+     */
+    public static void metric(@NotNull String name, @NotNull String unit, double value) {
+        ourEntries.add("    {\"name\": \"" + name + "\", \"unit\": \"" + unit + "\", \"value\": " + value + "}");
+        write();
+    }
+
+    private static void record(@NotNull String name, int budgetMs, @NotNull List<Long> samples, boolean passed) {
+        List<Long> sorted = new ArrayList<>(samples);
+        Collections.sort(sorted);
+        long median = sorted.isEmpty() ? -1 : sorted.get(sorted.size() / 2);
+        ourEntries.add("    {\"name\": \"" + name + "\", \"budgetMs\": " + budgetMs +
+                ", \"medianMs\": " + median + ", \"samplesMs\": " + samples + ", \"passed\": " + passed + "}");
+        write();
+    }
+
+    private static void write() {
+        String reportPath = System.getProperty("panda.performance.report");
+        if (reportPath == null) {
+            return;
+        }
+        // Rewrite the whole report so it stays valid JSON whichever test class runs last
+        String json;
+        synchronized (ourEntries) {
+            json = "[\n" + String.join(",\n", ourEntries) + "\n]\n";
+        }
+        try {
+            Path path = Path.of(reportPath);
+            Files.createDirectories(path.getParent());
+            Files.writeString(path, json, StandardCharsets.UTF_8);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
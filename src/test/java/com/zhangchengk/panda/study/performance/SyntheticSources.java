@@ -0,0 +1,98 @@
+package com.zhangchengk.panda.study.performance;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 为性能测试生成大型的合成 Java 源文件。
+ */
+public final class SyntheticSources {
+
+    private SyntheticSources() {
+    }
+
+    /**
+     * 生成只包含数值比较的类，每个方法四行，不应报告任何问题。
+     *
+     * @param methods 方法数量
+     */
+    public static @NotNull String numericComparisons(@NotNull String className, int methods) {
+        StringBuilder text = new StringBuilder(methods * 96);
+        text.append("public class ").append(className).append(" {\n");
+        for (int i = 0; i < methods; i++) {
+            text.append("    boolean m").append(i).append("(int a, long b, double c) {\n")
+                    .append("        return a == ").append(i).append(" || b != a || c == b;\n")
+                    .append("    }\n\n");
+        }
+        return text.append("}\n").toString();
+    }
+
+    /**
+     * 生成只有算术运算的类，既没有比较也没有三元表达式，{@code PandaPatternIndex} 不应为其记录任何位置。
+     *
+     * @param methods 方法数量
+     */
+    public static @NotNull String arithmetic(@NotNull String className, int methods) {
+        StringBuilder text = new StringBuilder(methods * 80);
+        text.append("public class ").append(className).append(" {\n");
+        for (int i = 0; i < methods; i++) {
+            text.append("    long m").append(i).append("(int a, long b) {\n")
+                    .append("        return a * ").append(i).append(" + b - a;\n")
+                    .append("    }\n\n");
+        }
+        return text.append("}\n").toString();
+    }
+
+    /**
+     * 生成包含字符串引用比较的类，每个方法报告一个问题。
+     *
+     * @param methods 方法数量
+     */
+    public static @NotNull String stringComparisons(@NotNull String className, int methods) {
+        StringBuilder text = new StringBuilder(methods * 96);
+        text.append("public class ").append(className).append(" {\n");
+        for (int i = 0; i < methods; i++) {
+            text.append("    boolean m").append(i).append("(String a, String b) {\n")
+                    .append("        return a ").append(i % 2 == 0 ? "==" : "!=").append(" b;\n")
+                    .append("    }\n\n");
+        }
+        return text.append("}\n").toString();
+    }
+
+    /**
+     * 生成包含以三元表达式初始化的局部变量声明的类，每个方法一个三元表达式。
+     *
+     * @param methods 方法数量
+     */
+    public static @NotNull String ternaries(@NotNull String className, int methods) {
+        StringBuilder text = new StringBuilder(methods * 112);
+        text.append("public class ").append(className).append(" {\n");
+        for (int i = 0; i < methods; i++) {
+            text.append("    void m").append(i).append("(boolean flag) {\n")
+                    .append("        String title = flag ? \"a").append(i).append("\" : \"b").append(i).append("\";\n")
+                    .append("        System.out.println(title);\n")
+                    .append("    }\n\n");
+        }
+        return text.append("}\n").toString();
+    }
+
+    /**
+     * 生成覆盖意图支持的各种三元表达式形式的类：非引用条件的声明、var 声明、赋值、
+     * 嵌套的返回值和方法参数。每个方法包含五个顶层三元表达式。
+     *
+     * @param methods 方法数量
+     */
+    public static @NotNull String mixedTernaries(@NotNull String className, int methods) {
+        StringBuilder text = new StringBuilder(methods * 320);
+        text.append("public class ").append(className).append(" {\n");
+        for (int i = 0; i < methods; i++) {
+            text.append("    int m").append(i).append("(int a, int b, boolean flag) {\n")
+                    .append("        int max = a > b ? a : b;\n")
+                    .append("        var label = flag ? \"yes\" : \"no\";\n")
+                    .append("        max = (flag) ? max + 1 : max - 1;\n")
+                    .append("        System.out.println(flag ? label : \"").append(i).append("\");\n")
+                    .append("        return a < 0 ? -1 : a == 0 ? 0 : 1;\n")
+                    .append("    }\n\n");
+        }
+        return text.append("}\n").toString();
+    }
+}